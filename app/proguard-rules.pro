@@ -18,4 +18,8 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+# Objects constructed from JNI code
+-keep class io.github.coap.lxc.ContainerStatus {
+    <init>(java.lang.String, java.lang.String, int, boolean, boolean, int);
+}
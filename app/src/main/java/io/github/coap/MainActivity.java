@@ -16,8 +16,11 @@ import io.github.coap.databinding.ActivityMainBinding;
 import io.github.coap.lxc.LxcNative;
 import io.github.coap.lxc.LxcManager;
 import io.github.coap.lxc.LxcContainer;
+import io.github.coap.lxc.ConsolePump;
 import android.content.ServiceConnection;
 import com.topjohnwu.superuser.ipc.RootService;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @SuppressLint("SetTextI18n")
@@ -29,6 +32,7 @@ public class MainActivity extends AppCompatActivity {
     private IService lxcService;
     private LxcManager lxcManager;
     private LxcContainer currentContainer;
+    private volatile ConsolePump consolePump;
 
     class AIDLConnection implements ServiceConnection {
         
@@ -255,133 +259,106 @@ public class MainActivity extends AppCompatActivity {
      * Start container
      */
     private void startContainer() {
-        new Thread(() -> {
-            try {
-                boolean success = currentContainer.start();
-                runOnUiThread(() -> {
-                    if (success) {
-                        Toast.makeText(this, "Container started successfully", Toast.LENGTH_SHORT).show();
-                        updateContainerInfo();
-                    } else {
-                        Toast.makeText(this, "Failed to start container", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to start container", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to start container: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.startAsync().whenComplete((success, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to start container", error);
+                Toast.makeText(this, "Failed to start container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (success) {
+                Toast.makeText(this, "Container started successfully", Toast.LENGTH_SHORT).show();
+                updateContainerInfo();
+            } else {
+                Toast.makeText(this, "Failed to start container", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
      * Stop container
      */
     private void stopContainer() {
-        new Thread(() -> {
-            try {
-                boolean success = currentContainer.stop();
-                runOnUiThread(() -> {
-                    if (success) {
-                        Toast.makeText(this, "Container stopped successfully", Toast.LENGTH_SHORT).show();
-                        updateContainerInfo();
-                    } else {
-                        Toast.makeText(this, "Failed to stop container", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to stop container", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to stop container: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.stopAsync().whenComplete((success, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to stop container", error);
+                Toast.makeText(this, "Failed to stop container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (success) {
+                Toast.makeText(this, "Container stopped successfully", Toast.LENGTH_SHORT).show();
+                updateContainerInfo();
+            } else {
+                Toast.makeText(this, "Failed to stop container", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
      * Freeze container
      */
     private void freezeContainer() {
-        new Thread(() -> {
-            try {
-                boolean success = currentContainer.freeze();
-                runOnUiThread(() -> {
-                    if (success) {
-                        Toast.makeText(this, "Container frozen successfully", Toast.LENGTH_SHORT).show();
-                        updateContainerInfo();
-                    } else {
-                        Toast.makeText(this, "Failed to freeze container", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to freeze container", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to freeze container: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.freezeAsync().whenComplete((success, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to freeze container", error);
+                Toast.makeText(this, "Failed to freeze container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (success) {
+                Toast.makeText(this, "Container frozen successfully", Toast.LENGTH_SHORT).show();
+                updateContainerInfo();
+            } else {
+                Toast.makeText(this, "Failed to freeze container", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
      * Unfreeze container
      */
     private void unfreezeContainer() {
-        new Thread(() -> {
-            try {
-                boolean success = currentContainer.unfreeze();
-                runOnUiThread(() -> {
-                    if (success) {
-                        Toast.makeText(this, "Container unfrozen successfully", Toast.LENGTH_SHORT).show();
-                        updateContainerInfo();
-                    } else {
-                        Toast.makeText(this, "Failed to unfreeze container", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to unfreeze container", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to unfreeze container: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.unfreezeAsync().whenComplete((success, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to unfreeze container", error);
+                Toast.makeText(this, "Failed to unfreeze container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (success) {
+                Toast.makeText(this, "Container unfrozen successfully", Toast.LENGTH_SHORT).show();
+                updateContainerInfo();
+            } else {
+                Toast.makeText(this, "Failed to unfreeze container", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
      * Destroy container
      */
     private void destroyContainer() {
-        new Thread(() -> {
-            try {
-                boolean success = currentContainer.destroy();
-                runOnUiThread(() -> {
-                    if (success) {
-                        Toast.makeText(this, "Container destroyed successfully", Toast.LENGTH_SHORT).show();
-                        currentContainer = null;
-                        binding.containerNameInput.setText("");
-                        binding.demoOutput.setText("Container destroyed");
-                    } else {
-                        Toast.makeText(this, "Failed to destroy container", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to destroy container", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to destroy container: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.destroyAsync().whenComplete((success, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to destroy container", error);
+                Toast.makeText(this, "Failed to destroy container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (success) {
+                Toast.makeText(this, "Container destroyed successfully", Toast.LENGTH_SHORT).show();
+                currentContainer = null;
+                binding.containerNameInput.setText("");
+                binding.demoOutput.setText("Container destroyed");
+            } else {
+                Toast.makeText(this, "Failed to destroy container", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
      * Create snapshot
      */
     private void createSnapshot() {
-        new Thread(() -> {
-            try {
-                int snapshotId = currentContainer.createSnapshot();
-                runOnUiThread(() -> {
-                    if (snapshotId >= 0) {
-                        Toast.makeText(this, "Snapshot created successfully, ID: " + snapshotId, Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(this, "Failed to create snapshot", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("LXC", "Failed to create snapshot", e);
-                runOnUiThread(() -> Toast.makeText(this, "Failed to create snapshot: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        currentContainer.createSnapshotAsync(stage -> runOnUiThread(() ->
+                binding.demoOutput.setText("Snapshot " + stage))
+        ).whenComplete((snapshotId, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to create snapshot", error);
+                Toast.makeText(this, "Failed to create snapshot: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (snapshotId >= 0) {
+                binding.demoOutput.setText("Snapshot snap" + snapshotId + " created");
+                Toast.makeText(this, "Snapshot created successfully, ID: " + snapshotId, Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Failed to create snapshot", Toast.LENGTH_SHORT).show();
             }
-        }).start();
+        }));
     }
     
     /**
@@ -395,14 +372,57 @@ public class MainActivity extends AppCompatActivity {
      * Open console
      */
     private void openConsole() {
-        runOnUiThread(() -> Toast.makeText(this, "Console functionality not implemented yet", Toast.LENGTH_SHORT).show());
+        if (consolePump != null && !consolePump.isDetached()) {
+            // Second press detaches
+            consolePump.close();
+            return;
+        }
+
+        binding.demoOutput.setText("Console of " + currentContainer.getName() + ":\n");
+        new Thread(() -> {
+            ConsolePump pump = currentContainer.attachConsole(-1, ConsolePump.DEFAULT_ESCAPE, new ConsolePump.Terminal() {
+                @Override
+                public void onOutput(ByteBuffer data) {
+                    String text = StandardCharsets.UTF_8.decode(data).toString();
+                    runOnUiThread(() -> {
+                        if (binding != null) {
+                            binding.demoOutput.append(text);
+                        }
+                    });
+                }
+
+                @Override
+                public void onDetached() {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this, "Console detached", Toast.LENGTH_SHORT).show());
+                }
+            });
+
+            if (pump == null) {
+                runOnUiThread(() -> Toast.makeText(this, "Failed to open console", Toast.LENGTH_SHORT).show());
+                return;
+            }
+            consolePump = pump;
+        }).start();
     }
     
     /**
      * Copy container
      */
     private void copyContainer() {
-        runOnUiThread(() -> Toast.makeText(this, "Copy functionality not implemented yet", Toast.LENGTH_SHORT).show());
+        String copyName = currentContainer.getName() + "-copy";
+        binding.demoOutput.setText("Cloning " + currentContainer.getName() + " to " + copyName + "...");
+        currentContainer.cloneAsync(copyName).whenComplete((copy, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e("LXC", "Failed to copy container", error);
+                Toast.makeText(this, "Failed to copy container: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (copy != null) {
+                binding.demoOutput.setText("Container copied to " + copy.getName());
+                Toast.makeText(this, "Container copied successfully", Toast.LENGTH_SHORT).show();
+            } else {
+                binding.demoOutput.setText("Copy failed");
+                Toast.makeText(this, "Failed to copy container", Toast.LENGTH_SHORT).show();
+            }
+        }));
     }
     
     /**
@@ -461,6 +481,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (consolePump != null) {
+            consolePump.close();
+        }
         if (aidlConn != null) {
             RootService.unbind(aidlConn);
         }
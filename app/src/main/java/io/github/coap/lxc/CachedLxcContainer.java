@@ -0,0 +1,162 @@
+package io.github.coap.lxc;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import io.github.coap.IService;
+
+/**
+ * LxcContainer whose state and config reads are served by an LxcCache
+ * Writes go to the service and update or invalidate the cache.
+ */
+final class CachedLxcContainer extends LxcContainer {
+    private final LxcCache cache;
+
+    CachedLxcContainer(String name, String lxcPath, IService service, LxcCache cache) {
+        super(name, lxcPath, service);
+        this.cache = cache;
+    }
+
+    @Override
+    public String getState() {
+        return cache.getState(getName(), getLxcPath(), super::getState);
+    }
+
+    /**
+     * Derived from the cached state, LXC considers every state but STOPPED as running
+     */
+    @Override
+    public boolean isRunning() {
+        String state = getState();
+        return state != null && !"STOPPED".equals(state) && !"UNKNOWN".equals(state);
+    }
+
+    @Override
+    public String getConfigItem(String key) {
+        return cache.getConfigItem(getName(), getLxcPath(), key, () -> super.getConfigItem(key));
+    }
+
+    @Override
+    public Map<String, String> getConfigItems(String... keys) {
+        // Everything not cached yet is fetched in one call
+        return cache.getConfigItems(getName(), getLxcPath(), keys, missing -> super.getConfigItems(missing));
+    }
+
+    @Override
+    public boolean setConfigItem(String key, String value) {
+        boolean result = super.setConfigItem(key, value);
+        if (result) {
+            cache.putConfigItem(getName(), getLxcPath(), key, value);
+        } else {
+            cache.invalidate(getName(), getLxcPath());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean setConfigItems(Map<String, String> items) {
+        boolean result = super.setConfigItems(items);
+        if (result) {
+            for (Map.Entry<String, String> item : items.entrySet()) {
+                cache.putConfigItem(getName(), getLxcPath(), item.getKey(), item.getValue());
+            }
+        } else {
+            cache.invalidate(getName(), getLxcPath());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean start(boolean useInit) {
+        return invalidateState(super.start(useInit));
+    }
+
+    @Override
+    public boolean stop() {
+        return invalidateState(super.stop());
+    }
+
+    @Override
+    public boolean freeze() {
+        return invalidateState(super.freeze());
+    }
+
+    @Override
+    public boolean unfreeze() {
+        return invalidateState(super.unfreeze());
+    }
+
+    @Override
+    public boolean destroy() {
+        boolean result = super.destroy();
+        cache.invalidate(getName(), getLxcPath());
+        return result;
+    }
+
+    @Override
+    public boolean shutdown(int timeoutSeconds) {
+        return invalidateState(super.shutdown(timeoutSeconds));
+    }
+
+    @Override
+    public OperationResult startForResult(boolean useInit) {
+        return invalidateState(super.startForResult(useInit));
+    }
+
+    @Override
+    public OperationResult stopForResult() {
+        return invalidateState(super.stopForResult());
+    }
+
+    @Override
+    public OperationResult freezeForResult() {
+        return invalidateState(super.freezeForResult());
+    }
+
+    @Override
+    public OperationResult unfreezeForResult() {
+        return invalidateState(super.unfreezeForResult());
+    }
+
+    @Override
+    public OperationResult destroyForResult() {
+        OperationResult result = super.destroyForResult();
+        cache.invalidate(getName(), getLxcPath());
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> startAsync(boolean useInit) {
+        return super.startAsync(useInit).thenApply(this::invalidateState);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> stopAsync() {
+        return super.stopAsync().thenApply(this::invalidateState);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> freezeAsync() {
+        return super.freezeAsync().thenApply(this::invalidateState);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> unfreezeAsync() {
+        return super.unfreezeAsync().thenApply(this::invalidateState);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> destroyAsync() {
+        return super.destroyAsync().whenComplete((result, e) -> cache.invalidate(getName(), getLxcPath()));
+    }
+
+    private boolean invalidateState(boolean result) {
+        cache.invalidateState(getName(), getLxcPath());
+        return result;
+    }
+
+    private OperationResult invalidateState(OperationResult result) {
+        cache.invalidateState(getName(), getLxcPath());
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.coap.lxc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares the result of identical read-only calls running at the same time in the root service
+ * The first caller runs the native call, callers arriving while it runs wait for its result
+ * instead of making their own. Nothing is cached: once the call returns, the next caller runs a
+ * new one. A mutation forgets the calls in flight for its container and LXC path, so callers
+ * arriving after it never get a result read before it.
+ */
+final class CallCoalescer {
+    // Stats indexes
+    static final int STAT_CALLS = 0;
+    static final int STAT_SHARED = 1;
+    static final int STAT_COUNT = 2;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    // Calls on a whole LXC path use a null name
+    private static String prefix(String name, String lxcpath) {
+        return OperationExecutor.key(name, lxcpath) + '\0';
+    }
+
+    /**
+     * Run a call or join an identical one in flight
+     * @param name Container name, null for calls on the whole LXC path
+     * @param call Call identity, e.g. the method name and its arguments
+     */
+    @SuppressWarnings("unchecked")
+    <T> T call(String name, String lxcpath, String call, Supplier<T> supplier) {
+        calls.incrementAndGet();
+        String key = prefix(name, lxcpath) + call;
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            shared.incrementAndGet();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T result = supplier.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Stop sharing calls in flight on a container and on its LXC path
+     */
+    void forget(String name, String lxcpath) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        String container = prefix(name, lxcpath);
+        String path = prefix(null, lxcpath);
+        inFlight.keySet().removeIf(key -> key.startsWith(container) || key.startsWith(path));
+    }
+
+    /**
+     * Get counters, see the STAT_* indexes
+     */
+    long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        stats[STAT_CALLS] = calls.get();
+        stats[STAT_SHARED] = shared.get();
+        return stats;
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.coap.lxc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counters and latency histograms of the IService methods in the root service
+ * Updates are lock-free: an entry is looked up in a concurrent map and then only touched through
+ * atomics, so binder threads never block each other on the statistics. Per-container entries are
+ * optional since they cost a lookup key per call.
+ */
+final class CallStats {
+    // Prometheus histogram bounds in microseconds: powers of two, a factor of four apart from 16us
+    // to 2^30us (~18 minutes). Each is the lower bound of a ServiceStats bucket, so the counts are exact
+    private static final int FIRST_LE_EXPONENT = 4;
+    private static final int LAST_LE_EXPONENT = 30;
+    private static final int LE_EXPONENT_STEP = 2;
+
+    private static final class Entry {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(ServiceStats.BUCKET_COUNT);
+
+        void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(ServiceStats.bucketOf(nanos / 1000));
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+    }
+
+    private record ContainerKey(String method, String name, String lxcPath) {
+    }
+
+    private final Map<String, Entry> methods = new ConcurrentHashMap<>();
+    private final Map<ContainerKey, Entry> containers = new ConcurrentHashMap<>();
+    private volatile boolean perContainer;
+
+    private Entry method(String method) {
+        Entry entry = methods.get(method);
+        return entry != null ? entry : methods.computeIfAbsent(method, m -> new Entry());
+    }
+
+    /**
+     * Mark the start of a call
+     * @return Start timestamp to pass to end()
+     */
+    long begin(String method) {
+        method(method).inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a finished call
+     * @param name Container name, null for calls not about a single container
+     * @param start Timestamp returned by begin()
+     */
+    void end(String method, String name, String lxcPath, long start, boolean failed) {
+        long nanos = System.nanoTime() - start;
+        Entry entry = method(method);
+        entry.inFlight.decrement();
+        entry.record(nanos, failed);
+
+        if (perContainer && name != null) {
+            containers.computeIfAbsent(new ContainerKey(method, name, lxcPath), k -> new Entry())
+                    .record(nanos, failed);
+        }
+    }
+
+    /**
+     * Enable or disable per-container entries, disabling drops the collected ones
+     */
+    void setPerContainer(boolean enabled) {
+        perContainer = enabled;
+        if (!enabled) {
+            containers.clear();
+        }
+    }
+
+    /**
+     * Copy all entries, method totals first
+     */
+    ServiceStats snapshot() {
+        List<String> names = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : methods.entrySet()) {
+            names.add(e.getKey());
+            tags.add(null);
+            entries.add(e.getValue());
+        }
+        for (Map.Entry<ContainerKey, Entry> e : containers.entrySet()) {
+            names.add(e.getKey().method());
+            tags.add(OperationExecutor.key(e.getKey().name(), e.getKey().lxcPath()));
+            entries.add(e.getValue());
+        }
+
+        int count = entries.size();
+        long[] counters = new long[count * ServiceStats.COUNTER_COUNT];
+        long[] buckets = new long[count * ServiceStats.BUCKET_COUNT];
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+            int c = i * ServiceStats.COUNTER_COUNT;
+            counters[c + ServiceStats.CALLS] = entry.calls.sum();
+            counters[c + ServiceStats.FAILURES] = entry.failures.sum();
+            counters[c + ServiceStats.IN_FLIGHT] = entry.inFlight.sum();
+            counters[c + ServiceStats.TOTAL_NANOS] = entry.totalNanos.sum();
+            counters[c + ServiceStats.MAX_NANOS] = entry.maxNanos.get();
+            for (int b = 0; b < ServiceStats.BUCKET_COUNT; b++) {
+                buckets[i * ServiceStats.BUCKET_COUNT + b] = entry.buckets.get(b);
+            }
+        }
+        return new ServiceStats(names.toArray(new String[0]), tags.toArray(new String[0]), counters, buckets);
+    }
+
+    /**
+     * Format a snapshot in the Prometheus text exposition format
+     * Histogram buckets are cumulative and always cover the same fixed bounds, so every series
+     * has the same buckets on every scrape. In-flight calls are only tracked per method.
+     */
+    static String toPrometheus(ServiceStats stats) {
+        StringBuilder out = new StringBuilder();
+        counter(out, stats, "lxc_ipc_calls_total", "counter", ServiceStats.CALLS, true);
+        counter(out, stats, "lxc_ipc_failures_total", "counter", ServiceStats.FAILURES, true);
+        counter(out, stats, "lxc_ipc_in_flight", "gauge", ServiceStats.IN_FLIGHT, false);
+
+        out.append("# TYPE lxc_ipc_latency_seconds histogram\n");
+        for (int i = 0; i < stats.getEntryCount(); i++) {
+            String labels = labels(stats.getMethod(i), stats.getContainer(i));
+            long[] buckets = stats.getBuckets(i);
+            long cumulative = 0;
+            int b = 0;
+            for (int exponent = FIRST_LE_EXPONENT; exponent <= LAST_LE_EXPONENT; exponent += LE_EXPONENT_STEP) {
+                long le = 1L << exponent;
+                // Everything in a bucket is below its exclusive upper bound, and so below le
+                for (; b < buckets.length && ServiceStats.getBucketUpperMicros(b) <= le; b++) {
+                    cumulative += buckets[b];
+                }
+                out.append("lxc_ipc_latency_seconds_bucket{").append(labels)
+                        .append(String.format(Locale.ROOT, ",le=\"%.6f\"} ", le / 1e6)).append(cumulative).append('\n');
+            }
+            for (; b < buckets.length; b++) {
+                cumulative += buckets[b];
+            }
+            out.append("lxc_ipc_latency_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                    .append(cumulative).append('\n');
+            out.append("lxc_ipc_latency_seconds_sum{").append(labels).append("} ")
+                    .append(String.format(Locale.ROOT, "%.9f", stats.getCounter(i, ServiceStats.TOTAL_NANOS) / 1e9))
+                    .append('\n');
+            out.append("lxc_ipc_latency_seconds_count{").append(labels).append("} ")
+                    .append(cumulative).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, ServiceStats stats, String metric, String type, int counter,
+                                boolean perContainer) {
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+        for (int i = 0; i < stats.getEntryCount(); i++) {
+            if (perContainer || stats.getContainer(i) == null) {
+                out.append(metric).append('{').append(labels(stats.getMethod(i), stats.getContainer(i))).append("} ")
+                        .append(stats.getCounter(i, counter)).append('\n');
+            }
+        }
+    }
+
+    private static String labels(String method, String container) {
+        StringBuilder labels = new StringBuilder("method=\"").append(method).append('"');
+        if (container != null) {
+            labels.append(",container=\"").append(container.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return labels.toString();
+    }
+}
@@ -0,0 +1,314 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shifts CPU and memory between the running containers of one LXC path in the root service
+ * Every interval the stall time totals of cpu.pressure and memory.pressure (PSI) are sampled and
+ * turned into the share of the interval each container spent waiting. While any container is
+ * stalled on CPU, cpu.weight is spread between the policy bounds in proportion to the CPU stall
+ * share, otherwise every container goes back to the default weight. memory.high is sized from
+ * memory.current, scaled up by the memory stall share, and the memory budget of the policy is
+ * divided in proportion to these demands. Values move halfway to their target per round, so a
+ * short burst does not make limits swing. The limits a container had are read before its first
+ * round and put back when rebalancing stops; a limit that cannot be read is left alone.
+ */
+final class CgroupRebalancer {
+    private static final String TAG = "CgroupRebalancer";
+
+    // Pressure sample indexes, must match cgroup_pressure_field in cgroup-sample.h
+    static final int CPU_SOME_USEC = 0;
+    static final int MEMORY_SOME_USEC = 1;
+    static final int MEMORY_FULL_USEC = 2;
+    static final int PRESSURE_FIELD_COUNT = 3;
+
+    // Stats indexes
+    static final int STAT_ROUNDS = 0;
+    static final int STAT_TUNED = 1;
+    static final int STAT_WRITES = 2;
+    static final int STAT_FAILED_WRITES = 3;
+    static final int STAT_COUNT = 4;
+
+    // Kernel default of cpu.weight
+    static final int DEFAULT_CPU_WEIGHT = 100;
+    private static final String CPU_WEIGHT = "cpu.weight";
+    private static final String MEMORY_HIGH = "memory.high";
+    // Stall share below which a resource counts as uncontended
+    private static final double CONTENDED_SHARE = 0.01;
+    // Memory demand of a container stalled for the whole interval, relative to its usage
+    private static final double MEMORY_PRESSURE_GAIN = 4;
+
+    /**
+     * Writes cgroup items of a container in order, see IService.setCgroupItems
+     */
+    interface Writer {
+        int write(String name, String[] keys, String[] values);
+    }
+
+    private static final class Tuning {
+        long sampledAt;
+        long cpuStall = -1;
+        long memoryStall = -1;
+        // Shares of the last interval spent stalled, -1 if unknown
+        double cpuShare = -1;
+        double memoryShare = -1;
+        long memoryCurrent = -1;
+        int cpuWeight = DEFAULT_CPU_WEIGHT;
+        // -1 while unlimited
+        long memoryHigh = -1;
+        // Limits before the first round, null if unreadable
+        String originalCpuWeight;
+        String originalMemoryHigh;
+        boolean saved;
+        boolean tuned;
+    }
+
+    private final String lxcPath;
+    private final Supplier<ContainerStatus[]> source;
+    private final Writer writer;
+    private final Map<String, Tuning> tunings = new HashMap<>();
+    private final long[] pressure = new long[PRESSURE_FIELD_COUNT];
+    private final long[] sample = new long[MetricsSeries.FIELD_COUNT];
+
+    private ScheduledExecutorService scheduler;
+    private RebalancePolicy policy;
+    private long rounds;
+    private long writes;
+    private long failedWrites;
+
+    CgroupRebalancer(String lxcPath, Supplier<ContainerStatus[]> source, Writer writer) {
+        this.lxcPath = lxcPath;
+        this.source = source;
+        this.writer = writer;
+    }
+
+    /**
+     * Start or reschedule rebalancing
+     */
+    synchronized void start(RebalancePolicy policy) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        this.policy = policy;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CgroupRebalancer:" + lxcPath);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = policy.getIntervalMillis();
+        scheduler.scheduleWithFixedDelay(this::rebalance, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop rebalancing and put the original limits back on the containers tuned here
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        policy = null;
+        for (Map.Entry<String, Tuning> entry : tunings.entrySet()) {
+            Tuning tuning = entry.getValue();
+            if (!tuning.tuned) {
+                continue;
+            }
+            List<String> keys = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            if (tuning.originalCpuWeight != null) {
+                keys.add(CPU_WEIGHT);
+                values.add(tuning.originalCpuWeight);
+            }
+            if (tuning.originalMemoryHigh != null) {
+                keys.add(MEMORY_HIGH);
+                values.add(tuning.originalMemoryHigh);
+            }
+            if (!keys.isEmpty()) {
+                write(entry.getKey(), keys, values);
+            }
+        }
+        tunings.clear();
+    }
+
+    // Remember the limits a container has before they are first written, and start from them
+    private void save(String name, Tuning tuning) {
+        tuning.saved = true;
+        tuning.originalCpuWeight = read(name, CPU_WEIGHT);
+        tuning.originalMemoryHigh = read(name, MEMORY_HIGH);
+        try {
+            if (tuning.originalCpuWeight != null) {
+                tuning.cpuWeight = Integer.parseInt(tuning.originalCpuWeight);
+            }
+            if (tuning.originalMemoryHigh != null && !"max".equals(tuning.originalMemoryHigh)) {
+                tuning.memoryHigh = Long.parseLong(tuning.originalMemoryHigh);
+            }
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Unexpected limits of " + name + ": " + e.getMessage());
+        }
+    }
+
+    private String read(String name, String key) {
+        String value = LxcNative.nativeGetCgroupItem(name, lxcPath, key);
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    private synchronized void rebalance() {
+        if (policy == null) {
+            return;
+        }
+        try {
+            ContainerStatus[] statuses = source.get();
+            if (statuses == null) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            Set<String> seen = new HashSet<>();
+            Map<String, Tuning> sampled = new LinkedHashMap<>();
+            for (ContainerStatus status : statuses) {
+                if (!status.isRunning()) {
+                    continue;
+                }
+                String name = status.getName();
+                seen.add(name);
+                Tuning tuning = tunings.computeIfAbsent(name, key -> new Tuning());
+                if (!LxcNative.nativeSamplePressure(name, lxcPath, pressure)) {
+                    continue;
+                }
+                long intervalMicros = (now - tuning.sampledAt) / 1000;
+                tuning.cpuShare = share(tuning.cpuStall, pressure[CPU_SOME_USEC], intervalMicros);
+                tuning.memoryShare = share(tuning.memoryStall, pressure[MEMORY_SOME_USEC], intervalMicros);
+                tuning.cpuStall = pressure[CPU_SOME_USEC];
+                tuning.memoryStall = pressure[MEMORY_SOME_USEC];
+                tuning.sampledAt = now;
+                tuning.memoryCurrent = LxcNative.nativeSampleCgroup(name, lxcPath, sample)
+                        ? sample[MetricsSeries.MEMORY_CURRENT] : -1;
+                if (tuning.cpuShare >= 0 || tuning.memoryShare >= 0) {
+                    sampled.put(name, tuning);
+                }
+            }
+            // Stopped and removed containers start over with their next run
+            tunings.keySet().retainAll(seen);
+            rounds++;
+            assign(sampled);
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            Log.e(TAG, "Rebalancing failed for " + lxcPath, e);
+        }
+    }
+
+    // Share of an interval spent stalled, -1 without a previous sample
+    private static double share(long previous, long current, long intervalMicros) {
+        if (previous < 0 || current < 0 || intervalMicros <= 0) {
+            return -1;
+        }
+        return Math.min(1, Math.max(0, (double) (current - previous) / intervalMicros));
+    }
+
+    private void assign(Map<String, Tuning> sampled) {
+        double maxCpuShare = 0;
+        double totalDemand = 0;
+        int sized = 0;
+        for (Tuning tuning : sampled.values()) {
+            maxCpuShare = Math.max(maxCpuShare, tuning.cpuShare);
+            if (tuning.memoryCurrent >= 0 && tuning.memoryShare >= 0) {
+                totalDemand += demandOf(tuning);
+                sized++;
+            }
+        }
+        long budget = policy.getMemoryBudget() > 0 ? policy.getMemoryBudget() : sized * policy.getMaxMemoryHigh();
+
+        for (Map.Entry<String, Tuning> entry : sampled.entrySet()) {
+            Tuning tuning = entry.getValue();
+            if (!tuning.saved) {
+                save(entry.getKey(), tuning);
+            }
+            List<String> keys = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+
+            int weight = tuning.cpuWeight;
+            if (tuning.cpuShare >= 0 && tuning.originalCpuWeight != null) {
+                int min = policy.getMinCpuWeight();
+                int max = policy.getMaxCpuWeight();
+                int target = maxCpuShare < CONTENDED_SHARE
+                        ? Math.min(max, Math.max(min, DEFAULT_CPU_WEIGHT))
+                        : (int) Math.round(min + (max - min) * tuning.cpuShare / maxCpuShare);
+                weight = Math.abs(target - tuning.cpuWeight) <= 2 ? target : tuning.cpuWeight + (target - tuning.cpuWeight) / 2;
+                if (weight != tuning.cpuWeight) {
+                    keys.add(CPU_WEIGHT);
+                    values.add(Integer.toString(weight));
+                }
+            }
+
+            long high = tuning.memoryHigh;
+            if (tuning.memoryCurrent >= 0 && tuning.memoryShare >= 0 && totalDemand > 0
+                    && tuning.originalMemoryHigh != null) {
+                long target = Math.min(policy.getMaxMemoryHigh(), Math.max(policy.getMinMemoryHigh(),
+                        (long) (budget * (demandOf(tuning) / totalDemand))));
+                high = tuning.memoryHigh < 0 ? target : tuning.memoryHigh + (target - tuning.memoryHigh) / 2;
+                // Drifts under 1/64 are not worth a write
+                if (tuning.memoryHigh < 0 || Math.abs(high - tuning.memoryHigh) > tuning.memoryHigh / 64) {
+                    keys.add(MEMORY_HIGH);
+                    values.add(Long.toString(high));
+                } else {
+                    high = tuning.memoryHigh;
+                }
+            }
+
+            if (keys.isEmpty()) {
+                continue;
+            }
+            int written = write(entry.getKey(), keys, values);
+            for (int i = 0; i < written; i++) {
+                if (keys.get(i).equals(CPU_WEIGHT)) {
+                    tuning.cpuWeight = weight;
+                } else {
+                    tuning.memoryHigh = high;
+                }
+                tuning.tuned = true;
+            }
+        }
+    }
+
+    private static double demandOf(Tuning tuning) {
+        return tuning.memoryCurrent * (1 + MEMORY_PRESSURE_GAIN * tuning.memoryShare);
+    }
+
+    private int write(String name, List<String> keys, List<String> values) {
+        int written = Math.max(0, writer.write(name, keys.toArray(new String[0]), values.toArray(new String[0])));
+        writes += written;
+        if (written < keys.size()) {
+            failedWrites += keys.size() - written;
+            Log.w(TAG, "Failed to write " + keys.get(written) + " of " + name);
+        }
+        return written;
+    }
+
+    /**
+     * Get counters, see the STAT_* indexes
+     */
+    synchronized long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        stats[STAT_ROUNDS] = rounds;
+        for (Tuning tuning : tunings.values()) {
+            if (tuning.tuned) {
+                stats[STAT_TUNED]++;
+            }
+        }
+        stats[STAT_WRITES] = writes;
+        stats[STAT_FAILED_WRITES] = failedWrites;
+        return stats;
+    }
+}
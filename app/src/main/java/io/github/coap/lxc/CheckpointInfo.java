@@ -0,0 +1,29 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * State of a container's checkpoint store in the root service
+ *
+ * @param generation   Number of the newest checkpoint generation
+ * @param preDumps     Pre-dumps in the newest generation
+ * @param restorable   Whether a complete checkpoint can be restored
+ * @param bytes        Disk space used by all stored checkpoints
+ * @param dumpedMillis Wall clock time of the restorable checkpoint, 0 if there is none
+ */
+public record CheckpointInfo(long generation, long preDumps, boolean restorable, long bytes, long dumpedMillis) {
+
+    static CheckpointInfo fromArray(long[] values) {
+        if (values == null || values.length < 5) {
+            return new CheckpointInfo(0, 0, false, 0, 0);
+        }
+        return new CheckpointInfo(values[0], values[1], values[2] != 0, values[3], values[4]);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("CheckpointInfo{generation=%d, preDumps=%d, restorable=%b, bytes=%d, dumpedMillis=%d}",
+                generation, preDumps, restorable, bytes, dumpedMillis);
+    }
+}
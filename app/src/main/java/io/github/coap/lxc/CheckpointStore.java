@@ -0,0 +1,241 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import io.github.coap.IOperationCallback;
+
+/**
+ * CRIU checkpoints of containers kept by the root service
+ * Each container has a store under its own directory, so destroying the container drops its
+ * checkpoints. A store holds numbered generations; a generation is a chain of pre-dumps closed
+ * by a final dump:
+ *
+ *   lxcpath/name/checkpoint/3/pre-0, pre-1, ..., dump
+ *
+ * Each pre-dump and the final dump name the previous pre-dump as parent, so with kernel memory
+ * tracking they only write pages dirtied since then, and the final dump, taken while the
+ * container is stopped or briefly frozen, stays small. Once a generation has a complete dump the
+ * older generations are deleted; the next pre-dump starts a new one. Restores use the newest
+ * complete dump. All state is kept on disk, operations on a container are serialized by the
+ * operation executor.
+ */
+final class CheckpointStore {
+    private static final String TAG = "CheckpointStore";
+
+    // Commands of the lxc migrate call, see lxccontainer.h
+    static final int MIGRATE_PRE_DUMP = 0;
+    static final int MIGRATE_DUMP = 1;
+    static final int MIGRATE_RESTORE = 2;
+
+    private static final int ENOENT = 2;
+
+    private static final String STORE_DIR = "checkpoint";
+    private static final String PRE_DUMP_PREFIX = "pre-";
+    private static final String DUMP_DIR = "dump";
+    // Written by CRIU once an image set is complete
+    private static final String INVENTORY = "inventory.img";
+
+    // Checkpoint info indexes
+    static final int INFO_GENERATION = 0;
+    static final int INFO_PRE_DUMPS = 1;
+    static final int INFO_RESTORABLE = 2;
+    static final int INFO_BYTES = 3;
+    static final int INFO_DUMPED_AT = 4;
+    static final int INFO_COUNT = 5;
+
+    private static File storeOf(String name, String lxcpath) {
+        return new File(new File(lxcpath, name), STORE_DIR);
+    }
+
+    private static boolean complete(File images) {
+        return new File(images, INVENTORY).isFile();
+    }
+
+    // Generation numbers present in the store, ascending
+    private static int[] generations(File store) {
+        String[] entries = store.list();
+        if (entries == null) {
+            return new int[0];
+        }
+        return Arrays.stream(entries)
+                .filter(entry -> !entry.isEmpty() && entry.chars().allMatch(Character::isDigit))
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .toArray();
+    }
+
+    private static int preDumpCount(File generation) {
+        int count = 0;
+        while (complete(new File(generation, PRE_DUMP_PREFIX + count))) {
+            count++;
+        }
+        return count;
+    }
+
+    // Newest generation without a complete dump, a new one if there is none
+    private static File openGeneration(File store) {
+        int[] generations = generations(store);
+        if (generations.length > 0) {
+            File newest = new File(store, Integer.toString(generations[generations.length - 1]));
+            if (!complete(new File(newest, DUMP_DIR))) {
+                return newest;
+            }
+        }
+        return new File(store, Integer.toString(generations.length > 0 ? generations[generations.length - 1] + 1 : 0));
+    }
+
+    private static File newestDump(File store) {
+        int[] generations = generations(store);
+        for (int i = generations.length - 1; i >= 0; i--) {
+            File dump = new File(new File(store, Integer.toString(generations[i])), DUMP_DIR);
+            if (complete(dump)) {
+                return dump;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pre-dump a running container into the open generation
+     * @return Number of pre-dumps in the generation, or the negative migrate result
+     */
+    int preDump(String name, String lxcpath) {
+        File generation = openGeneration(storeOf(name, lxcpath));
+        int index = preDumpCount(generation);
+        File images = new File(generation, PRE_DUMP_PREFIX + index);
+        int result = migrate(name, lxcpath, MIGRATE_PRE_DUMP, images, index > 0 ? PRE_DUMP_PREFIX + (index - 1) : null, false);
+        return result == 0 ? index + 1 : result;
+    }
+
+    /**
+     * Dump a container, closing the open generation
+     * @param preDumps Pre-dumps to run first, each writes only pages dirtied since the last one
+     * @param stop Stop the container after the dump
+     * @param onStage Called with IOperationCallback.STAGE_* before each step
+     * @return Generation number, or the negative migrate result
+     */
+    int checkpoint(String name, String lxcpath, int preDumps, boolean stop, Consumer<String> onStage) {
+        File store = storeOf(name, lxcpath);
+        for (int i = 0; i < preDumps; i++) {
+            onStage.accept(IOperationCallback.STAGE_PRE_DUMPING);
+            int result = preDump(name, lxcpath);
+            if (result < 0) {
+                return result;
+            }
+        }
+
+        onStage.accept(IOperationCallback.STAGE_DUMPING);
+        File generation = openGeneration(store);
+        int parents = preDumpCount(generation);
+        int result = migrate(name, lxcpath, MIGRATE_DUMP, new File(generation, DUMP_DIR),
+                parents > 0 ? PRE_DUMP_PREFIX + (parents - 1) : null, stop);
+        if (result != 0) {
+            return result;
+        }
+
+        int current = Integer.parseInt(generation.getName());
+        for (int old : generations(store)) {
+            if (old < current) {
+                deleteRecursively(new File(store, Integer.toString(old)));
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Restore a stopped container from its newest complete dump
+     * @return 0, -ENOENT without a dump, or the negative migrate result
+     */
+    int restore(String name, String lxcpath) {
+        File dump = newestDump(storeOf(name, lxcpath));
+        if (dump == null) {
+            return -ENOENT;
+        }
+        return migrate(name, lxcpath, MIGRATE_RESTORE, dump, null, false);
+    }
+
+    // Runs a migrate command into a fresh images directory, removed again on failure
+    private static int migrate(String name, String lxcpath, int cmd, File images, String parent, boolean stop) {
+        if (cmd != MIGRATE_RESTORE) {
+            deleteRecursively(images);
+            if (!images.mkdirs()) {
+                Log.w(TAG, "Failed to create " + images);
+                return -1;
+            }
+        }
+        // CRIU resolves the parent relative to the images directory
+        String predumpDir = parent != null ? "../" + parent : null;
+        int result = LxcNative.nativeMigrate(name, lxcpath, cmd, images.getPath(), predumpDir, stop, false, 0);
+        if (result != 0) {
+            Log.w(TAG, "Migrate command " + cmd + " for " + name + " failed: " + result);
+            if (cmd != MIGRATE_RESTORE) {
+                deleteRecursively(images);
+            }
+            return result < 0 ? result : -result;
+        }
+        return 0;
+    }
+
+    /**
+     * Get store state, see the INFO_* indexes
+     */
+    long[] info(String name, String lxcpath) {
+        File store = storeOf(name, lxcpath);
+        long[] info = new long[INFO_COUNT];
+        int[] generations = generations(store);
+        if (generations.length == 0) {
+            return info;
+        }
+
+        File newest = new File(store, Integer.toString(generations[generations.length - 1]));
+        File dump = newestDump(store);
+        info[INFO_GENERATION] = generations[generations.length - 1];
+        info[INFO_PRE_DUMPS] = preDumpCount(newest);
+        info[INFO_RESTORABLE] = dump != null ? 1 : 0;
+        info[INFO_BYTES] = sizeOf(store);
+        info[INFO_DUMPED_AT] = dump != null ? new File(dump, INVENTORY).lastModified() : 0;
+        return info;
+    }
+
+    /**
+     * Delete all checkpoints of a container
+     */
+    boolean discard(String name, String lxcpath) {
+        return deleteRecursively(storeOf(name, lxcpath));
+    }
+
+    private static long sizeOf(File file) {
+        if (Files.isSymbolicLink(file.toPath())) {
+            return 0;
+        }
+        File[] children = file.listFiles();
+        if (children == null) {
+            return file.length();
+        }
+        long size = 0;
+        for (File child : children) {
+            size += sizeOf(child);
+        }
+        return size;
+    }
+
+    // Does not follow symlinks, CRIU links each image set to its parent
+    private static boolean deleteRecursively(File file) {
+        boolean link = Files.isSymbolicLink(file.toPath());
+        if (!link && !file.exists()) {
+            return true;
+        }
+        File[] children = link ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        return file.delete();
+    }
+}
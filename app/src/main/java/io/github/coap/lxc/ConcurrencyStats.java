@@ -0,0 +1,47 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of the container locks and call coalescing in the root service
+ *
+ * @param lockAcquisitions  Mutations that took a container lock
+ * @param lockContended     Acquisitions that had to wait for another mutation
+ * @param lockWaitNanos     Total time spent waiting for container locks
+ * @param lockWaitMaxNanos  Longest wait for a container lock
+ * @param queries           Read-only calls eligible for coalescing
+ * @param coalesced         Read-only calls that shared the result of an identical call in flight
+ */
+public record ConcurrencyStats(long lockAcquisitions, long lockContended, long lockWaitNanos, long lockWaitMaxNanos,
+                               long queries, long coalesced) {
+
+    static ConcurrencyStats fromArray(long[] values) {
+        if (values == null || values.length < 6) {
+            return new ConcurrencyStats(0, 0, 0, 0, 0, 0);
+        }
+        return new ConcurrencyStats(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    /**
+     * Fraction of lock acquisitions that had to wait
+     */
+    public double contentionRate() {
+        return lockAcquisitions == 0 ? 0.0 : (double) lockContended / lockAcquisitions;
+    }
+
+    /**
+     * Fraction of read-only calls that were spared a native call
+     */
+    public double coalescingRate() {
+        return queries == 0 ? 0.0 : (double) coalesced / queries;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("ConcurrencyStats{lockAcquisitions=%d, lockContended=%d, lockWaitNanos=%d, lockWaitMaxNanos=%d, "
+                        + "queries=%d, coalesced=%d, contentionRate=%.2f, coalescingRate=%.2f}",
+                lockAcquisitions, lockContended, lockWaitNanos, lockWaitMaxNanos, queries, coalesced,
+                contentionRate(), coalescingRate());
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+import android.os.Parcelable;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Console tty of a container handed to the client
+ * Holds the pty master and the lease that keeps the tty allocated, closing the handle
+ * releases the tty for other consoles.
+ */
+public final class ConsoleHandle implements Parcelable, Closeable {
+    private static final String TAG = "ConsoleHandle";
+
+    private final ParcelFileDescriptor master;
+    private final ParcelFileDescriptor lease;
+    private final int ttyNum;
+
+    ConsoleHandle(ParcelFileDescriptor master, ParcelFileDescriptor lease, int ttyNum) {
+        this.master = master;
+        this.lease = lease;
+        this.ttyNum = ttyNum;
+    }
+
+    private ConsoleHandle(Parcel in) {
+        master = ParcelFileDescriptor.CREATOR.createFromParcel(in);
+        lease = ParcelFileDescriptor.CREATOR.createFromParcel(in);
+        ttyNum = in.readInt();
+    }
+
+    public static final Creator<ConsoleHandle> CREATOR = new Creator<>() {
+        @Override
+        public ConsoleHandle createFromParcel(Parcel in) {
+            return new ConsoleHandle(in);
+        }
+
+        @Override
+        public ConsoleHandle[] newArray(int size) {
+            return new ConsoleHandle[size];
+        }
+    };
+
+    /**
+     * Get the pty master, reads return console output and writes are console input
+     */
+    public ParcelFileDescriptor getMaster() {
+        return master;
+    }
+
+    /**
+     * Get the tty number that was allocated
+     */
+    public int getTtyNum() {
+        return ttyNum;
+    }
+
+    @Override
+    public void close() {
+        for (ParcelFileDescriptor pfd : new ParcelFileDescriptor[]{master, lease}) {
+            try {
+                pfd.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close console descriptor: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return CONTENTS_FILE_DESCRIPTOR;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        // Returned from the service with PARCELABLE_WRITE_RETURN_VALUE, our copies are closed once sent
+        master.writeToParcel(dest, flags);
+        lease.writeToParcel(dest, flags);
+        dest.writeInt(ttyNum);
+    }
+}
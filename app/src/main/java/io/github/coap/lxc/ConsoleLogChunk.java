@@ -0,0 +1,81 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Slice of a container's console log
+ * Offsets are absolute positions in everything the container has written to its console since
+ * the service started following it, so a reader passes getNextOffset() to the next read.
+ */
+public final class ConsoleLogChunk implements Parcelable {
+    private final long offset;
+    private final long requestedOffset;
+    private final byte[] data;
+
+    ConsoleLogChunk(long requestedOffset, long offset, byte[] data) {
+        this.requestedOffset = requestedOffset;
+        this.offset = offset;
+        this.data = data;
+    }
+
+    private ConsoleLogChunk(Parcel in) {
+        requestedOffset = in.readLong();
+        offset = in.readLong();
+        data = in.createByteArray();
+    }
+
+    public static final Creator<ConsoleLogChunk> CREATOR = new Creator<>() {
+        @Override
+        public ConsoleLogChunk createFromParcel(Parcel in) {
+            return new ConsoleLogChunk(in);
+        }
+
+        @Override
+        public ConsoleLogChunk[] newArray(int size) {
+            return new ConsoleLogChunk[size];
+        }
+    };
+
+    /**
+     * Get absolute offset of the first byte of data
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get offset to pass to the next read
+     */
+    public long getNextOffset() {
+        return offset + data.length;
+    }
+
+    /**
+     * Get log data, empty if nothing new was written
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Get number of bytes that were overwritten before they could be read
+     */
+    public long getSkipped() {
+        return Math.max(0, offset - requestedOffset);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeLong(requestedOffset);
+        dest.writeLong(offset);
+        dest.writeByteArray(data);
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.coap.lxc;
+
+import android.os.ParcelFileDescriptor;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.github.coap.IConsoleLogListener;
+
+/**
+ * Follows container console logs in the root service and pushes new output to subscribers
+ * Subscribers are pipes handed in by clients or listener callbacks. Each subscriber has its own
+ * offset into the container's ConsoleLogTail, so a slow subscriber neither loses data (until the
+ * tail wraps) nor holds up the others: a delivery still in progress just skips the next tick.
+ */
+final class ConsoleLogStreamer {
+    private static final String TAG = "ConsoleLogStreamer";
+
+    private static final long POLL_MS = 250;
+    // Largest chunk pushed to one subscriber per tick
+    private static final int MAX_PUSH = 16 * 1024;
+
+    private abstract static class Subscriber {
+        final ConsoleLogTail tail;
+        long offset;
+        boolean busy;
+        volatile boolean closed;
+
+        Subscriber(ConsoleLogTail tail, long offset) {
+            this.tail = tail;
+            this.offset = offset;
+        }
+
+        // Returns false once the subscriber is gone
+        abstract boolean deliver(ConsoleLogChunk chunk);
+
+        abstract void close();
+    }
+
+    private static final class PipeSubscriber extends Subscriber {
+        private final OutputStream out;
+
+        PipeSubscriber(ConsoleLogTail tail, long offset, ParcelFileDescriptor pfd) {
+            super(tail, offset);
+            this.out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd);
+        }
+
+        @Override
+        boolean deliver(ConsoleLogChunk chunk) {
+            try {
+                out.write(chunk.getData());
+                return true;
+            } catch (IOException e) {
+                // Reader closed its end
+                return false;
+            }
+        }
+
+        @Override
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close console log pipe: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class ListenerSubscriber extends Subscriber {
+        final String name;
+        final String lxcPath;
+        final IConsoleLogListener listener;
+
+        ListenerSubscriber(ConsoleLogTail tail, long offset, String name, String lxcPath, IConsoleLogListener listener) {
+            super(tail, offset);
+            this.name = name;
+            this.lxcPath = lxcPath;
+            this.listener = listener;
+        }
+
+        @Override
+        boolean deliver(ConsoleLogChunk chunk) {
+            try {
+                listener.onConsoleLog(name, lxcPath, chunk.getOffset(), chunk.getData());
+                return true;
+            } catch (RemoteException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void close() {
+        }
+    }
+
+    private final Map<String, ConsoleLogTail> tails = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ConsoleLogPoller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService deliveries = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ConsoleLogDelivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> polling;
+
+    /**
+     * Get the tail of a container, created on first use
+     */
+    ConsoleLogTail tail(String name, String lxcPath) {
+        return tails.computeIfAbsent(OperationExecutor.key(name, lxcPath),
+                key -> new ConsoleLogTail(name, lxcPath, ConsoleLogTail.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Read buffered console output, draining lxc's ring buffer first
+     */
+    ConsoleLogChunk read(String name, String lxcPath, long offset, int maxBytes) {
+        ConsoleLogTail tail = tail(name, lxcPath);
+        tail.poll();
+        return tail.read(offset, maxBytes);
+    }
+
+    /**
+     * Write console output from offset on into a pipe until the reader closes it
+     */
+    void subscribe(String name, String lxcPath, long offset, ParcelFileDescriptor pfd) {
+        add(new PipeSubscriber(tail(name, lxcPath), offset, pfd));
+    }
+
+    /**
+     * Push console output from offset on to a listener until it is unregistered or dies
+     */
+    void subscribe(String name, String lxcPath, long offset, IConsoleLogListener listener) {
+        add(new ListenerSubscriber(tail(name, lxcPath), offset, name, lxcPath, listener));
+    }
+
+    void unsubscribe(IConsoleLogListener listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber instanceof ListenerSubscriber
+                    && ((ListenerSubscriber) subscriber).listener.asBinder() == listener.asBinder()) {
+                remove(subscriber);
+            }
+        }
+    }
+
+    private synchronized void add(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        if (polling == null) {
+            polling = poller.scheduleWithFixedDelay(this::poll, 0, POLL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.closed = true;
+            subscriber.close();
+        }
+        if (subscribers.isEmpty() && polling != null) {
+            polling.cancel(false);
+            polling = null;
+        }
+    }
+
+    private void poll() {
+        List<ConsoleLogTail> polled = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            if (!polled.contains(subscriber.tail)) {
+                subscriber.tail.poll();
+                polled.add(subscriber.tail);
+            }
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                if (subscriber.busy || subscriber.offset >= subscriber.tail.getEnd()) {
+                    continue;
+                }
+                subscriber.busy = true;
+            }
+            deliveries.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        boolean alive = true;
+        while (alive && !subscriber.closed) {
+            ConsoleLogChunk chunk;
+            synchronized (subscriber) {
+                chunk = subscriber.tail.read(subscriber.offset, MAX_PUSH);
+                if (chunk.getData().length == 0) {
+                    subscriber.busy = false;
+                    return;
+                }
+            }
+            alive = subscriber.deliver(chunk);
+            synchronized (subscriber) {
+                subscriber.offset = chunk.getNextOffset();
+            }
+        }
+        synchronized (subscriber) {
+            subscriber.busy = false;
+        }
+        if (!alive) {
+            remove(subscriber);
+        }
+    }
+
+    void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+        }
+        poller.shutdownNow();
+        deliveries.shutdownNow();
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.coap.lxc;
+
+/**
+ * Service-side copy of one container's console log
+ * Reading lxc's console ring buffer consumes it, so the service is its only reader and keeps
+ * what it read in a bounded ring of its own. Clients address that ring by absolute offset and
+ * every client gets only the bytes past its own offset.
+ */
+final class ConsoleLogTail {
+    // Bytes requested from lxc per read, lxc's ring buffer is usually 128 KiB
+    static final int READ_CHUNK = 64 * 1024;
+    static final int DEFAULT_CAPACITY = 256 * 1024;
+
+    private final String name;
+    private final String lxcPath;
+    private final byte[] ring;
+    // Absolute offset one past the last byte read
+    private long end;
+    private int size;
+
+    ConsoleLogTail(String name, String lxcPath, int capacity) {
+        this.name = name;
+        this.lxcPath = lxcPath;
+        this.ring = new byte[capacity];
+    }
+
+    /**
+     * Drain lxc's console ring buffer into this tail
+     * @return Whether new data was read
+     */
+    synchronized boolean poll() {
+        boolean read = false;
+        while (true) {
+            byte[] data = LxcNative.nativeReadConsoleLog(name, lxcPath, READ_CHUNK, false);
+            if (data == null || data.length == 0) {
+                return read;
+            }
+            append(data);
+            read = true;
+            if (data.length < READ_CHUNK) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drop everything buffered here and in lxc, readers continue at the current end offset
+     */
+    synchronized void clear() {
+        LxcNative.nativeReadConsoleLog(name, lxcPath, 0, true);
+        size = 0;
+    }
+
+    private void append(byte[] data) {
+        int length = data.length;
+        int from = 0;
+        if (length > ring.length) {
+            from = length - ring.length;
+        }
+        for (int i = from; i < length; ) {
+            int pos = (int) ((end + i) % ring.length);
+            int n = Math.min(length - i, ring.length - pos);
+            System.arraycopy(data, i, ring, pos, n);
+            i += n;
+        }
+        end += length;
+        size = (int) Math.min((long) size + length, ring.length);
+    }
+
+    /**
+     * Read buffered bytes starting at offset
+     * Offsets older than the buffered window resume at its start, see ConsoleLogChunk.getSkipped()
+     * @param maxBytes Maximum number of bytes returned
+     */
+    synchronized ConsoleLogChunk read(long offset, int maxBytes) {
+        long start = end - size;
+        long from = Math.max(Math.min(offset, end), start);
+        int n = (int) Math.min(end - from, Math.max(0, maxBytes));
+        byte[] data = new byte[n];
+        for (int i = 0; i < n; ) {
+            int pos = (int) ((from + i) % ring.length);
+            int chunk = Math.min(n - i, ring.length - pos);
+            System.arraycopy(ring, pos, data, i, chunk);
+            i += chunk;
+        }
+        return new ConsoleLogChunk(offset, from, data);
+    }
+
+    synchronized long getEnd() {
+        return end;
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Connects a container console to a terminal in the client process
+ * A reader thread per console blocks on the pty master and hands output to the terminal in a
+ * reused direct buffer, input is escape-filtered into a second one, so an active session does
+ * not allocate. Escape handling follows lxc's console: the escape byte followed by 'q' detaches,
+ * the escape byte twice sends it once.
+ */
+public final class ConsolePump implements Closeable {
+    private static final String TAG = "ConsolePump";
+
+    // Ctrl-a, like lxc-console
+    public static final int DEFAULT_ESCAPE = 1;
+    // Disables the detach sequence
+    public static final int NO_ESCAPE = -1;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Receiver of console output
+     */
+    public interface Terminal {
+        /**
+         * Console output, called on the pump thread
+         * @param data Output bytes between position and limit, only valid during the call
+         */
+        void onOutput(ByteBuffer data);
+
+        /**
+         * Console detached by the escape sequence, close() or the console going away
+         */
+        void onDetached();
+    }
+
+    private final ConsoleHandle handle;
+    private final Terminal terminal;
+    private final int escape;
+    private final FileChannel input;
+    private final FileChannel output;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private boolean sawEscape;
+    private volatile boolean detached;
+    private Thread reader;
+
+    /**
+     * Constructor
+     * @param handle Console to pump, owned by the pump from now on
+     * @param escape Escape byte, DEFAULT_ESCAPE or NO_ESCAPE
+     * @param terminal Receiver of console output
+     */
+    public ConsolePump(ConsoleHandle handle, int escape, Terminal terminal) {
+        this.handle = handle;
+        this.escape = escape;
+        this.terminal = terminal;
+        this.input = new FileInputStream(handle.getMaster().getFileDescriptor()).getChannel();
+        this.output = new FileOutputStream(handle.getMaster().getFileDescriptor()).getChannel();
+    }
+
+    /**
+     * Start pumping console output to the terminal
+     */
+    public synchronized ConsolePump start() {
+        if (reader == null && !detached) {
+            reader = new Thread(this::pump, "ConsolePump:tty" + handle.getTtyNum());
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return this;
+    }
+
+    private void pump() {
+        try {
+            while (!detached) {
+                readBuffer.clear();
+                if (input.read(readBuffer) < 0) {
+                    break;
+                }
+                readBuffer.flip();
+                terminal.onOutput(readBuffer);
+            }
+        } catch (IOException e) {
+            if (!detached) {
+                Log.w(TAG, "Console read failed: " + e.getMessage());
+            }
+        }
+        close();
+    }
+
+    /**
+     * Send terminal input to the console
+     * @return false once the console is detached, e.g. by this input's escape sequence
+     */
+    public synchronized boolean write(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length && !detached; i++) {
+            if (!put(data[i])) {
+                flush();
+                close();
+                return false;
+            }
+        }
+        return flush();
+    }
+
+    /**
+     * Send terminal input between position and limit to the console
+     * @return false once the console is detached
+     */
+    public synchronized boolean write(ByteBuffer data) {
+        while (data.hasRemaining() && !detached) {
+            if (!put(data.get())) {
+                flush();
+                close();
+                return false;
+            }
+        }
+        return flush();
+    }
+
+    // Returns false when the detach sequence was seen
+    private boolean put(byte b) {
+        if (escape >= 1) {
+            if (b == escape && !sawEscape) {
+                sawEscape = true;
+                return true;
+            }
+            if (b == 'q' && sawEscape) {
+                return false;
+            }
+            sawEscape = false;
+        }
+        if (!writeBuffer.hasRemaining()) {
+            flush();
+        }
+        writeBuffer.put(b);
+        return true;
+    }
+
+    private boolean flush() {
+        writeBuffer.flip();
+        try {
+            while (writeBuffer.hasRemaining() && !detached) {
+                output.write(writeBuffer);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Console write failed: " + e.getMessage());
+            close();
+        } finally {
+            writeBuffer.clear();
+        }
+        return !detached;
+    }
+
+    /**
+     * Whether the console is detached
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Detach from the console and release its tty
+     */
+    @Override
+    public void close() {
+        synchronized (readBuffer) {
+            if (detached) {
+                return;
+            }
+            detached = true;
+        }
+        // Closing the channel wakes the reader blocked on the pty
+        try {
+            input.close();
+            output.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close console channels: " + e.getMessage());
+        }
+        handle.close();
+        terminal.onDetached();
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a container configuration
+ * Read by the root service from a single container handle, only keys with a value are included
+ */
+public final class ContainerConfig implements Parcelable {
+    private final Map<String, String> items;
+
+    private ContainerConfig(Map<String, String> items) {
+        this.items = Collections.unmodifiableMap(items);
+    }
+
+    /**
+     * Build a snapshot from flattened key/value pairs
+     * @param pairs Array of key0, value0, key1, value1, ...
+     */
+    static ContainerConfig fromPairs(String[] pairs) {
+        Map<String, String> items = new LinkedHashMap<>();
+        if (pairs != null) {
+            for (int i = 0; i + 1 < pairs.length; i += 2) {
+                items.put(pairs[i], pairs[i + 1]);
+            }
+        }
+        return new ContainerConfig(items);
+    }
+
+    private ContainerConfig(Parcel in) {
+        String[] keys = in.createStringArray();
+        String[] values = in.createStringArray();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; keys != null && values != null && i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        this.items = Collections.unmodifiableMap(map);
+    }
+
+    public static final Creator<ContainerConfig> CREATOR = new Creator<>() {
+        @Override
+        public ContainerConfig createFromParcel(Parcel in) {
+            return new ContainerConfig(in);
+        }
+
+        @Override
+        public ContainerConfig[] newArray(int size) {
+            return new ContainerConfig[size];
+        }
+    };
+
+    /**
+     * Get configuration item
+     * @param key Configuration key
+     * @return Value, or null if the key is not set
+     */
+    public String get(String key) {
+        return items.get(key);
+    }
+
+    /**
+     * Get all configured keys
+     */
+    public Set<String> keys() {
+        return items.keySet();
+    }
+
+    /**
+     * Get all configuration items as an unmodifiable map
+     */
+    public Map<String, String> asMap() {
+        return items;
+    }
+
+    /**
+     * Get architecture (lxc.arch)
+     */
+    public String getArch() {
+        return items.get("lxc.arch");
+    }
+
+    /**
+     * Get UTS name (lxc.uts.name)
+     */
+    public String getUtsName() {
+        return items.get("lxc.uts.name");
+    }
+
+    /**
+     * Get rootfs path (lxc.rootfs.path)
+     */
+    public String getRootfsPath() {
+        return items.get("lxc.rootfs.path");
+    }
+
+    /**
+     * Check if the container is started automatically (lxc.start.auto)
+     */
+    public boolean isStartAuto() {
+        return getInt("lxc.start.auto", 0) == 1;
+    }
+
+    /**
+     * Get start order (lxc.start.order)
+     */
+    public int getStartOrder() {
+        return getInt("lxc.start.order", 0);
+    }
+
+    /**
+     * Get start delay in seconds (lxc.start.delay)
+     */
+    public int getStartDelay() {
+        return getInt("lxc.start.delay", 0);
+    }
+
+    /**
+     * Get groups (lxc.group)
+     */
+    public List<String> getGroups() {
+        return splitList(items.get("lxc.group"));
+    }
+
+    /**
+     * Get configuration item as integer
+     * @param key Configuration key
+     * @param defaultValue Value returned if the key is not set or not a number
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = items.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    static List<String> splitList(String value) {
+        if (value == null || value.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.trim().split("[\\s,]+"));
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeStringArray(items.keySet().toArray(new String[0]));
+        dest.writeStringArray(items.values().toArray(new String[0]));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ContainerConfig" + items;
+    }
+}
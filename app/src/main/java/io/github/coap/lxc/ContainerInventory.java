@@ -0,0 +1,281 @@
+package io.github.coap.lxc;
+
+import android.os.RemoteCallbackList;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.github.coap.IInventoryListener;
+
+/**
+ * In-memory list of the containers defined in one LXC path
+ * Runs in the root service. The list is seeded once with list_defined_containers and then kept
+ * current from inotify events on the LXC path and the container directories, so queries no longer
+ * open every container. Pending events are applied before each query, which makes containers
+ * created or destroyed through the service visible right away. While listeners are registered a
+ * thread applies events as they arrive and pushes the changes. If the LXC path cannot be watched,
+ * e.g. because it does not exist yet, queries fall back to scanning it.
+ */
+final class ContainerInventory {
+    private static final String TAG = "ContainerInventory";
+
+    // Longest wait of the listener thread, which only wakes up for events otherwise
+    private static final int WAIT_MS = 60000;
+    // Interval between attempts to watch an LXC path that could not be watched
+    private static final long RETRY_NANOS = 30_000_000_000L;
+    private static final String CONFIG = "config";
+
+    private final String lxcPath;
+    private final Runnable onResize;
+    private final RemoteCallbackList<IInventoryListener> listeners = new RemoteCallbackList<>();
+    private final Set<String> names = new TreeSet<>();
+
+    private long watch;
+    // Watch the listener thread is blocked on, freed by the thread once replaced
+    private long waiting;
+    private long retired;
+    private boolean seeded;
+    private long retryAt = System.nanoTime();
+    private Thread thread;
+    private boolean closed;
+    // Size of names, readable without the lock
+    private volatile int size;
+
+    /**
+     * Constructor
+     * @param onResize Called after the number of containers changed, without the inventory's lock
+     */
+    ContainerInventory(String lxcPath, Runnable onResize) {
+        this.lxcPath = lxcPath;
+        this.onResize = onResize;
+    }
+
+    /**
+     * Number of defined containers as of the last query or event, 0 while the LXC path is not watched
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Names of the defined containers, sorted
+     */
+    String[] list() {
+        String[] known;
+        synchronized (this) {
+            if (!sync()) {
+                return LxcNative.nativeListContainers(lxcPath);
+            }
+            known = names.toArray(new String[0]);
+        }
+        resized();
+        return known;
+    }
+
+    /**
+     * Statuses of the defined containers, read from cached handles
+     */
+    ContainerStatus[] statuses() {
+        String[] known;
+        synchronized (this) {
+            if (!sync()) {
+                return LxcNative.nativeGetContainerStatuses(lxcPath);
+            }
+            known = names.toArray(new String[0]);
+        }
+        resized();
+        return LxcNative.nativeGetContainerStatusesOf(lxcPath, known);
+    }
+
+    /**
+     * Register a listener, starting the listener thread if needed
+     */
+    synchronized void register(IInventoryListener listener) {
+        listeners.register(listener);
+        if (thread == null && !closed) {
+            thread = new Thread(this::run, "ContainerInventory:" + lxcPath);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Unregister a listener, the listener thread exits once no listener is left
+     */
+    synchronized void unregister(IInventoryListener listener) {
+        listeners.unregister(listener);
+        if (waiting != 0) {
+            LxcNative.nativeInventoryKick(waiting);
+        }
+    }
+
+    synchronized void shutdown() {
+        closed = true;
+        reset();
+    }
+
+    private void run() {
+        while (true) {
+            long current;
+            synchronized (this) {
+                if (retired != 0) {
+                    LxcNative.nativeInventoryFree(retired);
+                    retired = 0;
+                }
+                if (closed || listeners.getRegisteredCallbackCount() == 0) {
+                    thread = null;
+                    return;
+                }
+                current = sync() ? watch : 0;
+                waiting = current;
+            }
+
+            if (current == 0) {
+                try {
+                    Thread.sleep(RETRY_NANOS / 1_000_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    synchronized (this) {
+                        thread = null;
+                    }
+                    return;
+                }
+            } else {
+                LxcNative.nativeInventoryWait(current, WAIT_MS);
+            }
+            synchronized (this) {
+                waiting = 0;
+            }
+            resized();
+        }
+    }
+
+    private void resized() {
+        int current;
+        synchronized (this) {
+            current = watch != 0 ? names.size() : 0;
+        }
+        if (current != size) {
+            size = current;
+            onResize.run();
+        }
+    }
+
+    // Bring the list up to date, false if the LXC path is not watched
+    private boolean sync() {
+        if (watch == 0) {
+            if (closed || System.nanoTime() - retryAt < 0) {
+                return false;
+            }
+            watch = LxcNative.nativeInventoryCreate(lxcPath);
+            if (watch == 0) {
+                retryAt = System.nanoTime() + RETRY_NANOS;
+                return false;
+            }
+            seed();
+        }
+
+        while (true) {
+            String[] changed = LxcNative.nativeInventoryRead(watch);
+            if (changed == null) {
+                Log.w(TAG, "Failed to read events for " + lxcPath);
+                reset();
+                return false;
+            }
+            if (changed.length == 0) {
+                return true;
+            }
+
+            Set<String> unique = new LinkedHashSet<>();
+            for (String name : changed) {
+                if (name == null) {
+                    // Events were lost or the LXC path itself went away, start over
+                    reset();
+                    return sync();
+                }
+                unique.add(name);
+            }
+            for (String name : unique) {
+                update(name);
+            }
+        }
+    }
+
+    private void seed() {
+        // Directories without a config yet are watched too, to notice when one is written
+        String[] entries = new File(lxcPath).list();
+        if (entries != null) {
+            for (String entry : entries) {
+                LxcNative.nativeInventoryWatch(watch, entry);
+            }
+        }
+
+        String[] defined = LxcNative.nativeListContainers(lxcPath);
+        Set<String> current = new TreeSet<>();
+        if (defined != null) {
+            Collections.addAll(current, defined);
+        }
+
+        // A reseed reports what changed while events were missed
+        if (seeded) {
+            for (String name : names) {
+                if (!current.contains(name)) {
+                    dispatch(name, IInventoryListener.CHANGE_REMOVED);
+                }
+            }
+            for (String name : current) {
+                if (!names.contains(name)) {
+                    dispatch(name, IInventoryListener.CHANGE_ADDED);
+                }
+            }
+        }
+        names.clear();
+        names.addAll(current);
+        seeded = true;
+    }
+
+    private void update(String name) {
+        // Defined means having a config file, as for list_defined_containers
+        boolean defined = new File(new File(lxcPath, name), CONFIG).isFile();
+        if (defined) {
+            dispatch(name, names.add(name) ? IInventoryListener.CHANGE_ADDED : IInventoryListener.CHANGE_CONFIG);
+        } else if (names.remove(name)) {
+            dispatch(name, IInventoryListener.CHANGE_REMOVED);
+        }
+    }
+
+    // Drop the watch, the next sync creates a new one and reseeds
+    private void reset() {
+        if (watch == 0) {
+            return;
+        }
+        if (watch == waiting) {
+            LxcNative.nativeInventoryKick(watch);
+            retired = watch;
+        } else {
+            LxcNative.nativeInventoryFree(watch);
+        }
+        watch = 0;
+        retryAt = System.nanoTime();
+    }
+
+    private void dispatch(String name, int change) {
+        int count = listeners.beginBroadcast();
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    listeners.getBroadcastItem(i).onInventoryChanged(name, lxcPath, change);
+                } catch (RemoteException e) {
+                    Log.w(TAG, "Failed to deliver inventory change: " + e.getMessage());
+                }
+            }
+        } finally {
+            listeners.finishBroadcast();
+        }
+    }
+}
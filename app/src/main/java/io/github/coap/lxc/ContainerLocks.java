@@ -0,0 +1,97 @@
+package io.github.coap.lxc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Per container locks serializing conflicting mutations of a container in the root service
+ * Binder threads and operation workers take the lock of (lxcpath, name) around calls that change
+ * a container, so e.g. a start and a destroy of the same container cannot interleave. Every
+ * container has its own lock, so mutations of different containers run fully in parallel. A lock
+ * exists while it is held or waited for and is dropped on the last release. Reads take no lock.
+ * Acquisitions that had to wait are counted as contended.
+ */
+final class ContainerLocks {
+    // Stats indexes
+    static final int STAT_ACQUISITIONS = 0;
+    static final int STAT_CONTENDED = 1;
+    static final int STAT_WAIT_TOTAL_NANOS = 2;
+    static final int STAT_WAIT_MAX_NANOS = 3;
+    static final int STAT_COUNT = 4;
+
+    /**
+     * Runs a native call changing a container, serialized with the other mutations of it
+     * Handed to the service components that change containers on their own
+     */
+    interface Mutator {
+        boolean run(String name, String lxcpath, BooleanSupplier call);
+    }
+
+    private static final class Entry {
+        final ReentrantLock lock = new ReentrantLock();
+        // Threads holding or waiting for the lock, only changed inside compute calls of entries
+        int users;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong waitTotalNanos = new AtomicLong();
+    private final AtomicLong waitMaxNanos = new AtomicLong();
+
+    private Entry use(String key) {
+        return entries.compute(key, (k, entry) -> {
+            if (entry == null) {
+                entry = new Entry();
+            }
+            entry.users++;
+            return entry;
+        });
+    }
+
+    private void release(String key) {
+        entries.computeIfPresent(key, (k, entry) -> --entry.users == 0 ? null : entry);
+    }
+
+    /**
+     * Run a call holding the lock of a container
+     */
+    <T> T withLock(String name, String lxcpath, Supplier<T> call) {
+        String key = OperationExecutor.key(name, lxcpath);
+        ReentrantLock lock = use(key).lock;
+        try {
+            acquisitions.incrementAndGet();
+            if (!lock.tryLock()) {
+                contended.incrementAndGet();
+                long start = System.nanoTime();
+                lock.lock();
+                long waited = System.nanoTime() - start;
+                waitTotalNanos.addAndGet(waited);
+                waitMaxNanos.accumulateAndGet(waited, Math::max);
+            }
+            try {
+                return call.get();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            release(key);
+        }
+    }
+
+    /**
+     * Get counters, see the STAT_* indexes
+     */
+    long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        stats[STAT_ACQUISITIONS] = acquisitions.get();
+        stats[STAT_CONTENDED] = contended.get();
+        stats[STAT_WAIT_TOTAL_NANOS] = waitTotalNanos.get();
+        stats[STAT_WAIT_MAX_NANOS] = waitMaxNanos.get();
+        return stats;
+    }
+}
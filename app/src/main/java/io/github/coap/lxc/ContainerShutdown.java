@@ -0,0 +1,26 @@
+package io.github.coap.lxc;
+
+import io.github.coap.IShutdownCallback;
+
+/**
+ * Outcome of one container in a parallel shutdown
+ *
+ * @param name          Container name
+ * @param outcome       One of the IShutdownCallback.OUTCOME_* constants
+ * @param elapsedMillis Time from the start of the shutdown to the outcome
+ */
+public record ContainerShutdown(String name, int outcome, long elapsedMillis) {
+    /**
+     * Whether the container stopped after the shutdown signal, without being killed
+     */
+    public boolean isClean() {
+        return outcome == IShutdownCallback.OUTCOME_SHUT_DOWN;
+    }
+
+    /**
+     * Whether the container is down, cleanly or not
+     */
+    public boolean isDown() {
+        return outcome != IShutdownCallback.OUTCOME_FAILED;
+    }
+}
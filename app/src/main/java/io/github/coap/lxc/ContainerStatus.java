@@ -0,0 +1,122 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Point-in-time status of a single container
+ * Built by the root service in one pass over the defined containers of an LXC path
+ */
+public final class ContainerStatus implements Parcelable {
+    private final String name;
+    private final String state;
+    private final int initPid;
+    private final boolean defined;
+    private final boolean running;
+    private final int errorNum;
+
+    /**
+     * Constructor (also called from native code)
+     * @param name Container name
+     * @param state Container state, e.g. RUNNING or STOPPED
+     * @param initPid PID of the container init process, -1 if not running
+     * @param defined Whether the container is defined
+     * @param running Whether the container is running
+     * @param errorNum LXC error number of the container handle
+     */
+    public ContainerStatus(String name, String state, int initPid, boolean defined, boolean running, int errorNum) {
+        this.name = name;
+        this.state = state;
+        this.initPid = initPid;
+        this.defined = defined;
+        this.running = running;
+        this.errorNum = errorNum;
+    }
+
+    private ContainerStatus(Parcel in) {
+        name = in.readString();
+        state = in.readString();
+        initPid = in.readInt();
+        defined = in.readInt() != 0;
+        running = in.readInt() != 0;
+        errorNum = in.readInt();
+    }
+
+    public static final Creator<ContainerStatus> CREATOR = new Creator<>() {
+        @Override
+        public ContainerStatus createFromParcel(Parcel in) {
+            return new ContainerStatus(in);
+        }
+
+        @Override
+        public ContainerStatus[] newArray(int size) {
+            return new ContainerStatus[size];
+        }
+    };
+
+    /**
+     * Get container name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get container state
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Get PID of the container init process
+     */
+    public int getInitPid() {
+        return initPid;
+    }
+
+    /**
+     * Check if container is defined
+     */
+    public boolean isDefined() {
+        return defined;
+    }
+
+    /**
+     * Check if container is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get LXC error number
+     */
+    public int getErrorNum() {
+        return errorNum;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(name);
+        dest.writeString(state);
+        dest.writeInt(initPid);
+        dest.writeInt(defined ? 1 : 0);
+        dest.writeInt(running ? 1 : 0);
+        dest.writeInt(errorNum);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("ContainerStatus{name='%s', state='%s', initPid=%d, running=%b}",
+                name, state, initPid, running);
+    }
+}
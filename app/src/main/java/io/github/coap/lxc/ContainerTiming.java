@@ -0,0 +1,11 @@
+package io.github.coap.lxc;
+
+/**
+ * Outcome of one container in a batch operation
+ *
+ * @param name          Container name
+ * @param success       Whether the operation succeeded
+ * @param elapsedMillis Time from dispatching the operation to its completion
+ */
+public record ContainerTiming(String name, boolean success, long elapsedMillis) {
+}
@@ -0,0 +1,259 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of exec sessions in the root service, at most one per container
+ * A session keeps a helper attached inside the container, so a command costs a fork/exec there
+ * instead of a full attach. Idle sessions are closed after a timeout, sessions whose helper
+ * died (container restarted, helper killed) are replaced transparently.
+ */
+final class ExecSessionPool {
+    private static final String TAG = "ExecSessionPool";
+
+    static final int DEFAULT_MAX_SESSIONS = 16;
+    static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+    private static final long MIN_IDLE_CHECK_MS = 1000;
+
+    // nativeExecSessionRun results besides a wait status, see exec-session.h
+    private static final int SEND_FAILED = -2;
+    private static final int BROKEN = -3;
+
+    private static final class Session {
+        final String key;
+        final long handle;
+        int users;
+        long lastUsed;
+        // Removed from the pool, closed once the last user releases it
+        boolean closing;
+
+        Session(String key, long handle) {
+            this.key = key;
+            this.handle = handle;
+        }
+    }
+
+    // Access order, eldest entry is the least recently used session
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ExecSessionReaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int maxSessions = DEFAULT_MAX_SESSIONS;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MS;
+    private ScheduledFuture<?> idleCheck;
+    private boolean shutdown;
+
+    private long opened;
+    private long reused;
+    private long recovered;
+    private long evicted;
+
+    ExecSessionPool() {
+        scheduleIdleCheck();
+    }
+
+    /**
+     * Change pool limits, sessions over the new size are closed when idle
+     * @param maxSessions Maximum number of pooled sessions
+     * @param idleTimeoutMillis Idle time after which a session is closed
+     */
+    void configure(int maxSessions, long idleTimeoutMillis) {
+        List<Session> toClose;
+        synchronized (this) {
+            this.maxSessions = Math.max(1, maxSessions);
+            this.idleTimeoutMillis = Math.max(MIN_IDLE_CHECK_MS, idleTimeoutMillis);
+            scheduleIdleCheck();
+            toClose = trimLocked(this.maxSessions);
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Run a command through the container's session
+     * @return Wait status of the command, -1 if it could not be run
+     */
+    int run(String name, String lxcpath, String[] argv, int stdinfd, int stdoutfd, int stderrfd) {
+        // One retry on a fresh session when the request never reached a dead helper
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Session session = acquire(name, lxcpath);
+            if (session == null) {
+                return -1;
+            }
+
+            int status = SEND_FAILED;
+            try {
+                status = LxcNative.nativeExecSessionRun(session.handle, argv, stdinfd, stdoutfd, stderrfd);
+            } finally {
+                release(session, status == SEND_FAILED || status == BROKEN);
+            }
+
+            if (status == SEND_FAILED) {
+                synchronized (this) {
+                    recovered++;
+                }
+                continue;
+            }
+            // A command lost with its helper may have run, it is not repeated
+            return status >= 0 ? status : -1;
+        }
+        return -1;
+    }
+
+    private Session acquire(String name, String lxcpath) {
+        String key = OperationExecutor.key(name, lxcpath);
+        Session stale = null;
+        synchronized (this) {
+            if (shutdown) {
+                return null;
+            }
+            Session session = sessions.get(key);
+            if (session != null && LxcNative.nativeExecSessionAlive(session.handle)) {
+                session.users++;
+                reused++;
+                return session;
+            }
+            if (session != null) {
+                sessions.remove(key);
+                recovered++;
+                stale = retireLocked(session);
+            }
+        }
+        if (stale != null) {
+            LxcNative.nativeExecSessionClose(stale.handle);
+        }
+
+        // Attaching is slow, do it without holding the pool
+        long handle = LxcNative.nativeExecSessionOpen(name, lxcpath);
+        if (handle == 0) {
+            Log.w(TAG, "Failed to open exec session for " + key);
+            return null;
+        }
+
+        Session created = new Session(key, handle);
+        created.users = 1;
+        List<Session> toClose;
+        synchronized (this) {
+            opened++;
+            Session existing = sessions.get(key);
+            if (existing != null || shutdown) {
+                // Lost a race with another caller, ours serves this one command only
+                created.closing = true;
+                return created;
+            }
+            toClose = trimLocked(maxSessions - 1);
+            if (sessions.size() < maxSessions) {
+                sessions.put(key, created);
+            } else {
+                // Every pooled session is busy, stay within the bound
+                created.closing = true;
+            }
+        }
+        closeAll(toClose);
+        return created;
+    }
+
+    private void release(Session session, boolean broken) {
+        boolean close;
+        synchronized (this) {
+            session.users--;
+            session.lastUsed = System.currentTimeMillis();
+            if (broken && !session.closing) {
+                sessions.remove(session.key);
+                session.closing = true;
+            }
+            close = session.closing && session.users == 0;
+        }
+        if (close) {
+            LxcNative.nativeExecSessionClose(session.handle);
+        }
+    }
+
+    // Marks a session removed from the map as closing, returns it if it can be closed right away
+    private Session retireLocked(Session session) {
+        session.closing = true;
+        return session.users == 0 ? session : null;
+    }
+
+    // Evicts idle least recently used sessions until at most limit remain
+    private List<Session> trimLocked(int limit) {
+        List<Session> toClose = new ArrayList<>();
+        Iterator<Session> it = sessions.values().iterator();
+        while (sessions.size() > limit && it.hasNext()) {
+            Session session = it.next();
+            if (session.users == 0) {
+                it.remove();
+                evicted++;
+                toClose.add(retireLocked(session));
+            }
+        }
+        return toClose;
+    }
+
+    private void closeIdle() {
+        List<Session> toClose = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Session> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                Session session = it.next();
+                if (session.users == 0 && now - session.lastUsed >= idleTimeoutMillis) {
+                    it.remove();
+                    evicted++;
+                    toClose.add(retireLocked(session));
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    private void scheduleIdleCheck() {
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+        }
+        long period = Math.max(MIN_IDLE_CHECK_MS, idleTimeoutMillis / 2);
+        idleCheck = reaper.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static void closeAll(List<Session> sessions) {
+        for (Session session : sessions) {
+            if (session != null) {
+                LxcNative.nativeExecSessionClose(session.handle);
+            }
+        }
+    }
+
+    /**
+     * Get counters: pooled sessions, opened, reused, recovered, evicted
+     */
+    synchronized long[] getStats() {
+        return new long[]{sessions.size(), opened, reused, recovered, evicted};
+    }
+
+    /**
+     * Close all idle sessions, busy ones are closed as their commands finish
+     */
+    void shutdown() {
+        List<Session> toClose = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            for (Session session : sessions.values()) {
+                toClose.add(retireLocked(session));
+            }
+            sessions.clear();
+        }
+        reaper.shutdownNow();
+        closeAll(toClose);
+    }
+}
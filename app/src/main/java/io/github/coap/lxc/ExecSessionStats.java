@@ -0,0 +1,29 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of the exec session pool in the root service
+ *
+ * @param sessions  Sessions currently pooled
+ * @param opened    Sessions attached so far
+ * @param reused    Commands served by an existing session
+ * @param recovered Sessions replaced because their helper died
+ * @param evicted   Sessions closed for being idle or over the pool size
+ */
+public record ExecSessionStats(long sessions, long opened, long reused, long recovered, long evicted) {
+
+    static ExecSessionStats fromArray(long[] values) {
+        if (values == null || values.length < 5) {
+            return new ExecSessionStats(0, 0, 0, 0, 0);
+        }
+        return new ExecSessionStats(values[0], values[1], values[2], values[3], values[4]);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("ExecSessionStats{sessions=%d, opened=%d, reused=%d, recovered=%d, evicted=%d}",
+                sessions, opened, reused, recovered, evicted);
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of the native container handle cache in the root service
+ *
+ * @param hits          Lookups served by a cached handle
+ * @param misses        Lookups that had to parse the container config
+ * @param invalidations Cached handles dropped because the config file changed
+ * @param evictions     Cached handles dropped by LRU, destroy or rename
+ * @param size          Handles currently cached
+ * @param capacity      Handles kept at most, sized from the containers known to the service
+ */
+public record HandleCacheStats(long hits, long misses, long invalidations, long evictions, long size, long capacity) {
+
+    static HandleCacheStats fromArray(long[] values) {
+        if (values == null || values.length < 6) {
+            return new HandleCacheStats(0, 0, 0, 0, 0, 0);
+        }
+        return new HandleCacheStats(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    /**
+     * Fraction of lookups served from the cache
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("HandleCacheStats{hits=%d, misses=%d, invalidations=%d, evictions=%d, size=%d, capacity=%d, hitRate=%.2f}",
+                hits, misses, invalidations, evictions, size, capacity, hitRate());
+    }
+}
@@ -0,0 +1,356 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Freezes idle containers in the root service
+ * Every check interval the running containers with a policy are sampled: CPU time from the
+ * cgroup's cpu.stat and network bytes from the interface counters of the container's network
+ * namespace. Busy intervals and service calls that act inside a container (attach, exec,
+ * console) reset its idle time, and a container idle for its policy's idle time is frozen.
+ * Calls that act inside a container first thaw containers frozen here, so callers never see
+ * the freeze; containers frozen by anyone else are left alone.
+ */
+final class IdleFreezer {
+    private static final String TAG = "IdleFreezer";
+
+    static final long CHECK_INTERVAL_MS = 5000;
+
+    // Stats indexes
+    static final int STAT_FROZEN = 0;
+    static final int STAT_FREEZES = 1;
+    static final int STAT_THAWS = 2;
+    static final int STAT_WAKE_TOTAL_NANOS = 3;
+    static final int STAT_WAKE_MAX_NANOS = 4;
+    static final int STAT_COUNT = 5;
+
+    /**
+     * Decides when a container is idle, IdlePolicy is the threshold implementation
+     */
+    interface Policy {
+        /**
+         * Whether the container was busy during a check interval
+         * @param intervalMillis Length of the interval
+         * @param cpuMicros CPU time used in the interval
+         * @param netBytes Bytes received and sent in the interval, loopback excluded
+         */
+        boolean isBusy(long intervalMillis, long cpuMicros, long netBytes);
+
+        /**
+         * Time without activity after which the container is frozen
+         */
+        long getIdleMillis();
+    }
+
+    private static final class Activity {
+        long sampledAt;
+        long cpuMicros = -1;
+        long netBytes = -1;
+        long activeAt;
+        // Calls currently acting inside the container
+        int inFlight;
+        boolean frozenHere;
+    }
+
+    private final Consumer<String> onChange;
+    private final ContainerLocks.Mutator mutator;
+    private final Function<String, ContainerStatus[]> source;
+    // Per container policies by lxcpath/name, defaults by lxcpath
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, Policy> defaultPolicies = new ConcurrentHashMap<>();
+    private final Map<String, Activity> activities = new HashMap<>();
+    private final long[] sample = new long[MetricsSeries.FIELD_COUNT];
+    private ScheduledExecutorService scheduler;
+
+    private long freezes;
+    private long thaws;
+    private long wakeTotalNanos;
+    private long wakeMaxNanos;
+
+    /**
+     * Constructor
+     * @param onChange Called with the lxcpath after a container was frozen or thawed
+     * @param mutator Runs the freeze and thaw calls, serialized with other mutations
+     * @param source Statuses of the containers in an lxcpath, e.g. from the inventory
+     */
+    IdleFreezer(Consumer<String> onChange, ContainerLocks.Mutator mutator, Function<String, ContainerStatus[]> source) {
+        this.onChange = onChange;
+        this.mutator = mutator;
+        this.source = source;
+    }
+
+    /**
+     * Set or clear a policy, checking starts with the first policy
+     * @param name Container name, null for the default of all containers in lxcpath
+     * @param policy Policy, null to remove it
+     */
+    synchronized void setPolicy(String name, String lxcpath, Policy policy) {
+        Map<String, Policy> map = name == null ? defaultPolicies : policies;
+        String key = name == null ? lxcpath : OperationExecutor.key(name, lxcpath);
+        if (policy == null) {
+            map.remove(key);
+        } else {
+            map.put(key, policy);
+        }
+
+        if (scheduler == null && !(policies.isEmpty() && defaultPolicies.isEmpty())) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "IdleFreezer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Policy policyOf(String name, String lxcpath) {
+        Policy own = policies.get(OperationExecutor.key(name, lxcpath));
+        return own != null ? own : defaultPolicies.get(lxcpath);
+    }
+
+    /**
+     * Mark the start of a call acting inside a container, thawing it if it was frozen here
+     * Must be paired with exit()
+     */
+    void enter(String name, String lxcpath) {
+        if (name == null || lxcpath == null) {
+            return;
+        }
+        Activity activity;
+        synchronized (this) {
+            activity = activities.get(OperationExecutor.key(name, lxcpath));
+            if (activity == null) {
+                return;
+            }
+            activity.inFlight++;
+            activity.activeAt = System.currentTimeMillis();
+            // With a call in flight check() claims no freeze, so a container not claimed now stays thawed
+            if (!activity.frozenHere) {
+                return;
+            }
+        }
+
+        // Under the container lock a claimed freeze has either landed or been given up
+        long start = System.nanoTime();
+        boolean[] thawing = new boolean[1];
+        boolean thawed = mutator.run(name, lxcpath, () -> {
+            synchronized (this) {
+                thawing[0] = activity.frozenHere;
+                activity.frozenHere = false;
+            }
+            return !thawing[0] || LxcNative.nativeUnfreezeContainer(name, lxcpath);
+        });
+        if (!thawing[0]) {
+            // Thawed by a concurrent call, or the freeze failed
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        synchronized (this) {
+            if (thawed) {
+                thaws++;
+                wakeTotalNanos += nanos;
+                wakeMaxNanos = Math.max(wakeMaxNanos, nanos);
+            }
+        }
+        if (!thawed) {
+            Log.w(TAG, "Failed to thaw " + name);
+        }
+        onChange.accept(lxcpath);
+    }
+
+    /**
+     * Mark a container as frozen by a caller, so calls acting inside it leave it frozen
+     * Must be called holding the container lock
+     */
+    synchronized void frozenExplicitly(String name, String lxcpath) {
+        Activity activity = activities.get(OperationExecutor.key(name, lxcpath));
+        if (activity != null) {
+            activity.frozenHere = false;
+        }
+    }
+
+    /**
+     * Mark the end of a call started with enter()
+     */
+    synchronized void exit(String name, String lxcpath) {
+        if (name == null || lxcpath == null) {
+            return;
+        }
+        Activity activity = activities.get(OperationExecutor.key(name, lxcpath));
+        if (activity != null && activity.inFlight > 0) {
+            activity.inFlight--;
+            activity.activeAt = System.currentTimeMillis();
+        }
+    }
+
+    private void check() {
+        try {
+            Set<String> paths = new HashSet<>(defaultPolicies.keySet());
+            for (String key : policies.keySet()) {
+                paths.add(key.substring(0, key.lastIndexOf('/')));
+            }
+            Set<String> seen = new HashSet<>();
+            for (String lxcpath : paths) {
+                check(lxcpath, seen);
+            }
+            synchronized (this) {
+                activities.keySet().retainAll(seen);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            Log.e(TAG, "Idle check failed", e);
+        }
+    }
+
+    private void check(String lxcpath, Set<String> seen) {
+        ContainerStatus[] statuses = source.apply(lxcpath);
+        if (statuses == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (ContainerStatus status : statuses) {
+            String name = status.getName();
+            Policy policy = policyOf(name, lxcpath);
+            if (policy == null || !status.isRunning()) {
+                continue;
+            }
+            String key = OperationExecutor.key(name, lxcpath);
+            seen.add(key);
+
+            boolean frozen = "FROZEN".equals(status.getState());
+            Activity activity;
+            synchronized (this) {
+                activity = activities.get(key);
+                if (activity == null) {
+                    activity = new Activity();
+                    activity.activeAt = now;
+                    activities.put(key, activity);
+                }
+                if (frozen) {
+                    continue;
+                }
+                if (activity.frozenHere) {
+                    // Thawed behind our back, it starts a new idle period
+                    activity.frozenHere = false;
+                    activity.activeAt = now;
+                }
+            }
+
+            long cpuMicros = LxcNative.nativeSampleCgroup(name, lxcpath, sample) ? sample[MetricsSeries.CPU_USAGE_USEC] : -1;
+            long netBytes = netBytesOf(status.getInitPid());
+            boolean idle;
+            synchronized (this) {
+                if (activity.cpuMicros >= 0 && cpuMicros >= 0 && policy.isBusy(now - activity.sampledAt,
+                        cpuMicros - activity.cpuMicros, netBytes >= 0 && activity.netBytes >= 0 ? netBytes - activity.netBytes : 0)) {
+                    activity.activeAt = now;
+                }
+                activity.sampledAt = now;
+                activity.cpuMicros = cpuMicros;
+                activity.netBytes = netBytes;
+                idle = activity.inFlight == 0 && now - activity.activeAt >= policy.getIdleMillis();
+            }
+            if (!idle) {
+                continue;
+            }
+
+            // Claimed and frozen under the container lock, so a concurrent enter() waits for the freeze
+            // to land before thawing
+            Activity claimed = activity;
+            boolean[] claiming = new boolean[1];
+            boolean frozeHere = mutator.run(name, lxcpath, () -> {
+                synchronized (this) {
+                    // A call may have arrived since the sample
+                    claiming[0] = claimed.inFlight == 0
+                            && System.currentTimeMillis() - claimed.activeAt >= policy.getIdleMillis();
+                    if (!claiming[0]) {
+                        return false;
+                    }
+                    claimed.frozenHere = true;
+                }
+                if (LxcNative.nativeFreezeContainer(name, lxcpath)) {
+                    return true;
+                }
+                synchronized (this) {
+                    claimed.frozenHere = false;
+                    claimed.activeAt = now;
+                }
+                return false;
+            });
+            if (frozeHere) {
+                synchronized (this) {
+                    freezes++;
+                }
+                onChange.accept(lxcpath);
+            } else if (claiming[0]) {
+                Log.w(TAG, "Failed to freeze idle container " + name);
+            }
+        }
+    }
+
+    // Bytes received and sent on the non-loopback interfaces of a process's network namespace
+    private static long netBytesOf(int pid) {
+        if (pid <= 0) {
+            return -1;
+        }
+        long total = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/" + pid + "/net/dev"))) {
+            // Two header lines, then "iface: rx_bytes rx_packets ... tx_bytes ..."
+            reader.readLine();
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (colon < 0 || line.substring(0, colon).trim().equals("lo")) {
+                    continue;
+                }
+                String[] fields = line.substring(colon + 1).trim().split("\\s+");
+                if (fields.length >= 9) {
+                    total += Long.parseLong(fields[0]) + Long.parseLong(fields[8]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return total;
+    }
+
+    /**
+     * Get counters, see the STAT_* indexes
+     */
+    synchronized long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        for (Iterator<Activity> it = activities.values().iterator(); it.hasNext(); ) {
+            if (it.next().frozenHere) {
+                stats[STAT_FROZEN]++;
+            }
+        }
+        stats[STAT_FREEZES] = freezes;
+        stats[STAT_THAWS] = thaws;
+        stats[STAT_WAKE_TOTAL_NANOS] = wakeTotalNanos;
+        stats[STAT_WAKE_MAX_NANOS] = wakeMaxNanos;
+        return stats;
+    }
+
+    synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
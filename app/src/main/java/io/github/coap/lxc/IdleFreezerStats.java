@@ -0,0 +1,36 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of the idle freezer in the root service
+ *
+ * @param frozen          Containers currently frozen by the idle freezer
+ * @param freezes         Idle containers frozen
+ * @param thaws           Frozen containers thawed for an attach, exec or console call
+ * @param wakeTotalNanos  Total time spent thawing
+ * @param wakeMaxNanos    Longest thaw
+ */
+public record IdleFreezerStats(long frozen, long freezes, long thaws, long wakeTotalNanos, long wakeMaxNanos) {
+
+    static IdleFreezerStats fromArray(long[] values) {
+        if (values == null || values.length < 5) {
+            return new IdleFreezerStats(0, 0, 0, 0, 0);
+        }
+        return new IdleFreezerStats(values[0], values[1], values[2], values[3], values[4]);
+    }
+
+    /**
+     * Mean wake latency in nanoseconds, 0 without thaws
+     */
+    public long wakeMeanNanos() {
+        return thaws > 0 ? wakeTotalNanos / thaws : 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("IdleFreezerStats{frozen=%d, freezes=%d, thaws=%d, wakeMeanNanos=%d, wakeMaxNanos=%d}",
+                frozen, freezes, thaws, wakeMeanNanos(), wakeMaxNanos);
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Threshold policy of the idle freezer
+ * A container is busy during a check interval if its CPU usage or network traffic exceeds the
+ * thresholds, and is frozen once it has been neither busy nor touched through the service for
+ * the idle time.
+ */
+public final class IdlePolicy implements Parcelable, IdleFreezer.Policy {
+    private final long idleMillis;
+    private final int maxCpuPermille;
+    private final long maxNetBytesPerSecond;
+
+    /**
+     * Constructor
+     * @param idleMillis Idle time after which the container is frozen
+     * @param maxCpuPermille CPU usage in thousandths of one core up to which the container is idle
+     * @param maxNetBytesPerSecond Network traffic, received plus sent, up to which the container is idle
+     */
+    public IdlePolicy(long idleMillis, int maxCpuPermille, long maxNetBytesPerSecond) {
+        this.idleMillis = idleMillis;
+        this.maxCpuPermille = maxCpuPermille;
+        this.maxNetBytesPerSecond = maxNetBytesPerSecond;
+    }
+
+    private IdlePolicy(Parcel in) {
+        idleMillis = in.readLong();
+        maxCpuPermille = in.readInt();
+        maxNetBytesPerSecond = in.readLong();
+    }
+
+    public static final Creator<IdlePolicy> CREATOR = new Creator<>() {
+        @Override
+        public IdlePolicy createFromParcel(Parcel in) {
+            return new IdlePolicy(in);
+        }
+
+        @Override
+        public IdlePolicy[] newArray(int size) {
+            return new IdlePolicy[size];
+        }
+    };
+
+    @Override
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public int getMaxCpuPermille() {
+        return maxCpuPermille;
+    }
+
+    public long getMaxNetBytesPerSecond() {
+        return maxNetBytesPerSecond;
+    }
+
+    @Override
+    public boolean isBusy(long intervalMillis, long cpuMicros, long netBytes) {
+        if (intervalMillis <= 0) {
+            return true;
+        }
+        // usec per msec is thousandths of a core
+        return cpuMicros / intervalMillis > maxCpuPermille || netBytes * 1000 / intervalMillis > maxNetBytesPerSecond;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeLong(idleMillis);
+        dest.writeInt(maxCpuPermille);
+        dest.writeLong(maxNetBytesPerSecond);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("IdlePolicy{idleMillis=%d, maxCpuPermille=%d, maxNetBytesPerSecond=%d}",
+                idleMillis, maxCpuPermille, maxNetBytesPerSecond);
+    }
+}
@@ -0,0 +1,309 @@
+package io.github.coap.lxc;
+
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.github.coap.IInventoryListener;
+import io.github.coap.IService;
+import io.github.coap.IStateListener;
+
+/**
+ * Opt-in client side cache for container state and configuration
+ * Config items are cached until they are written through this cache, invalidated explicitly, or
+ * the service's inventory reports the container's config file rewritten or the container removed,
+ * so changes made by other clients or on the host are picked up. States expire after a configurable TTL and are refreshed from service state notifications.
+ * Concurrent identical requests are single-flighted so only one service call per key is in flight.
+ */
+public final class LxcCache {
+    private static final String TAG = "LxcCache";
+
+    /**
+     * Default state TTL in milliseconds
+     */
+    public static final long DEFAULT_STATE_TTL_MS = 500;
+
+    private final IService service;
+    private final long stateTtlMillis;
+
+    private final Map<String, CachedState> states = new ConcurrentHashMap<>();
+    private final Map<String, CachedValue> configItems = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> watchedPaths = ConcurrentHashMap.newKeySet();
+    // Bumped on every invalidation, loads that raced with one are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private final IStateListener stateListener = new IStateListener.Stub() {
+        @Override
+        public void onStateChanged(String name, String lxcpath, String state) {
+            generation.incrementAndGet();
+            states.put(stateKey(name, lxcpath), new CachedState(state, SystemClock.elapsedRealtime() + stateTtlMillis));
+        }
+    };
+
+    private final IInventoryListener inventoryListener = new IInventoryListener.Stub() {
+        @Override
+        public void onInventoryChanged(String name, String lxcpath, int change) {
+            if (change == IInventoryListener.CHANGE_CONFIG) {
+                invalidateConfig(name, lxcpath);
+            } else if (change == IInventoryListener.CHANGE_REMOVED) {
+                invalidate(name, lxcpath);
+            }
+        }
+    };
+
+    private record CachedState(String state, long expiresAt) {
+    }
+
+    private record CachedValue(String value) {
+    }
+
+    /**
+     * Cache hit statistics
+     *
+     * @param hits      Requests answered from the cache
+     * @param misses    Requests that called the service
+     * @param coalesced Requests that joined an identical in-flight service call
+     */
+    public record Stats(long hits, long misses, long coalesced) {
+        /**
+         * Fraction of requests that did not need their own service call
+         */
+        public double hitRate() {
+            long total = hits + misses + coalesced;
+            return total == 0 ? 0.0 : (double) (hits + coalesced) / total;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param service AIDL service interface
+     * @param stateTtlMillis How long a container state is served from the cache
+     */
+    public LxcCache(IService service, long stateTtlMillis) {
+        this.service = service;
+        this.stateTtlMillis = stateTtlMillis;
+    }
+
+    /**
+     * Constructor (using default state TTL)
+     * @param service AIDL service interface
+     */
+    public LxcCache(IService service) {
+        this(service, DEFAULT_STATE_TTL_MS);
+    }
+
+    /**
+     * Get a container whose reads go through this cache
+     * @param name Container name
+     * @param lxcPath LXC path
+     */
+    public LxcContainer getContainer(String name, String lxcPath) {
+        watch(lxcPath);
+        return new CachedLxcContainer(name, lxcPath, service, this);
+    }
+
+    /**
+     * Drop cached state and config of a container
+     */
+    public void invalidate(String name, String lxcPath) {
+        invalidateState(name, lxcPath);
+        invalidateConfig(name, lxcPath);
+    }
+
+    /**
+     * Drop cached config of a container
+     */
+    public void invalidateConfig(String name, String lxcPath) {
+        generation.incrementAndGet();
+        String prefix = stateKey(name, lxcPath) + "\n";
+        configItems.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drop cached state of a container
+     */
+    public void invalidateState(String name, String lxcPath) {
+        generation.incrementAndGet();
+        states.remove(stateKey(name, lxcPath));
+    }
+
+    /**
+     * Drop everything
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        states.clear();
+        configItems.clear();
+    }
+
+    /**
+     * Get hit statistics
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), coalesced.sum());
+    }
+
+    /**
+     * Stop receiving state and inventory notifications
+     */
+    public void close() {
+        for (String lxcPath : watchedPaths) {
+            try {
+                service.unregisterStateListener(lxcPath, stateListener);
+            } catch (RemoteException e) {
+                Log.w(TAG, "Failed to unregister state listener: " + e.getMessage());
+            }
+            try {
+                service.unregisterInventoryListener(lxcPath, inventoryListener);
+            } catch (RemoteException e) {
+                Log.w(TAG, "Failed to unregister inventory listener: " + e.getMessage());
+            }
+        }
+        watchedPaths.clear();
+    }
+
+    private void watch(String lxcPath) {
+        if (!watchedPaths.add(lxcPath)) {
+            return;
+        }
+        try {
+            service.registerStateListener(lxcPath, stateListener);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to register state listener, relying on TTL: " + e.getMessage());
+        }
+        try {
+            service.registerInventoryListener(lxcPath, inventoryListener);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to register inventory listener, outside config changes go unnoticed: " + e.getMessage());
+        }
+    }
+
+    String getState(String name, String lxcPath, Supplier<String> loader) {
+        String key = stateKey(name, lxcPath);
+        CachedState cached = states.get(key);
+        if (cached != null && cached.expiresAt() > SystemClock.elapsedRealtime()) {
+            hits.increment();
+            return cached.state();
+        }
+
+        long loadGeneration = generation.get();
+        String state = singleFlight("state\n" + key, loader);
+        // UNKNOWN means the service call failed, do not cache it
+        if (state != null && !"UNKNOWN".equals(state) && generation.get() == loadGeneration) {
+            states.put(key, new CachedState(state, SystemClock.elapsedRealtime() + stateTtlMillis));
+        }
+        return state;
+    }
+
+    String getConfigItem(String name, String lxcPath, String configKey, Supplier<String> loader) {
+        String key = stateKey(name, lxcPath) + "\n" + configKey;
+        CachedValue cached = configItems.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.value();
+        }
+
+        long loadGeneration = generation.get();
+        String value = singleFlight("config\n" + key, loader);
+        // null is also returned when the service call failed, do not cache it
+        if (value != null && generation.get() == loadGeneration) {
+            configItems.put(key, new CachedValue(value));
+        }
+        return value;
+    }
+
+    // Cached keys count as hits, the keys missing are loaded in one call that counts as one miss
+    Map<String, String> getConfigItems(String name, String lxcPath, String[] configKeys,
+                                       Function<String[], Map<String, String>> loader) {
+        Map<String, String> items = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String configKey : configKeys) {
+            CachedValue cached = configItems.get(stateKey(name, lxcPath) + "\n" + configKey);
+            if (cached != null) {
+                hits.increment();
+            } else {
+                missing.add(configKey);
+            }
+            // Missing keys keep their position when loaded
+            items.put(configKey, cached != null ? cached.value() : null);
+        }
+        if (missing.isEmpty()) {
+            return items;
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Map<String, String> fetched = loader.apply(missing.toArray(new String[0]));
+        boolean current = generation.get() == loadGeneration;
+        for (String configKey : missing) {
+            String value = fetched != null ? fetched.get(configKey) : null;
+            // null is also returned when the service call failed, do not cache it
+            if (value != null && current) {
+                configItems.put(stateKey(name, lxcPath) + "\n" + configKey, new CachedValue(value));
+            }
+            items.put(configKey, value);
+        }
+        return items;
+    }
+
+    void putConfigItem(String name, String lxcPath, String configKey, String value) {
+        generation.incrementAndGet();
+        configItems.put(stateKey(name, lxcPath) + "\n" + configKey, new CachedValue(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T singleFlight(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static String stateKey(String name, String lxcPath) {
+        return lxcPath + "\n" + name;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LxcCache" + getStats();
+    }
+}
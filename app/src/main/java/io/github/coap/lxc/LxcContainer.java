@@ -1,10 +1,21 @@
 package io.github.coap.lxc;
 
+import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import io.github.coap.IConsoleLogListener;
 import io.github.coap.IService;
 
 /**
@@ -13,6 +24,7 @@ import io.github.coap.IService;
  */
 public class LxcContainer {
     private static final String TAG = "LxcContainer";
+    private static final int SNAPSHOT_PAGE_SIZE = 64;
     
     private final String name;
     private final String lxcPath;
@@ -112,6 +124,21 @@ public class LxcContainer {
         }
     }
     
+    /**
+     * Shut down container cleanly
+     * Sends the halt signal (lxc.signal.halt) to its init and waits for it to stop
+     * @param timeoutSeconds Longest wait, 0 to return right after the signal was sent
+     * @return Whether the container stopped in time
+     */
+    public boolean shutdown(int timeoutSeconds) {
+        try {
+            return service.shutdownContainer(name, lxcPath, timeoutSeconds);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to shut down container: " + e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * Freeze container
      */
@@ -148,6 +175,188 @@ public class LxcContainer {
         }
     }
     
+    /**
+     * Start container, reporting why it failed
+     * @param useInit Whether to use init process
+     * @return Outcome read from the handle that ran the operation, null if the service could not be reached
+     */
+    public OperationResult startForResult(boolean useInit) {
+        try {
+            return service.startContainerForResult(name, lxcPath, useInit);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to start container: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Start container, reporting why it failed (default not using init process)
+     */
+    public OperationResult startForResult() {
+        return startForResult(false);
+    }
+    
+    /**
+     * Stop container, reporting why it failed
+     * @return Outcome read from the handle that ran the operation, null if the service could not be reached
+     */
+    public OperationResult stopForResult() {
+        try {
+            return service.stopContainerForResult(name, lxcPath);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to stop container: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Freeze container, reporting why it failed
+     * @return Outcome read from the handle that ran the operation, null if the service could not be reached
+     */
+    public OperationResult freezeForResult() {
+        try {
+            return service.freezeContainerForResult(name, lxcPath);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to freeze container: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Unfreeze container, reporting why it failed
+     * @return Outcome read from the handle that ran the operation, null if the service could not be reached
+     */
+    public OperationResult unfreezeForResult() {
+        try {
+            return service.unfreezeContainerForResult(name, lxcPath);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to unfreeze container: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Destroy container, reporting why it failed
+     * @return Outcome read from the handle that ran the operation, null if the service could not be reached
+     */
+    public OperationResult destroyForResult() {
+        try {
+            return service.destroyContainerForResult(name, lxcPath);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to destroy container: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Start container asynchronously
+     * The root service runs the operation on its own executor, no binder thread is held meanwhile
+     * @param useInit Whether to use init process
+     * @return Future completed with the operation result
+     */
+    public CompletableFuture<Boolean> startAsync(boolean useInit) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.startContainerAsync(callback.getOperationId(), name, lxcPath, useInit, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to start container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Start container asynchronously (default not using init process)
+     */
+    public CompletableFuture<Boolean> startAsync() {
+        return startAsync(false);
+    }
+
+    /**
+     * Stop container asynchronously
+     */
+    public CompletableFuture<Boolean> stopAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.stopContainerAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to stop container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Freeze container asynchronously
+     */
+    public CompletableFuture<Boolean> freezeAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.freezeContainerAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to freeze container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Unfreeze container asynchronously
+     */
+    public CompletableFuture<Boolean> unfreezeAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.unfreezeContainerAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to unfreeze container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Destroy container asynchronously
+     */
+    public CompletableFuture<Boolean> destroyAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.destroyContainerAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to destroy container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Clone container asynchronously
+     * A copy-on-write clone is near-instant, but one backed by an overlay keeps depending on this
+     * container's rootfs, which should then stay stopped and unmodified
+     * @param newName Name of the clone
+     * @param newLxcPath LXC path of the clone, null for this container's
+     * @param snapshot Prefer a copy-on-write clone, falling back to a full copy
+     * @return Future completed with the clone, null on failure
+     */
+    public CompletableFuture<LxcContainer> cloneAsync(String newName, String newLxcPath, boolean snapshot) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.cloneContainerAsync(callback.getOperationId(), name, lxcPath, newName, newLxcPath, snapshot, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to clone container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        String path = newLxcPath != null ? newLxcPath : lxcPath;
+        return callback.getFuture().thenApply(success -> success ? new LxcContainer(newName, path, service) : null);
+    }
+
+    /**
+     * Clone container asynchronously into the same LXC path, copy-on-write where possible
+     * @param newName Name of the clone
+     */
+    public CompletableFuture<LxcContainer> cloneAsync(String newName) {
+        return cloneAsync(newName, null, true);
+    }
+
     /**
      * Get configuration item
      * @param key Configuration key
@@ -162,7 +371,7 @@ public class LxcContainer {
     }
     
     /**
-     * Set configuration item
+     * Set configuration item and save the config file
      * @param key Configuration key
      * @param value Configuration value
      */
@@ -175,6 +384,240 @@ public class LxcContainer {
         }
     }
     
+    /**
+     * Get several configuration items in one service call
+     * @param keys Configuration keys
+     * @return Map from key to value, unset keys map to null
+     */
+    public Map<String, String> getConfigItems(String... keys) {
+        Map<String, String> items = new LinkedHashMap<>();
+        try {
+            String[] values = service.getConfigItems(name, lxcPath, keys);
+            if (values != null) {
+                for (int i = 0; i < keys.length && i < values.length; i++) {
+                    items.put(keys[i], values[i]);
+                }
+            }
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get config items: " + e.getMessage());
+        }
+        return items;
+    }
+
+    /**
+     * Set several configuration items and save the config file once
+     * @param items Map from key to value
+     */
+    public boolean setConfigItems(Map<String, String> items) {
+        String[] keys = items.keySet().toArray(new String[0]);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = items.get(keys[i]);
+        }
+        try {
+            return service.setConfigItems(name, lxcPath, keys, values);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set config items: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get all configuration keys supported by LXC
+     */
+    public String[] getConfigKeys() {
+        try {
+            String[] keys = service.getConfigKeys(name, lxcPath);
+            return keys != null ? keys : new String[0];
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get config keys: " + e.getMessage());
+            return new String[0];
+        }
+    }
+
+    /**
+     * Get an immutable snapshot of the whole configuration in one service call
+     */
+    public ContainerConfig getConfig() {
+        try {
+            ContainerConfig config = service.getConfig(name, lxcPath);
+            return config != null ? config : ContainerConfig.fromPairs(null);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get config: " + e.getMessage());
+            return ContainerConfig.fromPairs(null);
+        }
+    }
+
+    /**
+     * Get cgroup item of a running container
+     * @param key cgroup file name, e.g. memory.current
+     */
+    public String getCgroupItem(String key) {
+        try {
+            return service.getCgroupItem(name, lxcPath, key);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get cgroup item: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write several cgroup items of the running container in one service call
+     * Items are written in iteration order, e.g. memory.max, cpu.max, cpu.weight, io.max, pids.max
+     * @return Whether all items were written; on failure the items before the failed one are kept
+     */
+    public boolean setCgroupItems(Map<String, String> items) {
+        String[] keys = items.keySet().toArray(new String[0]);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = items.get(keys[i]);
+        }
+        try {
+            return service.setCgroupItems(name, lxcPath, keys, values) == keys.length;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set cgroup items: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Open a console tty of the running container
+     * @param ttynum tty number, -1 for any free tty
+     * @return Console handle, null on failure. Close it to release the tty
+     */
+    public ConsoleHandle openConsole(int ttynum) {
+        try {
+            return service.openConsole(name, lxcPath, ttynum);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to open console: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Open a console tty and start pumping its output to a terminal
+     * @param ttynum tty number, -1 for any free tty
+     * @param escape Escape byte of the detach sequence, e.g. ConsolePump.DEFAULT_ESCAPE
+     * @param terminal Receiver of console output
+     * @return Running pump, null on failure
+     */
+    public ConsolePump attachConsole(int ttynum, int escape, ConsolePump.Terminal terminal) {
+        ConsoleHandle handle = openConsole(ttynum);
+        if (handle == null) {
+            return null;
+        }
+        return new ConsolePump(handle, escape, terminal).start();
+    }
+
+    /**
+     * Read console output buffered by the service
+     * @param offset Offset to read from, 0 for everything still buffered
+     * @param maxBytes Maximum number of bytes to read
+     * @return Chunk with the data and the offset for the next read, null on failure
+     */
+    public ConsoleLogChunk readConsoleLog(long offset, int maxBytes) {
+        try {
+            return service.readConsoleLog(name, lxcPath, offset, maxBytes);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to read console log: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Clear the console log
+     */
+    public void clearConsoleLog() {
+        try {
+            service.clearConsoleLog(name, lxcPath);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to clear console log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Follow console output through a pipe, close the stream to stop following
+     * @param offset Offset to start from, 0 for everything still buffered
+     * @return Stream of console output, null on failure
+     */
+    public InputStream streamConsoleLog(long offset) {
+        ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to create pipe: " + e.getMessage());
+            return null;
+        }
+
+        try {
+            service.streamConsoleLog(name, lxcPath, offset, pipe[1]);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to stream console log: " + e.getMessage());
+            closeQuietly(pipe[0]);
+            return null;
+        } finally {
+            // The service holds its own copy of the write end
+            closeQuietly(pipe[1]);
+        }
+        return new ParcelFileDescriptor.AutoCloseInputStream(pipe[0]);
+    }
+
+    /**
+     * Follow console output through a listener
+     * @param offset Offset to start from, 0 for everything still buffered
+     */
+    public boolean registerConsoleLogListener(long offset, IConsoleLogListener listener) {
+        try {
+            service.registerConsoleLogListener(name, lxcPath, offset, listener);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to register console log listener: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Stop following console output through a listener
+     */
+    public void unregisterConsoleLogListener(IConsoleLogListener listener) {
+        try {
+            service.unregisterConsoleLogListener(listener);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to unregister console log listener: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor pfd) {
+        try {
+            pfd.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close descriptor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run a command inside the container with its stdio connected to pipes
+     * @param argv Command and arguments
+     * @return Running process, or null on failure
+     */
+    public LxcProcess exec(String... argv) {
+        return LxcProcess.start(service, name, lxcPath, false, LxcProcess.NAMESPACES_ALL,
+                LxcProcess.PERSONALITY_DEFAULT, LxcProcess.ID_DEFAULT, LxcProcess.ID_DEFAULT,
+                argv, LxcProcess.ATTACH_DEFAULT);
+    }
+
+    /**
+     * Run a command through a helper kept attached inside the container
+     * Much cheaper than {@link #exec(String...)} for frequent short commands, the command runs
+     * as the container's root with the helper's environment.
+     * @param argv Command and arguments
+     * @return Running process, or null on failure
+     */
+    public LxcProcess execInSession(String... argv) {
+        return LxcProcess.start((stdin, stdout, stderr) ->
+                service.execInSession(name, lxcPath, argv, stdin, stdout, stderr));
+    }
+
     /**
      * Create snapshot
      */
@@ -186,7 +629,282 @@ public class LxcContainer {
             return -1;
         }
     }
+
+    /**
+     * Create snapshot asynchronously, then prune snapshots outside the retention limits
+     * The root service runs the snapshot on its own executor, no binder thread is held meanwhile
+     * @param progress Receiver of progress stages (IOperationCallback.STAGE_*), may be null
+     * @return Future completed with the snapshot number, -1 on failure
+     */
+    public CompletableFuture<Integer> createSnapshotAsync(Consumer<String> progress) {
+        OperationCallback callback = new OperationCallback(service, progress);
+        try {
+            service.createSnapshotAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to create snapshot: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? callback.getResult() : -1);
+    }
+
+    /**
+     * Create snapshot asynchronously
+     */
+    public CompletableFuture<Integer> createSnapshotAsync() {
+        return createSnapshotAsync(null);
+    }
+
+    /**
+     * Get a page of snapshots, oldest first
+     * @param offset Index of the first snapshot
+     * @param limit Maximum number of snapshots, 0 for all
+     * @return Page, or null on failure
+     */
+    public SnapshotPage listSnapshots(int offset, int limit) {
+        try {
+            return service.listSnapshots(name, lxcPath, offset, limit);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to list snapshots: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get all snapshots, oldest first, fetched in pages
+     */
+    public List<SnapshotInfo> listSnapshots() {
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        SnapshotPage page;
+        do {
+            page = listSnapshots(snapshots.size(), SNAPSHOT_PAGE_SIZE);
+            if (page == null) {
+                break;
+            }
+            snapshots.addAll(page.getSnapshots());
+        } while (page.hasMore() && page.size() > 0);
+        return snapshots;
+    }
+
+    /**
+     * Restore a snapshot asynchronously
+     * @param snapName Snapshot name, e.g. snap0
+     * @param newName Name of the restored container, null to restore over this (stopped) container
+     */
+    public CompletableFuture<Boolean> restoreSnapshotAsync(String snapName, String newName) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.restoreSnapshotAsync(callback.getOperationId(), name, lxcPath, snapName, newName, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to restore snapshot: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Destroy snapshots asynchronously
+     * @param snapNames Snapshot names, none for all snapshots
+     * @return Future completed with the number of snapshots destroyed, -1 on failure
+     */
+    public CompletableFuture<Integer> destroySnapshotsAsync(String... snapNames) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.destroySnapshotsAsync(callback.getOperationId(), name, lxcPath,
+                    snapNames.length > 0 ? snapNames : null, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to destroy snapshots: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? callback.getResult() : -1);
+    }
+
+    /**
+     * Set snapshot retention limits of this container, overriding the LXC path default
+     * @param maxCount Maximum number of snapshots kept, 0 for no limit
+     * @param maxAgeMillis Maximum snapshot age, 0 for no limit
+     */
+    public void setSnapshotRetention(int maxCount, long maxAgeMillis) {
+        try {
+            service.setSnapshotRetention(name, lxcPath, maxCount, maxAgeMillis);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set snapshot retention: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Destroy snapshots outside the retention limits asynchronously
+     * @return Future completed with the number of snapshots destroyed, -1 on failure
+     */
+    public CompletableFuture<Integer> pruneSnapshotsAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.pruneSnapshotsAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to prune snapshots: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? callback.getResult() : -1);
+    }
+
+    /**
+     * Checkpoint the running container with CRIU asynchronously
+     * @param directory Images directory in the root service's view
+     * @param stop Stop the container after the checkpoint
+     */
+    public CompletableFuture<Boolean> checkpointAsync(String directory, boolean stop) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.checkpointAsync(callback.getOperationId(), name, lxcPath, directory, stop, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to checkpoint container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Restore the stopped container from a CRIU checkpoint asynchronously
+     * @param directory Images directory in the root service's view
+     */
+    public CompletableFuture<Boolean> restoreAsync(String directory) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.restoreAsync(callback.getOperationId(), name, lxcPath, directory, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to restore container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Run an lxc migrate command asynchronously
+     * @param cmd IService.MIGRATE_*
+     * @param directory Images directory in the root service's view
+     * @param predumpDir Images directory of the previous pre-dump relative to directory, may be null
+     * @param stop Stop the container after a dump
+     * @param preservesInodes Whether the rootfs keeps its inodes between dump and restore
+     * @return Future completed with 0, or a negative error number on failure
+     */
+    public CompletableFuture<Integer> migrateAsync(int cmd, String directory, String predumpDir, boolean stop,
+                                                   boolean preservesInodes) {
+        return migrate(cmd, directory, predumpDir, stop, preservesInodes, 0);
+    }
+
+    /**
+     * Check CRIU features asynchronously, e.g. IService.FEATURE_MEM_TRACK for incremental pre-dumps
+     * @param features Feature bits to check
+     * @return Future completed with whether all features are supported
+     */
+    public CompletableFuture<Boolean> checkMigrateFeaturesAsync(long features) {
+        return migrate(IService.MIGRATE_FEATURE_CHECK, null, null, false, false, features)
+                .thenApply(result -> result == 0);
+    }
+
+    private CompletableFuture<Integer> migrate(int cmd, String directory, String predumpDir, boolean stop,
+                                               boolean preservesInodes, long features) {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.migrateAsync(callback.getOperationId(), name, lxcPath, cmd, directory, predumpDir, stop,
+                    preservesInodes, features, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to migrate container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? 0 : Math.min(callback.getResult(), -1));
+    }
+
+    /**
+     * Pre-dump the running container into its checkpoint store asynchronously
+     * Pre-dumps only write pages dirtied since the previous one, so repeating them while the
+     * container runs keeps the final checkpoint small.
+     * @return Future completed with the number of pre-dumps since the last checkpoint, -1 on failure
+     */
+    public CompletableFuture<Integer> preDumpAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.preDumpAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to pre-dump container: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? callback.getResult() : -1);
+    }
+
+    /**
+     * Checkpoint the container into its checkpoint store asynchronously, replacing older checkpoints
+     * @param preDumps Pre-dumps to run before the final dump
+     * @param stop Stop the container after the checkpoint
+     * @param progress Receiver of progress stages (IOperationCallback.STAGE_*), may be null
+     * @return Future completed with the checkpoint generation, -1 on failure
+     */
+    public CompletableFuture<Integer> storeCheckpointAsync(int preDumps, boolean stop, Consumer<String> progress) {
+        OperationCallback callback = new OperationCallback(service, progress);
+        try {
+            service.storeCheckpointAsync(callback.getOperationId(), name, lxcPath, preDumps, stop, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to store checkpoint: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture().thenApply(success -> success ? callback.getResult() : -1);
+    }
+
+    /**
+     * Restore the stopped container from its newest stored checkpoint asynchronously
+     */
+    public CompletableFuture<Boolean> restoreCheckpointAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.restoreCheckpointAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to restore checkpoint: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
+
+    /**
+     * Get the state of the container's checkpoint store
+     */
+    public CheckpointInfo getCheckpointInfo() {
+        try {
+            return CheckpointInfo.fromArray(service.getCheckpointInfo(name, lxcPath));
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get checkpoint info: " + e.getMessage());
+            return CheckpointInfo.fromArray(null);
+        }
+    }
+
+    /**
+     * Delete all stored checkpoints asynchronously
+     */
+    public CompletableFuture<Boolean> discardCheckpointsAsync() {
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.discardCheckpointsAsync(callback.getOperationId(), name, lxcPath, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to discard checkpoints: " + e.getMessage());
+            callback.getFuture().complete(false);
+        }
+        return callback.getFuture();
+    }
     
+    /**
+     * Freeze the container once it is idle, overriding the default policy of its LXC path
+     * It is thawed again before the next attach, exec or console call.
+     *
+     * @param policy Policy, null to fall back to the default policy
+     */
+    public boolean setIdlePolicy(IdlePolicy policy) {
+        try {
+            service.setIdlePolicy(name, lxcPath, policy);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set idle policy: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Get network interfaces list
      */
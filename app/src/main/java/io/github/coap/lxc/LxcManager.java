@@ -2,13 +2,26 @@ package io.github.coap.lxc;
 
 import static io.github.coap.lxc.LxcNative.LXC_PATH;
 
+import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import io.github.coap.IInventoryListener;
 import io.github.coap.IService;
+import io.github.coap.IStateListener;
 
 /**
  * LXC Manager, provides multi-container management functionality
@@ -17,6 +30,13 @@ import io.github.coap.IService;
 public record LxcManager(IService service, String defaultLxcPath) {
     private static final String TAG = "LxcManager";
 
+    /**
+     * Default number of containers started or stopped in parallel by batch operations
+     * Batch operations run on the operation threads of the root service, so a higher
+     * concurrency than IService.OPERATION_THREADS is capped to it.
+     */
+    public static final int DEFAULT_BATCH_CONCURRENCY = IService.OPERATION_THREADS;
+
     /**
      * Constructor
      *
@@ -70,19 +90,37 @@ public record LxcManager(IService service, String defaultLxcPath) {
     }
 
     /**
-     * Get running containers list
+     * Get status of all containers in a single service call
      *
      * @param lxcPath LXC path
      */
-    public List<LxcContainer> listRunningContainers(String lxcPath) {
-        List<LxcContainer> runningContainers = new ArrayList<>();
-        List<LxcContainer> allContainers = listContainers(lxcPath);
-        for (LxcContainer container : allContainers) {
-            if (container.isRunning()) {
-                runningContainers.add(container);
+    public List<ContainerStatus> getContainerStatuses(String lxcPath) {
+        List<ContainerStatus> statuses = new ArrayList<>();
+        try {
+            ContainerStatus[] result = service.getContainerStatuses(lxcPath);
+            if (result != null) {
+                statuses.addAll(Arrays.asList(result));
             }
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get container statuses: " + e.getMessage());
         }
-        return runningContainers;
+        return statuses;
+    }
+
+    /**
+     * Get status of all containers (using default path)
+     */
+    public List<ContainerStatus> getContainerStatuses() {
+        return getContainerStatuses(defaultLxcPath);
+    }
+
+    /**
+     * Get running containers list
+     *
+     * @param lxcPath LXC path
+     */
+    public List<LxcContainer> listRunningContainers(String lxcPath) {
+        return listContainersByRunning(lxcPath, true);
     }
 
     /**
@@ -98,14 +136,17 @@ public record LxcManager(IService service, String defaultLxcPath) {
      * @param lxcPath LXC path
      */
     public List<LxcContainer> listStoppedContainers(String lxcPath) {
-        List<LxcContainer> stoppedContainers = new ArrayList<>();
-        List<LxcContainer> allContainers = listContainers(lxcPath);
-        for (LxcContainer container : allContainers) {
-            if (!container.isRunning()) {
-                stoppedContainers.add(container);
+        return listContainersByRunning(lxcPath, false);
+    }
+
+    private List<LxcContainer> listContainersByRunning(String lxcPath, boolean running) {
+        List<LxcContainer> containers = new ArrayList<>();
+        for (ContainerStatus status : getContainerStatuses(lxcPath)) {
+            if (status.isRunning() == running) {
+                containers.add(new LxcContainer(status.getName(), lxcPath, service));
             }
         }
-        return stoppedContainers;
+        return containers;
     }
 
     /**
@@ -115,6 +156,129 @@ public record LxcManager(IService service, String defaultLxcPath) {
         return listStoppedContainers(defaultLxcPath);
     }
 
+    /**
+     * Register a listener for state changes of containers in an LXC path
+     * Only transitions are reported, use getContainerStatuses for the initial state
+     *
+     * @param lxcPath  LXC path
+     * @param listener State listener
+     */
+    public boolean registerStateListener(String lxcPath, IStateListener listener) {
+        try {
+            service.registerStateListener(lxcPath, listener);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to register state listener: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Register a listener for state changes (using default path)
+     *
+     * @param listener State listener
+     */
+    public boolean registerStateListener(IStateListener listener) {
+        return registerStateListener(defaultLxcPath, listener);
+    }
+
+    /**
+     * Unregister a state listener
+     *
+     * @param lxcPath  LXC path
+     * @param listener State listener
+     */
+    public void unregisterStateListener(String lxcPath, IStateListener listener) {
+        try {
+            service.unregisterStateListener(lxcPath, listener);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to unregister state listener: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister a state listener (using default path)
+     *
+     * @param listener State listener
+     */
+    public void unregisterStateListener(IStateListener listener) {
+        unregisterStateListener(defaultLxcPath, listener);
+    }
+
+    /**
+     * Map the status board of an LXC path
+     * The board holds the state and cgroup counters of all containers and is read from shared
+     * memory, without binder calls, so it can be polled at frame rate.
+     *
+     * @param lxcPath LXC path
+     * @return Status board or null on failure
+     */
+    public StatusBoard openStatusBoard(String lxcPath) {
+        try {
+            ParcelFileDescriptor pfd = service.openStatusBoard(lxcPath);
+            return pfd != null ? StatusBoard.map(pfd) : null;
+        } catch (RemoteException | IOException e) {
+            Log.e(TAG, "Failed to open status board: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Map the status board (using default path)
+     */
+    public StatusBoard openStatusBoard() {
+        return openStatusBoard(defaultLxcPath);
+    }
+
+    /**
+     * Register a listener for containers added, removed or reconfigured
+     * Changes made outside of the service, e.g. by lxc-create, are reported too.
+     *
+     * @param lxcPath  LXC path
+     * @param listener Inventory listener
+     */
+    public boolean registerInventoryListener(String lxcPath, IInventoryListener listener) {
+        try {
+            service.registerInventoryListener(lxcPath, listener);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to register inventory listener: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Register a listener for containers added, removed or reconfigured (using default path)
+     *
+     * @param listener Inventory listener
+     */
+    public boolean registerInventoryListener(IInventoryListener listener) {
+        return registerInventoryListener(defaultLxcPath, listener);
+    }
+
+    /**
+     * Unregister an inventory listener
+     *
+     * @param lxcPath  LXC path
+     * @param listener Inventory listener
+     */
+    public void unregisterInventoryListener(String lxcPath, IInventoryListener listener) {
+        try {
+            service.unregisterInventoryListener(lxcPath, listener);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to unregister inventory listener: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister an inventory listener (using default path)
+     *
+     * @param listener Inventory listener
+     */
+    public void unregisterInventoryListener(IInventoryListener listener) {
+        unregisterInventoryListener(defaultLxcPath, listener);
+    }
+
     /**
      * Get container by name
      *
@@ -142,16 +306,136 @@ public record LxcManager(IService service, String defaultLxcPath) {
     }
 
     /**
-     * Create new container
+     * Create new container, blocks until the template has finished
      *
      * @param name     Container name
      * @param lxcPath  LXC path
-     * @param template Template name
-     * @param args     Template arguments
+     * @param template Template name, "none" for an empty container
+     * @param args     Template arguments, may be null
+     * @return Created container or null on failure
      */
     public LxcContainer createContainer(String name, String lxcPath, String template, String[] args) {
-        Log.w(TAG, "Container creation not implemented yet");
-        return null;
+        OperationCallback callback = new OperationCallback(service);
+        try {
+            service.createContainerAsync(callback.getOperationId(), name, lxcPath, template, args, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to create container: " + e.getMessage());
+            return null;
+        }
+        return callback.getFuture().join() ? new LxcContainer(name, lxcPath, service) : null;
+    }
+
+    /**
+     * Keep a pool of started and frozen clones of a template container
+     * Clones are copy-on-write where the template's storage allows it and named template-warm-N.
+     * The template should stay stopped while it has a pool.
+     *
+     * @param template     Template container name
+     * @param lxcPath      LXC path of the template and its clones
+     * @param size         Number of frozen clones to keep, 0 removes the pool and destroys its clones
+     * @param concurrency  Maximum number of clones warmed at the same time
+     * @param settleMillis Time a started clone runs before it is frozen, -1 for the default
+     */
+    public boolean configureWarmPool(String template, String lxcPath, int size, int concurrency, long settleMillis) {
+        try {
+            service.configureWarmPool(template, lxcPath, size, concurrency, settleMillis);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to configure warm pool: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Keep a pool of started and frozen clones of a template (using default path, concurrency and settle time)
+     *
+     * @param template Template container name
+     * @param size     Number of frozen clones to keep, 0 removes the pool
+     */
+    public boolean configureWarmPool(String template, int size) {
+        return configureWarmPool(template, defaultLxcPath, size, DEFAULT_BATCH_CONCURRENCY, -1);
+    }
+
+    /**
+     * Take a running container from a warm pool, which only costs an unfreeze
+     * The container leaves the pool and keeps its pool name, the pool refills in the background.
+     *
+     * @param template Template container name
+     * @param lxcPath  LXC path
+     * @return Running container or null if no clone is ready, e.g. right after configuring the pool
+     */
+    public LxcContainer takeWarmContainer(String template, String lxcPath) {
+        try {
+            String name = service.takeWarmContainer(template, lxcPath);
+            return name != null ? new LxcContainer(name, lxcPath, service) : null;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to take warm container: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Take a running container from a warm pool (using default path)
+     *
+     * @param template Template container name
+     */
+    public LxcContainer takeWarmContainer(String template) {
+        return takeWarmContainer(template, defaultLxcPath);
+    }
+
+    /**
+     * Get warm pool statistics
+     *
+     * @param template Template container name
+     * @param lxcPath  LXC path
+     */
+    public WarmPoolStats getWarmPoolStats(String template, String lxcPath) {
+        try {
+            return WarmPoolStats.fromArray(service.getWarmPoolStats(template, lxcPath));
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get warm pool stats: " + e.getMessage());
+            return WarmPoolStats.fromArray(null);
+        }
+    }
+
+    /**
+     * Freeze the containers of an LXC path once they are idle
+     * Running containers whose CPU usage and network traffic stay within the policy's thresholds,
+     * and that see no attach, exec or console call, are frozen after the policy's idle time. The
+     * next such call thaws them first. A container's own policy overrides this default.
+     *
+     * @param lxcPath LXC path
+     * @param policy  Policy, null to stop freezing containers without their own policy
+     */
+    public boolean setIdlePolicy(String lxcPath, IdlePolicy policy) {
+        try {
+            service.setIdlePolicy(null, lxcPath, policy);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set idle policy: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Freeze containers once they are idle (using default path)
+     *
+     * @param policy Policy, null to stop freezing containers without their own policy
+     */
+    public boolean setIdlePolicy(IdlePolicy policy) {
+        return setIdlePolicy(defaultLxcPath, policy);
+    }
+
+    /**
+     * Get idle freezer statistics
+     */
+    public IdleFreezerStats getIdleFreezerStats() {
+        try {
+            return IdleFreezerStats.fromArray(service.getIdleFreezerStats());
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get idle freezer stats: " + e.getMessage());
+            return IdleFreezerStats.fromArray(null);
+        }
     }
 
     /**
@@ -162,6 +446,488 @@ public record LxcManager(IService service, String defaultLxcPath) {
         return defaultLxcPath;
     }
 
+    /**
+     * Start all auto-start containers (lxc.start.auto = 1) that are not running yet
+     * Containers are started in tiers of equal lxc.start.order, lower values first, like lxc-autostart.
+     * Containers within a tier start in parallel, the next tier starts after the largest
+     * lxc.start.delay of the previous tier has passed.
+     *
+     * @param lxcPath     LXC path
+     * @param concurrency Maximum number of containers starting at the same time, at most IService.OPERATION_THREADS
+     * @return Timing of every container that was started, in start order
+     */
+    public List<ContainerTiming> startAll(String lxcPath, int concurrency) {
+        return startGroup(lxcPath, null, concurrency);
+    }
+
+    /**
+     * Start all auto-start containers (using default path and concurrency)
+     */
+    public List<ContainerTiming> startAll() {
+        return startAll(defaultLxcPath, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Start the auto-start containers of a group (lxc.group)
+     *
+     * @param lxcPath     LXC path
+     * @param group       Group name, null for all auto-start containers
+     * @param concurrency Maximum number of containers starting at the same time, at most IService.OPERATION_THREADS
+     */
+    public List<ContainerTiming> startGroup(String lxcPath, String group, int concurrency) {
+        List<ScheduledContainer> scheduled = new ArrayList<>();
+        for (ContainerStatus status : getContainerStatuses(lxcPath)) {
+            if (status.isRunning()) {
+                continue;
+            }
+            ScheduledContainer entry = schedule(new LxcContainer(status.getName(), lxcPath, service));
+            if (entry.autoStart() && entry.inGroup(group)) {
+                scheduled.add(entry);
+            }
+        }
+        return runTiers(scheduled, false, concurrency, LxcContainer::startAsync);
+    }
+
+    /**
+     * Start the auto-start containers of a group (using default path and concurrency)
+     *
+     * @param group Group name
+     */
+    public List<ContainerTiming> startGroup(String group) {
+        return startGroup(defaultLxcPath, group, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Stop all running containers
+     * Tiers run in reverse lxc.start.order, containers within a tier stop in parallel.
+     *
+     * @param lxcPath     LXC path
+     * @param concurrency Maximum number of containers stopping at the same time, at most IService.OPERATION_THREADS
+     * @return Timing of every container that was stopped, in stop order
+     */
+    public List<ContainerTiming> stopAll(String lxcPath, int concurrency) {
+        return stopGroup(lxcPath, null, concurrency);
+    }
+
+    /**
+     * Stop all running containers (using default path and concurrency)
+     */
+    public List<ContainerTiming> stopAll() {
+        return stopAll(defaultLxcPath, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Stop the running containers of a group (lxc.group)
+     *
+     * @param lxcPath     LXC path
+     * @param group       Group name, null for all running containers
+     * @param concurrency Maximum number of containers stopping at the same time, at most IService.OPERATION_THREADS
+     */
+    public List<ContainerTiming> stopGroup(String lxcPath, String group, int concurrency) {
+        List<ScheduledContainer> scheduled = new ArrayList<>();
+        for (ContainerStatus status : getContainerStatuses(lxcPath)) {
+            if (!status.isRunning()) {
+                continue;
+            }
+            ScheduledContainer entry = schedule(new LxcContainer(status.getName(), lxcPath, service));
+            if (entry.inGroup(group)) {
+                scheduled.add(entry);
+            }
+        }
+        return runTiers(scheduled, true, concurrency, LxcContainer::stopAsync);
+    }
+
+    /**
+     * Stop the running containers of a group (using default path and concurrency)
+     *
+     * @param group Group name
+     */
+    public List<ContainerTiming> stopGroup(String group) {
+        return stopGroup(defaultLxcPath, group, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Shut down all running containers cleanly and in parallel
+     * Every container is sent its halt signal (lxc.signal.halt) at once by the root service, which
+     * then stops each container still running after timeoutSeconds, or once deadlineMillis has passed.
+     *
+     * @param lxcPath        LXC path
+     * @param timeoutSeconds Time each container gets to shut down, 0 for up to the deadline
+     * @param deadlineMillis Time after which all containers still running are stopped
+     * @param progress       Receiver of each container outcome as soon as it is known, may be null
+     * @return Outcome of every running container, in completion order
+     */
+    public List<ContainerShutdown> shutdownAll(String lxcPath, int timeoutSeconds, long deadlineMillis,
+                                               Consumer<ContainerShutdown> progress) {
+        Map<String, Integer> timeouts = new LinkedHashMap<>();
+        for (ContainerStatus status : getContainerStatuses(lxcPath)) {
+            if (status.isRunning()) {
+                timeouts.put(status.getName(), timeoutSeconds);
+            }
+        }
+        return shutdownContainers(lxcPath, timeouts, deadlineMillis, progress);
+    }
+
+    /**
+     * Shut down all running containers cleanly and in parallel (using default path)
+     */
+    public List<ContainerShutdown> shutdownAll(int timeoutSeconds, long deadlineMillis) {
+        return shutdownAll(defaultLxcPath, timeoutSeconds, deadlineMillis, null);
+    }
+
+    /**
+     * Shut down containers cleanly and in parallel, each with its own timeout
+     *
+     * @param lxcPath        LXC path
+     * @param timeouts       Time in seconds each container gets to shut down, 0 for up to the deadline
+     * @param deadlineMillis Time after which all containers still running are stopped
+     * @param progress       Receiver of each container outcome as soon as it is known, may be null
+     * @return Outcome of every container, in completion order, empty if the service could not be reached
+     */
+    public List<ContainerShutdown> shutdownContainers(String lxcPath, Map<String, Integer> timeouts,
+                                                      long deadlineMillis, Consumer<ContainerShutdown> progress) {
+        if (timeouts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String[] names = new String[timeouts.size()];
+        int[] timeoutSeconds = new int[names.length];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : timeouts.entrySet()) {
+            names[i] = entry.getKey();
+            timeoutSeconds[i++] = entry.getValue() != null ? entry.getValue() : 0;
+        }
+
+        ShutdownCallback callback = new ShutdownCallback(service, progress);
+        try {
+            service.shutdownContainersAsync(callback.getOperationId(), lxcPath, names, timeoutSeconds,
+                    deadlineMillis, callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to shut down containers: " + e.getMessage());
+            return new ArrayList<>();
+        }
+        return callback.getFuture().join();
+    }
+
+    /**
+     * Snapshot all containers asynchronously, each followed by pruning of its expired snapshots
+     *
+     * @param lxcPath     LXC path
+     * @param concurrency Maximum number of snapshots taken at the same time, at most IService.OPERATION_THREADS
+     * @return Timing of every container, in container order
+     */
+    public List<ContainerTiming> snapshotAll(String lxcPath, int concurrency) {
+        return runTiers(unordered(lxcPath), false, concurrency,
+                container -> container.createSnapshotAsync().thenApply(snapshot -> snapshot >= 0));
+    }
+
+    /**
+     * Snapshot all containers (using default path and concurrency)
+     */
+    public List<ContainerTiming> snapshotAll() {
+        return snapshotAll(defaultLxcPath, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Set default snapshot retention limits of all containers in an LXC path
+     * Limits are applied after every asynchronous snapshot and by pruneSnapshotsAll.
+     *
+     * @param lxcPath      LXC path
+     * @param maxCount     Maximum number of snapshots kept per container, 0 for no limit
+     * @param maxAgeMillis Maximum snapshot age, 0 for no limit
+     */
+    public void setSnapshotRetention(String lxcPath, int maxCount, long maxAgeMillis) {
+        try {
+            service.setSnapshotRetention(null, lxcPath, maxCount, maxAgeMillis);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set snapshot retention: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Set default snapshot retention limits (using default path)
+     */
+    public void setSnapshotRetention(int maxCount, long maxAgeMillis) {
+        setSnapshotRetention(defaultLxcPath, maxCount, maxAgeMillis);
+    }
+
+    /**
+     * Destroy the snapshots outside the retention limits of all containers
+     *
+     * @param lxcPath     LXC path
+     * @param concurrency Maximum number of containers pruned at the same time, at most IService.OPERATION_THREADS
+     */
+    public List<ContainerTiming> pruneSnapshotsAll(String lxcPath, int concurrency) {
+        return runTiers(unordered(lxcPath), false, concurrency,
+                container -> container.pruneSnapshotsAsync().thenApply(destroyed -> destroyed >= 0));
+    }
+
+    /**
+     * Destroy expired snapshots of all containers (using default path and concurrency)
+     */
+    public List<ContainerTiming> pruneSnapshotsAll() {
+        return pruneSnapshotsAll(defaultLxcPath, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    // All containers in a single tier
+    private List<ScheduledContainer> unordered(String lxcPath) {
+        List<ScheduledContainer> scheduled = new ArrayList<>();
+        for (LxcContainer container : listContainers(lxcPath)) {
+            scheduled.add(new ScheduledContainer(container, false, 0, 0, List.of()));
+        }
+        return scheduled;
+    }
+
+    private record ScheduledContainer(LxcContainer container, boolean autoStart, int order, int delay,
+                                      List<String> groups) {
+        boolean inGroup(String group) {
+            return group == null || groups.contains(group);
+        }
+    }
+
+    private static ScheduledContainer schedule(LxcContainer container) {
+        Map<String, String> items = container.getConfigItems(
+                "lxc.start.auto", "lxc.start.order", "lxc.start.delay", "lxc.group");
+        return new ScheduledContainer(container,
+                parseInt(items.get("lxc.start.auto")) == 1,
+                parseInt(items.get("lxc.start.order")),
+                parseInt(items.get("lxc.start.delay")),
+                ContainerConfig.splitList(items.get("lxc.group")));
+    }
+
+    private static int parseInt(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static List<ContainerTiming> runTiers(List<ScheduledContainer> scheduled, boolean reverse, int concurrency,
+                                                  Function<LxcContainer, CompletableFuture<Boolean>> operation) {
+        TreeMap<Integer, List<ScheduledContainer>> tiers = new TreeMap<>();
+        for (ScheduledContainer entry : scheduled) {
+            tiers.computeIfAbsent(entry.order(), order -> new ArrayList<>()).add(entry);
+        }
+
+        List<ContainerTiming> timings = new ArrayList<>();
+        // More operations in flight would only queue in the service
+        Semaphore permits = new Semaphore(Math.max(1, Math.min(concurrency, IService.OPERATION_THREADS)));
+        for (Map.Entry<Integer, List<ScheduledContainer>> tier
+                : (reverse ? tiers.descendingMap() : tiers).entrySet()) {
+            List<CompletableFuture<ContainerTiming>> pending = new ArrayList<>();
+            int delay = 0;
+            try {
+                for (ScheduledContainer entry : tier.getValue()) {
+                    permits.acquire();
+                    String name = entry.container().getName();
+                    long start = SystemClock.elapsedRealtime();
+                    pending.add(operation.apply(entry.container())
+                            .exceptionally(e -> false)
+                            .thenApply(success -> new ContainerTiming(name, success,
+                                    SystemClock.elapsedRealtime() - start))
+                            .whenComplete((timing, e) -> permits.release()));
+                    delay = Math.max(delay, entry.delay());
+                }
+                for (CompletableFuture<ContainerTiming> future : pending) {
+                    timings.add(future.join());
+                }
+                if (!reverse && delay > 0 && !tier.getKey().equals(tiers.lastKey())) {
+                    Thread.sleep(delay * 1000L);
+                }
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Batch operation interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Start sampling cgroup metrics of all running containers in the root service
+     *
+     * @param lxcPath        LXC path
+     * @param intervalMillis Sampling interval, 0 stops sampling
+     */
+    public boolean setMetricsSampling(String lxcPath, long intervalMillis) {
+        try {
+            service.setMetricsSampling(lxcPath, intervalMillis);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set metrics sampling: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Start sampling cgroup metrics (using default path)
+     *
+     * @param intervalMillis Sampling interval, 0 stops sampling
+     */
+    public boolean setMetricsSampling(long intervalMillis) {
+        return setMetricsSampling(defaultLxcPath, intervalMillis);
+    }
+
+    /**
+     * Get sampled metrics of several containers in a single service call
+     *
+     * @param lxcPath     LXC path
+     * @param names       Container names, null for all sampled containers
+     * @param sinceMillis Only samples newer than this wall clock timestamp, 0 for all
+     */
+    public MetricsSeries getMetrics(String lxcPath, String[] names, long sinceMillis) {
+        try {
+            return service.getMetrics(lxcPath, names, sinceMillis);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get metrics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get sampled metrics (using default path)
+     *
+     * @param names       Container names, null for all sampled containers
+     * @param sinceMillis Only samples newer than this wall clock timestamp, 0 for all
+     */
+    public MetricsSeries getMetrics(String[] names, long sinceMillis) {
+        return getMetrics(defaultLxcPath, names, sinceMillis);
+    }
+
+    /**
+     * Start rebalancing cpu.weight and memory.high of the running containers by their CPU and memory
+     * pressure in the root service, or stop it and restore the defaults
+     *
+     * @param lxcPath LXC path
+     * @param policy  Bounds and interval, null to stop
+     */
+    public boolean setRebalancePolicy(String lxcPath, RebalancePolicy policy) {
+        try {
+            service.setRebalancePolicy(lxcPath, policy);
+            return true;
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set rebalance policy: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Start or stop rebalancing (using default path)
+     */
+    public boolean setRebalancePolicy(RebalancePolicy policy) {
+        return setRebalancePolicy(defaultLxcPath, policy);
+    }
+
+    /**
+     * Get cgroup rebalancer statistics of an LXC path
+     */
+    public RebalancerStats getRebalancerStats(String lxcPath) {
+        try {
+            return RebalancerStats.fromArray(service.getRebalancerStats(lxcPath));
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get rebalancer stats: " + e.getMessage());
+            return RebalancerStats.fromArray(null);
+        }
+    }
+
+    /**
+     * Get cgroup rebalancer statistics (using default path)
+     */
+    public RebalancerStats getRebalancerStats() {
+        return getRebalancerStats(defaultLxcPath);
+    }
+
+    /**
+     * Get native container handle cache statistics
+     */
+    public HandleCacheStats getHandleCacheStats() {
+        try {
+            return HandleCacheStats.fromArray(service.getHandleCacheStats());
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get handle cache stats: " + e.getMessage());
+            return HandleCacheStats.fromArray(null);
+        }
+    }
+
+    /**
+     * Get container lock contention and call coalescing statistics
+     */
+    public ConcurrencyStats getConcurrencyStats() {
+        try {
+            return ConcurrencyStats.fromArray(service.getConcurrencyStats());
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get concurrency stats: " + e.getMessage());
+            return ConcurrencyStats.fromArray(null);
+        }
+    }
+
+    /**
+     * Set exec session pool limits
+     * @param maxSessions Maximum number of containers with a pooled session
+     * @param idleTimeoutMillis Idle time after which a session is closed
+     */
+    public void setExecSessionLimits(int maxSessions, long idleTimeoutMillis) {
+        try {
+            service.setExecSessionLimits(maxSessions, idleTimeoutMillis);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set exec session limits: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get exec session pool statistics
+     */
+    public ExecSessionStats getExecSessionStats() {
+        try {
+            return ExecSessionStats.fromArray(service.getExecSessionStats());
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get exec session stats: " + e.getMessage());
+            return ExecSessionStats.fromArray(null);
+        }
+    }
+
+    /**
+     * Get per-method call counters and latency histograms of the root service
+     */
+    public ServiceStats getServiceStats() {
+        try {
+            return service.getStats();
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to get service stats: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Enable or disable per-container service statistics
+     * @param enabled Whether calls are also counted per container
+     */
+    public void setServiceStatsPerContainer(boolean enabled) {
+        try {
+            service.setStatsPerContainer(enabled);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to set service stats mode: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publish service statistics in the Prometheus text format
+     * @param target File path in the root service's view, "local:name" for HTTP on an abstract unix
+     *               socket readable by this app, root and adb shell, null to stop
+     * @param intervalMillis File rewrite interval, 0 for the default
+     */
+    public boolean exportServiceStats(String target, long intervalMillis) {
+        try {
+            return service.exportStats(target, intervalMillis);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to export service stats: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Check if LXC service is available
      */
@@ -1,11 +1,28 @@
 package io.github.coap.lxc;
 
 import android.content.Intent;
+import android.os.Binder;
 import android.os.IBinder;
+import android.os.ParcelFileDescriptor;
+import android.os.RemoteException;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.topjohnwu.superuser.ipc.RootService;
+import io.github.coap.IConsoleLogListener;
+import io.github.coap.IInventoryListener;
+import io.github.coap.IOperationCallback;
 import io.github.coap.IService;
+import io.github.coap.IShutdownCallback;
+import io.github.coap.IStateListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 public class LxcNative extends RootService {
     public static String LXC_PATH = "/data/share/var/lib/lxc";
@@ -20,124 +37,1061 @@ public class LxcNative extends RootService {
 
     @SuppressWarnings({"JniMissingFunction", "unused"})
     static class LxcIPC extends IService.Stub {
+        private static final int MAX_PENDING_OPERATIONS = 256;
+        // Handles beyond the inventories' containers, e.g. for lxcpaths without an inventory
+        private static final int HANDLE_CACHE_HEADROOM = 32;
+
+        private final Map<String, StateMonitor> stateMonitors = new ConcurrentHashMap<>();
+        private final Map<String, ContainerInventory> inventories = new ConcurrentHashMap<>();
+        private final Map<String, StatusBoardPublisher> statusBoards = new ConcurrentHashMap<>();
+        private final OperationExecutor operations = new OperationExecutor(IService.OPERATION_THREADS, MAX_PENDING_OPERATIONS);
+        private final Map<String, MetricsSampler> metricsSamplers = new ConcurrentHashMap<>();
+        private final Map<String, CgroupRebalancer> rebalancers = new ConcurrentHashMap<>();
+        private final ProcessReaper reaper = new ProcessReaper();
+        private final ExecSessionPool execSessions = new ExecSessionPool();
+        private final ConsoleLogStreamer consoleLogs = new ConsoleLogStreamer();
+        private final CallStats stats = new CallStats();
+        private final SnapshotManager snapshots = new SnapshotManager();
+        private final Map<String, WarmPool> warmPools = new ConcurrentHashMap<>();
+        private final CheckpointStore checkpoints = new CheckpointStore();
+        private final IdleFreezer idleFreezer = new IdleFreezer(this::notifyStateChanged, this::mutate, this::statusesOf);
+        private final ContainerLocks locks = new ContainerLocks();
+        private final CallCoalescer coalescer = new CallCoalescer();
+        private final ShutdownPipeline shutdowns = new ShutdownPipeline((name, lxcpath, call) -> timed("shutdownContainersAsync",
+                name, lxcpath, () -> mutate(name, lxcpath, call)), this::notifyStateChanged, this::statusesOf);
+        private StatsExporter statsExporter;
+        private int handleCacheCapacity;
+
+        private void notifyStateChanged(String lxcpath) {
+            StateMonitor monitor = stateMonitors.get(lxcpath);
+            if (monitor != null) {
+                monitor.kick();
+            }
+            StatusBoardPublisher board = statusBoards.get(lxcpath);
+            if (board != null) {
+                board.kick();
+            }
+        }
+
+        private ContainerInventory inventoryOf(String lxcpath) {
+            return inventories.computeIfAbsent(lxcpath, path -> new ContainerInventory(path, this::sizeHandleCache));
+        }
+
+        // Room in the native handle cache for every container of the inventories, so their scans keep hitting
+        private void sizeHandleCache() {
+            synchronized (inventories) {
+                int total = 0;
+                for (ContainerInventory inventory : inventories.values()) {
+                    total += inventory.size();
+                }
+                int capacity = total + HANDLE_CACHE_HEADROOM;
+                if (capacity != handleCacheCapacity) {
+                    handleCacheCapacity = capacity;
+                    nativeSetHandleCacheCapacity(capacity);
+                }
+            }
+        }
+
+        // Statuses for the service components, read from cached handles instead of scanning lxcpath
+        private ContainerStatus[] statusesOf(String lxcpath) {
+            return inventoryOf(lxcpath).statuses();
+        }
+
+        private void runAsync(String method, long operationId, String name, String lxcpath,
+                              IOperationCallback callback, BooleanSupplier operation) {
+            runAsyncInt(method, operationId, name, lxcpath, callback, () -> operation.getAsBoolean() ? 0 : -1);
+        }
+
+        // Negative results are failures and reported as the LXC error number, or as is when LXC has none.
+        // The error number is recorded by the natives from the handle that failed, on this worker thread
+        private void runAsyncInt(String method, long operationId, String name, String lxcpath,
+                                 IOperationCallback callback, IntSupplier operation) {
+            progress(callback, operationId, IOperationCallback.STAGE_QUEUED);
+            try {
+                operations.submit(OperationExecutor.key(name, lxcpath), () -> {
+                    progress(callback, operationId, IOperationCallback.STAGE_RUNNING);
+                    nativeTakeErrorNum();
+                    int result = timedInt(method, name, lxcpath, () -> locked(name, lxcpath, operation::getAsInt));
+                    boolean success = result >= 0;
+                    int errorNum = nativeTakeErrorNum();
+                    notifyStateChanged(lxcpath);
+                    complete(callback, operationId, success, success ? result : errorNum != 0 ? errorNum : result);
+                }, () -> complete(callback, operationId, false, -1));
+            } catch (RejectedExecutionException e) {
+                Log.w("LXC", "Rejected operation " + operationId + ": " + e.getMessage());
+                complete(callback, operationId, false, -1);
+            }
+        }
+
+        // Lifecycle operations report the error number read from the handle that ran them
+        private void runAsyncLifecycle(String method, long operationId, String name, String lxcpath,
+                                       IOperationCallback callback, int op, boolean useInit) {
+            progress(callback, operationId, IOperationCallback.STAGE_QUEUED);
+            try {
+                operations.submit(OperationExecutor.key(name, lxcpath), () -> {
+                    progress(callback, operationId, IOperationCallback.STAGE_RUNNING);
+                    OperationResult result = timedResult(method, name, lxcpath,
+                            () -> locked(name, lxcpath, () -> runLifecycle(name, lxcpath, op, useInit)));
+                    notifyStateChanged(lxcpath);
+                    boolean success = result.isSuccess();
+                    complete(callback, operationId, success, success ? 0 : result.getErrorNum() != 0 ? result.getErrorNum() : -1);
+                }, () -> complete(callback, operationId, false, -1));
+            } catch (RejectedExecutionException e) {
+                Log.w("LXC", "Rejected operation " + operationId + ": " + e.getMessage());
+                complete(callback, operationId, false, -1);
+            }
+        }
+
+        private OperationResult lifecycleForResult(String method, String name, String lxcpath, int op, boolean useInit) {
+            OperationResult result = timedResult(method, name, lxcpath,
+                    () -> locked(name, lxcpath, () -> runLifecycle(name, lxcpath, op, useInit)));
+            notifyStateChanged(lxcpath);
+            return result;
+        }
+
+        private OperationResult runLifecycle(String name, String lxcpath, int op, boolean useInit) {
+            long[] values = new long[OperationResult.FIELD_COUNT];
+            String state = nativeRunLifecycle(name, lxcpath, op, useInit, values);
+            OperationResult result = OperationResult.fromArray(values, state);
+            if (op == OperationResult.OP_FREEZE && result.isSuccess()) {
+                idleFreezer.frozenExplicitly(name, lxcpath);
+            }
+            return result;
+        }
+
+        // Containers frozen by callers stay frozen when a call acts inside them, see IdleFreezer
+        private boolean freeze(String name, String lxcpath) {
+            boolean frozen = nativeFreezeContainer(name, lxcpath);
+            if (frozen) {
+                idleFreezer.frozenExplicitly(name, lxcpath);
+            }
+            return frozen;
+        }
+
+        private static void progress(IOperationCallback callback, long operationId, String stage) {
+            if (callback == null) {
+                return;
+            }
+            try {
+                callback.onProgress(operationId, stage);
+            } catch (RemoteException e) {
+                Log.w("LXC", "Failed to report progress of operation " + operationId + ": " + e.getMessage());
+            }
+        }
+
+        private static void complete(IOperationCallback callback, long operationId, boolean success, int result) {
+            if (callback == null) {
+                return;
+            }
+            try {
+                callback.onComplete(operationId, success, result);
+            } catch (RemoteException e) {
+                Log.w("LXC", "Failed to report operation " + operationId + ": " + e.getMessage());
+            }
+        }
+
+        // For mutations: conflicting ones on a container are serialized, and callers arriving afterwards
+        // do not join reads that started before
+        private <T> T locked(String name, String lxcpath, Supplier<T> call) {
+            // Watched state monitors follow the container while it changes
+            StateMonitor monitor = lxcpath != null ? stateMonitors.get(lxcpath) : null;
+            try {
+                return locks.withLock(name, lxcpath, () -> {
+                    if (monitor == null || name == null) {
+                        return call.get();
+                    }
+                    monitor.follow(name);
+                    try {
+                        return call.get();
+                    } finally {
+                        monitor.unfollow(name);
+                    }
+                });
+            } finally {
+                coalescer.forget(name, lxcpath);
+            }
+        }
+
+        // Locked mutations of the service components acting on their own, see ContainerLocks.Mutator
+        private boolean mutate(String name, String lxcpath, BooleanSupplier call) {
+            return locked(name, lxcpath, call::getAsBoolean);
+        }
+
+        // For read-only calls: identical calls running at the same time share one native call
+        private <T> T coalesced(String call, String name, String lxcpath, Supplier<T> supplier) {
+            return coalescer.call(name, lxcpath, call, supplier);
+        }
+
+        // For calls acting inside a container, which must find it thawed and keep it from idling
+        private <T> T awake(String name, String lxcpath, Supplier<T> call) {
+            idleFreezer.enter(name, lxcpath);
+            try {
+                return call.get();
+            } finally {
+                idleFreezer.exit(name, lxcpath);
+            }
+        }
+
+        // Call statistics: false, negative, null and exceptions count as failures
+        private boolean timed(String method, String name, String lxcpath, BooleanSupplier call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                boolean result = call.getAsBoolean();
+                failed = !result;
+                return result;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        // For predicates, where false is an answer rather than a failure
+        private boolean timedQuery(String method, String name, String lxcpath, BooleanSupplier call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                boolean result = call.getAsBoolean();
+                failed = false;
+                return result;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        private int timedInt(String method, String name, String lxcpath, IntSupplier call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                int result = call.getAsInt();
+                failed = result < 0;
+                return result;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        private <T> T timedObject(String method, String name, String lxcpath, Supplier<T> call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                T result = call.get();
+                failed = result == null;
+                return result;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        private OperationResult timedResult(String method, String name, String lxcpath, Supplier<OperationResult> call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                OperationResult result = call.get();
+                failed = !result.isSuccess();
+                return result;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        private void timedVoid(String method, String name, String lxcpath, Runnable call) {
+            long start = stats.begin(method);
+            boolean failed = true;
+            try {
+                call.run();
+                failed = false;
+            } finally {
+                stats.end(method, name, lxcpath, start, failed);
+            }
+        }
+
+        void shutdown() {
+            synchronized (stats) {
+                if (statsExporter != null) {
+                    statsExporter.stop();
+                }
+            }
+            operations.shutdown();
+            shutdowns.shutdown();
+            reaper.shutdown();
+            execSessions.shutdown();
+            consoleLogs.shutdown();
+            for (MetricsSampler sampler : metricsSamplers.values()) {
+                sampler.stop();
+            }
+            for (CgroupRebalancer rebalancer : rebalancers.values()) {
+                rebalancer.stop();
+            }
+            for (WarmPool pool : warmPools.values()) {
+                pool.shutdown();
+            }
+            idleFreezer.shutdown();
+            for (ContainerInventory inventory : inventories.values()) {
+                inventory.shutdown();
+            }
+            for (StatusBoardPublisher board : statusBoards.values()) {
+                board.shutdown();
+            }
+        }
+
         @Override
         public int getUid() {
-            return 0;
+            return timedInt("getUid", null, null, () -> 0);
         }
 
         @Override
         public String[] listContainers(String lxcpath) {
-            return nativeListContainers(lxcpath);
+            return timedObject("listContainers", null, lxcpath, () -> inventoryOf(lxcpath).list());
+        }
+
+        @Override
+        public ContainerStatus[] getContainerStatuses(String lxcpath) {
+            return timedObject("getContainerStatuses", null, lxcpath,
+                    () -> coalesced("getContainerStatuses", null, lxcpath, () -> inventoryOf(lxcpath).statuses()));
         }
 
         @Override
         public boolean isDefined(String name, String lxcpath) {
-            return nativeIsDefined(name, lxcpath);
+            return timedQuery("isDefined", name, lxcpath,
+                    () -> coalesced("isDefined", name, lxcpath, () -> nativeIsDefined(name, lxcpath)));
         }
 
         @Override
         public boolean isRunning(String name, String lxcpath) {
-            return nativeIsRunning(name, lxcpath);
+            return timedQuery("isRunning", name, lxcpath,
+                    () -> coalesced("isRunning", name, lxcpath, () -> nativeIsRunning(name, lxcpath)));
         }
 
         @Override
         public String getState(String name, String lxcpath) {
-            return nativeGetState(name, lxcpath);
+            return timedObject("getState", name, lxcpath,
+                    () -> coalesced("getState", name, lxcpath, () -> nativeGetState(name, lxcpath)));
         }
 
         @Override
         public boolean startContainer(String name, String lxcpath, boolean useInit) {
-            return nativeStartContainer(name, lxcpath, useInit);
+            boolean result = timed("startContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeStartContainer(name, lxcpath, useInit)));
+            notifyStateChanged(lxcpath);
+            return result;
         }
 
         @Override
         public boolean stopContainer(String name, String lxcpath) {
-            return nativeStopContainer(name, lxcpath);
+            boolean result = timed("stopContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeStopContainer(name, lxcpath)));
+            notifyStateChanged(lxcpath);
+            return result;
+        }
+
+        @Override
+        public boolean shutdownContainer(String name, String lxcpath, int timeoutSeconds) {
+            boolean result = timed("shutdownContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeShutdownContainer(name, lxcpath, timeoutSeconds)));
+            notifyStateChanged(lxcpath);
+            return result;
         }
 
         @Override
         public boolean freezeContainer(String name, String lxcpath) {
-            return nativeFreezeContainer(name, lxcpath);
+            boolean result = timed("freezeContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> freeze(name, lxcpath)));
+            notifyStateChanged(lxcpath);
+            return result;
         }
 
         @Override
         public boolean unfreezeContainer(String name, String lxcpath) {
-            return nativeUnfreezeContainer(name, lxcpath);
+            boolean result = timed("unfreezeContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeUnfreezeContainer(name, lxcpath)));
+            notifyStateChanged(lxcpath);
+            return result;
         }
 
         @Override
         public boolean destroyContainer(String name, String lxcpath) {
-            return nativeDestroyContainer(name, lxcpath);
+            boolean result = timed("destroyContainer", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeDestroyContainer(name, lxcpath)));
+            notifyStateChanged(lxcpath);
+            return result;
+        }
+
+        @Override
+        public OperationResult startContainerForResult(String name, String lxcpath, boolean useInit) {
+            return lifecycleForResult("startContainerForResult", name, lxcpath, OperationResult.OP_START, useInit);
+        }
+
+        @Override
+        public OperationResult stopContainerForResult(String name, String lxcpath) {
+            return lifecycleForResult("stopContainerForResult", name, lxcpath, OperationResult.OP_STOP, false);
+        }
+
+        @Override
+        public OperationResult freezeContainerForResult(String name, String lxcpath) {
+            return lifecycleForResult("freezeContainerForResult", name, lxcpath, OperationResult.OP_FREEZE, false);
+        }
+
+        @Override
+        public OperationResult unfreezeContainerForResult(String name, String lxcpath) {
+            return lifecycleForResult("unfreezeContainerForResult", name, lxcpath, OperationResult.OP_UNFREEZE, false);
+        }
+
+        @Override
+        public OperationResult destroyContainerForResult(String name, String lxcpath) {
+            return lifecycleForResult("destroyContainerForResult", name, lxcpath, OperationResult.OP_DESTROY, false);
+        }
+
+        @Override
+        public void startContainerAsync(long operationId, String name, String lxcpath, boolean useInit, IOperationCallback callback) {
+            runAsyncLifecycle("startContainerAsync", operationId, name, lxcpath, callback, OperationResult.OP_START, useInit);
+        }
+
+        @Override
+        public void stopContainerAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncLifecycle("stopContainerAsync", operationId, name, lxcpath, callback, OperationResult.OP_STOP, false);
+        }
+
+        @Override
+        public void freezeContainerAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncLifecycle("freezeContainerAsync", operationId, name, lxcpath, callback, OperationResult.OP_FREEZE, false);
+        }
+
+        @Override
+        public void unfreezeContainerAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncLifecycle("unfreezeContainerAsync", operationId, name, lxcpath, callback, OperationResult.OP_UNFREEZE, false);
+        }
+
+        @Override
+        public void destroyContainerAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncLifecycle("destroyContainerAsync", operationId, name, lxcpath, callback, OperationResult.OP_DESTROY, false);
+        }
+
+        @Override
+        public void shutdownContainersAsync(long operationId, String lxcpath, String[] names, int[] timeoutSeconds,
+                                            long deadlineMillis, IShutdownCallback callback) {
+            timedVoid("shutdownContainersAsync", null, lxcpath,
+                    () -> shutdowns.submit(operationId, lxcpath, names, timeoutSeconds, deadlineMillis, callback));
+        }
+
+        @Override
+        public void createContainerAsync(long operationId, String name, String lxcpath, String template, String[] args,
+                                         IOperationCallback callback) {
+            if (template == null || (args != null && Arrays.asList(args).contains(null))) {
+                complete(callback, operationId, false, -1);
+                return;
+            }
+            runAsync("createContainerAsync", operationId, name, lxcpath, callback,
+                    () -> nativeCreateContainer(name, lxcpath, template, null, args));
+        }
+
+        @Override
+        public void cloneContainerAsync(long operationId, String name, String lxcpath, String newname, String newlxcpath,
+                                        boolean snapshot, IOperationCallback callback) {
+            runAsyncInt("cloneContainerAsync", operationId, name, lxcpath, callback, () -> {
+                int result = WarmPool.clone(name, lxcpath, newname, newlxcpath, snapshot);
+                if (newlxcpath != null && !newlxcpath.equals(lxcpath)) {
+                    notifyStateChanged(newlxcpath);
+                }
+                return result;
+            });
+        }
+
+        @Override
+        public void configureWarmPool(String template, String lxcpath, int size, int concurrency, long settleMillis) {
+            timedVoid("configureWarmPool", template, lxcpath, () -> {
+                String key = OperationExecutor.key(template, lxcpath);
+                if (size <= 0) {
+                    WarmPool pool = warmPools.remove(key);
+                    if (pool != null) {
+                        pool.close();
+                    }
+                    return;
+                }
+                warmPools.computeIfAbsent(key, k -> new WarmPool(template, lxcpath,
+                                () -> notifyStateChanged(lxcpath), this::mutate, statusesOf(lxcpath)))
+                        .configure(size, concurrency, settleMillis);
+            });
+        }
+
+        @Override
+        public String takeWarmContainer(String template, String lxcpath) {
+            return timedObject("takeWarmContainer", template, lxcpath, () -> {
+                WarmPool pool = warmPools.get(OperationExecutor.key(template, lxcpath));
+                return pool != null ? pool.take() : null;
+            });
+        }
+
+        @Override
+        public long[] getWarmPoolStats(String template, String lxcpath) {
+            return timedObject("getWarmPoolStats", template, lxcpath, () -> {
+                WarmPool pool = warmPools.get(OperationExecutor.key(template, lxcpath));
+                return pool != null ? pool.getStats() : new long[6];
+            });
+        }
+
+        @Override
+        public void setIdlePolicy(String name, String lxcpath, IdlePolicy policy) {
+            timedVoid("setIdlePolicy", name, lxcpath, () -> idleFreezer.setPolicy(name, lxcpath, policy));
+        }
+
+        @Override
+        public long[] getIdleFreezerStats() {
+            return timedObject("getIdleFreezerStats", null, null, idleFreezer::getStats);
         }
 
         @Override
         public String getConfigItem(String name, String lxcpath, String key) {
-            return nativeGetConfigItem(name, lxcpath, key);
+            return timedObject("getConfigItem", name, lxcpath,
+                    () -> coalesced("getConfigItem\0" + key, name, lxcpath, () -> nativeGetConfigItem(name, lxcpath, key)));
         }
 
         @Override
         public boolean setConfigItem(String name, String lxcpath, String key, String value) {
-            return nativeSetConfigItem(name, lxcpath, key, value);
+            return timed("setConfigItem", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeSetConfigItem(name, lxcpath, key, value)));
+        }
+
+        @Override
+        public String[] getConfigItems(String name, String lxcpath, String[] keys) {
+            return timedObject("getConfigItems", name, lxcpath, () -> {
+                if (keys == null || Arrays.asList(keys).contains(null)) {
+                    return null;
+                }
+                return nativeGetConfigItems(name, lxcpath, keys);
+            });
+        }
+
+        @Override
+        public boolean setConfigItems(String name, String lxcpath, String[] keys, String[] values) {
+            return timed("setConfigItems", name, lxcpath, () -> {
+                if (keys == null || values == null || keys.length != values.length
+                        || Arrays.asList(keys).contains(null) || Arrays.asList(values).contains(null)) {
+                    return false;
+                }
+                return locked(name, lxcpath, () -> nativeSetConfigItems(name, lxcpath, keys, values));
+            });
+        }
+
+        @Override
+        public String[] getConfigKeys(String name, String lxcpath) {
+            return timedObject("getConfigKeys", name, lxcpath,
+                    () -> coalesced("getConfigKeys", name, lxcpath, () -> nativeGetConfigKeys(name, lxcpath)));
+        }
+
+        @Override
+        public ContainerConfig getConfig(String name, String lxcpath) {
+            return timedObject("getConfig", name, lxcpath,
+                    () -> coalesced("getConfig", name, lxcpath, () -> ContainerConfig.fromPairs(nativeDumpConfig(name, lxcpath))));
         }
 
         @Override
         public int createSnapshot(String name, String lxcpath) {
-            return nativeCreateSnapshot(name, lxcpath);
+            return timedInt("createSnapshot", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeCreateSnapshot(name, lxcpath)));
+        }
+
+        @Override
+        public void createSnapshotAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncInt("createSnapshotAsync", operationId, name, lxcpath, callback, () -> snapshots.create(name, lxcpath,
+                    () -> progress(callback, operationId, IOperationCallback.STAGE_PRUNING)));
+        }
+
+        @Override
+        public SnapshotPage listSnapshots(String name, String lxcpath, int offset, int limit) {
+            return timedObject("listSnapshots", name, lxcpath, () -> {
+                String[] all = snapshots.list(name, lxcpath);
+                return all != null ? SnapshotPage.of(all, offset, limit) : null;
+            });
+        }
+
+        @Override
+        public void restoreSnapshotAsync(long operationId, String name, String lxcpath, String snapname, String newname,
+                                         IOperationCallback callback) {
+            runAsync("restoreSnapshotAsync", operationId, name, lxcpath, callback,
+                    () -> snapshots.restore(name, lxcpath, snapname, newname));
+        }
+
+        @Override
+        public void destroySnapshotsAsync(long operationId, String name, String lxcpath, String[] snapnames,
+                                          IOperationCallback callback) {
+            if (snapnames != null && Arrays.asList(snapnames).contains(null)) {
+                complete(callback, operationId, false, -1);
+                return;
+            }
+            runAsyncInt("destroySnapshotsAsync", operationId, name, lxcpath, callback,
+                    () -> snapshots.destroy(name, lxcpath, snapnames));
+        }
+
+        @Override
+        public void setSnapshotRetention(String name, String lxcpath, int maxCount, long maxAgeMillis) {
+            timedVoid("setSnapshotRetention", name, lxcpath,
+                    () -> snapshots.setRetention(name, lxcpath, maxCount, maxAgeMillis));
+        }
+
+        @Override
+        public void pruneSnapshotsAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncInt("pruneSnapshotsAsync", operationId, name, lxcpath, callback,
+                    () -> snapshots.prune(name, lxcpath));
+        }
+
+        @Override
+        public void checkpointAsync(long operationId, String name, String lxcpath, String directory, boolean stop,
+                                    IOperationCallback callback) {
+            runAsync("checkpointAsync", operationId, name, lxcpath, callback,
+                    () -> nativeCheckpoint(name, lxcpath, directory, stop));
+        }
+
+        @Override
+        public void restoreAsync(long operationId, String name, String lxcpath, String directory, IOperationCallback callback) {
+            runAsync("restoreAsync", operationId, name, lxcpath, callback, () -> nativeRestore(name, lxcpath, directory));
+        }
+
+        @Override
+        public void migrateAsync(long operationId, String name, String lxcpath, int cmd, String directory, String predumpDir,
+                                 boolean stop, boolean preservesInodes, long featuresToCheck, IOperationCallback callback) {
+            runAsyncInt("migrateAsync", operationId, name, lxcpath, callback, () -> {
+                int result = nativeMigrate(name, lxcpath, cmd, directory, predumpDir, stop, preservesInodes, featuresToCheck);
+                return result == 0 ? 0 : -Math.abs(result);
+            });
+        }
+
+        @Override
+        public void preDumpAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncInt("preDumpAsync", operationId, name, lxcpath, callback, () -> checkpoints.preDump(name, lxcpath));
+        }
+
+        @Override
+        public void storeCheckpointAsync(long operationId, String name, String lxcpath, int preDumps, boolean stop,
+                                         IOperationCallback callback) {
+            runAsyncInt("storeCheckpointAsync", operationId, name, lxcpath, callback, () -> checkpoints.checkpoint(
+                    name, lxcpath, preDumps, stop, stage -> progress(callback, operationId, stage)));
+        }
+
+        @Override
+        public void restoreCheckpointAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsyncInt("restoreCheckpointAsync", operationId, name, lxcpath, callback,
+                    () -> checkpoints.restore(name, lxcpath));
+        }
+
+        @Override
+        public long[] getCheckpointInfo(String name, String lxcpath) {
+            return timedObject("getCheckpointInfo", name, lxcpath,
+                    () -> coalesced("getCheckpointInfo", name, lxcpath, () -> checkpoints.info(name, lxcpath)));
+        }
+
+        @Override
+        public void discardCheckpointsAsync(long operationId, String name, String lxcpath, IOperationCallback callback) {
+            runAsync("discardCheckpointsAsync", operationId, name, lxcpath, callback,
+                    () -> checkpoints.discard(name, lxcpath));
         }
 
         @Override
         public String[] getInterfaces(String name, String lxcpath) {
-            return nativeGetInterfaces(name, lxcpath);
+            return timedObject("getInterfaces", name, lxcpath,
+                    () -> coalesced("getInterfaces", name, lxcpath, () -> nativeGetInterfaces(name, lxcpath)));
+        }
+
+        @Override
+        public String getCgroupItem(String name, String lxcpath, String key) {
+            return timedObject("getCgroupItem", name, lxcpath,
+                    () -> coalesced("getCgroupItem\0" + key, name, lxcpath, () -> nativeGetCgroupItem(name, lxcpath, key)));
+        }
+
+        @Override
+        public int setCgroupItems(String name, String lxcpath, String[] keys, String[] values) {
+            if (keys == null || values == null || keys.length != values.length) {
+                return -1;
+            }
+            return timedInt("setCgroupItems", name, lxcpath,
+                    () -> locked(name, lxcpath, () -> nativeSetCgroupItems(name, lxcpath, keys, values)));
+        }
+
+        @Override
+        public void setMetricsSampling(String lxcpath, long intervalMillis) {
+            timedVoid("setMetricsSampling", null, lxcpath, () -> {
+                if (intervalMillis <= 0) {
+                    MetricsSampler sampler = metricsSamplers.remove(lxcpath);
+                    if (sampler != null) {
+                        sampler.stop();
+                    }
+                    return;
+                }
+                metricsSamplers.computeIfAbsent(lxcpath,
+                        path -> new MetricsSampler(path, MetricsSampler.DEFAULT_CAPACITY, () -> statusesOf(path)))
+                        .start(intervalMillis);
+            });
+        }
+
+        @Override
+        public MetricsSeries getMetrics(String lxcpath, String[] names, long sinceMillis) {
+            return timedObject("getMetrics", null, lxcpath, () -> {
+                MetricsSampler sampler = metricsSamplers.get(lxcpath);
+                if (sampler == null) {
+                    return new MetricsSeries(new String[0], new long[0][], new long[0][]);
+                }
+                return sampler.getSeries(names, sinceMillis);
+            });
+        }
+
+        @Override
+        public void setRebalancePolicy(String lxcpath, RebalancePolicy policy) {
+            timedVoid("setRebalancePolicy", null, lxcpath, () -> {
+                if (policy == null) {
+                    CgroupRebalancer rebalancer = rebalancers.remove(lxcpath);
+                    if (rebalancer != null) {
+                        rebalancer.stop();
+                    }
+                    return;
+                }
+                if (!policy.isValid()) {
+                    Log.w("LXC", "Ignoring invalid " + policy);
+                    return;
+                }
+                rebalancers.computeIfAbsent(lxcpath, path -> new CgroupRebalancer(path,
+                        () -> statusesOf(path),
+                        (name, keys, values) -> timedInt("rebalanceCgroup", name, path,
+                                () -> locked(name, path, () -> nativeSetCgroupItems(name, path, keys, values)))))
+                        .start(policy);
+            });
+        }
+
+        @Override
+        public long[] getRebalancerStats(String lxcpath) {
+            return timedObject("getRebalancerStats", null, lxcpath, () -> {
+                CgroupRebalancer rebalancer = rebalancers.get(lxcpath);
+                return rebalancer != null ? rebalancer.getStats() : new long[CgroupRebalancer.STAT_COUNT];
+            });
+        }
+
+        @Override
+        public ConsoleLogChunk readConsoleLog(String name, String lxcpath, long offset, int maxBytes) {
+            return timedObject("readConsoleLog", name, lxcpath, () -> consoleLogs.read(name, lxcpath, offset, maxBytes));
+        }
+
+        @Override
+        public void clearConsoleLog(String name, String lxcpath) {
+            timedVoid("clearConsoleLog", name, lxcpath, () -> consoleLogs.tail(name, lxcpath).clear());
+        }
+
+        @Override
+        public void streamConsoleLog(String name, String lxcpath, long offset, ParcelFileDescriptor out) {
+            timedVoid("streamConsoleLog", name, lxcpath, () -> consoleLogs.subscribe(name, lxcpath, offset, out));
+        }
+
+        @Override
+        public void registerConsoleLogListener(String name, String lxcpath, long offset, IConsoleLogListener listener) {
+            timedVoid("registerConsoleLogListener", name, lxcpath, () -> consoleLogs.subscribe(name, lxcpath, offset, listener));
+        }
+
+        @Override
+        public void unregisterConsoleLogListener(IConsoleLogListener listener) {
+            timedVoid("unregisterConsoleLogListener", null, null, () -> consoleLogs.unsubscribe(listener));
+        }
+
+        @Override
+        public ConsoleHandle openConsole(String name, String lxcpath, int ttynum) {
+            return timedObject("openConsole", name, lxcpath, () -> {
+                int[] console = awake(name, lxcpath, () -> nativeOpenConsole(name, lxcpath, ttynum));
+                if (console == null) {
+                    return null;
+                }
+                return new ConsoleHandle(ParcelFileDescriptor.adoptFd(console[0]), ParcelFileDescriptor.adoptFd(console[1]), console[2]);
+            });
         }
 
         @Override
         public int getConsoleFd(String name, String lxcpath, int ttynum) {
-            return nativeGetConsoleFd(name, lxcpath, ttynum);
+            return timedInt("getConsoleFd", name, lxcpath, () -> awake(name, lxcpath, () -> nativeGetConsoleFd(name, lxcpath, ttynum)));
         }
     
         @Override
         public boolean console(String name, String lxcpath, int ttynum, int stdinfd, int stdoutfd, int stderrfd, int escape) {
-            return nativeConsole(name, lxcpath, ttynum, stdinfd, stdoutfd, stderrfd, escape);
+            return timed("console", name, lxcpath, () -> awake(name, lxcpath, () -> nativeConsole(name, lxcpath, ttynum, stdinfd, stdoutfd, stderrfd, escape)));
         }
     
         @Override
         public int attachRunWait(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags) {
-            return nativeAttachRunWait(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags);
+            return timedInt("attachRunWait", name, lxcpath,
+                    () -> awake(name, lxcpath, () -> nativeAttachRunWait(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags)));
         }
     
         @Override
         public int attachNoWait(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags) {
-            return nativeAttachNoWait(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags);
+            reaper.start();
+            return timedInt("attachNoWait", name, lxcpath,
+                    () -> awake(name, lxcpath, () -> nativeAttachNoWait(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags)));
         }
     
+        @Override
+        public int attachRunWaitFds(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags,
+                                    ParcelFileDescriptor stdin, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr) {
+            try {
+                return timedInt("attachRunWaitFds", name, lxcpath,
+                        () -> awake(name, lxcpath, () -> nativeAttachRunWaitFds(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags,
+                                fdOf(stdin), fdOf(stdout), fdOf(stderr))));
+            } finally {
+                closeQuietly(stdin, stdout, stderr);
+            }
+        }
+
+        @Override
+        public void attachRunWaitFdsAsync(long operationId, String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid,
+                                          String[] argv, int attachFlags, ParcelFileDescriptor stdin, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr,
+                                          IOperationCallback callback) {
+            // Attached without waiting, the reaper reports the exit, so no thread waits for the process
+            reaper.start();
+            idleFreezer.enter(name, lxcpath);
+            int pid;
+            try {
+                pid = timedInt("attachRunWaitFdsAsync", name, lxcpath, () -> nativeAttachNoWaitFds(name, lxcpath, clearEnv, namespaces,
+                        personality, uid, gid, argv, attachFlags, fdOf(stdin), fdOf(stdout), fdOf(stderr)));
+            } finally {
+                // The attached process inherits its own copies
+                closeQuietly(stdin, stdout, stderr);
+            }
+            if (pid <= 0) {
+                idleFreezer.exit(name, lxcpath);
+                complete(callback, operationId, false, -1);
+                return;
+            }
+
+            progress(callback, operationId, IOperationCallback.STAGE_RUNNING);
+            reaper.exitOf(pid).thenAccept(status -> {
+                idleFreezer.exit(name, lxcpath);
+                complete(callback, operationId, status >= 0, status);
+            });
+        }
+
+        @Override
+        public int getAttachedStatus(int pid) {
+            return timedObject("getAttachedStatus", null, null, () -> reaper.statusOf(pid));
+        }
+
+        @Override
+        public int attachNoWaitFds(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags,
+                                   ParcelFileDescriptor stdin, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr) {
+            // The attached process inherits its own copies, ours can be closed right away
+            reaper.start();
+            try {
+                return timedInt("attachNoWaitFds", name, lxcpath,
+                        () -> awake(name, lxcpath, () -> nativeAttachNoWaitFds(name, lxcpath, clearEnv, namespaces, personality, uid, gid, argv, attachFlags,
+                                fdOf(stdin), fdOf(stdout), fdOf(stderr))));
+            } finally {
+                closeQuietly(stdin, stdout, stderr);
+            }
+        }
+
+        @Override
+        public int execInSession(String name, String lxcpath, String[] argv,
+                                 ParcelFileDescriptor stdin, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr) {
+            try {
+                return timedInt("execInSession", name, lxcpath,
+                        () -> awake(name, lxcpath, () -> execSessions.run(name, lxcpath, argv, fdOf(stdin), fdOf(stdout), fdOf(stderr))));
+            } finally {
+                closeQuietly(stdin, stdout, stderr);
+            }
+        }
+
+        @Override
+        public void setExecSessionLimits(int maxSessions, long idleTimeoutMillis) {
+            timedVoid("setExecSessionLimits", null, null, () -> execSessions.configure(maxSessions, idleTimeoutMillis));
+        }
+
+        @Override
+        public long[] getExecSessionStats() {
+            return timedObject("getExecSessionStats", null, null, execSessions::getStats);
+        }
+
+        private static int fdOf(ParcelFileDescriptor pfd) {
+            return pfd != null ? pfd.getFd() : -1;
+        }
+
+        private static void closeQuietly(ParcelFileDescriptor... pfds) {
+            for (ParcelFileDescriptor pfd : pfds) {
+                if (pfd == null) {
+                    continue;
+                }
+                try {
+                    pfd.close();
+                } catch (IOException e) {
+                    Log.w("LXC", "Failed to close descriptor: " + e.getMessage());
+                }
+            }
+        }
+
         @Override
         public int getErrorNum(String name, String lxcpath) {
-            return nativeGetErrorNum(name, lxcpath);
+            return timedInt("getErrorNum", name, lxcpath, () -> nativeGetErrorNum(name, lxcpath));
+        }
+
+        @Override
+        public long[] getConcurrencyStats() {
+            return timedObject("getConcurrencyStats", null, null, () -> {
+                long[] lockStats = locks.getStats();
+                long[] callStats = coalescer.getStats();
+                long[] stats = Arrays.copyOf(lockStats, lockStats.length + callStats.length);
+                System.arraycopy(callStats, 0, stats, lockStats.length, callStats.length);
+                return stats;
+            });
+        }
+
+        @Override
+        public long[] getHandleCacheStats() {
+            return timedObject("getHandleCacheStats", null, null, LxcNative::nativeGetHandleCacheStats);
+        }
+
+        @Override
+        public ServiceStats getStats() {
+            return stats.snapshot();
+        }
+
+        @Override
+        public void setStatsPerContainer(boolean enabled) {
+            stats.setPerContainer(enabled);
+        }
+
+        @Override
+        public boolean exportStats(String target, long intervalMillis) {
+            synchronized (stats) {
+                if (statsExporter != null) {
+                    statsExporter.stop();
+                    statsExporter = null;
+                }
+                if (target == null) {
+                    return true;
+                }
+                StatsExporter exporter = new StatsExporter(() -> CallStats.toPrometheus(stats.snapshot()), target,
+                        Binder.getCallingUid());
+                if (!exporter.start(intervalMillis)) {
+                    return false;
+                }
+                statsExporter = exporter;
+                return true;
+            }
+        }
+
+        @Override
+        public void registerStateListener(String lxcpath, IStateListener listener) {
+            timedVoid("registerStateListener", null, lxcpath,
+                    () -> stateMonitors.computeIfAbsent(lxcpath, path -> new StateMonitor(path, () -> statusesOf(path)))
+                            .register(listener));
+        }
+
+        @Override
+        public void unregisterStateListener(String lxcpath, IStateListener listener) {
+            timedVoid("unregisterStateListener", null, lxcpath, () -> {
+                StateMonitor monitor = stateMonitors.get(lxcpath);
+                if (monitor != null) {
+                    monitor.unregister(listener);
+                }
+            });
+        }
+
+        @Override
+        public ParcelFileDescriptor openStatusBoard(String lxcpath) {
+            return timedObject("openStatusBoard", null, lxcpath, () -> statusBoards.computeIfAbsent(lxcpath,
+                    path -> new StatusBoardPublisher(path, inventoryOf(path)::statuses)).open());
+        }
+
+        @Override
+        public void registerInventoryListener(String lxcpath, IInventoryListener listener) {
+            timedVoid("registerInventoryListener", null, lxcpath, () -> inventoryOf(lxcpath).register(listener));
+        }
+
+        @Override
+        public void unregisterInventoryListener(String lxcpath, IInventoryListener listener) {
+            timedVoid("unregisterInventoryListener", null, lxcpath, () -> {
+                ContainerInventory inventory = inventories.get(lxcpath);
+                if (inventory != null) {
+                    inventory.unregister(listener);
+                }
+            });
         }
     }
 
     // Native method
     @SuppressWarnings("JniMissingFunction")
     private static native String nativeGetVersion();
-    private static native String[] nativeListContainers(String lxcpath);
-    private static native boolean nativeIsDefined(String name, String lxcpath);
-    private static native boolean nativeIsRunning(String name, String lxcpath);
+    static native String[] nativeListContainers(String lxcpath);
+    static native ContainerStatus[] nativeGetContainerStatuses(String lxcpath);
+    static native ContainerStatus[] nativeGetContainerStatusesOf(String lxcpath, String[] names);
+    static native boolean nativeIsDefined(String name, String lxcpath);
+    static native boolean nativeIsRunning(String name, String lxcpath);
     private static native String nativeGetState(String name, String lxcpath);
-    private static native boolean nativeStartContainer(String name, String lxcpath, boolean useInit);
-    private static native boolean nativeStopContainer(String name, String lxcpath);
-    private static native boolean nativeFreezeContainer(String name, String lxcpath);
-    private static native boolean nativeUnfreezeContainer(String name, String lxcpath);
-    private static native boolean nativeDestroyContainer(String name, String lxcpath);
+    static native boolean nativeStartContainer(String name, String lxcpath, boolean useInit);
+    static native boolean nativeStopContainer(String name, String lxcpath);
+    static native boolean nativeShutdownContainer(String name, String lxcpath, int timeoutSeconds);
+    static native boolean nativeFreezeContainer(String name, String lxcpath);
+    static native boolean nativeUnfreezeContainer(String name, String lxcpath);
+    static native boolean nativeDestroyContainer(String name, String lxcpath);
+    // Fills result with the OperationResult.FIELD_* values, returns the state after the operation
+    static native String nativeRunLifecycle(String name, String lxcpath, int op, boolean useInit, long[] result);
+    static native boolean nativeCreateContainer(String name, String lxcpath, String template, String bdevtype, String[] args);
+    static native boolean nativeCloneContainer(String name, String lxcpath, String newname, String newlxcpath, int flags, String bdevtype);
     private static native String nativeGetConfigItem(String name, String lxcpath, String key);
     private static native boolean nativeSetConfigItem(String name, String lxcpath, String key, String value);
-    private static native int nativeCreateSnapshot(String name, String lxcpath);
+    private static native String[] nativeGetConfigItems(String name, String lxcpath, String[] keys);
+    private static native boolean nativeSetConfigItems(String name, String lxcpath, String[] keys, String[] values);
+    private static native String[] nativeGetConfigKeys(String name, String lxcpath);
+    private static native String[] nativeDumpConfig(String name, String lxcpath);
+    static native int nativeCreateSnapshot(String name, String lxcpath);
+    static native String[] nativeListSnapshots(String name, String lxcpath);
+    static native boolean nativeRestoreSnapshot(String name, String lxcpath, String snapname, String newname);
+    static native int nativeDestroySnapshots(String name, String lxcpath, String[] snapnames);
+    static native boolean nativeDestroyAllSnapshots(String name, String lxcpath);
+    private static native boolean nativeCheckpoint(String name, String lxcpath, String directory, boolean stop);
+    private static native boolean nativeRestore(String name, String lxcpath, String directory);
+    static native int nativeMigrate(String name, String lxcpath, int cmd, String directory, String predumpDir, boolean stop,
+                                    boolean preservesInodes, long featuresToCheck);
     private static native String[] nativeGetInterfaces(String name, String lxcpath);
+    static native String nativeGetCgroupItem(String name, String lxcpath, String key);
+    static native boolean nativeSampleCgroup(String name, String lxcpath, long[] out);
+    // Fills out with the CgroupRebalancer pressure fields
+    static native boolean nativeSamplePressure(String name, String lxcpath, long[] out);
+    static native int nativeSetCgroupItems(String name, String lxcpath, String[] keys, String[] values);
+    static native byte[] nativeReadConsoleLog(String name, String lxcpath, long readMax, boolean clear);
+    private static native int[] nativeOpenConsole(String name, String lxcpath, int ttynum);
     private static native int nativeGetConsoleFd(String name, String lxcpath, int ttynum);
     private static native boolean nativeConsole(String name, String lxcpath, int ttynum, int stdinfd, int stdoutfd, int stderrfd, int escape);
     private static native int nativeAttachRunWait(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags);
     private static native int nativeAttachNoWait(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags);
+    private static native int nativeAttachRunWaitFds(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags,
+                                                     int stdinfd, int stdoutfd, int stderrfd);
+    private static native int nativeAttachNoWaitFds(String name, String lxcpath, boolean clearEnv, int namespaces, long personality, int uid, int gid, String[] argv, int attachFlags,
+                                                    int stdinfd, int stdoutfd, int stderrfd);
     private static native int nativeGetErrorNum(String name, String lxcpath);
+    private static native int nativeTakeErrorNum();
+    private static native void nativeSetHandleCacheCapacity(int capacity);
+    private static native long[] nativeGetHandleCacheStats();
+    static native long nativeMonitorCreate();
+    static native void nativeMonitorFree(long monitor);
+    static native boolean nativeMonitorWatch(long monitor, String name, String lxcpath);
+    static native String[] nativeMonitorWait(long monitor, int timeoutMs);
+    static native void nativeMonitorKick(long monitor);
+    static native int[] nativeReaperWait(int timeoutMs);
+    static native void nativeReaperKick();
+    static native int nativeReaperStatus(int pid);
+    static native long nativeInventoryCreate(String lxcpath);
+    static native void nativeInventoryFree(long watch);
+    static native boolean nativeInventoryWatch(long watch, String name);
+    static native boolean nativeInventoryWait(long watch, int timeoutMs);
+    static native String[] nativeInventoryRead(long watch);
+    static native void nativeInventoryKick(long watch);
+    static native ByteBuffer nativeStatusBoardCreate(int capacity, int[] fd);
+    static native void nativeStatusBoardUnmap(ByteBuffer board);
+    static native int nativeStatusBoardOpenReadOnly(int fd);
+    static native void nativeStatusBoardWriteHeader(ByteBuffer board, int count, long generation, long updatedMillis);
+    static native void nativeStatusBoardWriteSlot(ByteBuffer board, int slot, long[] values);
+    static native boolean nativeStatusBoardReadHeader(ByteBuffer board, long[] out);
+    static native boolean nativeStatusBoardReadSlot(ByteBuffer board, int slot, long[] out);
+    static native long nativeExecSessionOpen(String name, String lxcpath);
+    static native void nativeExecSessionClose(long session);
+    static native boolean nativeExecSessionAlive(long session);
+    static native int nativeExecSessionRun(long session, String[] argv, int stdinfd, int stdoutfd, int stderrfd);
     
+    // Shared by all bindings so service-side state (monitors, executors) is not duplicated
+    private final LxcIPC ipc = new LxcIPC();
+
     @Override
     public void onCreate() {
         Log.d("LXC", "LXC Service Created");
@@ -152,7 +1106,7 @@ public class LxcNative extends RootService {
     @Override
     public IBinder onBind(@NonNull Intent intent) {
         Log.d("LXC", "LXC Service Bound");
-        return new LxcIPC();
+        return ipc;
     }
 
     @Override
@@ -164,6 +1118,7 @@ public class LxcNative extends RootService {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        ipc.shutdown();
         Log.d("LXC", "LXC Service Destroyed");
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package io.github.coap.lxc;
+
+import android.os.ParcelFileDescriptor;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.coap.IService;
+
+/**
+ * Process attached inside a container with its stdio connected to pipes
+ * The container process writes straight into the pipes, output is not copied by the service
+ */
+public class LxcProcess implements Closeable {
+    private static final String TAG = "LxcProcess";
+
+    // Attach options matching lxc's LXC_ATTACH_OPTIONS_DEFAULT
+    public static final int ATTACH_DEFAULT = 0x0000FFFF;
+    public static final int NAMESPACES_ALL = -1;
+    public static final long PERSONALITY_DEFAULT = -1;
+    public static final int ID_DEFAULT = -1;
+
+    // Launcher calls block until the process exits, keep them off the caller's thread
+    private static final ExecutorService waiters = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "lxc-attach-wait");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OutputStream stdin;
+    private final FileInputStream stdout;
+    private final FileInputStream stderr;
+    private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+    private LxcProcess(OutputStream stdin, FileInputStream stdout, FileInputStream stderr) {
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    /**
+     * Service call that runs the command with the given stdio and returns its wait status
+     */
+    interface Launcher {
+        int launch(ParcelFileDescriptor stdin, ParcelFileDescriptor stdout, ParcelFileDescriptor stderr)
+                throws RemoteException;
+    }
+
+    /**
+     * Run a command inside a container with attachRunWaitFdsAsync
+     * @param service AIDL service interface
+     * @param argv Command and arguments
+     * @param attachFlags LXC_ATTACH_* flags
+     * @return Running process, or null if the pipes could not be created
+     */
+    static LxcProcess start(IService service, String name, String lxcPath, boolean clearEnv, int namespaces,
+                            long personality, int uid, int gid, String[] argv, int attachFlags) {
+        ParcelFileDescriptor[] remote = new ParcelFileDescriptor[3];
+        LxcProcess process = open(remote);
+        if (process == null) {
+            return null;
+        }
+
+        OperationCallback callback = new OperationCallback(service);
+        callback.getFuture().thenAccept(success ->
+                process.exitCode.complete(success ? decodeStatus(callback.getResult()) : -1));
+        try {
+            service.attachRunWaitFdsAsync(callback.getOperationId(), name, lxcPath, clearEnv, namespaces,
+                    personality, uid, gid, argv, attachFlags, remote[0], remote[1], remote[2], callback);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to attach: " + e.getMessage());
+            callback.getFuture().complete(false);
+        } finally {
+            // The service holds its own copies once the call is sent
+            closeAll(remote);
+        }
+        return process;
+    }
+
+    /**
+     * Run a command through the given launcher with its stdio connected to fresh pipes
+     * @return Running process, or null if the pipes could not be created
+     */
+    static LxcProcess start(Launcher launcher) {
+        ParcelFileDescriptor[] remote = new ParcelFileDescriptor[3];
+        LxcProcess process = open(remote);
+        if (process == null) {
+            return null;
+        }
+
+        waiters.execute(() -> {
+            int status;
+            try {
+                status = launcher.launch(remote[0], remote[1], remote[2]);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Failed to attach: " + e.getMessage());
+                status = -1;
+            } finally {
+                // Our copies of the write ends would otherwise keep the readers from seeing EOF
+                closeAll(remote);
+            }
+            process.exitCode.complete(decodeStatus(status));
+        });
+        return process;
+    }
+
+    // Process with the client ends of fresh pipes, remote receives the stdin, stdout and stderr ends for the service
+    private static LxcProcess open(ParcelFileDescriptor[] remote) {
+        ParcelFileDescriptor[] in;
+        ParcelFileDescriptor[] out;
+        ParcelFileDescriptor[] err;
+        try {
+            in = ParcelFileDescriptor.createPipe();
+            out = ParcelFileDescriptor.createPipe();
+            err = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to create pipes: " + e.getMessage());
+            return null;
+        }
+
+        remote[0] = in[0];
+        remote[1] = out[1];
+        remote[2] = err[1];
+        return new LxcProcess(
+                new ParcelFileDescriptor.AutoCloseOutputStream(in[1]),
+                new ParcelFileDescriptor.AutoCloseInputStream(out[0]),
+                new ParcelFileDescriptor.AutoCloseInputStream(err[0]));
+    }
+
+    // Exit code from a wait status, 128 + signal for killed processes like a shell, -1 if not run
+    static int decodeStatus(int status) {
+        if (status < 0) {
+            return -1;
+        }
+        int signal = status & 0x7f;
+        if (signal == 0) {
+            return (status >> 8) & 0xff;
+        }
+        return 128 + signal;
+    }
+
+    private static void closeAll(ParcelFileDescriptor[] pfds) {
+        for (ParcelFileDescriptor pfd : pfds) {
+            closeQuietly(pfd);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close descriptor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the process stdin
+     */
+    public OutputStream getStdin() {
+        return stdin;
+    }
+
+    /**
+     * Get the process stdout
+     */
+    public InputStream getStdout() {
+        return stdout;
+    }
+
+    /**
+     * Get the process stderr
+     */
+    public InputStream getStderr() {
+        return stderr;
+    }
+
+    /**
+     * Get the process stdout as a channel, shares its position with {@link #getStdout()}
+     */
+    public ReadableByteChannel getStdoutChannel() {
+        return stdout.getChannel();
+    }
+
+    /**
+     * Get the process stderr as a channel, shares its position with {@link #getStderr()}
+     */
+    public ReadableByteChannel getStderrChannel() {
+        return stderr.getChannel();
+    }
+
+    /**
+     * Get exit code future, completed with -1 if the command could not be attached
+     */
+    public CompletableFuture<Integer> exitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Wait for the process to exit
+     * Drain stdout/stderr meanwhile, a full pipe blocks the process
+     * @return Exit code
+     */
+    public int waitFor() throws InterruptedException {
+        try {
+            return exitCode.get();
+        } catch (ExecutionException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Close the client ends of all pipes, the process sees EOF on stdin and EPIPE on output
+     */
+    @Override
+    public void close() {
+        closeQuietly(stdin);
+        closeQuietly(stdout);
+        closeQuietly(stderr);
+    }
+}
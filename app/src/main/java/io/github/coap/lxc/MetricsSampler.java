@@ -0,0 +1,185 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodic cgroup sampler for the running containers of one LXC path
+ * Runs in the root service. Each container has a fixed-size ring of primitive arrays and
+ * samples are parsed natively into a reused buffer, so steady-state sampling allocates nothing.
+ */
+final class MetricsSampler {
+    private static final String TAG = "MetricsSampler";
+
+    // Samples kept per container
+    static final int DEFAULT_CAPACITY = 600;
+    // How often the list of running containers is refreshed
+    private static final long LIST_REFRESH_MS = 5000;
+
+    private final String lxcPath;
+    private final int capacity;
+    private final Supplier<ContainerStatus[]> source;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final long[] scratch = new long[MetricsSeries.FIELD_COUNT];
+
+    private ScheduledExecutorService scheduler;
+    private String[] running = new String[0];
+    private long lastListRefresh;
+
+    /**
+     * Fixed-size ring of samples, oldest samples are overwritten
+     */
+    private static final class Ring {
+        final long[] timestamps;
+        final long[] values;
+        int head;
+        int count;
+
+        Ring(int capacity) {
+            timestamps = new long[capacity];
+            values = new long[capacity * MetricsSeries.FIELD_COUNT];
+        }
+
+        synchronized void add(long timestamp, long[] sample) {
+            timestamps[head] = timestamp;
+            System.arraycopy(sample, 0, values, head * MetricsSeries.FIELD_COUNT, MetricsSeries.FIELD_COUNT);
+            head = (head + 1) % timestamps.length;
+            count = Math.min(count + 1, timestamps.length);
+        }
+
+        // Copies samples newer than sinceMillis into fresh arrays, oldest first
+        synchronized void copySince(long sinceMillis, long[][] outTimestamps, long[][] outValues, int index) {
+            int capacity = timestamps.length;
+            int start = (head - count + capacity) % capacity;
+            int skip = 0;
+            while (skip < count && timestamps[(start + skip) % capacity] <= sinceMillis) {
+                skip++;
+            }
+
+            int n = count - skip;
+            long[] ts = new long[n];
+            long[] vs = new long[n * MetricsSeries.FIELD_COUNT];
+            for (int i = 0; i < n; i++) {
+                int slot = (start + skip + i) % capacity;
+                ts[i] = timestamps[slot];
+                System.arraycopy(values, slot * MetricsSeries.FIELD_COUNT, vs, i * MetricsSeries.FIELD_COUNT,
+                        MetricsSeries.FIELD_COUNT);
+            }
+            outTimestamps[index] = ts;
+            outValues[index] = vs;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param source Statuses of the containers in lxcPath, e.g. from the inventory
+     */
+    MetricsSampler(String lxcPath, int capacity, Supplier<ContainerStatus[]> source) {
+        this.lxcPath = lxcPath;
+        this.capacity = capacity;
+        this.source = source;
+    }
+
+    /**
+     * Start or reschedule sampling
+     * @param intervalMillis Sampling interval
+     */
+    synchronized void start(long intervalMillis) {
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MetricsSampler:" + lxcPath);
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastListRefresh = 0;
+        scheduler.scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void sample() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastListRefresh >= LIST_REFRESH_MS) {
+                refreshRunning();
+                lastListRefresh = now;
+            }
+
+            for (String name : running) {
+                if (LxcNative.nativeSampleCgroup(name, lxcPath, scratch)) {
+                    Ring ring = rings.get(name);
+                    if (ring == null) {
+                        ring = new Ring(capacity);
+                        rings.put(name, ring);
+                    }
+                    ring.add(now, scratch);
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task
+            Log.e(TAG, "Sampling failed for " + lxcPath, e);
+        }
+    }
+
+    private void refreshRunning() {
+        ContainerStatus[] statuses = source.get();
+        if (statuses == null) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        Set<String> defined = new HashSet<>();
+        for (ContainerStatus status : statuses) {
+            defined.add(status.getName());
+            if (status.isRunning()) {
+                names.add(status.getName());
+            }
+        }
+        running = names.toArray(new String[0]);
+        // Keep history of stopped containers, drop destroyed ones
+        rings.keySet().retainAll(defined);
+    }
+
+    /**
+     * Get samples newer than sinceMillis
+     * @param names Containers to include, null for all sampled containers
+     * @param sinceMillis Wall clock timestamp, 0 for all retained samples
+     */
+    MetricsSeries getSeries(String[] names, long sinceMillis) {
+        if (names == null) {
+            names = rings.keySet().toArray(new String[0]);
+        }
+
+        List<String> present = new ArrayList<>();
+        List<Ring> selected = new ArrayList<>();
+        for (String name : names) {
+            Ring ring = rings.get(name);
+            if (ring != null) {
+                present.add(name);
+                selected.add(ring);
+            }
+        }
+
+        long[][] timestamps = new long[selected.size()][];
+        long[][] values = new long[selected.size()][];
+        for (int i = 0; i < selected.size(); i++) {
+            selected.get(i).copySince(sinceMillis, timestamps, values, i);
+        }
+        return new MetricsSeries(present.toArray(new String[0]), timestamps, values);
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Time series of cgroup resource samples for one or more containers
+ * Samples are stored as flat primitive arrays: for container i, sample j and field f
+ * the value is getValues(i)[j * FIELD_COUNT + f]. Unavailable values are -1.
+ * Counters (CPU time, IO bytes) are cumulative, gauges (memory, pids) are instantaneous.
+ */
+public final class MetricsSeries implements Parcelable {
+    // Field indexes, must match enum cgroup_sample_field in cgroup-sample.h
+    public static final int CPU_USAGE_USEC = 0;
+    public static final int CPU_USER_USEC = 1;
+    public static final int CPU_SYSTEM_USEC = 2;
+    public static final int MEMORY_CURRENT = 3;
+    public static final int MEMORY_ANON = 4;
+    public static final int MEMORY_FILE = 5;
+    public static final int IO_READ_BYTES = 6;
+    public static final int IO_WRITE_BYTES = 7;
+    public static final int PIDS_CURRENT = 8;
+    public static final int FIELD_COUNT = 9;
+
+    private final String[] names;
+    private final long[][] timestamps;
+    private final long[][] values;
+
+    MetricsSeries(String[] names, long[][] timestamps, long[][] values) {
+        this.names = names;
+        this.timestamps = timestamps;
+        this.values = values;
+    }
+
+    private MetricsSeries(Parcel in) {
+        names = in.createStringArray();
+        timestamps = new long[names.length][];
+        values = new long[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            timestamps[i] = in.createLongArray();
+            values[i] = in.createLongArray();
+        }
+    }
+
+    public static final Creator<MetricsSeries> CREATOR = new Creator<>() {
+        @Override
+        public MetricsSeries createFromParcel(Parcel in) {
+            return new MetricsSeries(in);
+        }
+
+        @Override
+        public MetricsSeries[] newArray(int size) {
+            return new MetricsSeries[size];
+        }
+    };
+
+    /**
+     * Get number of containers in this series
+     */
+    public int getContainerCount() {
+        return names.length;
+    }
+
+    /**
+     * Get container name
+     * @param container Container index
+     */
+    public String getName(int container) {
+        return names[container];
+    }
+
+    /**
+     * Get index of a container, -1 if it is not part of this series
+     * @param name Container name
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get number of samples of a container
+     * @param container Container index
+     */
+    public int getSampleCount(int container) {
+        return timestamps[container].length;
+    }
+
+    /**
+     * Get sample timestamps (wall clock milliseconds), oldest first
+     * @param container Container index
+     */
+    public long[] getTimestamps(int container) {
+        return timestamps[container];
+    }
+
+    /**
+     * Get flattened sample values, FIELD_COUNT values per sample
+     * @param container Container index
+     */
+    public long[] getValues(int container) {
+        return values[container];
+    }
+
+    /**
+     * Get a single value
+     * @param container Container index
+     * @param sample Sample index
+     * @param field Field index, e.g. MEMORY_CURRENT
+     */
+    public long getValue(int container, int sample, int field) {
+        return values[container][sample * FIELD_COUNT + field];
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeStringArray(names);
+        for (int i = 0; i < names.length; i++) {
+            dest.writeLongArray(timestamps[i]);
+            dest.writeLongArray(values[i]);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.coap.lxc;
+
+import android.os.IBinder;
+import android.os.RemoteException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.github.coap.IOperationCallback;
+import io.github.coap.IService;
+
+/**
+ * Client side receiver of an asynchronous service operation
+ * Completes its future with the success flag reported by the root service, or with false if the
+ * root service dies before reporting it
+ */
+final class OperationCallback extends IOperationCallback.Stub implements IBinder.DeathRecipient {
+    private static final AtomicLong nextOperationId = new AtomicLong(1);
+
+    private final long operationId = nextOperationId.getAndIncrement();
+    private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    private final Consumer<String> progress;
+    private volatile int result;
+
+    OperationCallback(IService service) {
+        this(service, null);
+    }
+
+    /**
+     * Constructor
+     * @param service Service running the operation
+     * @param progress Receiver of progress stages, e.g. IOperationCallback.STAGE_RUNNING, may be null
+     */
+    OperationCallback(IService service, Consumer<String> progress) {
+        this.progress = progress;
+        IBinder binder = service.asBinder();
+        try {
+            binder.linkToDeath(this, 0);
+            future.whenComplete((success, e) -> binder.unlinkToDeath(this, 0));
+        } catch (RemoteException e) {
+            binderDied();
+        }
+    }
+
+    long getOperationId() {
+        return operationId;
+    }
+
+    CompletableFuture<Boolean> getFuture() {
+        return future;
+    }
+
+    /**
+     * Get the operation specific result, valid once the future completed
+     */
+    int getResult() {
+        return result;
+    }
+
+    @Override
+    public void onProgress(long operationId, String stage) {
+        if (progress != null) {
+            progress.accept(stage);
+        }
+    }
+
+    @Override
+    public void onComplete(long operationId, boolean success, int result) {
+        this.result = result;
+        future.complete(success);
+    }
+
+    @Override
+    public void binderDied() {
+        if (!future.isDone()) {
+            result = -1;
+            future.complete(false);
+        }
+    }
+}
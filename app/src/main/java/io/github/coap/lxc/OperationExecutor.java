@@ -0,0 +1,157 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for long running container operations in the root service
+ * Operations on the same container run one at a time in submission order,
+ * operations on different containers run in parallel up to the pool size.
+ */
+final class OperationExecutor {
+    private static final String TAG = "OperationExecutor";
+
+    private static final class Operation {
+        final Runnable task;
+        final Runnable onDrop;
+        boolean started;
+
+        Operation(Runnable task, Runnable onDrop) {
+            this.task = task;
+            this.onDrop = onDrop;
+        }
+    }
+
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final Map<String, ArrayDeque<Operation>> queues = new HashMap<>();
+    private int pending;
+
+    /**
+     * Constructor
+     * @param threads Number of worker threads
+     * @param maxPending Maximum number of queued and running operations
+     */
+    OperationExecutor(int threads, int maxPending) {
+        this.maxPending = maxPending;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "LxcOperation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.pool = Executors.newFixedThreadPool(threads, factory);
+    }
+
+    static String key(String name, String lxcpath) {
+        return lxcpath + "/" + name;
+    }
+
+    /**
+     * Queue an operation behind earlier operations with the same key
+     * @param onDrop Run instead of the task if the executor shuts down before the task started
+     * @throws RejectedExecutionException if too many operations are pending or the executor is shut down
+     */
+    void submit(String key, Runnable task, Runnable onDrop) {
+        synchronized (queues) {
+            if (pending >= maxPending || pool.isShutdown()) {
+                throw new RejectedExecutionException("Too many pending operations");
+            }
+            pending++;
+
+            ArrayDeque<Operation> queue = queues.get(key);
+            if (queue != null) {
+                queue.add(new Operation(task, onDrop));
+                return;
+            }
+            queue = new ArrayDeque<>();
+            queue.add(new Operation(task, onDrop));
+            queues.put(key, queue);
+        }
+        schedule(key);
+    }
+
+    private void schedule(String key) {
+        try {
+            pool.execute(() -> runNext(key));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Dropping operations for " + key + ", executor is shut down");
+            drop();
+        }
+    }
+
+    // Runs the head of a queue, then reschedules so other containers get a turn
+    private void runNext(String key) {
+        Operation operation;
+        synchronized (queues) {
+            ArrayDeque<Operation> queue = queues.get(key);
+            // Dropped by shutdown() meanwhile
+            if (queue == null || queue.isEmpty()) {
+                return;
+            }
+            operation = queue.peek();
+            operation.started = true;
+        }
+
+        try {
+            operation.task.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Operation for " + key + " failed", e);
+        }
+
+        boolean more;
+        synchronized (queues) {
+            ArrayDeque<Operation> queue = queues.get(key);
+            queue.poll();
+            pending--;
+            more = !queue.isEmpty();
+            if (!more) {
+                queues.remove(key);
+            }
+        }
+        if (more) {
+            schedule(key);
+        }
+    }
+
+    // Removes the operations that have not started and runs their onDrop, running ones finish by themselves
+    private void drop() {
+        List<Operation> dropped = new ArrayList<>();
+        synchronized (queues) {
+            for (ArrayDeque<Operation> queue : queues.values()) {
+                for (Iterator<Operation> it = queue.iterator(); it.hasNext(); ) {
+                    Operation operation = it.next();
+                    if (!operation.started) {
+                        dropped.add(operation);
+                        it.remove();
+                    }
+                }
+            }
+            queues.values().removeIf(ArrayDeque::isEmpty);
+            pending -= dropped.size();
+        }
+        for (Operation operation : dropped) {
+            try {
+                operation.onDrop.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to drop operation", e);
+            }
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+        drop();
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Outcome of a lifecycle operation
+ * The LXC error number, errno and state are read by the root service from the handle that ran the
+ * operation, right after it and before another call could touch the handle, so a failure can be
+ * diagnosed without a getErrorNum call.
+ */
+public final class OperationResult implements Parcelable {
+    // Lifecycle operations, must match lifecycle_op in jni-wrapper.c
+    static final int OP_START = 0;
+    static final int OP_STOP = 1;
+    static final int OP_FREEZE = 2;
+    static final int OP_UNFREEZE = 3;
+    static final int OP_DESTROY = 4;
+
+    // Native result indexes, must match op_result_field in jni-wrapper.c
+    static final int FIELD_SUCCESS = 0;
+    static final int FIELD_ERROR_NUM = 1;
+    static final int FIELD_ERRNO = 2;
+    static final int FIELD_ELAPSED_NANOS = 3;
+    static final int FIELD_COUNT = 4;
+
+    private final boolean success;
+    private final int errorNum;
+    private final int errno;
+    private final long elapsedNanos;
+    private final String state;
+
+    /**
+     * Constructor
+     * @param success Whether the operation succeeded
+     * @param errorNum LXC error number of the handle, -1 if no handle could be opened
+     * @param errno errno right after the operation, 0 if unset
+     * @param elapsedNanos Time spent in native code
+     * @param state Container state after the operation, null if unknown
+     */
+    public OperationResult(boolean success, int errorNum, int errno, long elapsedNanos, String state) {
+        this.success = success;
+        this.errorNum = errorNum;
+        this.errno = errno;
+        this.elapsedNanos = elapsedNanos;
+        this.state = state;
+    }
+
+    static OperationResult fromArray(long[] values, String state) {
+        return new OperationResult(values[FIELD_SUCCESS] != 0, (int) values[FIELD_ERROR_NUM],
+                (int) values[FIELD_ERRNO], values[FIELD_ELAPSED_NANOS], state);
+    }
+
+    private OperationResult(Parcel in) {
+        success = in.readInt() != 0;
+        errorNum = in.readInt();
+        errno = in.readInt();
+        elapsedNanos = in.readLong();
+        state = in.readString();
+    }
+
+    public static final Creator<OperationResult> CREATOR = new Creator<>() {
+        @Override
+        public OperationResult createFromParcel(Parcel in) {
+            return new OperationResult(in);
+        }
+
+        @Override
+        public OperationResult[] newArray(int size) {
+            return new OperationResult[size];
+        }
+    };
+
+    /**
+     * Check if the operation succeeded
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Get LXC error number of the handle after the operation, -1 if no handle could be opened
+     */
+    public int getErrorNum() {
+        return errorNum;
+    }
+
+    /**
+     * Get errno right after the operation, 0 if it was not set
+     */
+    public int getErrno() {
+        return errno;
+    }
+
+    /**
+     * Get time spent in native code
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get container state after the operation, e.g. RUNNING, null if unknown
+     */
+    public String getState() {
+        return state;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeInt(success ? 1 : 0);
+        dest.writeInt(errorNum);
+        dest.writeInt(errno);
+        dest.writeLong(elapsedNanos);
+        dest.writeString(state);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("OperationResult{success=%b, errorNum=%d, errno=%d, elapsedNanos=%d, state='%s'}",
+                success, errorNum, errno, elapsedNanos, state);
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import io.github.coap.IService;
+
+/**
+ * Reaps the processes attached without waiting in the root service, on one thread for all of them
+ * The native attach calls register every attached process with the native reaper, which watches
+ * them through their pidfds on a single epoll and records their exit statuses. This class runs the
+ * thread blocking in the native reaper and completes the futures of callers waiting for an exit,
+ * so no thread is tied up per running process. It must be started before processes are attached.
+ */
+final class ProcessReaper {
+    private static final String TAG = "ProcessReaper";
+
+    // Wait timeout, only bounds how long a shutdown takes to be noticed
+    private static final int WAIT_MS = 60000;
+
+    private final Map<Integer, CompletableFuture<Integer>> waiting = new HashMap<>();
+    private Thread thread;
+    private boolean shutdown;
+
+    /**
+     * Start the reaper thread if it is not running yet
+     */
+    synchronized void start() {
+        if (thread != null || shutdown) {
+            return;
+        }
+        thread = new Thread(this::run, "ProcessReaper");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for the exit of an attached process
+     * @return Future completed with the raw wait status, or -1 if the process is unknown or the
+     * reaper shut down
+     */
+    synchronized CompletableFuture<Integer> exitOf(int pid) {
+        // An exit recorded before this call is in the native history, later ones are dispatched
+        int status = statusOf(pid);
+        if (status != IService.ATTACHED_RUNNING || shutdown) {
+            return CompletableFuture.completedFuture(shutdown ? -1 : status);
+        }
+        return waiting.computeIfAbsent(pid, key -> new CompletableFuture<>());
+    }
+
+    /**
+     * Get the raw wait status of an attached process, IService.ATTACHED_RUNNING while it runs, -1 if unknown
+     */
+    int statusOf(int pid) {
+        return LxcNative.nativeReaperStatus(pid);
+    }
+
+    void shutdown() {
+        List<CompletableFuture<Integer>> abandoned;
+        synchronized (this) {
+            shutdown = true;
+            abandoned = new ArrayList<>(waiting.values());
+            waiting.clear();
+        }
+        LxcNative.nativeReaperKick();
+        for (CompletableFuture<Integer> future : abandoned) {
+            future.complete(-1);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                if (shutdown) {
+                    thread = null;
+                    return;
+                }
+            }
+            int[] reaped = LxcNative.nativeReaperWait(WAIT_MS);
+            if (reaped == null) {
+                Log.e(TAG, "Native reaper wait failed");
+                synchronized (this) {
+                    thread = null;
+                }
+                shutdown();
+                return;
+            }
+
+            // Completed outside the lock, completions report to clients
+            List<CompletableFuture<Integer>> exited = new ArrayList<>();
+            List<Integer> statuses = new ArrayList<>();
+            synchronized (this) {
+                for (int i = 0; i + 1 < reaped.length; i += 2) {
+                    CompletableFuture<Integer> future = waiting.remove(reaped[i]);
+                    if (future != null) {
+                        exited.add(future);
+                        statuses.add(reaped[i + 1]);
+                    }
+                }
+            }
+            for (int i = 0; i < exited.size(); i++) {
+                exited.get(i).complete(statuses.get(i));
+            }
+        }
+    }
+}
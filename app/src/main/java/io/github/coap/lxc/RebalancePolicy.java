@@ -0,0 +1,116 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Bounds of the cgroup rebalancer
+ * Every interval the running containers of an LXC path get a cpu.weight between the CPU weight
+ * bounds, higher for containers stalled on CPU more, and a memory.high between the memory bounds,
+ * sized from their usage and raised for containers stalled on memory.
+ */
+public final class RebalancePolicy implements Parcelable {
+    private final long intervalMillis;
+    private final int minCpuWeight;
+    private final int maxCpuWeight;
+    private final long minMemoryHigh;
+    private final long maxMemoryHigh;
+    private final long memoryBudget;
+
+    /**
+     * Constructor
+     * @param intervalMillis Time between rebalancing rounds
+     * @param minCpuWeight Lowest cpu.weight handed out, at least 1
+     * @param maxCpuWeight Highest cpu.weight handed out, at most 10000
+     * @param minMemoryHigh Lowest memory.high handed out in bytes
+     * @param maxMemoryHigh Highest memory.high handed out in bytes
+     * @param memoryBudget Bytes shared out as memory.high between the running containers,
+     *                     0 to size every container on its own
+     */
+    public RebalancePolicy(long intervalMillis, int minCpuWeight, int maxCpuWeight,
+                           long minMemoryHigh, long maxMemoryHigh, long memoryBudget) {
+        this.intervalMillis = intervalMillis;
+        this.minCpuWeight = minCpuWeight;
+        this.maxCpuWeight = maxCpuWeight;
+        this.minMemoryHigh = minMemoryHigh;
+        this.maxMemoryHigh = maxMemoryHigh;
+        this.memoryBudget = memoryBudget;
+    }
+
+    private RebalancePolicy(Parcel in) {
+        intervalMillis = in.readLong();
+        minCpuWeight = in.readInt();
+        maxCpuWeight = in.readInt();
+        minMemoryHigh = in.readLong();
+        maxMemoryHigh = in.readLong();
+        memoryBudget = in.readLong();
+    }
+
+    public static final Creator<RebalancePolicy> CREATOR = new Creator<>() {
+        @Override
+        public RebalancePolicy createFromParcel(Parcel in) {
+            return new RebalancePolicy(in);
+        }
+
+        @Override
+        public RebalancePolicy[] newArray(int size) {
+            return new RebalancePolicy[size];
+        }
+    };
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int getMinCpuWeight() {
+        return minCpuWeight;
+    }
+
+    public int getMaxCpuWeight() {
+        return maxCpuWeight;
+    }
+
+    public long getMinMemoryHigh() {
+        return minMemoryHigh;
+    }
+
+    public long getMaxMemoryHigh() {
+        return maxMemoryHigh;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Whether the bounds make sense, invalid policies are rejected by the service
+     */
+    public boolean isValid() {
+        return intervalMillis > 0 && minCpuWeight >= 1 && minCpuWeight <= maxCpuWeight && maxCpuWeight <= 10000
+                && minMemoryHigh > 0 && minMemoryHigh <= maxMemoryHigh && memoryBudget >= 0;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeLong(intervalMillis);
+        dest.writeInt(minCpuWeight);
+        dest.writeInt(maxCpuWeight);
+        dest.writeLong(minMemoryHigh);
+        dest.writeLong(maxMemoryHigh);
+        dest.writeLong(memoryBudget);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("RebalancePolicy{intervalMillis=%d, cpuWeight=%d..%d, memoryHigh=%d..%d, memoryBudget=%d}",
+                intervalMillis, minCpuWeight, maxCpuWeight, minMemoryHigh, maxMemoryHigh, memoryBudget);
+    }
+}
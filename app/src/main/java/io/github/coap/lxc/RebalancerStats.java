@@ -0,0 +1,28 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of the cgroup rebalancer of one LXC path in the root service
+ *
+ * @param rounds       Rebalancing rounds run
+ * @param tuned        Running containers whose limits were changed by the rebalancer
+ * @param writes       cpu.weight and memory.high values written
+ * @param failedWrites Values that could not be written
+ */
+public record RebalancerStats(long rounds, long tuned, long writes, long failedWrites) {
+
+    static RebalancerStats fromArray(long[] values) {
+        if (values == null || values.length < 4) {
+            return new RebalancerStats(0, 0, 0, 0);
+        }
+        return new RebalancerStats(values[0], values[1], values[2], values[3]);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("RebalancerStats{rounds=%d, tuned=%d, writes=%d, failedWrites=%d}",
+                rounds, tuned, writes, failedWrites);
+    }
+}
@@ -0,0 +1,202 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Per-method call statistics of the root service
+ * Each entry is one IService method, either over all containers or, when per-container
+ * statistics are enabled, for a single container. Counters and latency histograms are stored
+ * as flat primitive arrays: for entry i the counter c is getCounters(i)[c] and histogram
+ * bucket b is getBuckets(i)[b].
+ * Histogram buckets are log-linear over microseconds: four linear buckets per power of two,
+ * so a bucket is never wider than a quarter of its lower bound.
+ */
+public final class ServiceStats implements Parcelable {
+    // Counter indexes
+    public static final int CALLS = 0;
+    public static final int FAILURES = 1;
+    public static final int IN_FLIGHT = 2;
+    public static final int TOTAL_NANOS = 3;
+    public static final int MAX_NANOS = 4;
+    public static final int COUNTER_COUNT = 5;
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Powers of two covered, the last bucket also holds everything above 2^30 us (~18 minutes)
+    private static final int MAX_EXPONENT = 30;
+    public static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final String[] methods;
+    // null for entries over all containers
+    private final String[] containers;
+    private final long[] counters;
+    private final long[] buckets;
+
+    ServiceStats(String[] methods, String[] containers, long[] counters, long[] buckets) {
+        this.methods = methods;
+        this.containers = containers;
+        this.counters = counters;
+        this.buckets = buckets;
+    }
+
+    private ServiceStats(Parcel in) {
+        methods = in.createStringArray();
+        containers = in.createStringArray();
+        counters = in.createLongArray();
+        buckets = in.createLongArray();
+    }
+
+    public static final Creator<ServiceStats> CREATOR = new Creator<>() {
+        @Override
+        public ServiceStats createFromParcel(Parcel in) {
+            return new ServiceStats(in);
+        }
+
+        @Override
+        public ServiceStats[] newArray(int size) {
+            return new ServiceStats[size];
+        }
+    };
+
+    /**
+     * Get histogram bucket of a latency
+     * @param micros Latency in microseconds
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get inclusive lower bound of a histogram bucket in microseconds
+     * @param bucket Bucket index
+     */
+    public static long getBucketLowerMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Get exclusive upper bound of a histogram bucket in microseconds, Long.MAX_VALUE for the last
+     * @param bucket Bucket index
+     */
+    public static long getBucketUpperMicros(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : getBucketLowerMicros(bucket + 1);
+    }
+
+    /**
+     * Get number of entries
+     */
+    public int getEntryCount() {
+        return methods.length;
+    }
+
+    /**
+     * Get IService method name of an entry
+     * @param entry Entry index
+     */
+    public String getMethod(int entry) {
+        return methods[entry];
+    }
+
+    /**
+     * Get container of an entry as lxcpath/name, null for an entry over all containers
+     * @param entry Entry index
+     */
+    public String getContainer(int entry) {
+        return containers[entry];
+    }
+
+    /**
+     * Get index of the entry of a method over all containers, -1 if it was never called
+     * @param method IService method name
+     */
+    public int indexOf(String method) {
+        for (int i = 0; i < methods.length; i++) {
+            if (containers[i] == null && methods[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get a single counter
+     * @param entry Entry index
+     * @param counter Counter index, e.g. CALLS
+     */
+    public long getCounter(int entry, int counter) {
+        return counters[entry * COUNTER_COUNT + counter];
+    }
+
+    /**
+     * Get latency histogram of an entry, BUCKET_COUNT call counts
+     * @param entry Entry index
+     */
+    public long[] getBuckets(int entry) {
+        long[] result = new long[BUCKET_COUNT];
+        System.arraycopy(buckets, entry * BUCKET_COUNT, result, 0, BUCKET_COUNT);
+        return result;
+    }
+
+    /**
+     * Get mean latency of an entry in microseconds
+     * @param entry Entry index
+     */
+    public double getMeanMicros(int entry) {
+        long calls = getCounter(entry, CALLS);
+        return calls == 0 ? 0.0 : getCounter(entry, TOTAL_NANOS) / 1000.0 / calls;
+    }
+
+    /**
+     * Get latency percentile of an entry in microseconds, the upper bound of the bucket it falls in
+     * @param entry Entry index
+     * @param quantile Quantile between 0 and 1, e.g. 0.99
+     */
+    public long getPercentileMicros(int entry, double quantile) {
+        long calls = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            calls += buckets[entry * BUCKET_COUNT + b];
+        }
+        if (calls == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * calls);
+        long seen = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            seen += buckets[entry * BUCKET_COUNT + b];
+            if (seen >= Math.max(rank, 1)) {
+                // The max is exact and tighter than the bound of the last bucket
+                return Math.min(getBucketUpperMicros(b), getCounter(entry, MAX_NANOS) / 1000 + 1);
+            }
+        }
+        return getCounter(entry, MAX_NANOS) / 1000 + 1;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeStringArray(methods);
+        dest.writeStringArray(containers);
+        dest.writeLongArray(counters);
+        dest.writeLongArray(buckets);
+    }
+}
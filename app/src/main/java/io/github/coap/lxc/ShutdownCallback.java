@@ -0,0 +1,80 @@
+package io.github.coap.lxc;
+
+import android.os.IBinder;
+import android.os.RemoteException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.github.coap.IService;
+import io.github.coap.IShutdownCallback;
+
+/**
+ * Client side receiver of a parallel shutdown
+ * Collects the outcome of every container and completes its future once the service is done, or
+ * with the outcomes reported so far if the root service dies first
+ */
+final class ShutdownCallback extends IShutdownCallback.Stub implements IBinder.DeathRecipient {
+    private static final AtomicLong nextOperationId = new AtomicLong(1);
+
+    private final long operationId = nextOperationId.getAndIncrement();
+    private final CompletableFuture<List<ContainerShutdown>> future = new CompletableFuture<>();
+    private final List<ContainerShutdown> outcomes = new ArrayList<>();
+    private final Consumer<ContainerShutdown> progress;
+
+    /**
+     * Constructor
+     * @param service Service running the shutdown
+     * @param progress Receiver of each container outcome as it is reported, may be null
+     */
+    ShutdownCallback(IService service, Consumer<ContainerShutdown> progress) {
+        this.progress = progress;
+        IBinder binder = service.asBinder();
+        try {
+            binder.linkToDeath(this, 0);
+            future.whenComplete((outcomes, e) -> binder.unlinkToDeath(this, 0));
+        } catch (RemoteException e) {
+            binderDied();
+        }
+    }
+
+    long getOperationId() {
+        return operationId;
+    }
+
+    CompletableFuture<List<ContainerShutdown>> getFuture() {
+        return future;
+    }
+
+    @Override
+    public void onContainerProgress(long operationId, String name, String stage) {
+    }
+
+    @Override
+    public void onContainerDone(long operationId, String name, int outcome, long elapsedMillis) {
+        ContainerShutdown shutdown = new ContainerShutdown(name, outcome, elapsedMillis);
+        synchronized (outcomes) {
+            outcomes.add(shutdown);
+        }
+        if (progress != null) {
+            progress.accept(shutdown);
+        }
+    }
+
+    @Override
+    public void onComplete(long operationId, int[] outcomeCounts) {
+        synchronized (outcomes) {
+            future.complete(new ArrayList<>(outcomes));
+        }
+    }
+
+    @Override
+    public void binderDied() {
+        synchronized (outcomes) {
+            future.complete(new ArrayList<>(outcomes));
+        }
+    }
+}
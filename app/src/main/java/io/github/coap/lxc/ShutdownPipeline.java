@@ -0,0 +1,251 @@
+package io.github.coap.lxc;
+
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.github.coap.IShutdownCallback;
+
+/**
+ * Shuts down many containers of an LXC path at once in the root service
+ * A graceful shutdown mostly waits for the container's init to wind down, so instead of a
+ * blocking shutdown per container, every container is sent the halt signal (a shutdown with
+ * timeout 0) and the stopped ones are then picked up by polling their status in one pass. A
+ * container still running after its own timeout, or at the deadline of the whole operation, is
+ * stopped. The native calls run on a few workers and hold the container lock, waiting does not.
+ */
+final class ShutdownPipeline {
+    private static final String TAG = "ShutdownPipeline";
+
+    // Signals and stops running at the same time
+    private static final int WORKERS = 8;
+    private static final long POLL_MS = 100;
+
+    private static final class Pending {
+        final String name;
+        final long stopAt;
+        CompletableFuture<Boolean> signal;
+
+        Pending(String name, long stopAt) {
+            this.name = name;
+            this.stopAt = stopAt;
+        }
+    }
+
+    private final ContainerLocks.Mutator mutator;
+    private final Consumer<String> onChange;
+    private final Function<String, ContainerStatus[]> source;
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+        Thread thread = new Thread(r, "ShutdownWorker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService coordinators = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ShutdownPipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor
+     * @param mutator Runs the signal and stop calls
+     * @param onChange Called with the lxcpath after containers went down
+     * @param source Statuses of the containers in an lxcpath, for shutdowns of all of them
+     */
+    ShutdownPipeline(ContainerLocks.Mutator mutator, Consumer<String> onChange, Function<String, ContainerStatus[]> source) {
+        this.mutator = mutator;
+        this.onChange = onChange;
+        this.source = source;
+    }
+
+    /**
+     * Start shutting down containers, see IService.shutdownContainersAsync
+     */
+    void submit(long operationId, String lxcpath, String[] names, int[] timeoutSeconds, long deadlineMillis,
+                IShutdownCallback callback) {
+        try {
+            coordinators.execute(() -> run(operationId, lxcpath, names, timeoutSeconds, deadlineMillis, callback));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Rejected shutdown " + operationId + ": " + e.getMessage());
+            complete(callback, operationId, new int[IShutdownCallback.OUTCOME_COUNT]);
+        }
+    }
+
+    void shutdown() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void run(long operationId, String lxcpath, String[] names, int[] timeoutSeconds, long deadlineMillis,
+                     IShutdownCallback callback) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadlineMillis));
+        int[] counts = new int[IShutdownCallback.OUTCOME_COUNT];
+
+        ContainerStatus[] statuses = names != null
+                ? LxcNative.nativeGetContainerStatusesOf(lxcpath, names)
+                : source.apply(lxcpath);
+        Set<String> running = new HashSet<>();
+        if (statuses != null) {
+            for (ContainerStatus status : statuses) {
+                if (status.isRunning()) {
+                    running.add(status.getName());
+                }
+            }
+        }
+
+        Map<String, Pending> pending = new LinkedHashMap<>();
+        String[] requested = names != null ? names : running.toArray(new String[0]);
+        for (int i = 0; i < requested.length; i++) {
+            String name = requested[i];
+            if (name == null || pending.containsKey(name)) {
+                continue;
+            }
+            if (!running.contains(name)) {
+                done(callback, operationId, name, statuses != null ? IShutdownCallback.OUTCOME_NOT_RUNNING
+                        : IShutdownCallback.OUTCOME_FAILED, start, counts);
+                continue;
+            }
+            int timeout = timeoutSeconds != null && i < timeoutSeconds.length ? timeoutSeconds[i] : 0;
+            Pending entry = new Pending(name, timeout > 0 ? start + TimeUnit.SECONDS.toNanos(timeout) : Long.MAX_VALUE);
+            entry.signal = CompletableFuture.supplyAsync(() -> {
+                boolean sent = mutator.run(name, lxcpath, () -> LxcNative.nativeShutdownContainer(name, lxcpath, 0));
+                if (sent) {
+                    progress(callback, operationId, name, IShutdownCallback.STAGE_SHUTTING_DOWN);
+                }
+                return sent;
+            }, workers).exceptionally(e -> false);
+            pending.put(name, entry);
+        }
+
+        List<CompletableFuture<Void>> stops = new ArrayList<>();
+        try {
+            while (!pending.isEmpty()) {
+                Thread.sleep(POLL_MS);
+                long now = System.nanoTime();
+
+                ContainerStatus[] current = LxcNative.nativeGetContainerStatusesOf(lxcpath,
+                        pending.keySet().toArray(new String[0]));
+                if (current != null) {
+                    Set<String> stillRunning = new HashSet<>();
+                    for (ContainerStatus status : current) {
+                        if (status.isRunning()) {
+                            stillRunning.add(status.getName());
+                        }
+                    }
+                    boolean changed = false;
+                    for (Iterator<Pending> it = pending.values().iterator(); it.hasNext(); ) {
+                        Pending entry = it.next();
+                        if (!stillRunning.contains(entry.name)) {
+                            done(callback, operationId, entry.name, IShutdownCallback.OUTCOME_SHUT_DOWN, start, counts);
+                            it.remove();
+                            changed = true;
+                        }
+                    }
+                    if (changed) {
+                        onChange.accept(lxcpath);
+                    }
+                }
+
+                for (Iterator<Pending> it = pending.values().iterator(); it.hasNext(); ) {
+                    Pending entry = it.next();
+                    boolean unsignalled = !entry.signal.getNow(true);
+                    if (unsignalled || now - Math.min(entry.stopAt, deadline) >= 0) {
+                        it.remove();
+                        stops.add(escalate(operationId, lxcpath, entry, callback, start, counts));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // The service is going away, the client still gets an outcome for every container
+            Log.w(TAG, "Shutdown " + operationId + " interrupted");
+            Thread.currentThread().interrupt();
+            for (Pending entry : pending.values()) {
+                done(callback, operationId, entry.name, IShutdownCallback.OUTCOME_FAILED, start, counts);
+            }
+            synchronized (counts) {
+                complete(callback, operationId, counts.clone());
+            }
+            return;
+        }
+
+        for (CompletableFuture<Void> stop : stops) {
+            stop.join();
+        }
+        synchronized (counts) {
+            complete(callback, operationId, counts.clone());
+        }
+    }
+
+    private CompletableFuture<Void> escalate(long operationId, String lxcpath, Pending entry, IShutdownCallback callback,
+                                             long start, int[] counts) {
+        String name = entry.name;
+        // Queued behind the signal if that has not run yet
+        return CompletableFuture.runAsync(() -> {
+            progress(callback, operationId, name, IShutdownCallback.STAGE_STOPPING);
+            boolean stopped = mutator.run(name, lxcpath, () -> LxcNative.nativeStopContainer(name, lxcpath));
+            if (!stopped) {
+                // A container that went down by itself in the meantime cannot be stopped
+                stopped = !LxcNative.nativeIsRunning(name, lxcpath);
+            }
+            done(callback, operationId, name, stopped ? IShutdownCallback.OUTCOME_STOPPED
+                    : IShutdownCallback.OUTCOME_FAILED, start, counts);
+            onChange.accept(lxcpath);
+        }, workers).exceptionally(e -> {
+            Log.e(TAG, "Failed to stop " + name, e);
+            done(callback, operationId, name, IShutdownCallback.OUTCOME_FAILED, start, counts);
+            return null;
+        });
+    }
+
+    private static void done(IShutdownCallback callback, long operationId, String name, int outcome, long start,
+                             int[] counts) {
+        synchronized (counts) {
+            counts[outcome]++;
+        }
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.onContainerDone(operationId, name, outcome, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to report shutdown of " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void progress(IShutdownCallback callback, long operationId, String name, String stage) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.onContainerProgress(operationId, name, stage);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to report shutdown progress of " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void complete(IShutdownCallback callback, long operationId, int[] counts) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.onComplete(operationId, counts);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to report shutdown " + operationId + ": " + e.getMessage());
+        }
+    }
+}
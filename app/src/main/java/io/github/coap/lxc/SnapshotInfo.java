@@ -0,0 +1,20 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Snapshot of a container
+ *
+ * @param name        Snapshot name, e.g. snap0
+ * @param timestamp   Creation time as written by LXC, "yyyy:MM:dd HH:mm:ss" local time
+ * @param commentPath Path of the snapshot comment file, null if there is none
+ * @param lxcPath     LXC path the snapshot is stored under
+ */
+public record SnapshotInfo(String name, String timestamp, String commentPath, String lxcPath) {
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("SnapshotInfo{name=%s, timestamp=%s}", name, timestamp);
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot listing, restore, destruction and retention in the root service
+ * Listings are cached per container and validated against the modification time of the
+ * container's snaps directory, which LXC changes whenever a snapshot is added or removed, so
+ * paging through a long list costs one liblxc scan. Retention limits are applied in batch,
+ * destroying all expired snapshots with one container handle.
+ */
+final class SnapshotManager {
+    private static final String TAG = "SnapshotManager";
+
+    // Per snapshot fields of a listing: name, timestamp, comment path, lxcpath
+    private static final int FIELD_COUNT = 4;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private record Listing(long stamp, String[] snapshots) {
+    }
+
+    private record Retention(int maxCount, long maxAgeMillis) {
+    }
+
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+    private final Map<String, Retention> defaultRetention = new ConcurrentHashMap<>();
+    private final Map<String, Retention> retention = new ConcurrentHashMap<>();
+
+    private static long stamp(String name, String lxcpath) {
+        // 0 while the container has no snaps directory yet
+        return new File(new File(lxcpath, name), "snaps").lastModified();
+    }
+
+    /**
+     * Get all snapshots of a container oldest first, flattened
+     * @return Snapshots or null if the container cannot be opened
+     */
+    String[] list(String name, String lxcpath) {
+        String key = OperationExecutor.key(name, lxcpath);
+        long stamp = stamp(name, lxcpath);
+        Listing cached = listings.get(key);
+        if (cached != null && cached.stamp() == stamp) {
+            return cached.snapshots();
+        }
+
+        String[] snapshots = LxcNative.nativeListSnapshots(name, lxcpath);
+        if (snapshots == null) {
+            return null;
+        }
+        snapshots = sorted(snapshots);
+        listings.put(key, new Listing(stamp, snapshots));
+        return snapshots;
+    }
+
+    // liblxc lists in directory order, sort by timestamp and then name
+    private static String[] sorted(String[] snapshots) {
+        Integer[] order = new Integer[snapshots.length / FIELD_COUNT];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Comparator<Integer> byTimestamp = Comparator.comparing(i -> String.valueOf(snapshots[i * FIELD_COUNT + 1]));
+        Arrays.sort(order, byTimestamp.thenComparing(i -> snapshots[i * FIELD_COUNT].length())
+                .thenComparing(i -> snapshots[i * FIELD_COUNT]));
+
+        String[] result = new String[snapshots.length];
+        for (int i = 0; i < order.length; i++) {
+            System.arraycopy(snapshots, order[i] * FIELD_COUNT, result, i * FIELD_COUNT, FIELD_COUNT);
+        }
+        return result;
+    }
+
+    private void invalidate(String name, String lxcpath) {
+        listings.remove(OperationExecutor.key(name, lxcpath));
+    }
+
+    /**
+     * Create a snapshot and apply the retention limits of the container
+     * @param onPrune Called before expired snapshots are pruned
+     * @return Snapshot number or -1
+     */
+    int create(String name, String lxcpath, Runnable onPrune) {
+        int snapshot = LxcNative.nativeCreateSnapshot(name, lxcpath);
+        invalidate(name, lxcpath);
+        if (snapshot >= 0 && retentionOf(name, lxcpath) != null) {
+            onPrune.run();
+            prune(name, lxcpath);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Restore a snapshot
+     * @param newName Name of the restored container, null to restore over the container
+     */
+    boolean restore(String name, String lxcpath, String snapName, String newName) {
+        boolean result = LxcNative.nativeRestoreSnapshot(name, lxcpath, snapName, newName);
+        invalidate(name, lxcpath);
+        return result;
+    }
+
+    /**
+     * Destroy snapshots
+     * @param snapNames Snapshots to destroy, null for all
+     * @return Number of snapshots destroyed or -1
+     */
+    int destroy(String name, String lxcpath, String[] snapNames) {
+        int result;
+        if (snapNames == null) {
+            String[] snapshots = list(name, lxcpath);
+            result = snapshots != null && LxcNative.nativeDestroyAllSnapshots(name, lxcpath)
+                    ? snapshots.length / FIELD_COUNT : -1;
+        } else {
+            result = LxcNative.nativeDestroySnapshots(name, lxcpath, snapNames);
+        }
+        invalidate(name, lxcpath);
+        return result;
+    }
+
+    /**
+     * Set retention limits
+     * @param name Container name, null for the default of all containers in lxcpath
+     * @param maxCount Maximum number of snapshots kept, <= 0 for no limit
+     * @param maxAgeMillis Maximum snapshot age, <= 0 for no limit
+     */
+    void setRetention(String name, String lxcpath, int maxCount, long maxAgeMillis) {
+        Map<String, Retention> map = name == null ? defaultRetention : retention;
+        String key = name == null ? lxcpath : OperationExecutor.key(name, lxcpath);
+        if (maxCount <= 0 && maxAgeMillis <= 0) {
+            map.remove(key);
+        } else {
+            map.put(key, new Retention(maxCount, maxAgeMillis));
+        }
+    }
+
+    private Retention retentionOf(String name, String lxcpath) {
+        Retention own = retention.get(OperationExecutor.key(name, lxcpath));
+        return own != null ? own : defaultRetention.get(lxcpath);
+    }
+
+    /**
+     * Destroy the snapshots outside the retention limits of a container
+     * @return Number of snapshots destroyed or -1
+     */
+    int prune(String name, String lxcpath) {
+        Retention limits = retentionOf(name, lxcpath);
+        if (limits == null) {
+            return 0;
+        }
+        String[] snapshots = list(name, lxcpath);
+        if (snapshots == null) {
+            return -1;
+        }
+
+        int count = snapshots.length / FIELD_COUNT;
+        int keepFrom = limits.maxCount() > 0 ? count - limits.maxCount() : 0;
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String timestamp = snapshots[i * FIELD_COUNT + 1];
+            if (i < keepFrom || (limits.maxAgeMillis() > 0 && now - millisOf(timestamp) > limits.maxAgeMillis())) {
+                expired.add(snapshots[i * FIELD_COUNT]);
+            }
+        }
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        return destroy(name, lxcpath, expired.toArray(new String[0]));
+    }
+
+    // Unparsable timestamps never expire
+    private static long millisOf(String timestamp) {
+        if (timestamp == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return LocalDateTime.parse(timestamp, TIMESTAMP).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            Log.w(TAG, "Unexpected snapshot timestamp " + timestamp);
+            return Long.MAX_VALUE;
+        }
+    }
+}
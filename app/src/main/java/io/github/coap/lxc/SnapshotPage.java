@@ -0,0 +1,118 @@
+package io.github.coap.lxc;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a container's snapshots, oldest first
+ * Fields are stored as a flat string array with FIELD_COUNT values per snapshot.
+ */
+public final class SnapshotPage implements Parcelable {
+    private static final int FIELD_COUNT = 4;
+
+    private final int offset;
+    private final int total;
+    private final String[] fields;
+
+    SnapshotPage(int offset, int total, String[] fields) {
+        this.offset = offset;
+        this.total = total;
+        this.fields = fields;
+    }
+
+    private SnapshotPage(Parcel in) {
+        offset = in.readInt();
+        total = in.readInt();
+        fields = in.createStringArray();
+    }
+
+    public static final Creator<SnapshotPage> CREATOR = new Creator<>() {
+        @Override
+        public SnapshotPage createFromParcel(Parcel in) {
+            return new SnapshotPage(in);
+        }
+
+        @Override
+        public SnapshotPage[] newArray(int size) {
+            return new SnapshotPage[size];
+        }
+    };
+
+    /**
+     * Build a page from a full listing
+     * @param snapshots All snapshots, flattened
+     */
+    static SnapshotPage of(String[] snapshots, int offset, int limit) {
+        int total = snapshots.length / FIELD_COUNT;
+        int from = Math.min(Math.max(offset, 0), total);
+        int to = limit > 0 ? Math.min(total, from + limit) : total;
+        String[] fields = new String[(to - from) * FIELD_COUNT];
+        System.arraycopy(snapshots, from * FIELD_COUNT, fields, 0, fields.length);
+        return new SnapshotPage(from, total, fields);
+    }
+
+    /**
+     * Get index of the first snapshot of this page in the full listing
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get number of snapshots of the container
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Get number of snapshots in this page
+     */
+    public int size() {
+        return fields.length / FIELD_COUNT;
+    }
+
+    /**
+     * Whether snapshots follow this page
+     */
+    public boolean hasMore() {
+        return offset + size() < total;
+    }
+
+    /**
+     * Get a snapshot of this page
+     * @param index Index within the page
+     */
+    public SnapshotInfo get(int index) {
+        int f = index * FIELD_COUNT;
+        return new SnapshotInfo(fields[f], fields[f + 1], fields[f + 2], fields[f + 3]);
+    }
+
+    /**
+     * Get all snapshots of this page
+     */
+    public List<SnapshotInfo> getSnapshots() {
+        List<SnapshotInfo> snapshots = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            snapshots.add(get(i));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeInt(offset);
+        dest.writeInt(total);
+        dest.writeStringArray(fields);
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.coap.lxc;
+
+import android.os.RemoteCallbackList;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import io.github.coap.IStateListener;
+
+/**
+ * Watches the containers of one LXC path and pushes state transitions to registered listeners
+ * Runs in the root service. The monitor thread blocks on the init pidfds of running containers,
+ * so stops are reported as soon as init exits, from the exited names alone. Other transitions
+ * are picked up by rescans read from cached handles: of all containers when kick() is called
+ * after lifecycle calls made through the service, and of single containers while a mutation of
+ * them runs or they are in a transitional state, so e.g. STARTING and FREEZING are seen too. A
+ * slow rescan of all containers catches changes made outside of the service. The first state
+ * seen of a container is reported as well.
+ */
+final class StateMonitor {
+    private static final String TAG = "StateMonitor";
+
+    // Rescan interval of containers being changed or in a transitional state
+    private static final int TRANSITION_RESCAN_MS = 250;
+    // Interval of rescans of all containers without a kick, catches changes made outside of the service
+    private static final int IDLE_RESCAN_MS = 60000;
+    private static final long IDLE_RESCAN_NANOS = IDLE_RESCAN_MS * 1_000_000L;
+    private static final String STOPPED = "STOPPED";
+
+    private final String lxcPath;
+    private final Supplier<ContainerStatus[]> source;
+    private final RemoteCallbackList<IStateListener> listeners = new RemoteCallbackList<>();
+    private final Map<String, String> states = new HashMap<>();
+    // Containers with mutations running, by the number of them
+    private final Map<String, Integer> followed = new HashMap<>();
+
+    private Thread thread;
+    private long monitor;
+    private boolean rescanAll;
+
+    // Only touched by the monitor thread
+    private final Set<String> transitional = new HashSet<>();
+    private long rescannedAt;
+
+    /**
+     * Constructor
+     * @param source Statuses of the containers in lxcPath, e.g. from the inventory
+     */
+    StateMonitor(String lxcPath, Supplier<ContainerStatus[]> source) {
+        this.lxcPath = lxcPath;
+        this.source = source;
+    }
+
+    /**
+     * Register a listener, starting the monitor thread if needed
+     */
+    synchronized void register(IStateListener listener) {
+        listeners.register(listener);
+        if (thread == null) {
+            monitor = LxcNative.nativeMonitorCreate();
+            if (monitor == 0) {
+                Log.e(TAG, "Failed to create native monitor for " + lxcPath);
+                return;
+            }
+            rescanAll = true;
+            thread = new Thread(this::run, "StateMonitor:" + lxcPath);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Unregister a listener, the monitor thread exits once no listener is left
+     */
+    synchronized void unregister(IStateListener listener) {
+        listeners.unregister(listener);
+        wake();
+    }
+
+    /**
+     * Request an immediate rescan of all containers, e.g. after a lifecycle operation
+     */
+    synchronized void kick() {
+        rescanAll = true;
+        wake();
+    }
+
+    /**
+     * Follow a container closely while a mutation of it runs, must be paired with unfollow()
+     */
+    synchronized void follow(String name) {
+        if (monitor != 0 && followed.merge(name, 1, Integer::sum) == 1) {
+            wake();
+        }
+    }
+
+    synchronized void unfollow(String name) {
+        followed.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void wake() {
+        if (monitor != 0) {
+            LxcNative.nativeMonitorKick(monitor);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            boolean all;
+            String[] names;
+            synchronized (this) {
+                if (listeners.getRegisteredCallbackCount() == 0) {
+                    LxcNative.nativeMonitorFree(monitor);
+                    monitor = 0;
+                    thread = null;
+                    states.clear();
+                    followed.clear();
+                    transitional.clear();
+                    return;
+                }
+                all = rescanAll;
+                rescanAll = false;
+                Set<String> close = new HashSet<>(followed.keySet());
+                close.addAll(transitional);
+                names = close.toArray(new String[0]);
+            }
+
+            if (all || System.nanoTime() - rescannedAt >= IDLE_RESCAN_NANOS) {
+                rescannedAt = System.nanoTime();
+                rescanAll();
+            } else if (names.length > 0) {
+                rescan(names);
+            }
+
+            int timeout;
+            synchronized (this) {
+                timeout = followed.isEmpty() && transitional.isEmpty() ? IDLE_RESCAN_MS : TRANSITION_RESCAN_MS;
+            }
+            String[] exited = LxcNative.nativeMonitorWait(monitor, timeout);
+            if (exited == null) {
+                Log.w(TAG, "Native monitor wait failed for " + lxcPath);
+                try {
+                    Thread.sleep(TRANSITION_RESCAN_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            for (String name : exited) {
+                // The pidfd is gone with init, a restart is picked up by the next rescan
+                update(name, STOPPED);
+            }
+        }
+    }
+
+    // Read all containers, containers no longer listed are forgotten
+    private void rescanAll() {
+        ContainerStatus[] statuses = source.get();
+        if (statuses == null) {
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        for (ContainerStatus status : statuses) {
+            seen.add(status.getName());
+            apply(status);
+        }
+        states.keySet().retainAll(seen);
+        transitional.retainAll(seen);
+    }
+
+    private void rescan(String[] names) {
+        ContainerStatus[] statuses = LxcNative.nativeGetContainerStatusesOf(lxcPath, names);
+        if (statuses == null) {
+            return;
+        }
+        for (ContainerStatus status : statuses) {
+            apply(status);
+        }
+    }
+
+    // Dispatch a changed or first seen state and watch running containers
+    private void apply(ContainerStatus status) {
+        String name = status.getName();
+        if (status.isRunning()) {
+            LxcNative.nativeMonitorWatch(monitor, name, lxcPath);
+        }
+        update(name, status.getState());
+    }
+
+    private void update(String name, String state) {
+        if (state == null) {
+            return;
+        }
+        if (isTransitional(state)) {
+            transitional.add(name);
+        } else {
+            transitional.remove(name);
+        }
+        if (!state.equals(states.put(name, state))) {
+            dispatch(name, state);
+        }
+    }
+
+    private static boolean isTransitional(String state) {
+        return "STARTING".equals(state) || "STOPPING".equals(state)
+                || "FREEZING".equals(state) || "ABORTING".equals(state);
+    }
+
+    private void dispatch(String name, String state) {
+        int count = listeners.beginBroadcast();
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    listeners.getBroadcastItem(i).onStateChanged(name, lxcPath, state);
+                } catch (RemoteException e) {
+                    Log.w(TAG, "Failed to deliver state change: " + e.getMessage());
+                }
+            }
+        } finally {
+            listeners.finishBroadcast();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.coap.lxc;
+
+import android.net.Credentials;
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Publishes call statistics in the Prometheus text format
+ * A file target is rewritten periodically through a rename, so readers never see a partial
+ * dump, and suits node_exporter's textfile collector. A "local:name" target serves the current
+ * statistics over HTTP on an abstract unix socket, reachable with "adb forward tcp:9100
+ * localabstract:name". Unlike a loopback port, its peers are known: only root, the adb shell and
+ * the uid that asked for the export are answered, other apps are turned away.
+ */
+final class StatsExporter {
+    private static final String TAG = "StatsExporter";
+
+    static final String LOCAL_PREFIX = "local:";
+    static final long DEFAULT_INTERVAL_MS = 15000;
+
+    private static final int ROOT_UID = 0;
+    // AID_SHELL, adbd forwards connections as this uid
+    private static final int SHELL_UID = 2000;
+
+    private final Supplier<String> dump;
+    private final String target;
+    private final int ownerUid;
+    private ScheduledExecutorService writer;
+    private LocalServerSocket server;
+    private volatile boolean closed;
+
+    /**
+     * Constructor
+     * @param dump Current statistics in the Prometheus text format
+     * @param target File path or "local:name"
+     * @param ownerUid Uid that asked for the export, also allowed to read a local socket
+     */
+    StatsExporter(Supplier<String> dump, String target, int ownerUid) {
+        this.dump = dump;
+        this.target = target;
+        this.ownerUid = ownerUid;
+    }
+
+    /**
+     * Start exporting
+     * @param intervalMillis File rewrite interval, ignored for local socket targets
+     * @return false if the target is invalid or cannot be opened
+     */
+    boolean start(long intervalMillis) {
+        if (target.startsWith(LOCAL_PREFIX)) {
+            return listen();
+        }
+
+        File file = new File(target);
+        if (!file.isAbsolute()) {
+            return false;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "StatsExporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = intervalMillis > 0 ? intervalMillis : DEFAULT_INTERVAL_MS;
+        writer.scheduleWithFixedDelay(() -> write(file), 0, interval, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void write(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(dump.get().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write stats to " + tmp + ": " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Failed to rename stats to " + file);
+        }
+    }
+
+    private String socketName() {
+        return target.substring(LOCAL_PREFIX.length());
+    }
+
+    private boolean listen() {
+        if (socketName().isEmpty()) {
+            return false;
+        }
+        try {
+            server = new LocalServerSocket(socketName());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to listen on " + target + ": " + e.getMessage());
+            return false;
+        }
+
+        Thread acceptor = new Thread(this::serve, "StatsExporter:" + socketName());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return true;
+    }
+
+    private boolean allowed(LocalSocket client) throws IOException {
+        Credentials peer = client.getPeerCredentials();
+        int uid = peer.getUid();
+        if (uid == ROOT_UID || uid == SHELL_UID || uid == ownerUid) {
+            return true;
+        }
+        Log.w(TAG, "Refused stats to uid " + uid + " pid " + peer.getPid());
+        return false;
+    }
+
+    private void serve() {
+        while (!closed) {
+            try (LocalSocket client = server.accept()) {
+                if (closed || !allowed(client)) {
+                    continue;
+                }
+                client.setSoTimeout(1000);
+                // Whatever was asked for, the answer is the dump
+                InputStream in = client.getInputStream();
+                byte[] request = new byte[1024];
+                in.read(request);
+
+                byte[] body = dump.get().getBytes(StandardCharsets.UTF_8);
+                String header = "HTTP/1.0 200 OK\r\n"
+                        + "Content-Type: text/plain; version=0.0.4\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n";
+                OutputStream out = client.getOutputStream();
+                out.write(header.getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+            } catch (IOException e) {
+                if (!closed) {
+                    Log.w(TAG, "Failed to serve stats: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    void stop() {
+        if (writer != null) {
+            writer.shutdownNow();
+        }
+        if (server != null) {
+            closed = true;
+            // Closing a LocalServerSocket does not wake a blocked accept(), a connection does
+            try (LocalSocket wake = new LocalSocket()) {
+                wake.connect(new LocalSocketAddress(socketName()));
+            } catch (IOException e) {
+                // The acceptor is not waiting
+            }
+            try {
+                server.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close stats socket: " + e.getMessage());
+            }
+        }
+    }
+}
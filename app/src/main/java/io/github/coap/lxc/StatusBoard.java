@@ -0,0 +1,227 @@
+package io.github.coap.lxc;
+
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of the status board published by the root service
+ * The board is a fixed-layout table in shared memory holding one slot per container of an LXC
+ * path: name hash, state, init pid, flags, cgroup counters and a generation bumped on every change.
+ * It is mapped once, after which reads involve neither binder calls nor allocations, so it can be
+ * polled at frame rate: check generation() and only scan the slots when it moved. Every record is
+ * written under a seqlock, reads retry until they get a consistent copy. Slots are identified by
+ * name hash, see hash(). Counters are refreshed about once a second, state changes made through
+ * the service are published right away.
+ */
+public final class StatusBoard {
+    // Slot value indexes, must match status_board_field in jni-wrapper.c
+    static final int STATE = 0;
+    static final int NAME_HASH = 1;
+    static final int INIT_PID = 2;
+    static final int FLAGS = 3;
+    static final int GENERATION = 4;
+    static final int CPU_USAGE_USEC = 5;
+    static final int MEMORY_CURRENT = 6;
+    static final int PIDS_CURRENT = 7;
+    static final int UPDATED_MILLIS = 8;
+    static final int FIELD_COUNT = 9;
+
+    // Header value indexes
+    static final int HEADER_CAPACITY = 0;
+    static final int HEADER_COUNT = 1;
+    static final int HEADER_GENERATION = 2;
+    static final int HEADER_UPDATED_MILLIS = 3;
+    static final int HEADER_FIELD_COUNT = 4;
+
+    public static final int FLAG_RUNNING = 1;
+    public static final int FLAG_FROZEN = 1 << 1;
+
+    // In the order of lxc_state_t, slots store the index
+    static final String[] STATES = {
+            "STOPPED", "STARTING", "RUNNING", "STOPPING", "ABORTING", "FREEZING", "FROZEN", "THAWED"
+    };
+
+    private final ByteBuffer board;
+    private final long[] header = new long[HEADER_FIELD_COUNT];
+    private final long[] values = new long[FIELD_COUNT];
+
+    private StatusBoard(ByteBuffer board) {
+        this.board = board;
+    }
+
+    /**
+     * Map a board handed out by the service, the descriptor is closed
+     */
+    static StatusBoard map(ParcelFileDescriptor pfd) throws IOException {
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd);
+             FileChannel channel = in.getChannel()) {
+            // The mapping outlives the descriptor
+            return new StatusBoard(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of a container name, never 0
+     */
+    public static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    static int stateIndex(String state) {
+        for (int i = 0; i < STATES.length; i++) {
+            if (STATES[i].equals(state)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Board generation, bumped by every publish that changed a slot, -1 if the board cannot be read
+     */
+    public synchronized long generation() {
+        return LxcNative.nativeStatusBoardReadHeader(board, header) ? header[HEADER_GENERATION] : -1;
+    }
+
+    /**
+     * Number of slots to scan, free slots below it are skipped by read()
+     */
+    public synchronized int count() {
+        return LxcNative.nativeStatusBoardReadHeader(board, header) ? (int) header[HEADER_COUNT] : 0;
+    }
+
+    /**
+     * Read a slot
+     * @param slot Slot index, below count()
+     * @param entry Entry to fill, can be reused between reads
+     * @return false if the slot is free or could not be read
+     */
+    public synchronized boolean read(int slot, Entry entry) {
+        if (!LxcNative.nativeStatusBoardReadSlot(board, slot, values) || values[NAME_HASH] == 0) {
+            return false;
+        }
+        entry.set(values);
+        return true;
+    }
+
+    /**
+     * Read the slot of a container
+     * @param nameHash Container name hash, see hash()
+     * @param entry Entry to fill, can be reused between reads
+     * @return false if the container is not on the board
+     */
+    public synchronized boolean find(long nameHash, Entry entry) {
+        int count = count();
+        for (int slot = 0; slot < count; slot++) {
+            if (LxcNative.nativeStatusBoardReadSlot(board, slot, values) && values[NAME_HASH] == nameHash) {
+                entry.set(values);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Container status copied out of a slot
+     */
+    public static final class Entry {
+        private long nameHash;
+        private int state;
+        private int initPid;
+        private int flags;
+        private long generation;
+        private long cpuUsageUsec;
+        private long memoryCurrent;
+        private long pidsCurrent;
+        private long updatedMillis;
+
+        void set(long[] values) {
+            nameHash = values[NAME_HASH];
+            state = (int) values[STATE];
+            initPid = (int) values[INIT_PID];
+            flags = (int) values[FLAGS];
+            generation = values[GENERATION];
+            cpuUsageUsec = values[CPU_USAGE_USEC];
+            memoryCurrent = values[MEMORY_CURRENT];
+            pidsCurrent = values[PIDS_CURRENT];
+            updatedMillis = values[UPDATED_MILLIS];
+        }
+
+        public long getNameHash() {
+            return nameHash;
+        }
+
+        /**
+         * LXC state name, e.g. RUNNING
+         */
+        public String getState() {
+            return state >= 0 && state < STATES.length ? STATES[state] : "UNKNOWN";
+        }
+
+        public int getInitPid() {
+            return initPid;
+        }
+
+        public boolean isRunning() {
+            return (flags & FLAG_RUNNING) != 0;
+        }
+
+        public boolean isFrozen() {
+            return (flags & FLAG_FROZEN) != 0;
+        }
+
+        /**
+         * Bumped whenever the slot changes
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * cgroup cpu.stat usage_usec, -1 if unavailable
+         */
+        public long getCpuUsageUsec() {
+            return cpuUsageUsec;
+        }
+
+        /**
+         * cgroup memory.current, -1 if unavailable
+         */
+        public long getMemoryCurrent() {
+            return memoryCurrent;
+        }
+
+        /**
+         * cgroup pids.current, -1 if unavailable
+         */
+        public long getPidsCurrent() {
+            return pidsCurrent;
+        }
+
+        /**
+         * Wall clock time of the last change
+         */
+        public long getUpdatedMillis() {
+            return updatedMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("StatusBoard.Entry{nameHash=%x, state=%s, initPid=%d, generation=%d}",
+                    nameHash, getState(), initPid, generation);
+        }
+    }
+}
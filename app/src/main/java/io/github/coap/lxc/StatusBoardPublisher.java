@@ -0,0 +1,200 @@
+package io.github.coap.lxc;
+
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the containers of one LXC path to a status board in shared memory
+ * Runs in the root service. The board is a sealed memfd created on the first open, clients get
+ * read-only descriptors of it and read it through StatusBoard. A publisher thread rewrites the
+ * slots that changed every refresh interval, and right away when kicked after a lifecycle call.
+ * Containers keep their slot while they exist, slots of removed containers are reused.
+ */
+final class StatusBoardPublisher {
+    private static final String TAG = "StatusBoardPublisher";
+
+    static final int CAPACITY = 1024;
+    private static final long REFRESH_MS = 1000;
+
+    private final String lxcPath;
+    private final Supplier<ContainerStatus[]> source;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final long[][] published = new long[CAPACITY][StatusBoard.FIELD_COUNT];
+    private final long[] values = new long[StatusBoard.FIELD_COUNT];
+    private final long[] sample = new long[MetricsSeries.FIELD_COUNT];
+
+    private ParcelFileDescriptor fd;
+    private ByteBuffer board;
+    private int count;
+    private long generation;
+    private boolean full;
+    private boolean kicked;
+    private boolean stopped;
+
+    StatusBoardPublisher(String lxcPath, Supplier<ContainerStatus[]> source) {
+        this.lxcPath = lxcPath;
+        this.source = source;
+    }
+
+    /**
+     * Open a read-only descriptor of the board, creating it and starting to publish if needed
+     * @return Descriptor owned by the caller, or null on failure
+     */
+    synchronized ParcelFileDescriptor open() {
+        if (stopped) {
+            return null;
+        }
+        if (board == null) {
+            int[] boardFd = new int[1];
+            ByteBuffer created = LxcNative.nativeStatusBoardCreate(CAPACITY, boardFd);
+            if (created == null) {
+                Log.e(TAG, "Failed to create status board for " + lxcPath);
+                return null;
+            }
+            board = created;
+            fd = ParcelFileDescriptor.adoptFd(boardFd[0]);
+            Thread thread = new Thread(this::run, "StatusBoard:" + lxcPath);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int readOnly = LxcNative.nativeStatusBoardOpenReadOnly(fd.getFd());
+        return readOnly >= 0 ? ParcelFileDescriptor.adoptFd(readOnly) : null;
+    }
+
+    /**
+     * Publish right away, e.g. after a lifecycle operation
+     */
+    synchronized void kick() {
+        kicked = true;
+        notifyAll();
+    }
+
+    synchronized void shutdown() {
+        stopped = true;
+        notifyAll();
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                if (!kicked && !stopped) {
+                    try {
+                        wait(REFRESH_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        stopped = true;
+                    }
+                }
+                if (stopped) {
+                    // Clients keep their own mappings
+                    LxcNative.nativeStatusBoardUnmap(board);
+                    board = null;
+                    try {
+                        fd.close();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Failed to close status board: " + e.getMessage());
+                    }
+                    return;
+                }
+                kicked = false;
+            }
+
+            try {
+                publish();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to publish status board for " + lxcPath, e);
+            }
+        }
+    }
+
+    // Only called from the publisher thread, which owns the slots
+    private void publish() {
+        ContainerStatus[] statuses = source.get();
+        if (statuses == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        Set<String> seen = new HashSet<>();
+        for (ContainerStatus status : statuses) {
+            String name = status.getName();
+            seen.add(name);
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = allocate();
+                if (slot < 0) {
+                    if (!full) {
+                        Log.w(TAG, "Status board for " + lxcPath + " is full, " + name + " is left out");
+                        full = true;
+                    }
+                    continue;
+                }
+                slots.put(name, slot);
+            }
+
+            boolean sampled = status.isRunning() && LxcNative.nativeSampleCgroup(name, lxcPath, sample);
+            int state = StatusBoard.stateIndex(status.getState());
+            values[StatusBoard.STATE] = state;
+            values[StatusBoard.NAME_HASH] = StatusBoard.hash(name);
+            values[StatusBoard.INIT_PID] = status.getInitPid();
+            values[StatusBoard.FLAGS] = (status.isRunning() ? StatusBoard.FLAG_RUNNING : 0)
+                    | ("FROZEN".equals(status.getState()) ? StatusBoard.FLAG_FROZEN : 0);
+            values[StatusBoard.CPU_USAGE_USEC] = sampled ? sample[MetricsSeries.CPU_USAGE_USEC] : -1;
+            values[StatusBoard.MEMORY_CURRENT] = sampled ? sample[MetricsSeries.MEMORY_CURRENT] : -1;
+            values[StatusBoard.PIDS_CURRENT] = sampled ? sample[MetricsSeries.PIDS_CURRENT] : -1;
+            changed |= write(slot, now);
+        }
+
+        for (Iterator<Map.Entry<String, Integer>> it = slots.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> entry = it.next();
+            if (!seen.contains(entry.getKey())) {
+                Arrays.fill(values, 0);
+                write(entry.getValue(), now);
+                freeSlots.push(entry.getValue());
+                it.remove();
+                full = false;
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            LxcNative.nativeStatusBoardWriteHeader(board, count, ++generation, now);
+        }
+    }
+
+    private int allocate() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        return count < CAPACITY ? count++ : -1;
+    }
+
+    // Writes values into a slot if they differ from what it holds
+    private boolean write(int slot, long now) {
+        long[] previous = published[slot];
+        values[StatusBoard.GENERATION] = previous[StatusBoard.GENERATION];
+        values[StatusBoard.UPDATED_MILLIS] = previous[StatusBoard.UPDATED_MILLIS];
+        if (Arrays.equals(values, previous)) {
+            return false;
+        }
+        values[StatusBoard.GENERATION]++;
+        values[StatusBoard.UPDATED_MILLIS] = now;
+        LxcNative.nativeStatusBoardWriteSlot(board, slot, values);
+        System.arraycopy(values, 0, previous, 0, values.length);
+        return true;
+    }
+}
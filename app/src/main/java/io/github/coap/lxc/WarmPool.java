@@ -0,0 +1,347 @@
+package io.github.coap.lxc;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of started and frozen clones of a template container in the root service
+ * Members are copy-on-write clones named template-warm-N. A member is cloned, started, left
+ * running for a settle time so its init gets through boot, then frozen; handing it out only
+ * takes an unfreeze. The pool refills in the background with a bounded number of workers and
+ * backs off while the template cannot be cloned or started. Members carry a marker file in
+ * their container directory until they are handed out. Frozen members left behind by an earlier
+ * service instance are adopted, so the pool survives service restarts; marked members caught
+ * half warmed by a crash are destroyed instead of leaking.
+ */
+final class WarmPool {
+    private static final String TAG = "WarmPool";
+
+    // clone() results besides -1
+    static final int CLONED_COPY = 0;
+    static final int CLONED_SNAPSHOT = 1;
+
+    // LXC_CLONE_SNAPSHOT, see lxccontainer.h
+    private static final int LXC_CLONE_SNAPSHOT = 1 << 2;
+
+    static final long DEFAULT_SETTLE_MS = 2000;
+    private static final long MIN_RETRY_MS = 1000;
+    private static final long MAX_RETRY_MS = 60_000;
+    private static final String MARKER = ".warm-pool";
+
+    private final String template;
+    private final String lxcpath;
+    private final String prefix;
+    private final Runnable onChange;
+    private final ContainerLocks.Mutator mutator;
+    private final ScheduledThreadPoolExecutor workers;
+
+    private final ArrayDeque<String> ready = new ArrayDeque<>();
+    // Ready and warming members, reserves names before the clone exists
+    private final Set<String> members = new HashSet<>();
+    private int size;
+    private int warming;
+    private long settleMillis = DEFAULT_SETTLE_MS;
+    private long retryMillis = MIN_RETRY_MS;
+    // System.nanoTime() before which no new members are warmed
+    private long retryAt;
+    private boolean closed;
+
+    private long hits;
+    private long misses;
+    private long failures;
+
+    /**
+     * Clone a container
+     * A snapshot clone uses the source's copy-on-write support: native snapshots on btrfs, zfs
+     * and lvm, an overlay over the source rootfs for directory backed containers. It is
+     * near-instant, but an overlay clone depends on the source rootfs, so the source should
+     * stay stopped and unmodified. Sources that cannot be snapshotted are copied.
+     * @param newLxcpath LXC path of the clone, null for the source's
+     * @param snapshot Whether to try a snapshot clone first
+     * @return CLONED_SNAPSHOT, CLONED_COPY or -1
+     */
+    static int clone(String name, String lxcpath, String newName, String newLxcpath, boolean snapshot) {
+        if (snapshot) {
+            // Without a storage type LXC picks overlay for directories and the source's own type otherwise
+            if (LxcNative.nativeCloneContainer(name, lxcpath, newName, newLxcpath, LXC_CLONE_SNAPSHOT, null)) {
+                return CLONED_SNAPSHOT;
+            }
+            Log.i(TAG, "Snapshot clone of " + name + " failed, copying");
+        }
+        return LxcNative.nativeCloneContainer(name, lxcpath, newName, newLxcpath, 0, null) ? CLONED_COPY : -1;
+    }
+
+    private File marker(String name) {
+        return new File(new File(lxcpath, name), MARKER);
+    }
+
+    /**
+     * Constructor, adopts frozen members of an earlier pool and destroys its unfinished ones
+     * @param onChange Called after members changed state
+     * @param mutator Runs the lifecycle calls on members, serialized with other mutations
+     * @param statuses Statuses of the containers in lxcpath, searched for earlier members
+     */
+    WarmPool(String template, String lxcpath, Runnable onChange, ContainerLocks.Mutator mutator,
+             ContainerStatus[] statuses) {
+        this.template = template;
+        this.lxcpath = lxcpath;
+        this.prefix = template + "-warm-";
+        this.onChange = onChange;
+        this.mutator = mutator;
+        this.retryAt = System.nanoTime();
+
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "WarmPool-" + template + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.setKeepAliveTime(30, TimeUnit.SECONDS);
+        workers.allowCoreThreadTimeOut(true);
+
+        if (statuses != null) {
+            for (ContainerStatus status : statuses) {
+                String name = status.getName();
+                // Unmarked ones were handed out and belong to whoever took them
+                if (!name.startsWith(prefix) || !marker(name).isFile()) {
+                    continue;
+                }
+                if ("FROZEN".equals(status.getState())) {
+                    ready.add(name);
+                    members.add(name);
+                } else {
+                    submit(() -> discard(name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Change the pool size, surplus members are destroyed
+     * @param size Number of frozen members to keep
+     * @param concurrency Maximum number of members warmed at the same time
+     * @param settleMillis Time a started member runs before it is frozen, < 0 for the default
+     */
+    void configure(int size, int concurrency, long settleMillis) {
+        List<String> surplus = new ArrayList<>();
+        synchronized (this) {
+            this.size = Math.max(0, size);
+            this.settleMillis = settleMillis >= 0 ? settleMillis : DEFAULT_SETTLE_MS;
+            workers.setCorePoolSize(Math.max(1, concurrency));
+            while (ready.size() > this.size) {
+                String name = ready.pollLast();
+                members.remove(name);
+                surplus.add(name);
+            }
+            fill();
+        }
+        for (String name : surplus) {
+            submit(() -> discard(name));
+        }
+    }
+
+    /**
+     * Unfreeze a ready member and hand it out, it is no longer part of the pool
+     * @return Container name or null if no member is ready
+     */
+    String take() {
+        while (true) {
+            String name;
+            synchronized (this) {
+                name = ready.poll();
+                if (name == null) {
+                    misses++;
+                    fill();
+                    return null;
+                }
+                members.remove(name);
+                fill();
+            }
+
+            // Unmarked first: a crash in between leaves a frozen container, not one destroyed under its user
+            if (!marker(name).delete()) {
+                Log.w(TAG, "Failed to unmark " + name);
+            }
+            if (mutator.run(name, lxcpath, () -> LxcNative.nativeUnfreezeContainer(name, lxcpath))) {
+                synchronized (this) {
+                    hits++;
+                }
+                onChange.run();
+                return name;
+            }
+            Log.w(TAG, "Failed to unfreeze " + name + ", discarding it");
+            synchronized (this) {
+                failures++;
+            }
+            submit(() -> discard(name));
+        }
+    }
+
+    // Start warming members until ready and warming ones make up the pool size, names are picked by the workers
+    private synchronized void fill() {
+        if (closed || System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        while (ready.size() + warming < size) {
+            warming++;
+            if (!submit(this::warm)) {
+                warming--;
+                return;
+            }
+        }
+    }
+
+    // Reserve the first free member name, checking for containers on disk outside the monitor
+    private String reserveName() {
+        for (int i = 0; ; i++) {
+            String name = prefix + i;
+            synchronized (this) {
+                if (!members.add(name)) {
+                    continue;
+                }
+            }
+            if (!LxcNative.nativeIsDefined(name, lxcpath)) {
+                return name;
+            }
+            synchronized (this) {
+                members.remove(name);
+            }
+        }
+    }
+
+    private void warm() {
+        String name = reserveName();
+        if (clone(template, lxcpath, name, null, true) < 0) {
+            failed(name, false);
+            return;
+        }
+        try {
+            marker(name).createNewFile();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to mark " + name + ": " + e.getMessage());
+            failed(name, true);
+            return;
+        }
+        if (!mutator.run(name, lxcpath, () -> LxcNative.nativeStartContainer(name, lxcpath, false))) {
+            failed(name, true);
+            return;
+        }
+        onChange.run();
+
+        long settle;
+        synchronized (this) {
+            settle = settleMillis;
+        }
+        try {
+            workers.schedule(() -> freeze(name), settle, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed(name, true);
+        }
+    }
+
+    private void freeze(String name) {
+        if (!mutator.run(name, lxcpath, () -> LxcNative.nativeFreezeContainer(name, lxcpath))) {
+            failed(name, true);
+            return;
+        }
+
+        boolean keep;
+        synchronized (this) {
+            warming--;
+            keep = !closed && ready.size() < size;
+            if (keep) {
+                ready.add(name);
+                retryMillis = MIN_RETRY_MS;
+            } else {
+                members.remove(name);
+            }
+        }
+        if (!keep) {
+            discard(name);
+        }
+        onChange.run();
+    }
+
+    // Drop a member that could not be warmed and back off before the next attempt
+    private void failed(String name, boolean created) {
+        Log.w(TAG, "Failed to warm " + name + " from " + template);
+        if (created) {
+            discard(name);
+        }
+
+        long delay;
+        synchronized (this) {
+            warming--;
+            members.remove(name);
+            failures++;
+            delay = retryMillis;
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MS);
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+        try {
+            workers.schedule(this::fill, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile, nothing to refill
+        }
+    }
+
+    private void discard(String name) {
+        // Stopping also ends a frozen container, both under one lock so nothing restarts it in between
+        boolean destroyed = mutator.run(name, lxcpath, () -> {
+            LxcNative.nativeStopContainer(name, lxcpath);
+            return LxcNative.nativeDestroyContainer(name, lxcpath);
+        });
+        if (!destroyed) {
+            Log.w(TAG, "Failed to destroy pool member " + name);
+        }
+        onChange.run();
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            workers.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get pool counters: size, ready, warming, hits, misses, failures
+     */
+    synchronized long[] getStats() {
+        return new long[]{size, ready.size(), warming, hits, misses, failures};
+    }
+
+    /**
+     * Destroy all ready members and stop refilling, members being warmed are destroyed once frozen
+     */
+    void close() {
+        configure(0, 1, -1);
+        synchronized (this) {
+            closed = true;
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Stop all workers, ready members stay frozen and are adopted by the next pool
+     */
+    void shutdown() {
+        synchronized (this) {
+            closed = true;
+        }
+        workers.shutdownNow();
+    }
+}
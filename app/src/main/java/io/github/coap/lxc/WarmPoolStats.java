@@ -0,0 +1,30 @@
+package io.github.coap.lxc;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Counters of a warm pool in the root service
+ *
+ * @param size     Configured number of frozen clones
+ * @param ready    Frozen clones ready to be taken
+ * @param warming  Clones being cloned, started or settled
+ * @param hits     Takes served by a frozen clone
+ * @param misses   Takes that found the pool empty
+ * @param failures Clones that could not be warmed or unfrozen
+ */
+public record WarmPoolStats(long size, long ready, long warming, long hits, long misses, long failures) {
+
+    static WarmPoolStats fromArray(long[] values) {
+        if (values == null || values.length < 6) {
+            return new WarmPoolStats(0, 0, 0, 0, 0, 0);
+        }
+        return new WarmPoolStats(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("WarmPoolStats{size=%d, ready=%d, warming=%d, hits=%d, misses=%d, failures=%d}",
+                size, ready, warming, hits, misses, failures);
+    }
+}
@@ -0,0 +1,145 @@
+#include <jni.h>
+#include <stdlib.h>
+#include <string.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/version.h>
+
+#include "lxc-binding.h"
+#include "handle-cache.h"
+#include "jni-marshal.h"
+
+/*
+ * Baseline entries of MarshalBaseline in the benchmark module, built into the host
+ * lxc-binding only. The legacy* entries keep the conversions jni-wrapper.c used before
+ * jni-marshal.c: GetStringUTFChars/ReleaseStringUTFChars for every string, FindClass on
+ * every array result and a calloc plus one strdup per argument. The other entries do the
+ * same work through jni-marshal.c, so each pair differs only in marshalling.
+ */
+
+JNIEXPORT jstring JNICALL
+Java_io_github_coap_lxc_MarshalBaseline_legacyGetState(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
+    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jstring result = NULL;
+
+    if (c) {
+        const char *state = jni_lxc_state(c);
+        if (state) {
+            result = (*env)->NewStringUTF(env, state);
+        }
+        lxc_container_put(c);
+    }
+
+    (*env)->ReleaseStringUTFChars(env, jname, name);
+    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+
+    return result;
+}
+
+JNIEXPORT jstring JNICALL
+Java_io_github_coap_lxc_MarshalBaseline_getState(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jstring result = NULL;
+
+    if (c) {
+        const char *state = jni_lxc_state(c);
+        if (state) {
+            result = (*env)->NewStringUTF(env, state);
+        }
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_io_github_coap_lxc_MarshalBaseline_legacyListContainers(JNIEnv *env, jclass clazz, jstring jlxcpath) {
+    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    char **names = NULL;
+    struct lxc_container **containers = NULL;
+
+    int count = list_defined_containers(lxcpath, &names, &containers);
+    if (count <= 0) {
+        (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+        return NULL;
+    }
+
+    jclass stringClass = (*env)->FindClass(env, "java/lang/String");
+    jobjectArray result = (*env)->NewObjectArray(env, count, stringClass, NULL);
+    for (int i = 0; i < count; i++) {
+        jstring name = (*env)->NewStringUTF(env, names[i]);
+        (*env)->SetObjectArrayElement(env, result, i, name);
+        (*env)->DeleteLocalRef(env, name);
+    }
+
+    for (int i = 0; i < count; i++) {
+        free(names[i]);
+        lxc_container_put(containers[i]);
+    }
+    free(names);
+    free(containers);
+
+    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    return result;
+}
+
+// Returns argc, or -1 if the argv could not be copied
+JNIEXPORT jint JNICALL
+Java_io_github_coap_lxc_MarshalBaseline_legacyCopyArgv(JNIEnv *env, jclass clazz, jobjectArray jargv) {
+    int argc = jargv ? (*env)->GetArrayLength(env, jargv) : 0;
+    if (argc <= 0) {
+        return -1;
+    }
+
+    char **argv = calloc(argc + 1, sizeof(char *));
+    if (argv == NULL) {
+        return -1;
+    }
+    for (int i = 0; i < argc; i++) {
+        jstring jarg = (*env)->GetObjectArrayElement(env, jargv, i);
+        const char *arg = jarg ? (*env)->GetStringUTFChars(env, jarg, NULL) : NULL;
+        argv[i] = arg ? strdup(arg) : NULL;
+        if (arg) {
+            (*env)->ReleaseStringUTFChars(env, jarg, arg);
+        }
+        (*env)->DeleteLocalRef(env, jarg);
+        if (argv[i] == NULL) {
+            argc = -1;
+            break;
+        }
+    }
+
+    for (char **arg = argv; *arg; arg++) {
+        free(*arg);
+    }
+    free(argv);
+    return argc;
+}
+
+JNIEXPORT jint JNICALL
+Java_io_github_coap_lxc_MarshalBaseline_copyArgv(JNIEnv *env, jclass clazz, jobjectArray jargv) {
+    struct jargv argv_buf;
+    char **argv = jargv_get(env, jargv, &argv_buf);
+    if (argv == NULL) {
+        return -1;
+    }
+
+    int argc = 0;
+    while (argv[argc]) {
+        argc++;
+    }
+
+    jargv_release(&argv_buf);
+    return argc;
+}
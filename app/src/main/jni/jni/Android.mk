@@ -12,7 +12,7 @@ include $(CLEAR_VARS)
 LOCAL_MODULE := lxc-binding
 
 # Add all source files
-LOCAL_SRC_FILES := ../src/lxc-binding.c ../src/jni-wrapper.c
+LOCAL_SRC_FILES := ../src/lxc-binding.c ../src/jni-wrapper.c ../src/handle-cache.c ../src/state-monitor.c ../src/inventory-watch.c ../src/status-board.c ../src/cgroup-sample.c ../src/exec-session.c ../src/jni-marshal.c ../src/child-reaper.c
 LOCAL_CFLAGS    += -Wno-incompatible-pointer-types-discards-qualifiers  # Ignore specific warnings
 # Add header file paths
 LOCAL_C_INCLUDES := $(LOCAL_PATH)/../src/include
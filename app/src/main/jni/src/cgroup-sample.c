@@ -0,0 +1,129 @@
+#include <stdlib.h>
+#include <string.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/attach_options.h>
+#include <lxc/version.h>
+
+#include "lxc-binding.h"
+#include "cgroup-sample.h"
+
+/*
+ * Parsing happens here rather than in Java so that a sample costs no Java
+ * allocations: the caller passes a reusable primitive array.
+ */
+
+// Value of "key <number>" in a flat keyed file such as cpu.stat or memory.stat
+static int64_t keyed_value(const char *text, const char *key) {
+    size_t len = strlen(key);
+    const char *line = text;
+
+    while (line && *line) {
+        if (strncmp(line, key, len) == 0 && line[len] == ' ') {
+            return strtoll(line + len + 1, NULL, 10);
+        }
+        line = strchr(line, '\n');
+        if (line) {
+            line++;
+        }
+    }
+    return -1;
+}
+
+static int64_t single_value(struct lxc_container *c, const char *key) {
+    char *value = jni_lxc_get_cgroup_item(c, key);
+    if (value == NULL) {
+        return -1;
+    }
+    // pids.max style files may contain "max"
+    int64_t result = strcmp(value, "max\n") == 0 ? INT64_MAX : strtoll(value, NULL, 10);
+    free(value);
+    return result;
+}
+
+// Sum rbytes= and wbytes= over all devices of io.stat
+static void io_totals(const char *text, int64_t *rbytes, int64_t *wbytes) {
+    *rbytes = 0;
+    *wbytes = 0;
+    for (const char *p = text; (p = strstr(p, "bytes=")) != NULL; p += 6) {
+        if (p - text >= 1 && p[-1] == 'r') {
+            *rbytes += strtoll(p + 6, NULL, 10);
+        } else if (p - text >= 1 && p[-1] == 'w') {
+            *wbytes += strtoll(p + 6, NULL, 10);
+        }
+    }
+}
+
+// total= of the "some" or "full" line of a PSI file such as cpu.pressure
+static int64_t pressure_total(const char *text, const char *kind) {
+    size_t len = strlen(kind);
+    const char *line = text;
+
+    while (line && *line) {
+        const char *end = strchr(line, '\n');
+        if (strncmp(line, kind, len) == 0 && line[len] == ' ') {
+            const char *total = strstr(line, "total=");
+            return total && (end == NULL || total < end) ? strtoll(total + 6, NULL, 10) : -1;
+        }
+        line = end ? end + 1 : NULL;
+    }
+    return -1;
+}
+
+bool cgroup_sample(struct lxc_container *c, int64_t *out) {
+    for (int i = 0; i < SAMPLE_FIELD_COUNT; i++) {
+        out[i] = -1;
+    }
+    if (!jni_lxc_running(c)) {
+        return false;
+    }
+
+    char *cpu = jni_lxc_get_cgroup_item(c, "cpu.stat");
+    if (cpu) {
+        out[SAMPLE_CPU_USAGE_USEC] = keyed_value(cpu, "usage_usec");
+        out[SAMPLE_CPU_USER_USEC] = keyed_value(cpu, "user_usec");
+        out[SAMPLE_CPU_SYSTEM_USEC] = keyed_value(cpu, "system_usec");
+        free(cpu);
+    }
+
+    out[SAMPLE_MEMORY_CURRENT] = single_value(c, "memory.current");
+
+    char *memory = jni_lxc_get_cgroup_item(c, "memory.stat");
+    if (memory) {
+        out[SAMPLE_MEMORY_ANON] = keyed_value(memory, "anon");
+        out[SAMPLE_MEMORY_FILE] = keyed_value(memory, "file");
+        free(memory);
+    }
+
+    char *io = jni_lxc_get_cgroup_item(c, "io.stat");
+    if (io) {
+        io_totals(io, &out[SAMPLE_IO_READ_BYTES], &out[SAMPLE_IO_WRITE_BYTES]);
+        free(io);
+    }
+
+    out[SAMPLE_PIDS_CURRENT] = single_value(c, "pids.current");
+    return true;
+}
+
+bool cgroup_pressure(struct lxc_container *c, int64_t *out) {
+    for (int i = 0; i < PRESSURE_FIELD_COUNT; i++) {
+        out[i] = -1;
+    }
+    if (!jni_lxc_running(c)) {
+        return false;
+    }
+
+    char *cpu = jni_lxc_get_cgroup_item(c, "cpu.pressure");
+    if (cpu) {
+        out[PRESSURE_CPU_SOME_USEC] = pressure_total(cpu, "some");
+        free(cpu);
+    }
+
+    char *memory = jni_lxc_get_cgroup_item(c, "memory.pressure");
+    if (memory) {
+        out[PRESSURE_MEMORY_SOME_USEC] = pressure_total(memory, "some");
+        out[PRESSURE_MEMORY_FULL_USEC] = pressure_total(memory, "full");
+        free(memory);
+    }
+    return true;
+}
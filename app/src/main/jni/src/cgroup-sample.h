@@ -0,0 +1,53 @@
+#ifndef LXC_CGROUP_SAMPLE_H
+#define LXC_CGROUP_SAMPLE_H
+
+#include <stdbool.h>
+#include <stdint.h>
+
+#include <lxc/lxccontainer.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Field indexes of a cgroup sample, must match the constants in MetricsSeries.java
+enum cgroup_sample_field {
+    SAMPLE_CPU_USAGE_USEC = 0,
+    SAMPLE_CPU_USER_USEC,
+    SAMPLE_CPU_SYSTEM_USEC,
+    SAMPLE_MEMORY_CURRENT,
+    SAMPLE_MEMORY_ANON,
+    SAMPLE_MEMORY_FILE,
+    SAMPLE_IO_READ_BYTES,
+    SAMPLE_IO_WRITE_BYTES,
+    SAMPLE_PIDS_CURRENT,
+    SAMPLE_FIELD_COUNT,
+};
+
+/*
+ * Read cpu.stat, memory.current, memory.stat, io.stat and pids.current of a
+ * running container into out[SAMPLE_FIELD_COUNT]. Unavailable fields are -1.
+ * Returns false if the container is not running.
+ */
+bool cgroup_sample(struct lxc_container *c, int64_t *out);
+
+// Field indexes of a pressure sample, must match the constants in CgroupRebalancer.java
+enum cgroup_pressure_field {
+    PRESSURE_CPU_SOME_USEC = 0,
+    PRESSURE_MEMORY_SOME_USEC,
+    PRESSURE_MEMORY_FULL_USEC,
+    PRESSURE_FIELD_COUNT,
+};
+
+/*
+ * Read the stall time totals of cpu.pressure and memory.pressure (PSI) of a
+ * running container into out[PRESSURE_FIELD_COUNT]. Unavailable fields are -1.
+ * Returns false if the container is not running.
+ */
+bool cgroup_pressure(struct lxc_container *c, int64_t *out);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_CGROUP_SAMPLE_H
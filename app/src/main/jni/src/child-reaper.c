@@ -0,0 +1,207 @@
+#include <errno.h>
+#include <pthread.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <sys/epoll.h>
+#include <sys/eventfd.h>
+#include <sys/syscall.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+#include "child-reaper.h"
+
+#ifndef __NR_pidfd_open
+#define __NR_pidfd_open 434
+#endif
+
+// Poll interval of children watched without a pidfd, on kernels before 5.3
+#define POLL_MS 1000
+
+/*
+ * Reaps the processes attached without waiting on one thread for all of them.
+ * Every child is watched through its pidfd on a single epoll, and reaped with
+ * waitpid() once the pidfd reports its exit. Without pidfd_open the children
+ * are polled with WNOHANG instead. The exit statuses of the last
+ * CHILD_REAPER_HISTORY children are kept for child_reaper_status().
+ */
+
+struct child {
+    pid_t pid;
+    int pidfd;
+    // Pidfd reported readable by the last epoll_wait
+    bool ready;
+    struct child *next;
+};
+
+struct exit_record {
+    pid_t pid;
+    int status;
+};
+
+static pthread_once_t reaper_once = PTHREAD_ONCE_INIT;
+static pthread_mutex_t reaper_lock = PTHREAD_MUTEX_INITIALIZER;
+static int reaper_epfd = -1;
+static int reaper_kickfd = -1;
+static struct child *children = NULL;
+// Ring of recorded exits, next_exit is the slot written next
+static struct exit_record exits[CHILD_REAPER_HISTORY];
+static unsigned int next_exit = 0;
+
+static void reaper_init(void) {
+    reaper_epfd = epoll_create1(EPOLL_CLOEXEC);
+    reaper_kickfd = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+    if (reaper_epfd >= 0 && reaper_kickfd >= 0) {
+        struct epoll_event ev = { .events = EPOLLIN, .data.ptr = NULL };
+        epoll_ctl(reaper_epfd, EPOLL_CTL_ADD, reaper_kickfd, &ev);
+    }
+}
+
+static bool reaper_ready(void) {
+    pthread_once(&reaper_once, reaper_init);
+    return reaper_epfd >= 0 && reaper_kickfd >= 0;
+}
+
+bool child_reaper_watch(pid_t pid) {
+    if (pid <= 0 || !reaper_ready()) {
+        return false;
+    }
+
+    struct child *child = calloc(1, sizeof(*child));
+    if (child == NULL) {
+        return false;
+    }
+    child->pid = pid;
+    child->pidfd = (int)syscall(__NR_pidfd_open, pid, 0);
+
+    pthread_mutex_lock(&reaper_lock);
+    if (child->pidfd >= 0) {
+        struct epoll_event ev = { .events = EPOLLIN, .data.ptr = child };
+        if (epoll_ctl(reaper_epfd, EPOLL_CTL_ADD, child->pidfd, &ev) < 0) {
+            close(child->pidfd);
+            child->pidfd = -1;
+        }
+    }
+    child->next = children;
+    children = child;
+    pthread_mutex_unlock(&reaper_lock);
+
+    if (child->pidfd < 0) {
+        // Polled, wake the waiter so it stops blocking without a timeout
+        child_reaper_kick();
+    }
+    return true;
+}
+
+// Called holding reaper_lock
+static void record_exit(pid_t pid, int status) {
+    exits[next_exit % CHILD_REAPER_HISTORY] = (struct exit_record){ pid, status };
+    next_exit++;
+}
+
+// Reap a child if it exited, unwatching it. Called holding reaper_lock
+static bool try_reap(struct child **link, int *status) {
+    struct child *child = *link;
+    pid_t ret;
+    while ((ret = waitpid(child->pid, status, WNOHANG)) < 0 && errno == EINTR) {
+    }
+    if (ret == 0) {
+        return false;
+    }
+    if (ret < 0) {
+        // Reaped by someone else
+        *status = -1;
+    }
+
+    *link = child->next;
+    if (child->pidfd >= 0) {
+        epoll_ctl(reaper_epfd, EPOLL_CTL_DEL, child->pidfd, NULL);
+        close(child->pidfd);
+    }
+    record_exit(child->pid, *status);
+    return true;
+}
+
+int child_reaper_wait(int timeout_ms, child_reaper_exit_cb cb, void *data) {
+    if (!reaper_ready()) {
+        return -1;
+    }
+
+    bool polled = false;
+    pthread_mutex_lock(&reaper_lock);
+    for (struct child *child = children; child != NULL; child = child->next) {
+        polled |= child->pidfd < 0;
+    }
+    pthread_mutex_unlock(&reaper_lock);
+    if (polled && (timeout_ms < 0 || timeout_ms > POLL_MS)) {
+        timeout_ms = POLL_MS;
+    }
+
+    struct epoll_event events[CHILD_REAPER_MAX_EVENTS];
+    int n = epoll_wait(reaper_epfd, events, CHILD_REAPER_MAX_EVENTS, timeout_ms);
+    if (n < 0 && errno != EINTR) {
+        return -1;
+    }
+
+    // Children are only freed by this thread, so event pointers stay valid
+    struct exit_record reaped[CHILD_REAPER_MAX_EVENTS];
+    int count = 0;
+    pthread_mutex_lock(&reaper_lock);
+    for (int i = 0; i < n; i++) {
+        struct child *child = events[i].data.ptr;
+        if (child == NULL) {
+            uint64_t value;
+            while (read(reaper_kickfd, &value, sizeof(value)) > 0) {
+            }
+        } else {
+            child->ready = true;
+        }
+    }
+
+    // Ready and polled children are reaped, the others still run
+    struct child **link = &children;
+    while (*link != NULL && count < CHILD_REAPER_MAX_EVENTS) {
+        struct child *child = *link;
+        int status;
+        if ((child->ready || child->pidfd < 0) && try_reap(link, &status)) {
+            reaped[count++] = (struct exit_record){ child->pid, status };
+            free(child);
+        } else {
+            link = &child->next;
+        }
+    }
+    pthread_mutex_unlock(&reaper_lock);
+
+    for (int i = 0; i < count; i++) {
+        cb(reaped[i].pid, reaped[i].status, data);
+    }
+    return count;
+}
+
+void child_reaper_kick(void) {
+    if (!reaper_ready()) {
+        return;
+    }
+    uint64_t value = 1;
+    write(reaper_kickfd, &value, sizeof(value));
+}
+
+int child_reaper_status(pid_t pid) {
+    int status = -1;
+    pthread_mutex_lock(&reaper_lock);
+    for (struct child *child = children; child != NULL; child = child->next) {
+        if (child->pid == pid) {
+            status = CHILD_REAPER_RUNNING;
+            break;
+        }
+    }
+    // Newest record first, a pid may have been reused
+    unsigned int recorded = next_exit < CHILD_REAPER_HISTORY ? next_exit : CHILD_REAPER_HISTORY;
+    for (unsigned int i = 1; status == -1 && i <= recorded; i++) {
+        struct exit_record *record = &exits[(next_exit - i) % CHILD_REAPER_HISTORY];
+        if (record->pid == pid) {
+            status = record->status;
+        }
+    }
+    pthread_mutex_unlock(&reaper_lock);
+    return status;
+}
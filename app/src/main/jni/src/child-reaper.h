@@ -0,0 +1,50 @@
+#ifndef LXC_CHILD_REAPER_H
+#define LXC_CHILD_REAPER_H
+
+#include <stdbool.h>
+#include <sys/types.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Maximum number of exits reported by a single child_reaper_wait() call
+#define CHILD_REAPER_MAX_EVENTS 16
+
+// Number of exit statuses kept for child_reaper_status()
+#define CHILD_REAPER_HISTORY 256
+
+// child_reaper_status() of a watched child that has not exited yet
+#define CHILD_REAPER_RUNNING (-2)
+
+// Callback receiving a reaped child and its raw wait status, -1 if it was reaped elsewhere
+typedef void (*child_reaper_exit_cb)(pid_t pid, int status, void *data);
+
+/*
+ * Watch a child process of ours, e.g. one attached without waiting, so it is
+ * reaped by child_reaper_wait() instead of lingering as a zombie.
+ * Returns false if the child can neither be watched nor polled.
+ */
+bool child_reaper_watch(pid_t pid);
+
+/*
+ * Block until watched children exit, the reaper is kicked or the timeout
+ * expires. Exited children are reaped, recorded and reported through cb.
+ * Meant for a single thread. Returns the number reaped, or -1 on error.
+ */
+int child_reaper_wait(int timeout_ms, child_reaper_exit_cb cb, void *data);
+
+// Wake up the thread blocked in child_reaper_wait, safe to call from any thread
+void child_reaper_kick(void);
+
+/*
+ * Raw wait status of a child passed to child_reaper_watch(): CHILD_REAPER_RUNNING
+ * until it is reaped, -1 if unknown or no longer among the recorded exits.
+ */
+int child_reaper_status(pid_t pid);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_CHILD_REAPER_H
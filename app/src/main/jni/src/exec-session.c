@@ -0,0 +1,506 @@
+#include <errno.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <pthread.h>
+#include <signal.h>
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/prctl.h>
+#include <sys/signalfd.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/attach_options.h>
+#include <lxc/version.h>
+
+#include "lxc-binding.h"
+#include "exec-session.h"
+
+#ifndef __NR_close_range
+#define __NR_close_range 436
+#endif
+
+/*
+ * A session is a helper process attached once to the container. The service
+ * sends it one SOCK_SEQPACKET message per command: a header, the argv as
+ * NUL-separated strings and the stdio fds as SCM_RIGHTS. The helper forks and
+ * execs the command inside the container and answers with the wait status
+ * when it exits, so many commands can be in flight on one socket.
+ *
+ * On the service side callers share the socket leader/follower style: one
+ * caller at a time reads responses and hands them to their owners.
+ */
+
+// Descriptor the helper moves its socket to before closing everything else
+#define HELPER_SOCK_FD 3
+
+#define FD_MASK_STDIN  (1u << 0)
+#define FD_MASK_STDOUT (1u << 1)
+#define FD_MASK_STDERR (1u << 2)
+
+struct exec_request {
+    uint32_t id;
+    uint32_t fd_mask;
+    uint32_t argv_len;
+};
+
+struct exec_response {
+    uint32_t id;
+    int32_t status;
+};
+
+struct pending {
+    bool used;
+    bool done;
+    uint32_t id;
+    int status;
+};
+
+struct exec_session {
+    int fd;
+    pid_t pid;
+    pthread_mutex_t lock;
+    pthread_cond_t cond;
+    bool broken;
+    bool reaped;
+    // Whether a caller is currently blocked reading responses
+    bool reading;
+    uint32_t next_id;
+    struct pending pending[EXEC_SESSION_MAX_INFLIGHT];
+};
+
+static void close_fds_from(int lowfd) {
+    if (syscall(__NR_close_range, lowfd, ~0U, 0) == 0) {
+        return;
+    }
+
+    long max = sysconf(_SC_OPEN_MAX);
+    for (int fd = lowfd; fd < max; fd++) {
+        close(fd);
+    }
+}
+
+/* Helper side, runs inside the container */
+
+struct helper_child {
+    pid_t pid;
+    uint32_t id;
+};
+
+static void helper_reply(int sock, uint32_t id, int status) {
+    struct exec_response response = {.id = id, .status = status};
+    send(sock, &response, sizeof(response), MSG_NOSIGNAL);
+}
+
+static void helper_exec(char **argv, const int *fds) {
+    sigset_t mask;
+
+    sigemptyset(&mask);
+    sigprocmask(SIG_SETMASK, &mask, NULL);
+    signal(SIGPIPE, SIG_DFL);
+
+    for (int i = 0; i < 3; i++) {
+        int fd = fds[i];
+        if (fd < 0) {
+            fd = open("/dev/null", i == 0 ? O_RDONLY : O_WRONLY);
+        }
+        if (fd >= 0 && fd != i) {
+            dup2(fd, i);
+        }
+    }
+    close_fds_from(3);
+
+    execvp(argv[0], argv);
+    _exit(127);
+}
+
+static void helper_handle_request(int sock, char *buf, ssize_t len, struct msghdr *msg,
+                                  struct helper_child *children) {
+    int fds[3] = {-1, -1, -1};
+    struct exec_request request;
+
+    if ((size_t)len < sizeof(request)) {
+        return;
+    }
+    memcpy(&request, buf, sizeof(request));
+
+    struct cmsghdr *cmsg = CMSG_FIRSTHDR(msg);
+    if (cmsg && cmsg->cmsg_level == SOL_SOCKET && cmsg->cmsg_type == SCM_RIGHTS) {
+        int *received = (int *)CMSG_DATA(cmsg);
+        int count = (int)((cmsg->cmsg_len - CMSG_LEN(0)) / sizeof(int));
+        int next = 0;
+        for (int i = 0; i < 3 && next < count; i++) {
+            if (request.fd_mask & (1u << i)) {
+                fds[i] = received[next++];
+            }
+        }
+    }
+
+    char *args = buf + sizeof(request);
+    int slot = -1;
+    for (int i = 0; i < EXEC_SESSION_MAX_INFLIGHT; i++) {
+        if (children[i].pid == 0) {
+            slot = i;
+            break;
+        }
+    }
+
+    bool valid = request.argv_len > 0 && request.argv_len == (size_t)len - sizeof(request) &&
+                 args[request.argv_len - 1] == '\0';
+    char **argv = NULL;
+    if (valid && slot >= 0) {
+        int argc = 0;
+        for (uint32_t i = 0; i < request.argv_len; i++) {
+            if (args[i] == '\0') {
+                argc++;
+            }
+        }
+        argv = calloc(argc + 1, sizeof(char *));
+        if (argv) {
+            char *arg = args;
+            for (int i = 0; i < argc; i++) {
+                argv[i] = arg;
+                arg += strlen(arg) + 1;
+            }
+        }
+    }
+
+    pid_t pid = argv ? fork() : -1;
+    if (pid == 0) {
+        helper_exec(argv, fds);
+    }
+
+    for (int i = 0; i < 3; i++) {
+        if (fds[i] >= 0) {
+            close(fds[i]);
+        }
+    }
+    free(argv);
+
+    if (pid < 0) {
+        helper_reply(sock, request.id, EXEC_SESSION_REJECTED);
+        return;
+    }
+    children[slot].pid = pid;
+    children[slot].id = request.id;
+}
+
+static void helper_reap(int sock, struct helper_child *children) {
+    int status;
+    pid_t pid;
+
+    while ((pid = waitpid(-1, &status, WNOHANG)) > 0) {
+        for (int i = 0; i < EXEC_SESSION_MAX_INFLIGHT; i++) {
+            if (children[i].pid == pid) {
+                helper_reply(sock, children[i].id, status);
+                children[i].pid = 0;
+                break;
+            }
+        }
+    }
+}
+
+static int session_helper(void *payload) {
+    int sock = *(int *)payload;
+    struct helper_child children[EXEC_SESSION_MAX_INFLIGHT];
+    sigset_t mask;
+
+    // Drop everything inherited from the service, other clients' pipes included
+    if (sock != HELPER_SOCK_FD) {
+        if (dup2(sock, HELPER_SOCK_FD) < 0) {
+            return 1;
+        }
+        sock = HELPER_SOCK_FD;
+    }
+    close_fds_from(HELPER_SOCK_FD + 1);
+    prctl(PR_SET_PDEATHSIG, SIGKILL);
+
+    sigemptyset(&mask);
+    sigaddset(&mask, SIGCHLD);
+    sigprocmask(SIG_BLOCK, &mask, NULL);
+    int sfd = signalfd(-1, &mask, SFD_CLOEXEC);
+    if (sfd < 0) {
+        return 1;
+    }
+
+    char *buf = malloc(sizeof(struct exec_request) + EXEC_SESSION_MAX_ARGV);
+    if (buf == NULL) {
+        return 1;
+    }
+    memset(children, 0, sizeof(children));
+
+    for (;;) {
+        struct pollfd pfds[2] = {
+            {.fd = sock, .events = POLLIN},
+            {.fd = sfd, .events = POLLIN},
+        };
+        if (poll(pfds, 2, -1) < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            break;
+        }
+
+        if (pfds[1].revents & POLLIN) {
+            // SIGCHLD does not queue, one read clears it and waitpid collects every exited child
+            struct signalfd_siginfo info;
+            if (read(sfd, &info, sizeof(info)) < 0 && errno == EINTR) {
+                continue;
+            }
+            helper_reap(sock, children);
+        }
+
+        if (pfds[0].revents & (POLLIN | POLLHUP | POLLERR)) {
+            union {
+                char buf[CMSG_SPACE(3 * sizeof(int))];
+                struct cmsghdr align;
+            } control;
+            struct iovec iov = {.iov_base = buf, .iov_len = sizeof(struct exec_request) + EXEC_SESSION_MAX_ARGV};
+            struct msghdr msg = {
+                .msg_iov = &iov,
+                .msg_iovlen = 1,
+                .msg_control = control.buf,
+                .msg_controllen = sizeof(control.buf),
+            };
+            ssize_t n = recvmsg(sock, &msg, MSG_CMSG_CLOEXEC);
+            if (n < 0 && errno == EINTR) {
+                continue;
+            }
+            if (n <= 0) {
+                // Service side closed the session
+                break;
+            }
+            helper_handle_request(sock, buf, n, &msg, children);
+        }
+    }
+
+    free(buf);
+    return 0;
+}
+
+/* Service side */
+
+struct exec_session *exec_session_open(struct lxc_container *c) {
+    int sv[2];
+
+    if (c == NULL || !c->is_running(c)) {
+        return NULL;
+    }
+
+    struct exec_session *session = calloc(1, sizeof(*session));
+    if (session == NULL) {
+        return NULL;
+    }
+    if (socketpair(AF_UNIX, SOCK_SEQPACKET | SOCK_CLOEXEC, 0, sv) < 0) {
+        free(session);
+        return NULL;
+    }
+
+    lxc_attach_options_t options = LXC_ATTACH_OPTIONS_DEFAULT;
+    int helper_fd = sv[1];
+    pid_t pid = -1;
+    int ret = c->attach(c, session_helper, &helper_fd, &options, &pid);
+    close(sv[1]);
+    if (ret < 0 || pid <= 0) {
+        close(sv[0]);
+        free(session);
+        return NULL;
+    }
+
+    session->fd = sv[0];
+    session->pid = pid;
+    pthread_mutex_init(&session->lock, NULL);
+    pthread_cond_init(&session->cond, NULL);
+    return session;
+}
+
+void exec_session_close(struct exec_session *session) {
+    if (session == NULL) {
+        return;
+    }
+
+    shutdown(session->fd, SHUT_RDWR);
+    close(session->fd);
+    if (!session->reaped) {
+        kill(session->pid, SIGKILL);
+        while (waitpid(session->pid, NULL, 0) < 0 && errno == EINTR) {
+        }
+    }
+    pthread_cond_destroy(&session->cond);
+    pthread_mutex_destroy(&session->lock);
+    free(session);
+}
+
+bool exec_session_alive(struct exec_session *session) {
+    int status;
+
+    pthread_mutex_lock(&session->lock);
+    if (!session->broken && !session->reaped) {
+        pid_t ret = waitpid(session->pid, &status, WNOHANG);
+        if (ret == session->pid) {
+            session->reaped = true;
+            session->broken = true;
+        } else if (ret < 0 && errno == ECHILD && kill(session->pid, 0) < 0 && errno == ESRCH) {
+            // Not our child on this liblxc, it is gone all the same
+            session->reaped = true;
+            session->broken = true;
+        }
+    }
+    bool alive = !session->broken;
+    pthread_mutex_unlock(&session->lock);
+    return alive;
+}
+
+static int send_request(int fd, const struct exec_request *request, const char *args,
+                        int stdinfd, int stdoutfd, int stderrfd) {
+    union {
+        char buf[CMSG_SPACE(3 * sizeof(int))];
+        struct cmsghdr align;
+    } control;
+    int fds[3];
+    int count = 0;
+
+    if (stdinfd >= 0) {
+        fds[count++] = stdinfd;
+    }
+    if (stdoutfd >= 0) {
+        fds[count++] = stdoutfd;
+    }
+    if (stderrfd >= 0) {
+        fds[count++] = stderrfd;
+    }
+
+    struct iovec iov[2] = {
+        {.iov_base = (void *)request, .iov_len = sizeof(*request)},
+        {.iov_base = (void *)args, .iov_len = request->argv_len},
+    };
+    struct msghdr msg = {.msg_iov = iov, .msg_iovlen = 2};
+    if (count > 0) {
+        memset(&control, 0, sizeof(control));
+        msg.msg_control = control.buf;
+        msg.msg_controllen = CMSG_SPACE(count * sizeof(int));
+        struct cmsghdr *cmsg = CMSG_FIRSTHDR(&msg);
+        cmsg->cmsg_level = SOL_SOCKET;
+        cmsg->cmsg_type = SCM_RIGHTS;
+        cmsg->cmsg_len = CMSG_LEN(count * sizeof(int));
+        memcpy(CMSG_DATA(cmsg), fds, count * sizeof(int));
+    }
+
+    ssize_t n;
+    do {
+        n = sendmsg(fd, &msg, MSG_NOSIGNAL);
+    } while (n < 0 && errno == EINTR);
+    return n == (ssize_t)(sizeof(*request) + request->argv_len) ? 0 : -1;
+}
+
+// Called with session->lock held, drops it while blocked in recv
+static void read_response(struct exec_session *session) {
+    struct exec_response response;
+    ssize_t n;
+
+    session->reading = true;
+    pthread_mutex_unlock(&session->lock);
+    do {
+        n = recv(session->fd, &response, sizeof(response), 0);
+    } while (n < 0 && errno == EINTR);
+    pthread_mutex_lock(&session->lock);
+    session->reading = false;
+
+    if (n != sizeof(response)) {
+        session->broken = true;
+    } else {
+        for (int i = 0; i < EXEC_SESSION_MAX_INFLIGHT; i++) {
+            struct pending *p = &session->pending[i];
+            if (p->used && !p->done && p->id == response.id) {
+                p->status = response.status;
+                p->done = true;
+                break;
+            }
+        }
+    }
+    pthread_cond_broadcast(&session->cond);
+}
+
+int exec_session_run(struct exec_session *session, char *const argv[], int stdinfd, int stdoutfd, int stderrfd) {
+    struct exec_request request = {0};
+    size_t len = 0;
+
+    if (argv == NULL || argv[0] == NULL) {
+        return EXEC_SESSION_REJECTED;
+    }
+    for (int i = 0; argv[i] != NULL; i++) {
+        len += strlen(argv[i]) + 1;
+    }
+    if (len > EXEC_SESSION_MAX_ARGV) {
+        return EXEC_SESSION_REJECTED;
+    }
+    char *args = malloc(len);
+    if (args == NULL) {
+        return EXEC_SESSION_REJECTED;
+    }
+    char *p = args;
+    for (int i = 0; argv[i] != NULL; i++) {
+        size_t n = strlen(argv[i]) + 1;
+        memcpy(p, argv[i], n);
+        p += n;
+    }
+
+    pthread_mutex_lock(&session->lock);
+    if (session->broken) {
+        pthread_mutex_unlock(&session->lock);
+        free(args);
+        return EXEC_SESSION_SEND_FAILED;
+    }
+    struct pending *slot = NULL;
+    for (int i = 0; i < EXEC_SESSION_MAX_INFLIGHT; i++) {
+        if (!session->pending[i].used) {
+            slot = &session->pending[i];
+            break;
+        }
+    }
+    if (slot == NULL) {
+        pthread_mutex_unlock(&session->lock);
+        free(args);
+        return EXEC_SESSION_REJECTED;
+    }
+    slot->used = true;
+    slot->done = false;
+    slot->id = ++session->next_id;
+    request.id = slot->id;
+    pthread_mutex_unlock(&session->lock);
+
+    request.argv_len = (uint32_t)len;
+    request.fd_mask = (stdinfd >= 0 ? FD_MASK_STDIN : 0) |
+                      (stdoutfd >= 0 ? FD_MASK_STDOUT : 0) |
+                      (stderrfd >= 0 ? FD_MASK_STDERR : 0);
+
+    // Send without the lock, a full socket must not stall the caller reading responses
+    int sent = send_request(session->fd, &request, args, stdinfd, stdoutfd, stderrfd);
+    free(args);
+
+    pthread_mutex_lock(&session->lock);
+    int result;
+    if (sent < 0) {
+        session->broken = true;
+        pthread_cond_broadcast(&session->cond);
+        result = EXEC_SESSION_SEND_FAILED;
+    } else {
+        while (!slot->done && !session->broken) {
+            if (!session->reading) {
+                read_response(session);
+            } else {
+                pthread_cond_wait(&session->cond, &session->lock);
+            }
+        }
+        result = slot->done ? slot->status : EXEC_SESSION_BROKEN;
+    }
+    slot->used = false;
+    slot->done = false;
+    pthread_mutex_unlock(&session->lock);
+    return result;
+}
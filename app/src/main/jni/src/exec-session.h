@@ -0,0 +1,49 @@
+#ifndef LXC_EXEC_SESSION_H
+#define LXC_EXEC_SESSION_H
+
+#include <lxc/lxccontainer.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Maximum number of commands running concurrently through one session
+#define EXEC_SESSION_MAX_INFLIGHT 64
+// Maximum size of an encoded argv
+#define EXEC_SESSION_MAX_ARGV 16384
+
+// exec_session_run() results besides a wait status
+// The request never reached the helper, it is safe to retry on a new session
+#define EXEC_SESSION_SEND_FAILED -2
+// The helper died with the request outstanding
+#define EXEC_SESSION_BROKEN -3
+// The helper could not start the command or had no free slot
+#define EXEC_SESSION_REJECTED -4
+
+struct exec_session;
+
+/*
+ * Attach a helper process to the container that runs commands on request.
+ * The helper stays inside the container's namespaces, so a command costs a
+ * fork/exec in the container instead of a full attach.
+ */
+struct exec_session *exec_session_open(struct lxc_container *c);
+
+// Kill the helper and free the session, no caller may be inside exec_session_run()
+void exec_session_close(struct exec_session *session);
+
+// Whether the helper is still running
+bool exec_session_alive(struct exec_session *session);
+
+/*
+ * Run argv through the session with the given fds as stdio (-1 for /dev/null).
+ * Safe to call from several threads at once, blocks until the command exits.
+ * Returns the command's wait status or one of the EXEC_SESSION_* errors.
+ */
+int exec_session_run(struct exec_session *session, char *const argv[], int stdinfd, int stdoutfd, int stderrfd);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_EXEC_SESSION_H
@@ -0,0 +1,341 @@
+#include <pthread.h>
+#include <stdbool.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/stat.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/attach_options.h>
+#include <lxc/version.h>
+
+#include "lxc-binding.h"
+#include "handle-cache.h"
+
+/*
+ * LRU cache of lxc_container handles keyed by (name, lxcpath), found through
+ * a hash table sized with the capacity.
+ *
+ * lxc_container_new() parses the container config from disk, which dominates
+ * the cost of cheap status calls. The cache keeps one reference to every
+ * handle it holds and hands out an extra reference per acquire, so a handle
+ * evicted while in use stays valid until its last user drops it.
+ * A handle is reloaded once the identity of its config file changes.
+ */
+
+struct config_stamp {
+    bool valid;
+    dev_t dev;
+    ino_t ino;
+    off_t size;
+    struct timespec mtime;
+};
+
+struct cache_entry {
+    char *name;
+    char *lxcpath;
+    char *config_file;
+    struct config_stamp stamp;
+    struct lxc_container *c;
+    uint32_t hash;
+    struct cache_entry *prev;
+    struct cache_entry *next;
+    // Next entry in the same bucket
+    struct cache_entry *chain;
+};
+
+static pthread_mutex_t cache_lock = PTHREAD_MUTEX_INITIALIZER;
+// Most recently used entry first
+static struct cache_entry *lru_head = NULL;
+static struct cache_entry *lru_tail = NULL;
+static struct handle_cache_stats cache_stats = { .capacity = HANDLE_CACHE_DEFAULT_CAPACITY };
+// Power of two, at least the capacity, allocated on first use
+static struct cache_entry **buckets = NULL;
+static uint32_t bucket_count = 0;
+
+static void read_stamp(const char *path, struct config_stamp *stamp) {
+    struct stat st;
+
+    memset(stamp, 0, sizeof(*stamp));
+    if (path == NULL || stat(path, &st) < 0) {
+        return;
+    }
+
+    stamp->valid = true;
+    stamp->dev = st.st_dev;
+    stamp->ino = st.st_ino;
+    stamp->size = st.st_size;
+    stamp->mtime = st.st_mtim;
+}
+
+static bool stamp_equal(const struct config_stamp *a, const struct config_stamp *b) {
+    if (a->valid != b->valid) {
+        return false;
+    }
+    if (!a->valid) {
+        return true;
+    }
+    return a->dev == b->dev && a->ino == b->ino && a->size == b->size &&
+           a->mtime.tv_sec == b->mtime.tv_sec && a->mtime.tv_nsec == b->mtime.tv_nsec;
+}
+
+static void lru_unlink(struct cache_entry *entry) {
+    if (entry->prev) {
+        entry->prev->next = entry->next;
+    } else {
+        lru_head = entry->next;
+    }
+    if (entry->next) {
+        entry->next->prev = entry->prev;
+    } else {
+        lru_tail = entry->prev;
+    }
+    entry->prev = NULL;
+    entry->next = NULL;
+}
+
+static void lru_push_front(struct cache_entry *entry) {
+    entry->prev = NULL;
+    entry->next = lru_head;
+    if (lru_head) {
+        lru_head->prev = entry;
+    }
+    lru_head = entry;
+    if (lru_tail == NULL) {
+        lru_tail = entry;
+    }
+}
+
+static void drop_entry(struct cache_entry *entry);
+
+static void lru_push_back(struct cache_entry *entry) {
+    entry->next = NULL;
+    entry->prev = lru_tail;
+    if (lru_tail) {
+        lru_tail->next = entry;
+    }
+    lru_tail = entry;
+    if (lru_head == NULL) {
+        lru_head = entry;
+    }
+}
+
+// FNV-1a over name, a separator and lxcpath
+static uint32_t key_hash(const char *name, const char *lxcpath) {
+    uint32_t hash = 2166136261u;
+    for (const char *p = name; *p; p++) {
+        hash = (hash ^ (unsigned char)*p) * 16777619u;
+    }
+    hash = (hash ^ '/') * 16777619u;
+    for (const char *p = lxcpath; *p; p++) {
+        hash = (hash ^ (unsigned char)*p) * 16777619u;
+    }
+    return hash;
+}
+
+static uint32_t buckets_for(uint32_t capacity) {
+    uint32_t count = 16;
+    while (count < capacity) {
+        count <<= 1;
+    }
+    return count;
+}
+
+// Rehash all entries into count buckets. Must be called with cache_lock held
+static bool resize_buckets(uint32_t count) {
+    struct cache_entry **resized = calloc(count, sizeof(*resized));
+    if (resized == NULL) {
+        return false;
+    }
+    for (struct cache_entry *entry = lru_head; entry != NULL; entry = entry->next) {
+        struct cache_entry **bucket = &resized[entry->hash & (count - 1)];
+        entry->chain = *bucket;
+        *bucket = entry;
+    }
+    free(buckets);
+    buckets = resized;
+    bucket_count = count;
+    return true;
+}
+
+static struct cache_entry *find_entry(const char *name, const char *lxcpath) {
+    if (buckets == NULL) {
+        return NULL;
+    }
+    uint32_t hash = key_hash(name, lxcpath);
+    for (struct cache_entry *entry = buckets[hash & (bucket_count - 1)]; entry != NULL; entry = entry->chain) {
+        if (entry->hash == hash && strcmp(entry->name, name) == 0 && strcmp(entry->lxcpath, lxcpath) == 0) {
+            return entry;
+        }
+    }
+    return NULL;
+}
+
+// Must be called with cache_lock held
+static bool insert_entry(struct cache_entry *entry, bool hot) {
+    if (buckets == NULL && !resize_buckets(buckets_for(cache_stats.capacity))) {
+        return false;
+    }
+    struct cache_entry **bucket = &buckets[entry->hash & (bucket_count - 1)];
+    entry->chain = *bucket;
+    *bucket = entry;
+    if (hot) {
+        lru_push_front(entry);
+    } else {
+        lru_push_back(entry);
+    }
+    cache_stats.size++;
+    return true;
+}
+
+// Must be called with cache_lock held
+static void evict_overflow(void) {
+    while (cache_stats.size > cache_stats.capacity && lru_tail != NULL) {
+        cache_stats.evictions++;
+        drop_entry(lru_tail);
+    }
+}
+
+// Must be called with cache_lock held
+static void drop_entry(struct cache_entry *entry) {
+    struct cache_entry **link = &buckets[entry->hash & (bucket_count - 1)];
+    while (*link != entry) {
+        link = &(*link)->chain;
+    }
+    *link = entry->chain;
+    lru_unlink(entry);
+    cache_stats.size--;
+
+    lxc_container_put(entry->c);
+    free(entry->name);
+    free(entry->lxcpath);
+    free(entry->config_file);
+    free(entry);
+}
+
+static struct lxc_container *acquire(const char *name, const char *lxcpath, bool promote) {
+    struct config_stamp stamp;
+
+    if (name == NULL || lxcpath == NULL) {
+        return NULL;
+    }
+
+    pthread_mutex_lock(&cache_lock);
+    struct cache_entry *entry = find_entry(name, lxcpath);
+    if (entry) {
+        read_stamp(entry->config_file, &stamp);
+        if (stamp_equal(&entry->stamp, &stamp) && lxc_container_get(entry->c)) {
+            if (promote) {
+                lru_unlink(entry);
+                lru_push_front(entry);
+            }
+            cache_stats.hits++;
+            pthread_mutex_unlock(&cache_lock);
+            return entry->c;
+        }
+        cache_stats.invalidations++;
+        drop_entry(entry);
+    }
+    cache_stats.misses++;
+    pthread_mutex_unlock(&cache_lock);
+
+    // Parse the config outside the lock, this is the expensive part
+    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    if (c == NULL) {
+        return NULL;
+    }
+
+    entry = calloc(1, sizeof(*entry));
+    if (entry == NULL) {
+        return c;
+    }
+    entry->name = strdup(name);
+    entry->lxcpath = strdup(lxcpath);
+    entry->config_file = jni_lxc_config_file_name(c);
+    entry->c = c;
+    entry->hash = key_hash(name, lxcpath);
+    read_stamp(entry->config_file, &entry->stamp);
+
+    if (entry->name == NULL || entry->lxcpath == NULL || !lxc_container_get(c)) {
+        free(entry->name);
+        free(entry->lxcpath);
+        free(entry->config_file);
+        free(entry);
+        return c;
+    }
+
+    pthread_mutex_lock(&cache_lock);
+    // Another thread may have filled the slot while we were parsing
+    struct cache_entry *existing = find_entry(name, lxcpath);
+    if (existing) {
+        drop_entry(existing);
+    }
+    if (insert_entry(entry, promote)) {
+        evict_overflow();
+        pthread_mutex_unlock(&cache_lock);
+        return c;
+    }
+    pthread_mutex_unlock(&cache_lock);
+
+    // Not cached, the handle only keeps the caller's reference
+    lxc_container_put(c);
+    free(entry->name);
+    free(entry->lxcpath);
+    free(entry->config_file);
+    free(entry);
+    return c;
+}
+
+struct lxc_container *handle_cache_acquire(const char *name, const char *lxcpath) {
+    return acquire(name, lxcpath, true);
+}
+
+struct lxc_container *handle_cache_acquire_scan(const char *name, const char *lxcpath) {
+    return acquire(name, lxcpath, false);
+}
+
+void handle_cache_set_capacity(uint32_t capacity) {
+    if (capacity < HANDLE_CACHE_DEFAULT_CAPACITY) {
+        capacity = HANDLE_CACHE_DEFAULT_CAPACITY;
+    } else if (capacity > HANDLE_CACHE_MAX_CAPACITY) {
+        capacity = HANDLE_CACHE_MAX_CAPACITY;
+    }
+
+    pthread_mutex_lock(&cache_lock);
+    cache_stats.capacity = capacity;
+    evict_overflow();
+    uint32_t count = buckets_for(capacity);
+    // Only grown, a smaller table would just chain longer
+    if (buckets != NULL && count > bucket_count) {
+        resize_buckets(count);
+    }
+    pthread_mutex_unlock(&cache_lock);
+}
+
+void handle_cache_evict(const char *name, const char *lxcpath) {
+    if (name == NULL || lxcpath == NULL) {
+        return;
+    }
+
+    pthread_mutex_lock(&cache_lock);
+    struct cache_entry *entry = find_entry(name, lxcpath);
+    if (entry) {
+        cache_stats.evictions++;
+        drop_entry(entry);
+    }
+    pthread_mutex_unlock(&cache_lock);
+}
+
+void handle_cache_clear(void) {
+    pthread_mutex_lock(&cache_lock);
+    while (lru_head != NULL) {
+        cache_stats.evictions++;
+        drop_entry(lru_head);
+    }
+    pthread_mutex_unlock(&cache_lock);
+}
+
+void handle_cache_get_stats(struct handle_cache_stats *stats) {
+    pthread_mutex_lock(&cache_lock);
+    *stats = cache_stats;
+    pthread_mutex_unlock(&cache_lock);
+}
@@ -0,0 +1,59 @@
+#ifndef LXC_HANDLE_CACHE_H
+#define LXC_HANDLE_CACHE_H
+
+#include <stdint.h>
+
+#include <lxc/lxccontainer.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Number of container handles kept alive by the cache until handle_cache_set_capacity() is called
+#define HANDLE_CACHE_DEFAULT_CAPACITY 64
+// Upper bound of handle_cache_set_capacity()
+#define HANDLE_CACHE_MAX_CAPACITY 4096
+
+struct handle_cache_stats {
+    uint64_t hits;
+    uint64_t misses;
+    uint64_t invalidations;
+    uint64_t evictions;
+    uint32_t size;
+    uint32_t capacity;
+};
+
+/*
+ * Return a referenced container handle for (name, lxcpath).
+ * The handle is reused while the container's config file is unchanged.
+ * Callers own one reference and must drop it with lxc_container_put().
+ */
+struct lxc_container *handle_cache_acquire(const char *name, const char *lxcpath);
+
+/*
+ * handle_cache_acquire() for scans visiting many containers once, e.g. status
+ * queries of a whole lxcpath: the handle's LRU position is left as it is and
+ * a handle created on a miss goes to the cold end, so a scan of more containers
+ * than the cache holds evicts its own handles before the hot ones.
+ */
+struct lxc_container *handle_cache_acquire_scan(const char *name, const char *lxcpath);
+
+/*
+ * Set the number of handles kept, clamped to HANDLE_CACHE_DEFAULT_CAPACITY and
+ * HANDLE_CACHE_MAX_CAPACITY. Least recently used handles beyond it are dropped.
+ */
+void handle_cache_set_capacity(uint32_t capacity);
+
+// Drop the cached handle for (name, lxcpath), e.g. after destroy or rename
+void handle_cache_evict(const char *name, const char *lxcpath);
+
+// Drop all cached handles
+void handle_cache_clear(void);
+
+void handle_cache_get_stats(struct handle_cache_stats *stats);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_HANDLE_CACHE_H
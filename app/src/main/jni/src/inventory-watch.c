@@ -0,0 +1,239 @@
+#include <errno.h>
+#include <limits.h>
+#include <poll.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/eventfd.h>
+#include <sys/inotify.h>
+#include <unistd.h>
+
+#include "inventory-watch.h"
+
+/*
+ * Watches an lxcpath and the directories of its containers with inotify, so
+ * the service can keep its container list in memory instead of calling
+ * list_defined_containers, which opens every container, on each query.
+ * Container directories are watched rather than their config files, which
+ * catches configs written by rename and configs created after the directory.
+ * The owner serializes inventory_watch_add() and inventory_watch_read(),
+ * waits and kicks may come from any thread.
+ */
+
+#define LXCPATH_MASK (IN_CREATE | IN_DELETE | IN_MOVED_FROM | IN_MOVED_TO | IN_DELETE_SELF | IN_MOVE_SELF | IN_ONLYDIR)
+#define CONTAINER_MASK (IN_CREATE | IN_DELETE | IN_MOVED_FROM | IN_MOVED_TO | IN_CLOSE_WRITE | IN_ONLYDIR)
+#define CONFIG_NAME "config"
+
+struct dir_watch {
+    int wd;
+    char *name;
+    struct dir_watch *next;
+};
+
+struct inventory_watch {
+    int fd;
+    int kickfd;
+    int root_wd;
+    char *lxcpath;
+    struct dir_watch *dirs;
+};
+
+struct inventory_watch *inventory_watch_new(const char *lxcpath) {
+    struct inventory_watch *watch = calloc(1, sizeof(*watch));
+    if (watch == NULL) {
+        return NULL;
+    }
+
+    watch->fd = inotify_init1(IN_CLOEXEC | IN_NONBLOCK);
+    watch->kickfd = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+    watch->lxcpath = strdup(lxcpath);
+    if (watch->fd < 0 || watch->kickfd < 0 || watch->lxcpath == NULL) {
+        goto err;
+    }
+
+    watch->root_wd = inotify_add_watch(watch->fd, lxcpath, LXCPATH_MASK);
+    if (watch->root_wd < 0) {
+        goto err;
+    }
+    return watch;
+
+err:
+    if (watch->fd >= 0) {
+        close(watch->fd);
+    }
+    if (watch->kickfd >= 0) {
+        close(watch->kickfd);
+    }
+    free(watch->lxcpath);
+    free(watch);
+    return NULL;
+}
+
+void inventory_watch_free(struct inventory_watch *watch) {
+    if (watch == NULL) {
+        return;
+    }
+
+    struct dir_watch *d = watch->dirs;
+    while (d) {
+        struct dir_watch *next = d->next;
+        free(d->name);
+        free(d);
+        d = next;
+    }
+    close(watch->kickfd);
+    close(watch->fd);
+    free(watch->lxcpath);
+    free(watch);
+}
+
+bool inventory_watch_add(struct inventory_watch *watch, const char *name) {
+    char path[PATH_MAX];
+    if (snprintf(path, sizeof(path), "%s/%s", watch->lxcpath, name) >= (int)sizeof(path)) {
+        return false;
+    }
+
+    // inotify returns the existing descriptor for a directory watched already
+    int wd = inotify_add_watch(watch->fd, path, CONTAINER_MASK);
+    if (wd < 0) {
+        return false;
+    }
+    for (struct dir_watch *d = watch->dirs; d != NULL; d = d->next) {
+        if (d->wd == wd) {
+            return true;
+        }
+    }
+
+    struct dir_watch *d = calloc(1, sizeof(*d));
+    if (d == NULL || (d->name = strdup(name)) == NULL) {
+        free(d);
+        inotify_rm_watch(watch->fd, wd);
+        return false;
+    }
+    d->wd = wd;
+    d->next = watch->dirs;
+    watch->dirs = d;
+    return true;
+}
+
+static struct dir_watch *find_dir(struct inventory_watch *watch, int wd) {
+    for (struct dir_watch *d = watch->dirs; d != NULL; d = d->next) {
+        if (d->wd == wd) {
+            return d;
+        }
+    }
+    return NULL;
+}
+
+// The kernel removed the watch, e.g. because the directory is gone
+static void forget_dir(struct inventory_watch *watch, int wd) {
+    struct dir_watch **pp = &watch->dirs;
+    while (*pp) {
+        if ((*pp)->wd == wd) {
+            struct dir_watch *d = *pp;
+            *pp = d->next;
+            free(d->name);
+            free(d);
+            return;
+        }
+        pp = &(*pp)->next;
+    }
+}
+
+static void unwatch_name(struct inventory_watch *watch, const char *name) {
+    for (struct dir_watch *d = watch->dirs; d != NULL; d = d->next) {
+        if (strcmp(d->name, name) == 0) {
+            int wd = d->wd;
+            inotify_rm_watch(watch->fd, wd);
+            forget_dir(watch, wd);
+            return;
+        }
+    }
+}
+
+int inventory_watch_wait(struct inventory_watch *watch, int timeout_ms) {
+    struct pollfd fds[2] = {
+        { .fd = watch->fd, .events = POLLIN },
+        { .fd = watch->kickfd, .events = POLLIN },
+    };
+
+    int n = poll(fds, 2, timeout_ms);
+    if (n < 0) {
+        return errno == EINTR ? 0 : -1;
+    }
+    if (fds[1].revents & POLLIN) {
+        uint64_t value;
+        while (read(watch->kickfd, &value, sizeof(value)) > 0) {
+        }
+    }
+    return (fds[0].revents & POLLIN) ? 1 : 0;
+}
+
+int inventory_watch_read(struct inventory_watch *watch, inventory_watch_cb cb, void *data) {
+    char buf[4096] __attribute__((aligned(__alignof__(struct inotify_event))));
+
+    ssize_t len = read(watch->fd, buf, sizeof(buf));
+    if (len < 0) {
+        return errno == EAGAIN || errno == EINTR ? 0 : -1;
+    }
+
+    int reported = 0;
+    bool rescan = false;
+    for (char *p = buf; p < buf + len; ) {
+        const struct inotify_event *event = (const struct inotify_event *)p;
+        p += sizeof(*event) + event->len;
+
+        if (event->mask & IN_Q_OVERFLOW) {
+            rescan = true;
+            continue;
+        }
+        if (event->wd == watch->root_wd) {
+            if (event->mask & (IN_DELETE_SELF | IN_MOVE_SELF | IN_IGNORED)) {
+                rescan = true;
+            } else if (event->len > 0) {
+                if (event->mask & (IN_CREATE | IN_MOVED_TO)) {
+                    inventory_watch_add(watch, event->name);
+                } else if (event->mask & IN_MOVED_FROM) {
+                    // A moved directory keeps its watch, which would report under the old name
+                    unwatch_name(watch, event->name);
+                }
+                if (reported < INVENTORY_WATCH_MAX_EVENTS - 1) {
+                    cb(event->name, data);
+                    reported++;
+                } else {
+                    rescan = true;
+                }
+            }
+            continue;
+        }
+
+        struct dir_watch *d = find_dir(watch, event->wd);
+        if (d == NULL) {
+            continue;
+        }
+        if (event->mask & IN_IGNORED) {
+            forget_dir(watch, event->wd);
+            continue;
+        }
+        if (event->len > 0 && strcmp(event->name, CONFIG_NAME) == 0) {
+            if (reported < INVENTORY_WATCH_MAX_EVENTS - 1) {
+                cb(d->name, data);
+                reported++;
+            } else {
+                rescan = true;
+            }
+        }
+    }
+
+    if (rescan) {
+        cb(NULL, data);
+        reported++;
+    }
+    return reported;
+}
+
+void inventory_watch_kick(struct inventory_watch *watch) {
+    uint64_t value = 1;
+    write(watch->kickfd, &value, sizeof(value));
+}
@@ -0,0 +1,51 @@
+#ifndef LXC_INVENTORY_WATCH_H
+#define LXC_INVENTORY_WATCH_H
+
+#include <stdbool.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Maximum number of names reported by a single inventory_watch_read() call
+#define INVENTORY_WATCH_MAX_EVENTS 256
+
+struct inventory_watch;
+
+/*
+ * Callback receiving the name of a container whose directory or config file
+ * changed, or NULL if events were lost and the whole lxcpath must be rescanned.
+ */
+typedef void (*inventory_watch_cb)(const char *name, void *data);
+
+// Returns NULL if lxcpath cannot be watched, e.g. because it does not exist yet
+struct inventory_watch *inventory_watch_new(const char *lxcpath);
+void inventory_watch_free(struct inventory_watch *watch);
+
+/*
+ * Watch a container directory for changes of its config file.
+ * Returns true if the directory is watched (or already was).
+ */
+bool inventory_watch_add(struct inventory_watch *watch, const char *name);
+
+/*
+ * Block until events are pending, the watch is kicked or the timeout expires.
+ * Does not consume events. Returns 1 if events are pending, 0 otherwise, -1 on error.
+ */
+int inventory_watch_wait(struct inventory_watch *watch, int timeout_ms);
+
+/*
+ * Consume pending events without blocking, reporting changed names through cb.
+ * New container directories are watched right away. Returns the number of
+ * callbacks, 0 if no events were pending, or -1 on error.
+ */
+int inventory_watch_read(struct inventory_watch *watch, inventory_watch_cb cb, void *data);
+
+// Wake up a thread blocked in inventory_watch_wait, safe to call from any thread
+void inventory_watch_kick(struct inventory_watch *watch);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_INVENTORY_WATCH_H
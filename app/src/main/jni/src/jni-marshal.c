@@ -0,0 +1,154 @@
+#include <jni.h>
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+
+#include "jni-marshal.h"
+
+/*
+ * Shared conversions between Java and C values for jni-wrapper.c.
+ * Every native call passes at least a name and an LXC path, so strings are
+ * copied with GetStringUTFRegion into caller-provided stack buffers rather
+ * than pinned with GetStringUTFChars, and class lookups happen once at load.
+ */
+
+jclass marshal_string_class = NULL;
+jclass marshal_status_class = NULL;
+jmethodID marshal_status_ctor = NULL;
+
+static jclass global_class(JNIEnv *env, const char *name) {
+    jclass local = (*env)->FindClass(env, name);
+    if (local == NULL) {
+        (*env)->ExceptionClear(env);
+        return NULL;
+    }
+    jclass global = (*env)->NewGlobalRef(env, local);
+    (*env)->DeleteLocalRef(env, local);
+    return global;
+}
+
+bool marshal_init(JNIEnv *env) {
+    marshal_string_class = global_class(env, "java/lang/String");
+    if (marshal_string_class == NULL) {
+        return false;
+    }
+
+    // Optional, nativeGetContainerStatuses fails without it
+    marshal_status_class = global_class(env, "io/github/coap/lxc/ContainerStatus");
+    if (marshal_status_class) {
+        marshal_status_ctor = (*env)->GetMethodID(env, marshal_status_class, "<init>",
+                                                  "(Ljava/lang/String;Ljava/lang/String;IZZI)V");
+        if (marshal_status_ctor == NULL) {
+            (*env)->ExceptionClear(env);
+        }
+    }
+    return true;
+}
+
+void marshal_deinit(JNIEnv *env) {
+    if (marshal_string_class) {
+        (*env)->DeleteGlobalRef(env, marshal_string_class);
+        marshal_string_class = NULL;
+    }
+    if (marshal_status_class) {
+        (*env)->DeleteGlobalRef(env, marshal_status_class);
+        marshal_status_class = NULL;
+    }
+    marshal_status_ctor = NULL;
+}
+
+// Copy js into buf, which must hold utf_len + 1 bytes
+static void copy_utf(JNIEnv *env, jstring js, jsize utf_len, char *buf) {
+    (*env)->GetStringUTFRegion(env, js, 0, (*env)->GetStringLength(env, js), buf);
+    // GetStringUTFRegion does not terminate the copy
+    buf[utf_len] = '\0';
+}
+
+const char *jstr_get(JNIEnv *env, jstring js, struct jstr *out) {
+    out->str = NULL;
+    if (js == NULL) {
+        return NULL;
+    }
+
+    jsize utf_len = (*env)->GetStringUTFLength(env, js);
+    if (utf_len < JSTR_INLINE_SIZE) {
+        out->str = out->inline_buf;
+    } else {
+        out->str = malloc(utf_len + 1);
+        if (out->str == NULL) {
+            return NULL;
+        }
+    }
+    copy_utf(env, js, utf_len, out->str);
+    return out->str;
+}
+
+void jstr_release(struct jstr *s) {
+    if (s->str != s->inline_buf) {
+        free(s->str);
+    }
+    s->str = NULL;
+}
+
+char **jargv_get(JNIEnv *env, jobjectArray jargv, struct jargv *out) {
+    out->argv = NULL;
+    int argc = jargv ? (*env)->GetArrayLength(env, jargv) : 0;
+    if (argc <= 0) {
+        return NULL;
+    }
+
+    // First pass sizes the block: argc + 1 pointers followed by the strings
+    size_t size = (argc + 1) * sizeof(char *);
+    for (int i = 0; i < argc; i++) {
+        jstring jarg = (*env)->GetObjectArrayElement(env, jargv, i);
+        if (jarg == NULL) {
+            return NULL;
+        }
+        size += (*env)->GetStringUTFLength(env, jarg) + 1;
+        (*env)->DeleteLocalRef(env, jarg);
+    }
+
+    char **argv = size <= sizeof(out->inline_buf) ? (char **)out->inline_buf : malloc(size);
+    if (argv == NULL) {
+        return NULL;
+    }
+
+    char *p = (char *)(argv + argc + 1);
+    for (int i = 0; i < argc; i++) {
+        jstring jarg = (*env)->GetObjectArrayElement(env, jargv, i);
+        jsize utf_len = (*env)->GetStringUTFLength(env, jarg);
+        copy_utf(env, jarg, utf_len, p);
+        (*env)->DeleteLocalRef(env, jarg);
+        argv[i] = p;
+        p += utf_len + 1;
+    }
+    argv[argc] = NULL;
+
+    out->argv = argv;
+    return argv;
+}
+
+void jargv_release(struct jargv *a) {
+    if (a->argv != (char **)a->inline_buf) {
+        free(a->argv);
+    }
+    a->argv = NULL;
+}
+
+jobjectArray marshal_string_array(JNIEnv *env, char *const *strs, int count) {
+    jobjectArray result = (*env)->NewObjectArray(env, count > 0 ? count : 0, marshal_string_class, NULL);
+    if (result == NULL) {
+        return NULL;
+    }
+
+    for (int i = 0; i < count; i++) {
+        if (strs[i] == NULL) {
+            continue;
+        }
+        jstring js = (*env)->NewStringUTF(env, strs[i]);
+        (*env)->SetObjectArrayElement(env, result, i, js);
+        (*env)->DeleteLocalRef(env, js);
+    }
+    return result;
+}
@@ -0,0 +1,56 @@
+#ifndef LXC_JNI_MARSHAL_H
+#define LXC_JNI_MARSHAL_H
+
+#include <jni.h>
+#include <stdbool.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Strings up to this many modified UTF-8 bytes are copied to the stack
+#define JSTR_INLINE_SIZE 256
+// argv whose pointers and strings fit in this many bytes is copied to the stack
+#define JARGV_INLINE_SIZE 1024
+
+// Global references cached by marshal_init()
+extern jclass marshal_string_class;
+extern jclass marshal_status_class;
+extern jmethodID marshal_status_ctor;
+
+/*
+ * C copy of a Java string, inline for short strings and heap allocated otherwise.
+ * Unlike GetStringUTFChars the JVM keeps no state for it, so no release call into
+ * the VM is needed.
+ */
+struct jstr {
+    char *str;
+    char inline_buf[JSTR_INLINE_SIZE];
+};
+
+// NULL terminated argv copied from a Java String[] in a single block
+struct jargv {
+    char **argv;
+    void *inline_buf[JARGV_INLINE_SIZE / sizeof(void *)];
+};
+
+// Cache global class and method references, called from JNI_OnLoad
+bool marshal_init(JNIEnv *env);
+void marshal_deinit(JNIEnv *env);
+
+// Returns the copied string or NULL if js is null or on allocation failure
+const char *jstr_get(JNIEnv *env, jstring js, struct jstr *out);
+void jstr_release(struct jstr *s);
+
+// Returns argv or NULL if jargv is null, empty, contains null or on allocation failure
+char **jargv_get(JNIEnv *env, jobjectArray jargv, struct jargv *out);
+void jargv_release(struct jargv *a);
+
+// Build a String[] from count C strings, NULL entries become null elements
+jobjectArray marshal_string_array(JNIEnv *env, char *const *strs, int count);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_JNI_MARSHAL_H
@@ -1,7 +1,12 @@
 #include <jni.h>
+#include <errno.h>
 #include <string.h>
 #include <stdbool.h>
 #include <stdlib.h>
+#include <stdint.h>
+#include <sys/mman.h>
+#include <time.h>
+#include <unistd.h>
 
 #include <lxc/lxccontainer.h>
 #include <lxc/attach_options.h>
@@ -9,6 +14,14 @@
 
 #include "lxc-binding.h"
 #include "jni-wrapper.h"
+#include "handle-cache.h"
+#include "state-monitor.h"
+#include "child-reaper.h"
+#include "inventory-watch.h"
+#include "status-board.h"
+#include "cgroup-sample.h"
+#include "exec-session.h"
+#include "jni-marshal.h"
 
 JNIEXPORT jstring JNICALL nativeGetVersion(JNIEnv *env, jclass clazz) {
     const char *version = lxc_get_version();
@@ -16,38 +29,133 @@ JNIEXPORT jstring JNICALL nativeGetVersion(JNIEnv *env, jclass clazz) {
 }
 
 JNIEXPORT jobjectArray JNICALL nativeListContainers(JNIEnv *env, jclass clazz, jstring jlxcpath) {
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     char **names = NULL;
     struct lxc_container **containers = NULL;
     
     int count = list_defined_containers(lxcpath, &names, &containers);
     if (count <= 0) {
-        (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+        jstr_release(&lxcpath_str);
         return NULL;
     }
     
-    jclass stringClass = (*env)->FindClass(env, "java/lang/String");
-    jobjectArray result = (*env)->NewObjectArray(env, count, stringClass, NULL);
+    jobjectArray result = marshal_string_array(env, names, count);
     
     for (int i = 0; i < count; i++) {
-        jstring name = (*env)->NewStringUTF(env, names[i]);
-        (*env)->SetObjectArrayElement(env, result, i, name);
-        (*env)->DeleteLocalRef(env, name);
         free(names[i]);
         lxc_container_put(containers[i]);
     }
     free(names);
     free(containers);
     
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&lxcpath_str);
+    return result;
+}
+
+static jobject new_status(JNIEnv *env, const char *cname, struct lxc_container *c) {
+    bool running = jni_lxc_running(c);
+    const char *state = jni_lxc_state(c);
+
+    jstring name = (*env)->NewStringUTF(env, cname);
+    jstring jstate = (*env)->NewStringUTF(env, state ? state : "UNKNOWN");
+    jobject status = (*env)->NewObject(env, marshal_status_class, marshal_status_ctor, name, jstate,
+                                       (jint)(running ? jni_lxc_init_pid(c) : -1),
+                                       jni_lxc_defined(c) ? JNI_TRUE : JNI_FALSE,
+                                       running ? JNI_TRUE : JNI_FALSE,
+                                       (jint)jni_lxc_error_num(c));
+    (*env)->DeleteLocalRef(env, jstate);
+    (*env)->DeleteLocalRef(env, name);
+    return status;
+}
+
+JNIEXPORT jobjectArray JNICALL nativeGetContainerStatuses(JNIEnv *env, jclass clazz, jstring jlxcpath) {
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    char **names = NULL;
+    struct lxc_container **containers = NULL;
+
+    jclass statusClass = marshal_status_class;
+    jmethodID ctor = marshal_status_ctor;
+    if (statusClass == NULL || ctor == NULL) {
+        jstr_release(&lxcpath_str);
+        return NULL;
+    }
+
+    int count = list_defined_containers(lxcpath, &names, &containers);
+    jobjectArray result = (*env)->NewObjectArray(env, count > 0 ? count : 0, statusClass, NULL);
+
+    // Statuses are read from the handles list_defined_containers already created, which are
+    // released either way; without an array the pending OutOfMemoryError is left to the caller
+    for (int i = 0; i < count; i++) {
+        if (result) {
+            jobject status = new_status(env, names[i], containers[i]);
+            (*env)->SetObjectArrayElement(env, result, i, status);
+            (*env)->DeleteLocalRef(env, status);
+        }
+        free(names[i]);
+        lxc_container_put(containers[i]);
+    }
+    free(names);
+    free(containers);
+
+    jstr_release(&lxcpath_str);
+    return result;
+}
+
+// Statuses of known containers from cached handles, without scanning lxcpath
+JNIEXPORT jobjectArray JNICALL nativeGetContainerStatusesOf(JNIEnv *env, jclass clazz, jstring jlxcpath, jobjectArray jnames) {
+    if (marshal_status_class == NULL || marshal_status_ctor == NULL || jnames == NULL) {
+        return NULL;
+    }
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    jsize count = (*env)->GetArrayLength(env, jnames);
+    jobjectArray batch = (*env)->NewObjectArray(env, count, marshal_status_class, NULL);
+    if (batch == NULL) {
+        jstr_release(&lxcpath_str);
+        return NULL;
+    }
+    jsize found = 0;
+    for (jsize i = 0; i < count; i++) {
+        jstring jname = (*env)->GetObjectArrayElement(env, jnames, i);
+        struct jstr name_str;
+        const char *name = jstr_get(env, jname, &name_str);
+        // Scans visit every container, they must not push the hot handles out
+        struct lxc_container *c = name ? handle_cache_acquire_scan(name, lxcpath) : NULL;
+        if (c) {
+            jobject status = new_status(env, name, c);
+            (*env)->SetObjectArrayElement(env, batch, found++, status);
+            (*env)->DeleteLocalRef(env, status);
+            lxc_container_put(c);
+        }
+        jstr_release(&name_str);
+        (*env)->DeleteLocalRef(env, jname);
+    }
+
+    jobjectArray result = batch;
+    if (found < count) {
+        result = (*env)->NewObjectArray(env, found, marshal_status_class, NULL);
+        for (jsize i = 0; result && i < found; i++) {
+            jobject status = (*env)->GetObjectArrayElement(env, batch, i);
+            (*env)->SetObjectArrayElement(env, result, i, status);
+            (*env)->DeleteLocalRef(env, status);
+        }
+        (*env)->DeleteLocalRef(env, batch);
+    }
+
+    jstr_release(&lxcpath_str);
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeIsDefined(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
@@ -55,17 +163,19 @@ JNIEXPORT jboolean JNICALL nativeIsDefined(JNIEnv *env, jclass clazz, jstring jn
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeIsRunning(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
@@ -73,17 +183,19 @@ JNIEXPORT jboolean JNICALL nativeIsRunning(JNIEnv *env, jclass clazz, jstring jn
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jstring JNICALL nativeGetState(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jstring result = NULL;
     
     if (c) {
@@ -94,109 +206,334 @@ JNIEXPORT jstring JNICALL nativeGetState(JNIEnv *env, jclass clazz, jstring jnam
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
+/*
+ * LXC error number of the last mutation run by this thread, recorded from the
+ * handle that ran it right after the call. Async operations read it back with
+ * nativeTakeErrorNum instead of asking a handle that may have run something else since.
+ */
+static __thread int last_error_num;
+
+static void record_error(struct lxc_container *c) {
+    last_error_num = c ? jni_lxc_error_num(c) : 0;
+}
+
 JNIEXPORT jboolean JNICALL nativeStartContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jboolean juseInit) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
         int useinit = juseInit == JNI_TRUE ? 1 : 0;
         result = jni_lxc_start(c, useinit, NULL) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeStopContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
         result = jni_lxc_stop(c) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+        lxc_container_put(c);
+    }
+    
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    
+    return result;
+}
+
+/*
+ * Asks init to shut down with lxc.signal.halt and waits up to jtimeout seconds for the container to stop.
+ * A timeout of 0 returns right after the signal was sent.
+ */
+JNIEXPORT jboolean JNICALL nativeShutdownContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jtimeout) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+    
+    if (c) {
+        result = jni_lxc_shutdown(c, jtimeout) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeFreezeContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
         result = jni_lxc_freeze(c) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeUnfreezeContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
         result = jni_lxc_unfreeze(c) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeDestroyContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
         result = jni_lxc_destroy(c) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
         lxc_container_put(c);
+        if (result) {
+            handle_cache_evict(name, lxcpath);
+        }
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
+// Must match the OP_* constants in OperationResult.java
+enum lifecycle_op {
+    OP_START = 0,
+    OP_STOP,
+    OP_FREEZE,
+    OP_UNFREEZE,
+    OP_DESTROY,
+};
+
+// Must match the FIELD_* indexes in OperationResult.java
+enum op_result_field {
+    OP_RESULT_SUCCESS = 0,
+    OP_RESULT_ERROR_NUM,
+    OP_RESULT_ERRNO,
+    OP_RESULT_ELAPSED_NANOS,
+    OP_RESULT_FIELD_COUNT,
+};
+
+static jlong elapsed_nanos(const struct timespec *start) {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return (jlong)(now.tv_sec - start->tv_sec) * 1000000000LL + (now.tv_nsec - start->tv_nsec);
+}
+
+/*
+ * Runs a lifecycle operation and reads error_num, errno and the state from the same handle
+ * right after it, before another call can touch the handle. Fills jout with the op_result_field
+ * values and returns the state, or NULL if no handle could be opened.
+ */
+JNIEXPORT jstring JNICALL nativeRunLifecycle(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                             jint jop, jboolean juseInit, jlongArray jout) {
+    if (!jout || (*env)->GetArrayLength(env, jout) < OP_RESULT_FIELD_COUNT) {
+        return NULL;
+    }
+
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    jlong values[OP_RESULT_FIELD_COUNT] = { 0, -1, 0, 0 };
+    jstring result = NULL;
+    struct timespec start;
+    clock_gettime(CLOCK_MONOTONIC, &start);
+
+    errno = 0;
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    if (c) {
+        bool ok = false;
+        errno = 0;
+        switch (jop) {
+        case OP_START:
+            ok = jni_lxc_start(c, juseInit == JNI_TRUE ? 1 : 0, NULL);
+            break;
+        case OP_STOP:
+            ok = jni_lxc_stop(c);
+            break;
+        case OP_FREEZE:
+            ok = jni_lxc_freeze(c);
+            break;
+        case OP_UNFREEZE:
+            ok = jni_lxc_unfreeze(c);
+            break;
+        case OP_DESTROY:
+            ok = jni_lxc_destroy(c);
+            break;
+        default:
+            errno = EINVAL;
+            break;
+        }
+        values[OP_RESULT_ERRNO] = errno;
+        values[OP_RESULT_ELAPSED_NANOS] = elapsed_nanos(&start);
+        values[OP_RESULT_SUCCESS] = ok ? 1 : 0;
+        values[OP_RESULT_ERROR_NUM] = jni_lxc_error_num(c);
+
+        const char *state = jni_lxc_state(c);
+        if (state) {
+            result = (*env)->NewStringUTF(env, state);
+        }
+        lxc_container_put(c);
+        if (jop == OP_DESTROY && ok) {
+            handle_cache_evict(name, lxcpath);
+        }
+    } else {
+        values[OP_RESULT_ERRNO] = errno;
+        values[OP_RESULT_ELAPSED_NANOS] = elapsed_nanos(&start);
+    }
+    (*env)->SetLongArrayRegion(env, jout, 0, OP_RESULT_FIELD_COUNT, values);
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeCreateContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jstring jtemplate, jstring jbdevtype, jobjectArray jargs) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr template_str;
+    const char *template = jstr_get(env, jtemplate, &template_str);
+    struct jstr bdevtype_str;
+    const char *bdevtype = jstr_get(env, jbdevtype, &bdevtype_str);
+    struct jargv args_argv;
+    // Template arguments are optional, jargv_get returns NULL for none
+    char **args = jargv_get(env, jargs, &args_argv);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c && template) {
+        result = jni_lxc_create(c, template, bdevtype, NULL, LXC_CREATE_QUIET, args) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+    }
+    if (c) {
+        lxc_container_put(c);
+        // The cached handle predates the config file
+        handle_cache_evict(name, lxcpath);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&template_str);
+    jstr_release(&bdevtype_str);
+    jargv_release(&args_argv);
+
+    return result;
+}
+
+// Clone a container, newlxcpath and bdevtype may be null for the source's lxcpath and storage type
+JNIEXPORT jboolean JNICALL nativeCloneContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                jstring jnewname, jstring jnewlxcpath, jint flags, jstring jbdevtype) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr newname_str;
+    const char *newname = jstr_get(env, jnewname, &newname_str);
+    struct jstr newlxcpath_str;
+    const char *newlxcpath = jstr_get(env, jnewlxcpath, &newlxcpath_str);
+    struct jstr bdevtype_str;
+    const char *bdevtype = jstr_get(env, jbdevtype, &bdevtype_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c && newname) {
+        result = jni_lxc_clone(c, newname, newlxcpath, flags, bdevtype) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+    }
+    if (c) {
+        lxc_container_put(c);
+    }
+    if (result && newname) {
+        handle_cache_evict(newname, newlxcpath ? newlxcpath : lxcpath);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&newname_str);
+    jstr_release(&newlxcpath_str);
+    jstr_release(&bdevtype_str);
+
+    return result;
+}
+
 JNIEXPORT jstring JNICALL nativeGetConfigItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    const char *key = (*env)->GetStringUTFChars(env, jkey, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr key_str;
+    const char *key = jstr_get(env, jkey, &key_str);
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jstring result = NULL;
     
     if (c) {
@@ -208,270 +545,1279 @@ JNIEXPORT jstring JNICALL nativeGetConfigItem(JNIEnv *env, jclass clazz, jstring
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    (*env)->ReleaseStringUTFChars(env, jkey, key);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&key_str);
     
     return result;
 }
 
 JNIEXPORT jboolean JNICALL nativeSetConfigItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey, jstring jvalue) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    const char *key = (*env)->GetStringUTFChars(env, jkey, NULL);
-    const char *value = (*env)->GetStringUTFChars(env, jvalue, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr key_str;
+    const char *key = jstr_get(env, jkey, &key_str);
+    struct jstr value_str;
+    const char *value = jstr_get(env, jvalue, &value_str);
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
     
     if (c) {
-        result = jni_lxc_set_config_item(c, key, value) ? JNI_TRUE : JNI_FALSE;
+        // Saved like nativeSetConfigItems, the cached handle must not hold unsaved items
+        bool ok = jni_lxc_set_config_item(c, key, value) && jni_lxc_save_config(c, NULL);
         lxc_container_put(c);
+        if (!ok) {
+            handle_cache_evict(name, lxcpath);
+        }
+        result = ok ? JNI_TRUE : JNI_FALSE;
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    (*env)->ReleaseStringUTFChars(env, jkey, key);
-    (*env)->ReleaseStringUTFChars(env, jvalue, value);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&key_str);
+    jstr_release(&value_str);
     
     return result;
 }
 
-JNIEXPORT jint JNICALL nativeCreateSnapshot(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
-    jint result = -1;
-    
+JNIEXPORT jobjectArray JNICALL nativeGetConfigItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jobjectArray jkeys) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jobjectArray result = NULL;
+
     if (c) {
-        result = jni_lxc_snapshot(c);
+        int count = (*env)->GetArrayLength(env, jkeys);
+        result = (*env)->NewObjectArray(env, count, marshal_string_class, NULL);
+
+        for (int i = 0; i < count; i++) {
+            jstring jkey = (*env)->GetObjectArrayElement(env, jkeys, i);
+            struct jstr key_str;
+            const char *key = jstr_get(env, jkey, &key_str);
+            char *value = jni_lxc_get_config_item(c, key);
+            if (value) {
+                jstring jvalue = (*env)->NewStringUTF(env, value);
+                (*env)->SetObjectArrayElement(env, result, i, jvalue);
+                (*env)->DeleteLocalRef(env, jvalue);
+                free(value);
+            }
+            jstr_release(&key_str);
+            (*env)->DeleteLocalRef(env, jkey);
+        }
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
     return result;
 }
 
-JNIEXPORT jobjectArray JNICALL nativeGetInterfaces(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+JNIEXPORT jboolean JNICALL nativeSetConfigItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                jobjectArray jkeys, jobjectArray jvalues) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c) {
+        int count = (*env)->GetArrayLength(env, jkeys);
+        bool ok = count == (*env)->GetArrayLength(env, jvalues);
+
+        for (int i = 0; ok && i < count; i++) {
+            jstring jkey = (*env)->GetObjectArrayElement(env, jkeys, i);
+            jstring jvalue = (*env)->GetObjectArrayElement(env, jvalues, i);
+            struct jstr key_str;
+            const char *key = jstr_get(env, jkey, &key_str);
+            struct jstr value_str;
+            const char *value = jstr_get(env, jvalue, &value_str);
+            ok = jni_lxc_set_config_item(c, key, value);
+            jstr_release(&key_str);
+            jstr_release(&value_str);
+            (*env)->DeleteLocalRef(env, jkey);
+            (*env)->DeleteLocalRef(env, jvalue);
+        }
+
+        // Persist all items with a single write of the config file
+        if (ok) {
+            ok = jni_lxc_save_config(c, NULL);
+        }
+        lxc_container_put(c);
+        if (!ok) {
+            // Drop the partially modified handle so the next call reloads from disk
+            handle_cache_evict(name, lxcpath);
+        }
+        result = ok ? JNI_TRUE : JNI_FALSE;
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+// Split a newline separated key list as returned by jni_lxc_get_keys, modifies keys in place
+static int split_keys(char *keys, char ***out) {
+    int count = 0;
+    for (char *p = keys; *p; p++) {
+        if (*p == '\n') {
+            count++;
+        }
+    }
+
+    char **list = malloc(sizeof(char *) * (count + 1));
+    if (list == NULL) {
+        return -1;
+    }
+
+    int n = 0;
+    char *saveptr = NULL;
+    for (char *key = strtok_r(keys, "\n", &saveptr); key != NULL; key = strtok_r(NULL, "\n", &saveptr)) {
+        list[n++] = key;
+        if (n > count) {
+            break;
+        }
+    }
+    *out = list;
+    return n;
+}
+
+JNIEXPORT jobjectArray JNICALL nativeGetConfigKeys(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jobjectArray result = NULL;
-    
+
     if (c) {
-        char **interfaces = jni_lxc_get_interfaces(c);
-        if (interfaces) {
-            int count = 0;
-            while (interfaces[count] != NULL) {
-                count++;
+        char *keys = jni_lxc_get_keys(c, NULL);
+        char **list = NULL;
+        int count = keys ? split_keys(keys, &list) : 0;
+
+        if (count >= 0) {
+            result = marshal_string_array(env, list, count);
+        }
+        free(list);
+        free(keys);
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jobjectArray JNICALL nativeDumpConfig(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jobjectArray result = NULL;
+
+    if (c) {
+        char *keys = jni_lxc_get_keys(c, NULL);
+        char **list = NULL;
+        int count = keys ? split_keys(keys, &list) : 0;
+
+        if (count >= 0) {
+            // Flattened key/value pairs, only keys that have a value
+            char **values = calloc(count + 1, sizeof(char *));
+            int set = 0;
+            for (int i = 0; values && i < count; i++) {
+                values[i] = jni_lxc_get_config_item(c, list[i]);
+                if (values[i]) {
+                    set++;
+                }
             }
-            
-            jclass stringClass = (*env)->FindClass(env, "java/lang/String");
-            result = (*env)->NewObjectArray(env, count, stringClass, NULL);
-            
-            for (int i = 0; i < count; i++) {
-                jstring iface = (*env)->NewStringUTF(env, interfaces[i]);
-                (*env)->SetObjectArrayElement(env, result, i, iface);
-                (*env)->DeleteLocalRef(env, iface);
-                free(interfaces[i]);
+
+            result = (*env)->NewObjectArray(env, set * 2, marshal_string_class, NULL);
+            for (int i = 0, j = 0; values && i < count; i++) {
+                if (values[i] == NULL) {
+                    continue;
+                }
+                jstring jkey = (*env)->NewStringUTF(env, list[i]);
+                jstring jvalue = (*env)->NewStringUTF(env, values[i]);
+                (*env)->SetObjectArrayElement(env, result, j++, jkey);
+                (*env)->SetObjectArrayElement(env, result, j++, jvalue);
+                (*env)->DeleteLocalRef(env, jkey);
+                (*env)->DeleteLocalRef(env, jvalue);
+                free(values[i]);
             }
-            free(interfaces);
+            free(values);
         }
+        free(list);
+        free(keys);
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
     return result;
 }
 
-JNIEXPORT jint JNICALL nativeGetConsoleFd(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jttynum) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    int ttynum = jttynum;
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
-    jint result = -1;
-    
+JNIEXPORT jstring JNICALL nativeGetCgroupItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr key_str;
+    const char *key = jstr_get(env, jkey, &key_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jstring result = NULL;
+
     if (c) {
-        result = jni_lxc_console_getfd(c, ttynum);
+        char *value = jni_lxc_get_cgroup_item(c, key);
+        if (value) {
+            result = (*env)->NewStringUTF(env, value);
+            free(value);
+        }
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&key_str);
+
     return result;
 }
 
-JNIEXPORT jboolean JNICALL nativeConsole(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, 
-                                         jint jttynum, jint jstdinfd, jint jstdoutfd, jint jstderrfd, jint jescape) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    int ttynum = jttynum;
-    int stdinfd = jstdinfd;
-    int stdoutfd = jstdoutfd;
-    int stderrfd = jstderrfd;
-    int escape = jescape;
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+JNIEXPORT jboolean JNICALL nativeSampleCgroup(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jlongArray jout) {
+    if ((*env)->GetArrayLength(env, jout) < SAMPLE_FIELD_COUNT) {
+        return JNI_FALSE;
+    }
+
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jboolean result = JNI_FALSE;
-    
+
     if (c) {
-        result = jni_lxc_console(c, ttynum, stdinfd, stdoutfd, stderrfd, escape) ? JNI_TRUE : JNI_FALSE;
+        jlong sample[SAMPLE_FIELD_COUNT];
+        if (cgroup_sample(c, (int64_t *)sample)) {
+            (*env)->SetLongArrayRegion(env, jout, 0, SAMPLE_FIELD_COUNT, sample);
+            result = JNI_TRUE;
+        }
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
     return result;
 }
 
-// Attach to container and run command (wait for completion)
-JNIEXPORT jint JNICALL nativeAttachRunWait(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
-                                         jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
-                                         jint juid, jint jgid, jobjectArray jargv, jint jattachFlags) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
-    jint result = -1;
-    
+JNIEXPORT jboolean JNICALL nativeSamplePressure(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jlongArray jout) {
+    if ((*env)->GetArrayLength(env, jout) < PRESSURE_FIELD_COUNT) {
+        return JNI_FALSE;
+    }
+
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
     if (c) {
-        bool clear_env = jclearEnv == JNI_TRUE;
-        int namespaces = jnamespaces;
-        long personality = jpersonality;
-        uid_t uid = juid;
-        gid_t gid = jgid;
-        int attach_flags = jattachFlags;
-        
-        int argc = (*env)->GetArrayLength(env, jargv);
-        const char **argv = NULL;
-        if (argc > 0) {
-            argv = (const char **)malloc(sizeof(char *) * (argc + 1));
-            for (int i = 0; i < argc; i++) {
-                jstring jarg = (*env)->GetObjectArrayElement(env, jargv, i);
-                const char *arg = (*env)->GetStringUTFChars(env, jarg, NULL);
-                argv[i] = arg;
-                (*env)->ReleaseStringUTFChars(env, jarg, arg);
-                (*env)->DeleteLocalRef(env, jarg);
-            }
-            argv[argc] = NULL;
-        }
-        
-        lxc_groups_t groups = {0, NULL}; // Simplified handling, no group processing
-        
-        result = jni_lxc_attach_run_wait(c, clear_env, namespaces, personality, 
-                                        uid, gid, groups, -1, -1, -1, 
-                                        NULL, NULL, NULL, argv, attach_flags);
-        
-        if (argv) {
-            free(argv);
+        jlong sample[PRESSURE_FIELD_COUNT];
+        if (cgroup_pressure(c, (int64_t *)sample)) {
+            (*env)->SetLongArrayRegion(env, jout, 0, PRESSURE_FIELD_COUNT, sample);
+            result = JNI_TRUE;
         }
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
     return result;
 }
 
-// Attach to container (do not wait)
-JNIEXPORT jint JNICALL nativeAttachNoWait(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
-                                         jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
-                                         jint juid, jint jgid, jobjectArray jargv, jint jattachFlags) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
-    
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+/*
+ * Writes cgroup items in order through one handle, stopping at the first failure.
+ * Returns the number of items written, or -1 if no handle could be opened.
+ */
+JNIEXPORT jint JNICALL nativeSetCgroupItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jobjectArray jkeys, jobjectArray jvalues) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jint result = -1;
-    
+
     if (c) {
-        bool clear_env = jclearEnv == JNI_TRUE;
-        int namespaces = jnamespaces;
-        long personality = jpersonality;
-        uid_t uid = juid;
-        gid_t gid = jgid;
-        int attach_flags = jattachFlags;
-        
-        int argc = (*env)->GetArrayLength(env, jargv);
-        const char **argv = NULL;
-        if (argc > 0) {
-            argv = (const char **)malloc(sizeof(char *) * (argc + 1));
-            for (int i = 0; i < argc; i++) {
-                jstring jarg = (*env)->GetObjectArrayElement(env, jargv, i);
-                const char *arg = (*env)->GetStringUTFChars(env, jarg, NULL);
-                argv[i] = arg;
-                (*env)->ReleaseStringUTFChars(env, jarg, arg);
-                (*env)->DeleteLocalRef(env, jarg);
+        int count = (*env)->GetArrayLength(env, jkeys);
+        bool ok = count == (*env)->GetArrayLength(env, jvalues);
+
+        result = 0;
+        for (int i = 0; ok && i < count; i++) {
+            jstring jkey = (*env)->GetObjectArrayElement(env, jkeys, i);
+            jstring jvalue = (*env)->GetObjectArrayElement(env, jvalues, i);
+            struct jstr key_str;
+            const char *key = jstr_get(env, jkey, &key_str);
+            struct jstr value_str;
+            const char *value = jstr_get(env, jvalue, &value_str);
+            ok = key && value && jni_lxc_set_cgroup_item(c, key, value);
+            if (ok) {
+                result++;
             }
-            argv[argc] = NULL;
-        }
-        
-        lxc_groups_t groups = {0, NULL}; // Simplified handling, no group processing
-        pid_t attached_pid;
-        
-        result = jni_lxc_attach_no_wait(c, clear_env, namespaces, personality, 
-                                       uid, gid, groups, -1, -1, -1, 
-                                       NULL, NULL, NULL, argv, &attached_pid, attach_flags);
-        
-        if (argv) {
-            free(argv);
+            jstr_release(&key_str);
+            jstr_release(&value_str);
+            (*env)->DeleteLocalRef(env, jkey);
+            (*env)->DeleteLocalRef(env, jvalue);
         }
         lxc_container_put(c);
     }
-    
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
-    
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
     return result;
 }
 
-JNIEXPORT jint JNICALL nativeGetErrorNum(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
-    const char *name = (*env)->GetStringUTFChars(env, jname, NULL);
-    const char *lxcpath = (*env)->GetStringUTFChars(env, jlxcpath, NULL);
+JNIEXPORT jint JNICALL nativeCreateSnapshot(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
     
-    struct lxc_container *c = lxc_container_new(name, lxcpath);
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
     jint result = -1;
     
     if (c) {
-        result = jni_lxc_error_num(c);
+        result = jni_lxc_snapshot(c);
+        record_error(c);
         lxc_container_put(c);
     }
     
-    (*env)->ReleaseStringUTFChars(env, jname, name);
-    (*env)->ReleaseStringUTFChars(env, jlxcpath, lxcpath);
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
     
     return result;
 }
 
+// Flattened name, timestamp, comment path, lxcpath quadruples, NULL on failure
+JNIEXPORT jobjectArray JNICALL nativeListSnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jobjectArray result = NULL;
+
+    if (c) {
+        struct lxc_snapshot *snapshots = NULL;
+        int count = jni_lxc_snapshot_list(c, &snapshots);
+
+        if (count >= 0) {
+            result = (*env)->NewObjectArray(env, count * 4, marshal_string_class, NULL);
+            for (int i = 0; result && i < count; i++) {
+                const char *fields[] = {snapshots[i].name, snapshots[i].timestamp,
+                                        snapshots[i].comment_pathname, snapshots[i].lxcpath};
+                for (int f = 0; f < 4; f++) {
+                    if (fields[f] == NULL) {
+                        continue;
+                    }
+                    jstring jfield = (*env)->NewStringUTF(env, fields[f]);
+                    (*env)->SetObjectArrayElement(env, result, i * 4 + f, jfield);
+                    (*env)->DeleteLocalRef(env, jfield);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                snapshots[i].free(&snapshots[i]);
+            }
+            free(snapshots);
+        }
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeRestoreSnapshot(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jstring jsnapname, jstring jnewname) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr snapname_str;
+    const char *snapname = jstr_get(env, jsnapname, &snapname_str);
+    struct jstr newname_str;
+    const char *newname = jstr_get(env, jnewname, &newname_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c) {
+        result = jni_lxc_snapshot_restore(c, snapname, newname ? newname : name) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+        lxc_container_put(c);
+        // Restoring over the container replaces its config and rootfs
+        if (newname == NULL || strcmp(newname, name) == 0) {
+            handle_cache_evict(name, lxcpath);
+        }
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&snapname_str);
+    jstr_release(&newname_str);
+
+    return result;
+}
+
+// Destroy the given snapshots with one container handle, returns the number destroyed or -1
+JNIEXPORT jint JNICALL nativeDestroySnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                              jobjectArray jsnapnames) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jint result = -1;
+
+    if (c) {
+        int count = (*env)->GetArrayLength(env, jsnapnames);
+        result = 0;
+        for (int i = 0; i < count; i++) {
+            jstring jsnapname = (*env)->GetObjectArrayElement(env, jsnapnames, i);
+            struct jstr snapname_str;
+            const char *snapname = jstr_get(env, jsnapname, &snapname_str);
+            if (snapname && jni_lxc_snapshot_destroy(c, snapname)) {
+                result++;
+            } else {
+                record_error(c);
+            }
+            jstr_release(&snapname_str);
+            (*env)->DeleteLocalRef(env, jsnapname);
+        }
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeDestroyAllSnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c) {
+        result = jni_lxc_snapshot_destroy_all(c) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeCheckpoint(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jstring jdirectory, jboolean stop) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr directory_str;
+    const char *directory = jstr_get(env, jdirectory, &directory_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c && directory) {
+        result = jni_lxc_checkpoint(c, (char *)directory, stop, false) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+    }
+    if (c) {
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&directory_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeRestore(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jdirectory) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr directory_str;
+    const char *directory = jstr_get(env, jdirectory, &directory_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+
+    if (c && directory) {
+        result = jni_lxc_restore(c, (char *)directory, false) ? JNI_TRUE : JNI_FALSE;
+        record_error(c);
+    }
+    if (c) {
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&directory_str);
+
+    return result;
+}
+
+// Returns the migrate result, 0 on success, or -EINVAL if the container cannot be opened
+JNIEXPORT jint JNICALL nativeMigrate(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint cmd,
+                                     jstring jdirectory, jstring jpredumpdir, jboolean stop,
+                                     jboolean preservesInodes, jlong featuresToCheck) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    struct jstr directory_str;
+    const char *directory = jstr_get(env, jdirectory, &directory_str);
+    struct jstr predumpdir_str;
+    const char *predumpdir = jstr_get(env, jpredumpdir, &predumpdir_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jint result = -EINVAL;
+
+    if (c) {
+        struct migrate_opts opts;
+        struct extra_migrate_opts extras;
+        memset(&opts, 0, sizeof(opts));
+        memset(&extras, 0, sizeof(extras));
+        opts.directory = (char *)directory;
+        opts.stop = stop;
+        // CRIU resolves it relative to directory, e.g. "../pre-0"
+        opts.predump_dir = (char *)predumpdir;
+        extras.preserves_inodes = preservesInodes;
+        extras.features_to_check = (uint64_t)featuresToCheck;
+
+        result = jni_lxc_migrate(c, (unsigned int)cmd, &opts, &extras);
+        record_error(c);
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jstr_release(&directory_str);
+    jstr_release(&predumpdir_str);
+
+    return result;
+}
+
+JNIEXPORT jobjectArray JNICALL nativeGetInterfaces(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jobjectArray result = NULL;
+    
+    if (c) {
+        char **interfaces = jni_lxc_get_interfaces(c);
+        if (interfaces) {
+            int count = 0;
+            while (interfaces[count] != NULL) {
+                count++;
+            }
+            
+            result = marshal_string_array(env, interfaces, count);
+            
+            for (int i = 0; i < count; i++) {
+                free(interfaces[i]);
+            }
+            free(interfaces);
+        }
+        lxc_container_put(c);
+    }
+    
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    
+    return result;
+}
+
+JNIEXPORT jint JNICALL nativeGetConsoleFd(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jttynum) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    int ttynum = jttynum;
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jint result = -1;
+    
+    if (c) {
+        result = jni_lxc_console_getfd(c, ttynum);
+        lxc_container_put(c);
+    }
+    
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    
+    return result;
+}
+
+// Allocate a console tty, returns {pty master fd, tty lease fd, tty number} or NULL
+// The tty stays allocated until the lease fd is closed
+JNIEXPORT jintArray JNICALL nativeOpenConsole(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jttynum) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    int ttynum = jttynum;
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jintArray result = NULL;
+
+    if (c) {
+        int ptxfd = -1;
+        int leasefd = jni_lxc_console_open(c, &ttynum, &ptxfd);
+        if (leasefd >= 0) {
+            jint fds[3] = { ptxfd, leasefd, ttynum };
+            result = (*env)->NewIntArray(env, 3);
+            if (result) {
+                (*env)->SetIntArrayRegion(env, result, 0, 3, fds);
+            } else {
+                close(ptxfd);
+                close(leasefd);
+            }
+        }
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeConsole(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, 
+                                         jint jttynum, jint jstdinfd, jint jstdoutfd, jint jstderrfd, jint jescape) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    int ttynum = jttynum;
+    int stdinfd = jstdinfd;
+    int stdoutfd = jstdoutfd;
+    int stderrfd = jstderrfd;
+    int escape = jescape;
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jboolean result = JNI_FALSE;
+    
+    if (c) {
+        result = jni_lxc_console(c, ttynum, stdinfd, stdoutfd, stderrfd, escape) ? JNI_TRUE : JNI_FALSE;
+        lxc_container_put(c);
+    }
+    
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    
+    return result;
+}
+
+/*
+ * Shared implementation of the attach entry points.
+ * With wait set, returns the wait status of the command, otherwise 0 and
+ * stores the pid of the attached process in attached_pid. Returns -1 on error.
+ */
+static jint attach_command(JNIEnv *env, jstring jname, jstring jlxcpath, jboolean jclearEnv,
+                           jint jnamespaces, jlong jpersonality, jint juid, jint jgid,
+                           jobjectArray jargv, jint jattachFlags,
+                           int stdinfd, int stdoutfd, int stderrfd, bool wait, pid_t *attached_pid) {
+    struct jargv argv_buf;
+    char **argv = jargv_get(env, jargv, &argv_buf);
+    if (argv == NULL) {
+        return -1;
+    }
+
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jint result = -1;
+
+    if (c) {
+        lxc_groups_t groups = {0, NULL}; // Simplified handling, no group processing
+
+        if (wait) {
+            result = jni_lxc_attach_run_wait(c, jclearEnv == JNI_TRUE, jnamespaces, jpersonality,
+                                             juid, jgid, groups, stdinfd, stdoutfd, stderrfd,
+                                             NULL, NULL, NULL, (const char * const *)argv, jattachFlags);
+        } else {
+            result = jni_lxc_attach_no_wait(c, jclearEnv == JNI_TRUE, jnamespaces, jpersonality,
+                                            juid, jgid, groups, stdinfd, stdoutfd, stderrfd,
+                                            NULL, NULL, NULL, (const char * const *)argv,
+                                            attached_pid, jattachFlags);
+            // The attached process is our child, reaped with the others on the reaper thread
+            if (result >= 0 && *attached_pid > 0) {
+                child_reaper_watch(*attached_pid);
+            }
+        }
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    jargv_release(&argv_buf);
+
+    return result;
+}
+
+// Attach to container and run command (wait for completion)
+JNIEXPORT jint JNICALL nativeAttachRunWait(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                         jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                         jint juid, jint jgid, jobjectArray jargv, jint jattachFlags) {
+    return attach_command(env, jname, jlxcpath, jclearEnv, jnamespaces, jpersonality, juid, jgid,
+                          jargv, jattachFlags, -1, -1, -1, true, NULL);
+}
+
+// Attach to container (do not wait)
+JNIEXPORT jint JNICALL nativeAttachNoWait(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                         jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                         jint juid, jint jgid, jobjectArray jargv, jint jattachFlags) {
+    pid_t attached_pid;
+    return attach_command(env, jname, jlxcpath, jclearEnv, jnamespaces, jpersonality, juid, jgid,
+                          jargv, jattachFlags, -1, -1, -1, false, &attached_pid);
+}
+
+// Attach to container and run command with the given stdio fds (wait for completion)
+JNIEXPORT jint JNICALL nativeAttachRunWaitFds(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                            jint juid, jint jgid, jobjectArray jargv, jint jattachFlags,
+                                            jint jstdinfd, jint jstdoutfd, jint jstderrfd) {
+    return attach_command(env, jname, jlxcpath, jclearEnv, jnamespaces, jpersonality, juid, jgid,
+                          jargv, jattachFlags, jstdinfd, jstdoutfd, jstderrfd, true, NULL);
+}
+
+// Attach to container with the given stdio fds (do not wait), returns the pid of the attached process
+JNIEXPORT jint JNICALL nativeAttachNoWaitFds(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                           jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                           jint juid, jint jgid, jobjectArray jargv, jint jattachFlags,
+                                           jint jstdinfd, jint jstdoutfd, jint jstderrfd) {
+    pid_t attached_pid = -1;
+    jint result = attach_command(env, jname, jlxcpath, jclearEnv, jnamespaces, jpersonality, juid, jgid,
+                                 jargv, jattachFlags, jstdinfd, jstdoutfd, jstderrfd, false, &attached_pid);
+    return result < 0 ? result : attached_pid;
+}
+
+struct exit_batch {
+    jint values[CHILD_REAPER_MAX_EVENTS * 2];
+    int count;
+};
+
+static void collect_reaped(pid_t pid, int status, void *data) {
+    struct exit_batch *reaped = data;
+    reaped->values[reaped->count++] = pid;
+    reaped->values[reaped->count++] = status;
+}
+
+// Reaped children as pid, wait status pairs, empty on timeout and null on error
+JNIEXPORT jintArray JNICALL nativeReaperWait(JNIEnv *env, jclass clazz, jint jtimeout) {
+    struct exit_batch reaped = { .count = 0 };
+    if (child_reaper_wait(jtimeout, collect_reaped, &reaped) < 0) {
+        return NULL;
+    }
+
+    jintArray result = (*env)->NewIntArray(env, reaped.count);
+    if (result != NULL) {
+        (*env)->SetIntArrayRegion(env, result, 0, reaped.count, reaped.values);
+    }
+    return result;
+}
+
+JNIEXPORT void JNICALL nativeReaperKick(JNIEnv *env, jclass clazz) {
+    child_reaper_kick();
+}
+
+JNIEXPORT jint JNICALL nativeReaperStatus(JNIEnv *env, jclass clazz, jint jpid) {
+    return child_reaper_status(jpid);
+}
+
+// Error number recorded by the last mutation of this thread, 0 if none; clears it
+JNIEXPORT jint JNICALL nativeTakeErrorNum(JNIEnv *env, jclass clazz) {
+    jint result = last_error_num;
+    last_error_num = 0;
+    return result;
+}
+
+JNIEXPORT jint JNICALL nativeGetErrorNum(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+    
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jint result = -1;
+    
+    if (c) {
+        result = jni_lxc_error_num(c);
+        lxc_container_put(c);
+    }
+    
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+    
+    return result;
+}
+
+JNIEXPORT void JNICALL nativeSetHandleCacheCapacity(JNIEnv *env, jclass clazz, jint jcapacity) {
+    handle_cache_set_capacity(jcapacity > 0 ? (uint32_t)jcapacity : 0);
+}
+
+JNIEXPORT jlongArray JNICALL nativeGetHandleCacheStats(JNIEnv *env, jclass clazz) {
+    struct handle_cache_stats stats;
+    handle_cache_get_stats(&stats);
+
+    jlong values[] = {
+        (jlong)stats.hits,
+        (jlong)stats.misses,
+        (jlong)stats.invalidations,
+        (jlong)stats.evictions,
+        (jlong)stats.size,
+        (jlong)stats.capacity,
+    };
+    int count = sizeof(values) / sizeof(values[0]);
+
+    jlongArray result = (*env)->NewLongArray(env, count);
+    if (result) {
+        (*env)->SetLongArrayRegion(env, result, 0, count, values);
+    }
+    return result;
+}
+
+JNIEXPORT jlong JNICALL nativeMonitorCreate(JNIEnv *env, jclass clazz) {
+    return (jlong)(intptr_t)state_monitor_new();
+}
+
+JNIEXPORT void JNICALL nativeMonitorFree(JNIEnv *env, jclass clazz, jlong jmonitor) {
+    state_monitor_free((struct state_monitor *)(intptr_t)jmonitor);
+}
+
+JNIEXPORT jboolean JNICALL nativeMonitorWatch(JNIEnv *env, jclass clazz, jlong jmonitor, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    jboolean result = state_monitor_watch((struct state_monitor *)(intptr_t)jmonitor, name, lxcpath)
+                      ? JNI_TRUE : JNI_FALSE;
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+struct name_batch {
+    JNIEnv *env;
+    jobjectArray array;
+    int count;
+};
+
+static void collect_exited(const char *name, void *data) {
+    struct name_batch *exited = data;
+    JNIEnv *env = exited->env;
+
+    jstring jname = (*env)->NewStringUTF(env, name);
+    (*env)->SetObjectArrayElement(env, exited->array, exited->count++, jname);
+    (*env)->DeleteLocalRef(env, jname);
+}
+
+JNIEXPORT jobjectArray JNICALL nativeMonitorWait(JNIEnv *env, jclass clazz, jlong jmonitor, jint jtimeout) {
+    jobjectArray batch = (*env)->NewObjectArray(env, STATE_MONITOR_MAX_EVENTS, marshal_string_class, NULL);
+    struct name_batch exited = { env, batch, 0 };
+
+    int n = state_monitor_wait((struct state_monitor *)(intptr_t)jmonitor, jtimeout, collect_exited, &exited);
+    if (n < 0) {
+        return NULL;
+    }
+
+    jobjectArray result = (*env)->NewObjectArray(env, exited.count, marshal_string_class, NULL);
+    for (int i = 0; i < exited.count; i++) {
+        jobject name = (*env)->GetObjectArrayElement(env, batch, i);
+        (*env)->SetObjectArrayElement(env, result, i, name);
+        (*env)->DeleteLocalRef(env, name);
+    }
+    (*env)->DeleteLocalRef(env, batch);
+    return result;
+}
+
+JNIEXPORT void JNICALL nativeMonitorKick(JNIEnv *env, jclass clazz, jlong jmonitor) {
+    state_monitor_kick((struct state_monitor *)(intptr_t)jmonitor);
+}
+
+static void collect_changed(const char *name, void *data) {
+    struct name_batch *changed = data;
+    JNIEnv *env = changed->env;
+
+    // Left null for lost events
+    jstring jname = name ? (*env)->NewStringUTF(env, name) : NULL;
+    (*env)->SetObjectArrayElement(env, changed->array, changed->count++, jname);
+    if (jname) {
+        (*env)->DeleteLocalRef(env, jname);
+    }
+}
+
+JNIEXPORT jlong JNICALL nativeInventoryCreate(JNIEnv *env, jclass clazz, jstring jlxcpath) {
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct inventory_watch *watch = lxcpath ? inventory_watch_new(lxcpath) : NULL;
+
+    jstr_release(&lxcpath_str);
+    return (jlong)(intptr_t)watch;
+}
+
+JNIEXPORT void JNICALL nativeInventoryFree(JNIEnv *env, jclass clazz, jlong jwatch) {
+    inventory_watch_free((struct inventory_watch *)(intptr_t)jwatch);
+}
+
+JNIEXPORT jboolean JNICALL nativeInventoryWatch(JNIEnv *env, jclass clazz, jlong jwatch, jstring jname) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+
+    jboolean result = name && inventory_watch_add((struct inventory_watch *)(intptr_t)jwatch, name)
+                      ? JNI_TRUE : JNI_FALSE;
+
+    jstr_release(&name_str);
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL nativeInventoryWait(JNIEnv *env, jclass clazz, jlong jwatch, jint jtimeout) {
+    return inventory_watch_wait((struct inventory_watch *)(intptr_t)jwatch, jtimeout) > 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+// Changed names, with null elements for lost events, an empty array if nothing is pending
+JNIEXPORT jobjectArray JNICALL nativeInventoryRead(JNIEnv *env, jclass clazz, jlong jwatch) {
+    jobjectArray batch = (*env)->NewObjectArray(env, INVENTORY_WATCH_MAX_EVENTS, marshal_string_class, NULL);
+    struct name_batch changed = { env, batch, 0 };
+
+    int n = inventory_watch_read((struct inventory_watch *)(intptr_t)jwatch, collect_changed, &changed);
+    if (n < 0) {
+        return NULL;
+    }
+
+    jobjectArray result = (*env)->NewObjectArray(env, changed.count, marshal_string_class, NULL);
+    for (int i = 0; i < changed.count; i++) {
+        jobject name = (*env)->GetObjectArrayElement(env, batch, i);
+        (*env)->SetObjectArrayElement(env, result, i, name);
+        (*env)->DeleteLocalRef(env, name);
+    }
+    (*env)->DeleteLocalRef(env, batch);
+    return result;
+}
+
+JNIEXPORT void JNICALL nativeInventoryKick(JNIEnv *env, jclass clazz, jlong jwatch) {
+    inventory_watch_kick((struct inventory_watch *)(intptr_t)jwatch);
+}
+
+// Field indexes of status board values, must match the constants in StatusBoard.java
+enum status_board_field {
+    BOARD_STATE = 0,
+    BOARD_NAME_HASH,
+    BOARD_INIT_PID,
+    BOARD_FLAGS,
+    BOARD_GENERATION,
+    BOARD_CPU_USAGE_USEC,
+    BOARD_MEMORY_CURRENT,
+    BOARD_PIDS_CURRENT,
+    BOARD_UPDATED_MILLIS,
+    BOARD_FIELD_COUNT,
+};
+
+// Header values: capacity, count, generation, updated millis
+#define BOARD_HEADER_COUNT 4
+
+JNIEXPORT jobject JNICALL nativeStatusBoardCreate(JNIEnv *env, jclass clazz, jint jcapacity, jintArray jfd) {
+    if (jcapacity <= 0 || jfd == NULL || (*env)->GetArrayLength(env, jfd) < 1) {
+        return NULL;
+    }
+    void *map;
+    int fd = status_board_create((uint32_t)jcapacity, &map);
+    if (fd < 0) {
+        return NULL;
+    }
+    jint out = fd;
+    (*env)->SetIntArrayRegion(env, jfd, 0, 1, &out);
+    return (*env)->NewDirectByteBuffer(env, map, (jlong)status_board_size((uint32_t)jcapacity));
+}
+
+JNIEXPORT void JNICALL nativeStatusBoardUnmap(JNIEnv *env, jclass clazz, jobject jboard) {
+    void *map = (*env)->GetDirectBufferAddress(env, jboard);
+    if (map) {
+        munmap(map, (size_t)(*env)->GetDirectBufferCapacity(env, jboard));
+    }
+}
+
+JNIEXPORT jint JNICALL nativeStatusBoardOpenReadOnly(JNIEnv *env, jclass clazz, jint jfd) {
+    return status_board_open_readonly(jfd);
+}
+
+JNIEXPORT void JNICALL nativeStatusBoardWriteHeader(JNIEnv *env, jclass clazz, jobject jboard, jint jcount,
+                                                    jlong jgeneration, jlong jmillis) {
+    void *map = (*env)->GetDirectBufferAddress(env, jboard);
+    if (map) {
+        status_board_write_header(map, (uint32_t)jcount, (uint64_t)jgeneration, jmillis);
+    }
+}
+
+JNIEXPORT void JNICALL nativeStatusBoardWriteSlot(JNIEnv *env, jclass clazz, jobject jboard, jint jindex, jlongArray jvalues) {
+    void *map = (*env)->GetDirectBufferAddress(env, jboard);
+    size_t size = (size_t)(*env)->GetDirectBufferCapacity(env, jboard);
+    if (map == NULL || jindex < 0 || status_board_size((uint32_t)jindex + 1) > size
+        || (*env)->GetArrayLength(env, jvalues) < BOARD_FIELD_COUNT) {
+        return;
+    }
+
+    jlong values[BOARD_FIELD_COUNT];
+    (*env)->GetLongArrayRegion(env, jvalues, 0, BOARD_FIELD_COUNT, values);
+    struct status_board_slot slot = {
+        .state = (uint32_t)values[BOARD_STATE],
+        .name_hash = (uint64_t)values[BOARD_NAME_HASH],
+        .init_pid = (int32_t)values[BOARD_INIT_PID],
+        .flags = (uint32_t)values[BOARD_FLAGS],
+        .generation = (uint64_t)values[BOARD_GENERATION],
+        .cpu_usage_usec = values[BOARD_CPU_USAGE_USEC],
+        .memory_current = values[BOARD_MEMORY_CURRENT],
+        .pids_current = values[BOARD_PIDS_CURRENT],
+        .updated_millis = values[BOARD_UPDATED_MILLIS],
+    };
+    status_board_write_slot(map, (uint32_t)jindex, &slot);
+}
+
+JNIEXPORT jboolean JNICALL nativeStatusBoardReadHeader(JNIEnv *env, jclass clazz, jobject jboard, jlongArray jout) {
+    const void *map = (*env)->GetDirectBufferAddress(env, jboard);
+    struct status_board_header header;
+    if (map == NULL || (*env)->GetArrayLength(env, jout) < BOARD_HEADER_COUNT
+        || !status_board_read_header(map, (size_t)(*env)->GetDirectBufferCapacity(env, jboard), &header)) {
+        return JNI_FALSE;
+    }
+
+    jlong values[BOARD_HEADER_COUNT] = {
+        header.capacity, header.count, (jlong)header.generation, header.updated_millis,
+    };
+    (*env)->SetLongArrayRegion(env, jout, 0, BOARD_HEADER_COUNT, values);
+    return JNI_TRUE;
+}
+
+JNIEXPORT jboolean JNICALL nativeStatusBoardReadSlot(JNIEnv *env, jclass clazz, jobject jboard, jint jindex, jlongArray jout) {
+    const void *map = (*env)->GetDirectBufferAddress(env, jboard);
+    struct status_board_slot slot;
+    if (map == NULL || jindex < 0 || (*env)->GetArrayLength(env, jout) < BOARD_FIELD_COUNT
+        || !status_board_read_slot(map, (size_t)(*env)->GetDirectBufferCapacity(env, jboard), (uint32_t)jindex, &slot)) {
+        return JNI_FALSE;
+    }
+
+    jlong values[BOARD_FIELD_COUNT] = {
+        [BOARD_STATE] = slot.state,
+        [BOARD_NAME_HASH] = (jlong)slot.name_hash,
+        [BOARD_INIT_PID] = slot.init_pid,
+        [BOARD_FLAGS] = slot.flags,
+        [BOARD_GENERATION] = (jlong)slot.generation,
+        [BOARD_CPU_USAGE_USEC] = slot.cpu_usage_usec,
+        [BOARD_MEMORY_CURRENT] = slot.memory_current,
+        [BOARD_PIDS_CURRENT] = slot.pids_current,
+        [BOARD_UPDATED_MILLIS] = slot.updated_millis,
+    };
+    (*env)->SetLongArrayRegion(env, jout, 0, BOARD_FIELD_COUNT, values);
+    return JNI_TRUE;
+}
+
+// Read up to read_max bytes of the console ring buffer, the bytes read are consumed
+// With clear set the ring buffer is emptied after reading. Returns NULL on failure
+JNIEXPORT jbyteArray JNICALL nativeReadConsoleLog(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jlong jreadMax, jboolean jclear) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    jbyteArray result = NULL;
+
+    if (c) {
+        uint64_t read_max = (uint64_t)jreadMax;
+        struct lxc_console_log log = {
+            .clear = jclear == JNI_TRUE,
+            .read = true,
+            .read_max = &read_max,
+            .data = NULL,
+        };
+
+        if (jni_lxc_console_log(c, &log) == 0) {
+            result = (*env)->NewByteArray(env, (jsize)read_max);
+            if (result && read_max > 0 && log.data) {
+                (*env)->SetByteArrayRegion(env, result, 0, (jsize)read_max, (const jbyte *)log.data);
+            }
+        }
+        free(log.data);
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return result;
+}
+
+// Exec sessions
+JNIEXPORT jlong JNICALL nativeExecSessionOpen(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath) {
+    struct jstr name_str;
+    const char *name = jstr_get(env, jname, &name_str);
+    struct jstr lxcpath_str;
+    const char *lxcpath = jstr_get(env, jlxcpath, &lxcpath_str);
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    struct exec_session *session = NULL;
+
+    if (c) {
+        session = exec_session_open(c);
+        lxc_container_put(c);
+    }
+
+    jstr_release(&name_str);
+    jstr_release(&lxcpath_str);
+
+    return (jlong)(intptr_t)session;
+}
+
+JNIEXPORT void JNICALL nativeExecSessionClose(JNIEnv *env, jclass clazz, jlong jsession) {
+    exec_session_close((struct exec_session *)(intptr_t)jsession);
+}
+
+JNIEXPORT jboolean JNICALL nativeExecSessionAlive(JNIEnv *env, jclass clazz, jlong jsession) {
+    return exec_session_alive((struct exec_session *)(intptr_t)jsession) ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT jint JNICALL nativeExecSessionRun(JNIEnv *env, jclass clazz, jlong jsession, jobjectArray jargv,
+                                          jint jstdinfd, jint jstdoutfd, jint jstderrfd) {
+    struct jargv argv_buf;
+    char **argv = jargv_get(env, jargv, &argv_buf);
+    if (argv == NULL) {
+        return EXEC_SESSION_REJECTED;
+    }
+
+    jint result = exec_session_run((struct exec_session *)(intptr_t)jsession, argv, jstdinfd, jstdoutfd, jstderrfd);
+    jargv_release(&argv_buf);
+    return result;
+}
+
 static JNINativeMethod method_table[] = {
     {"nativeGetVersion", "()Ljava/lang/String;", (void *)nativeGetVersion},
     {"nativeListContainers", "(Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeListContainers},
+    {"nativeGetContainerStatuses", "(Ljava/lang/String;)[Lio/github/coap/lxc/ContainerStatus;", (void *)nativeGetContainerStatuses},
+    {"nativeGetContainerStatusesOf", "(Ljava/lang/String;[Ljava/lang/String;)[Lio/github/coap/lxc/ContainerStatus;", (void *)nativeGetContainerStatusesOf},
     {"nativeIsDefined", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeIsDefined},
     {"nativeIsRunning", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeIsRunning},
     {"nativeGetState", "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", (void *)nativeGetState},
     {"nativeStartContainer", "(Ljava/lang/String;Ljava/lang/String;Z)Z", (void *)nativeStartContainer},
     {"nativeStopContainer", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeStopContainer},
+    {"nativeShutdownContainer", "(Ljava/lang/String;Ljava/lang/String;I)Z", (void *)nativeShutdownContainer},
     {"nativeFreezeContainer", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeFreezeContainer},
     {"nativeUnfreezeContainer", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeUnfreezeContainer},
     {"nativeDestroyContainer", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeDestroyContainer},
+    {"nativeRunLifecycle", "(Ljava/lang/String;Ljava/lang/String;IZ[J)Ljava/lang/String;", (void *)nativeRunLifecycle},
+    {"nativeCreateContainer", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;)Z", (void *)nativeCreateContainer},
+    {"nativeCloneContainer", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;)Z", (void *)nativeCloneContainer},
     {"nativeGetConfigItem", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", (void *)nativeGetConfigItem},
     {"nativeSetConfigItem", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeSetConfigItem},
+    {"nativeGetConfigItems", "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeGetConfigItems},
+    {"nativeSetConfigItems", "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;)Z", (void *)nativeSetConfigItems},
+    {"nativeGetConfigKeys", "(Ljava/lang/String;Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeGetConfigKeys},
+    {"nativeDumpConfig", "(Ljava/lang/String;Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeDumpConfig},
+    {"nativeGetCgroupItem", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;", (void *)nativeGetCgroupItem},
+    {"nativeSampleCgroup", "(Ljava/lang/String;Ljava/lang/String;[J)Z", (void *)nativeSampleCgroup},
+    {"nativeSamplePressure", "(Ljava/lang/String;Ljava/lang/String;[J)Z", (void *)nativeSamplePressure},
+    {"nativeSetCgroupItems", "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;)I", (void *)nativeSetCgroupItems},
     {"nativeCreateSnapshot", "(Ljava/lang/String;Ljava/lang/String;)I", (void *)nativeCreateSnapshot},
+    {"nativeListSnapshots", "(Ljava/lang/String;Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeListSnapshots},
+    {"nativeRestoreSnapshot", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeRestoreSnapshot},
+    {"nativeDestroySnapshots", "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;)I", (void *)nativeDestroySnapshots},
+    {"nativeDestroyAllSnapshots", "(Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeDestroyAllSnapshots},
+    {"nativeCheckpoint", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Z)Z", (void *)nativeCheckpoint},
+    {"nativeRestore", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Z", (void *)nativeRestore},
+    {"nativeMigrate", "(Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;Ljava/lang/String;ZZJ)I", (void *)nativeMigrate},
     {"nativeGetInterfaces", "(Ljava/lang/String;Ljava/lang/String;)[Ljava/lang/String;", (void *)nativeGetInterfaces},
     {"nativeGetConsoleFd", "(Ljava/lang/String;Ljava/lang/String;I)I", (void *)nativeGetConsoleFd},
+    {"nativeOpenConsole", "(Ljava/lang/String;Ljava/lang/String;I)[I", (void *)nativeOpenConsole},
     {"nativeConsole", "(Ljava/lang/String;Ljava/lang/String;IIIII)Z", (void *)nativeConsole},
     {"nativeAttachRunWait", "(Ljava/lang/String;Ljava/lang/String;ZIJII[Ljava/lang/String;I)I", (void *)nativeAttachRunWait},
     {"nativeAttachNoWait", "(Ljava/lang/String;Ljava/lang/String;ZIJII[Ljava/lang/String;I)I", (void *)nativeAttachNoWait},
+    {"nativeAttachRunWaitFds", "(Ljava/lang/String;Ljava/lang/String;ZIJII[Ljava/lang/String;IIII)I", (void *)nativeAttachRunWaitFds},
+    {"nativeAttachNoWaitFds", "(Ljava/lang/String;Ljava/lang/String;ZIJII[Ljava/lang/String;IIII)I", (void *)nativeAttachNoWaitFds},
     {"nativeGetErrorNum", "(Ljava/lang/String;Ljava/lang/String;)I", (void *)nativeGetErrorNum},
+    {"nativeTakeErrorNum", "()I", (void *)nativeTakeErrorNum},
+    {"nativeSetHandleCacheCapacity", "(I)V", (void *)nativeSetHandleCacheCapacity},
+    {"nativeGetHandleCacheStats", "()[J", (void *)nativeGetHandleCacheStats},
+    {"nativeMonitorCreate", "()J", (void *)nativeMonitorCreate},
+    {"nativeMonitorFree", "(J)V", (void *)nativeMonitorFree},
+    {"nativeMonitorWatch", "(JLjava/lang/String;Ljava/lang/String;)Z", (void *)nativeMonitorWatch},
+    {"nativeMonitorWait", "(JI)[Ljava/lang/String;", (void *)nativeMonitorWait},
+    {"nativeMonitorKick", "(J)V", (void *)nativeMonitorKick},
+    {"nativeReaperWait", "(I)[I", (void *)nativeReaperWait},
+    {"nativeReaperKick", "()V", (void *)nativeReaperKick},
+    {"nativeReaperStatus", "(I)I", (void *)nativeReaperStatus},
+    {"nativeInventoryCreate", "(Ljava/lang/String;)J", (void *)nativeInventoryCreate},
+    {"nativeInventoryFree", "(J)V", (void *)nativeInventoryFree},
+    {"nativeInventoryWatch", "(JLjava/lang/String;)Z", (void *)nativeInventoryWatch},
+    {"nativeInventoryWait", "(JI)Z", (void *)nativeInventoryWait},
+    {"nativeInventoryRead", "(J)[Ljava/lang/String;", (void *)nativeInventoryRead},
+    {"nativeInventoryKick", "(J)V", (void *)nativeInventoryKick},
+    {"nativeStatusBoardCreate", "(I[I)Ljava/nio/ByteBuffer;", (void *)nativeStatusBoardCreate},
+    {"nativeStatusBoardUnmap", "(Ljava/nio/ByteBuffer;)V", (void *)nativeStatusBoardUnmap},
+    {"nativeStatusBoardOpenReadOnly", "(I)I", (void *)nativeStatusBoardOpenReadOnly},
+    {"nativeStatusBoardWriteHeader", "(Ljava/nio/ByteBuffer;IJJ)V", (void *)nativeStatusBoardWriteHeader},
+    {"nativeStatusBoardWriteSlot", "(Ljava/nio/ByteBuffer;I[J)V", (void *)nativeStatusBoardWriteSlot},
+    {"nativeStatusBoardReadHeader", "(Ljava/nio/ByteBuffer;[J)Z", (void *)nativeStatusBoardReadHeader},
+    {"nativeStatusBoardReadSlot", "(Ljava/nio/ByteBuffer;I[J)Z", (void *)nativeStatusBoardReadSlot},
+    {"nativeReadConsoleLog", "(Ljava/lang/String;Ljava/lang/String;JZ)[B", (void *)nativeReadConsoleLog},
+    {"nativeExecSessionOpen", "(Ljava/lang/String;Ljava/lang/String;)J", (void *)nativeExecSessionOpen},
+    {"nativeExecSessionClose", "(J)V", (void *)nativeExecSessionClose},
+    {"nativeExecSessionAlive", "(J)Z", (void *)nativeExecSessionAlive},
+    {"nativeExecSessionRun", "(J[Ljava/lang/String;III)I", (void *)nativeExecSessionRun},
 };
 
 static int register_native_methods(JNIEnv *env, const char *class_name, 
@@ -496,6 +1842,10 @@ JNIEXPORT jint JNI_OnLoad(JavaVM *vm, void *reserved) {
         return result;
     }
     
+    if (!marshal_init(env)) {
+        return result;
+    }
+
     const char *class_name = "io/github/coap/lxc/LxcNative";
     int num_methods = sizeof(method_table) / sizeof(method_table[0]);
     
@@ -507,4 +1857,10 @@ JNIEXPORT jint JNI_OnLoad(JavaVM *vm, void *reserved) {
 }
 
 JNIEXPORT void JNI_OnUnload(JavaVM *vm, void *reserved) {
+    JNIEnv *env = NULL;
+
+    handle_cache_clear();
+    if ((*vm)->GetEnv(vm, (void **)&env, JNI_VERSION_1_6) == JNI_OK) {
+        marshal_deinit(env);
+    }
 }
\ No newline at end of file
@@ -15,19 +15,97 @@ JNIEXPORT jstring JNICALL nativeGetVersion(JNIEnv *env, jclass clazz);
 
 // Container management related
 JNIEXPORT jobjectArray JNICALL nativeListContainers(JNIEnv *env, jclass clazz, jstring jlxcpath);
+JNIEXPORT jobjectArray JNICALL nativeGetContainerStatuses(JNIEnv *env, jclass clazz, jstring jlxcpath);
+JNIEXPORT jobjectArray JNICALL nativeGetContainerStatusesOf(JNIEnv *env, jclass clazz, jstring jlxcpath, jobjectArray jnames);
 JNIEXPORT jboolean JNICALL nativeIsDefined(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 JNIEXPORT jboolean JNICALL nativeIsRunning(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 JNIEXPORT jstring JNICALL nativeGetState(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 JNIEXPORT jboolean JNICALL nativeStartContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jboolean juseInit);
 JNIEXPORT jboolean JNICALL nativeStopContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jboolean JNICALL nativeShutdownContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jtimeout);
 JNIEXPORT jboolean JNICALL nativeFreezeContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 JNIEXPORT jboolean JNICALL nativeUnfreezeContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 JNIEXPORT jboolean JNICALL nativeDestroyContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jstring JNICALL nativeRunLifecycle(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                             jint jop, jboolean juseInit, jlongArray jout);
+JNIEXPORT jboolean JNICALL nativeCreateContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jstring jtemplate, jstring jbdevtype, jobjectArray jargs);
+JNIEXPORT jboolean JNICALL nativeCloneContainer(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                jstring jnewname, jstring jnewlxcpath, jint flags, jstring jbdevtype);
 JNIEXPORT jstring JNICALL nativeGetConfigItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey);
 JNIEXPORT jboolean JNICALL nativeSetConfigItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey, jstring jvalue);
+JNIEXPORT jobjectArray JNICALL nativeGetConfigItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jobjectArray jkeys);
+JNIEXPORT jboolean JNICALL nativeSetConfigItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jobjectArray jkeys, jobjectArray jvalues);
+JNIEXPORT jobjectArray JNICALL nativeGetConfigKeys(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jobjectArray JNICALL nativeDumpConfig(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jstring JNICALL nativeGetCgroupItem(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jkey);
+JNIEXPORT jboolean JNICALL nativeSampleCgroup(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jlongArray jout);
+JNIEXPORT jboolean JNICALL nativeSamplePressure(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jlongArray jout);
+JNIEXPORT jint JNICALL nativeSetCgroupItems(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jobjectArray jkeys, jobjectArray jvalues);
 JNIEXPORT jint JNICALL nativeCreateSnapshot(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jobjectArray JNICALL nativeListSnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jboolean JNICALL nativeRestoreSnapshot(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jstring jsnapname, jstring jnewname);
+JNIEXPORT jint JNICALL nativeDestroySnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                              jobjectArray jsnapnames);
+JNIEXPORT jboolean JNICALL nativeDestroyAllSnapshots(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT jboolean JNICALL nativeCheckpoint(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jstring jdirectory, jboolean stop);
+JNIEXPORT jboolean JNICALL nativeRestore(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jstring jdirectory);
+JNIEXPORT jint JNICALL nativeMigrate(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint cmd,
+                                     jstring jdirectory, jstring jpredumpdir, jboolean stop,
+                                     jboolean preservesInodes, jlong featuresToCheck);
 JNIEXPORT jobjectArray JNICALL nativeGetInterfaces(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
 
+// Attach with caller supplied stdio fds
+JNIEXPORT jint JNICALL nativeAttachRunWaitFds(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                            jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                            jint juid, jint jgid, jobjectArray jargv, jint jattachFlags,
+                                            jint jstdinfd, jint jstdoutfd, jint jstderrfd);
+JNIEXPORT jint JNICALL nativeAttachNoWaitFds(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                           jboolean jclearEnv, jint jnamespaces, jlong jpersonality,
+                                           jint juid, jint jgid, jobjectArray jargv, jint jattachFlags,
+                                           jint jstdinfd, jint jstdoutfd, jint jstderrfd);
+
+// Native handle cache
+JNIEXPORT jlongArray JNICALL nativeGetHandleCacheStats(JNIEnv *env, jclass clazz);
+
+// Container state monitor
+JNIEXPORT jlong JNICALL nativeMonitorCreate(JNIEnv *env, jclass clazz);
+JNIEXPORT void JNICALL nativeMonitorFree(JNIEnv *env, jclass clazz, jlong jmonitor);
+JNIEXPORT jboolean JNICALL nativeMonitorWatch(JNIEnv *env, jclass clazz, jlong jmonitor, jstring jname, jstring jlxcpath);
+JNIEXPORT jobjectArray JNICALL nativeMonitorWait(JNIEnv *env, jclass clazz, jlong jmonitor, jint jtimeout);
+JNIEXPORT void JNICALL nativeMonitorKick(JNIEnv *env, jclass clazz, jlong jmonitor);
+JNIEXPORT jlong JNICALL nativeInventoryCreate(JNIEnv *env, jclass clazz, jstring jlxcpath);
+JNIEXPORT void JNICALL nativeInventoryFree(JNIEnv *env, jclass clazz, jlong jwatch);
+JNIEXPORT jboolean JNICALL nativeInventoryWatch(JNIEnv *env, jclass clazz, jlong jwatch, jstring jname);
+JNIEXPORT jboolean JNICALL nativeInventoryWait(JNIEnv *env, jclass clazz, jlong jwatch, jint jtimeout);
+JNIEXPORT jobjectArray JNICALL nativeInventoryRead(JNIEnv *env, jclass clazz, jlong jwatch);
+JNIEXPORT void JNICALL nativeInventoryKick(JNIEnv *env, jclass clazz, jlong jwatch);
+JNIEXPORT jobject JNICALL nativeStatusBoardCreate(JNIEnv *env, jclass clazz, jint jcapacity, jintArray jfd);
+JNIEXPORT void JNICALL nativeStatusBoardUnmap(JNIEnv *env, jclass clazz, jobject jboard);
+JNIEXPORT jint JNICALL nativeStatusBoardOpenReadOnly(JNIEnv *env, jclass clazz, jint jfd);
+JNIEXPORT void JNICALL nativeStatusBoardWriteHeader(JNIEnv *env, jclass clazz, jobject jboard, jint jcount,
+                                                    jlong jgeneration, jlong jmillis);
+JNIEXPORT void JNICALL nativeStatusBoardWriteSlot(JNIEnv *env, jclass clazz, jobject jboard, jint jindex, jlongArray jvalues);
+JNIEXPORT jboolean JNICALL nativeStatusBoardReadHeader(JNIEnv *env, jclass clazz, jobject jboard, jlongArray jout);
+JNIEXPORT jboolean JNICALL nativeStatusBoardReadSlot(JNIEnv *env, jclass clazz, jobject jboard, jint jindex, jlongArray jout);
+
+// Console
+JNIEXPORT jintArray JNICALL nativeOpenConsole(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath, jint jttynum);
+
+// Console log
+JNIEXPORT jbyteArray JNICALL nativeReadConsoleLog(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath,
+                                                 jlong jreadMax, jboolean jclear);
+
+// Exec sessions
+JNIEXPORT jlong JNICALL nativeExecSessionOpen(JNIEnv *env, jclass clazz, jstring jname, jstring jlxcpath);
+JNIEXPORT void JNICALL nativeExecSessionClose(JNIEnv *env, jclass clazz, jlong jsession);
+JNIEXPORT jboolean JNICALL nativeExecSessionAlive(JNIEnv *env, jclass clazz, jlong jsession);
+JNIEXPORT jint JNICALL nativeExecSessionRun(JNIEnv *env, jclass clazz, jlong jsession, jobjectArray jargv,
+                                          jint jstdinfd, jint jstdoutfd, jint jstderrfd);
+
 #ifdef __cplusplus
 }
 #endif
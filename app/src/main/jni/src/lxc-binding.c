@@ -264,6 +264,12 @@ int jni_lxc_console_getfd(struct lxc_container *c, int ttynum) {
 	return mainfd;
 }
 
+/* Returns the fd that keeps the tty allocated and stores the pty master in
+ * ptxfd, closing the returned fd releases the tty. */
+int jni_lxc_console_open(struct lxc_container *c, int *ttynum, int *ptxfd) {
+	return c->console_getfd(c, ttynum, ptxfd);
+}
+
 bool jni_lxc_console(struct lxc_container *c, int ttynum, int stdinfd, int stdoutfd, int stderrfd, int escape) {
 
 	if (c->console(c, ttynum, stdinfd, stdoutfd, stderrfd, escape) == 0) {
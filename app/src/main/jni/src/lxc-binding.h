@@ -90,6 +90,7 @@ extern int jni_lxc_attach_no_wait(struct lxc_container *c,
 		pid_t *attached_pid,
 		int attach_flags);
 extern int jni_lxc_console_getfd(struct lxc_container *c, int ttynum);
+extern int jni_lxc_console_open(struct lxc_container *c, int *ttynum, int *ptxfd);
 extern int jni_lxc_snapshot_list(struct lxc_container *c, struct lxc_snapshot **ret);
 extern int jni_lxc_snapshot(struct lxc_container *c);
 extern pid_t jni_lxc_init_pid(struct lxc_container *c);
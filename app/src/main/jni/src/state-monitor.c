@@ -0,0 +1,182 @@
+#include <errno.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/epoll.h>
+#include <sys/eventfd.h>
+#include <sys/syscall.h>
+#include <unistd.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/attach_options.h>
+#include <lxc/version.h>
+
+#include "lxc-binding.h"
+#include "handle-cache.h"
+#include "state-monitor.h"
+
+#ifndef __NR_pidfd_open
+#define __NR_pidfd_open 434
+#endif
+
+/*
+ * Blocks on the pidfds of running containers' init processes, so a stopped
+ * container is noticed as soon as its init exits instead of on the next poll.
+ * Watches are only added and consumed by the thread calling
+ * state_monitor_wait(), kicks may come from any thread.
+ */
+
+struct watch {
+    char *name;
+    int pidfd;
+    struct watch *next;
+};
+
+struct state_monitor {
+    int epfd;
+    int kickfd;
+    struct watch *watches;
+};
+
+static void free_watch(struct watch *w) {
+    close(w->pidfd);
+    free(w->name);
+    free(w);
+}
+
+static int open_init_pidfd(struct lxc_container *c) {
+    int pidfd = jni_lxc_init_pidfd(c);
+    if (pidfd >= 0) {
+        return pidfd;
+    }
+
+    // Older liblxc or kernels: fall back to pidfd_open on the init pid
+    pid_t pid = jni_lxc_init_pid(c);
+    if (pid <= 0) {
+        return -1;
+    }
+    return (int)syscall(__NR_pidfd_open, pid, 0);
+}
+
+struct state_monitor *state_monitor_new(void) {
+    struct state_monitor *monitor = calloc(1, sizeof(*monitor));
+    if (monitor == NULL) {
+        return NULL;
+    }
+
+    monitor->epfd = epoll_create1(EPOLL_CLOEXEC);
+    monitor->kickfd = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+    if (monitor->epfd < 0 || monitor->kickfd < 0) {
+        goto err;
+    }
+
+    struct epoll_event ev = { .events = EPOLLIN, .data.ptr = NULL };
+    if (epoll_ctl(monitor->epfd, EPOLL_CTL_ADD, monitor->kickfd, &ev) < 0) {
+        goto err;
+    }
+    return monitor;
+
+err:
+    if (monitor->epfd >= 0) {
+        close(monitor->epfd);
+    }
+    if (monitor->kickfd >= 0) {
+        close(monitor->kickfd);
+    }
+    free(monitor);
+    return NULL;
+}
+
+void state_monitor_free(struct state_monitor *monitor) {
+    if (monitor == NULL) {
+        return;
+    }
+
+    struct watch *w = monitor->watches;
+    while (w) {
+        struct watch *next = w->next;
+        free_watch(w);
+        w = next;
+    }
+    close(monitor->kickfd);
+    close(monitor->epfd);
+    free(monitor);
+}
+
+bool state_monitor_watch(struct state_monitor *monitor, const char *name, const char *lxcpath) {
+    for (struct watch *w = monitor->watches; w != NULL; w = w->next) {
+        if (strcmp(w->name, name) == 0) {
+            return true;
+        }
+    }
+
+    struct lxc_container *c = handle_cache_acquire(name, lxcpath);
+    if (c == NULL) {
+        return false;
+    }
+    int pidfd = jni_lxc_running(c) ? open_init_pidfd(c) : -1;
+    lxc_container_put(c);
+    if (pidfd < 0) {
+        return false;
+    }
+
+    struct watch *w = calloc(1, sizeof(*w));
+    if (w == NULL || (w->name = strdup(name)) == NULL) {
+        free(w);
+        close(pidfd);
+        return false;
+    }
+    w->pidfd = pidfd;
+
+    struct epoll_event ev = { .events = EPOLLIN, .data.ptr = w };
+    if (epoll_ctl(monitor->epfd, EPOLL_CTL_ADD, pidfd, &ev) < 0) {
+        free_watch(w);
+        return false;
+    }
+
+    w->next = monitor->watches;
+    monitor->watches = w;
+    return true;
+}
+
+static void remove_watch(struct state_monitor *monitor, struct watch *target) {
+    struct watch **pp = &monitor->watches;
+    while (*pp) {
+        if (*pp == target) {
+            *pp = target->next;
+            epoll_ctl(monitor->epfd, EPOLL_CTL_DEL, target->pidfd, NULL);
+            free_watch(target);
+            return;
+        }
+        pp = &(*pp)->next;
+    }
+}
+
+int state_monitor_wait(struct state_monitor *monitor, int timeout_ms, state_monitor_exit_cb cb, void *data) {
+    struct epoll_event events[STATE_MONITOR_MAX_EVENTS];
+
+    int n = epoll_wait(monitor->epfd, events, STATE_MONITOR_MAX_EVENTS, timeout_ms);
+    if (n < 0) {
+        return errno == EINTR ? 0 : -1;
+    }
+
+    int exited = 0;
+    for (int i = 0; i < n; i++) {
+        struct watch *w = events[i].data.ptr;
+        if (w == NULL) {
+            uint64_t value;
+            while (read(monitor->kickfd, &value, sizeof(value)) > 0) {
+            }
+            continue;
+        }
+        cb(w->name, data);
+        remove_watch(monitor, w);
+        exited++;
+    }
+    return exited;
+}
+
+void state_monitor_kick(struct state_monitor *monitor) {
+    uint64_t value = 1;
+    write(monitor->kickfd, &value, sizeof(value));
+}
@@ -0,0 +1,41 @@
+#ifndef LXC_STATE_MONITOR_H
+#define LXC_STATE_MONITOR_H
+
+#include <stdbool.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Maximum number of exits reported by a single state_monitor_wait() call
+#define STATE_MONITOR_MAX_EVENTS 16
+
+struct state_monitor;
+
+// Callback receiving the name of a watched container whose init process exited
+typedef void (*state_monitor_exit_cb)(const char *name, void *data);
+
+struct state_monitor *state_monitor_new(void);
+void state_monitor_free(struct state_monitor *monitor);
+
+/*
+ * Watch the init process of a running container through its pidfd.
+ * Returns true if the container is watched (or already was).
+ */
+bool state_monitor_watch(struct state_monitor *monitor, const char *name, const char *lxcpath);
+
+/*
+ * Block until a watched init process exits, the monitor is kicked or the
+ * timeout expires. Exited containers are reported through cb and unwatched.
+ * Returns the number of exited containers, or -1 on error.
+ */
+int state_monitor_wait(struct state_monitor *monitor, int timeout_ms, state_monitor_exit_cb cb, void *data);
+
+// Wake up a thread blocked in state_monitor_wait, safe to call from any thread
+void state_monitor_kick(struct state_monitor *monitor);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_STATE_MONITOR_H
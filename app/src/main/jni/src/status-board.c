@@ -0,0 +1,160 @@
+#include <fcntl.h>
+#include <stdio.h>
+#include <sys/mman.h>
+#include <unistd.h>
+
+#include "status-board.h"
+
+/*
+ * Container status table in shared memory, published by the root service and
+ * read by clients without binder calls. A single writer updates each record
+ * under a seqlock; readers retry while a write is in progress or when the
+ * sequence changed during their copy. All fields are accessed atomically, so
+ * a reader racing the writer never tears a field, only retries.
+ */
+
+// Reads give up after this many attempts instead of spinning on a stalled writer
+#define READ_ATTEMPTS 64
+
+_Static_assert(sizeof(struct status_board_header) == 64, "header must fill a cache line");
+_Static_assert(sizeof(struct status_board_slot) == 64, "slot must fill a cache line");
+
+size_t status_board_size(uint32_t capacity) {
+    return sizeof(struct status_board_header) + (size_t)capacity * sizeof(struct status_board_slot);
+}
+
+int status_board_create(uint32_t capacity, void **map) {
+    size_t size = status_board_size(capacity);
+    int fd = memfd_create("lxc-status-board", MFD_CLOEXEC | MFD_ALLOW_SEALING);
+    if (fd < 0) {
+        return -1;
+    }
+    if (ftruncate(fd, (off_t)size) < 0
+        || fcntl(fd, F_ADD_SEALS, F_SEAL_SHRINK | F_SEAL_GROW | F_SEAL_SEAL) < 0) {
+        close(fd);
+        return -1;
+    }
+
+    void *addr = mmap(NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    if (addr == MAP_FAILED) {
+        close(fd);
+        return -1;
+    }
+
+    struct status_board_header *header = addr;
+    header->magic = STATUS_BOARD_MAGIC;
+    header->version = STATUS_BOARD_VERSION;
+    header->capacity = capacity;
+    header->slot_size = sizeof(struct status_board_slot);
+    *map = addr;
+    return fd;
+}
+
+int status_board_open_readonly(int fd) {
+    // Reopening through procfs gives a new read-only open file, unlike dup
+    char path[64];
+    snprintf(path, sizeof(path), "/proc/self/fd/%d", fd);
+    return open(path, O_RDONLY | O_CLOEXEC);
+}
+
+static uint32_t write_begin(uint32_t *seq) {
+    uint32_t value = __atomic_load_n(seq, __ATOMIC_RELAXED) + 1;
+    __atomic_store_n(seq, value, __ATOMIC_RELAXED);
+    __atomic_thread_fence(__ATOMIC_RELEASE);
+    return value;
+}
+
+static void write_end(uint32_t *seq, uint32_t value) {
+    __atomic_store_n(seq, value + 1, __ATOMIC_RELEASE);
+}
+
+#define STORE(field, value) __atomic_store_n(&(field), (value), __ATOMIC_RELAXED)
+#define LOAD(field) __atomic_load_n(&(field), __ATOMIC_RELAXED)
+
+void status_board_write_header(void *map, uint32_t count, uint64_t generation, int64_t updated_millis) {
+    struct status_board_header *header = map;
+    uint32_t seq = write_begin(&header->seq);
+    STORE(header->count, count);
+    STORE(header->generation, generation);
+    STORE(header->updated_millis, updated_millis);
+    write_end(&header->seq, seq);
+}
+
+static struct status_board_slot *slot_at(const void *map, uint32_t index) {
+    return (struct status_board_slot *)((char *)map + sizeof(struct status_board_header)) + index;
+}
+
+void status_board_write_slot(void *map, uint32_t index, const struct status_board_slot *slot) {
+    struct status_board_slot *target = slot_at(map, index);
+    uint32_t seq = write_begin(&target->seq);
+    STORE(target->state, slot->state);
+    STORE(target->name_hash, slot->name_hash);
+    STORE(target->init_pid, slot->init_pid);
+    STORE(target->flags, slot->flags);
+    STORE(target->generation, slot->generation);
+    STORE(target->cpu_usage_usec, slot->cpu_usage_usec);
+    STORE(target->memory_current, slot->memory_current);
+    STORE(target->pids_current, slot->pids_current);
+    STORE(target->updated_millis, slot->updated_millis);
+    write_end(&target->seq, seq);
+}
+
+static bool read_begin(const uint32_t *seq, uint32_t *value) {
+    *value = __atomic_load_n(seq, __ATOMIC_ACQUIRE);
+    return (*value & 1) == 0;
+}
+
+static bool read_retry(const uint32_t *seq, uint32_t value) {
+    __atomic_thread_fence(__ATOMIC_ACQUIRE);
+    return __atomic_load_n(seq, __ATOMIC_RELAXED) != value;
+}
+
+bool status_board_read_header(const void *map, size_t size, struct status_board_header *out) {
+    if (size < sizeof(*out)) {
+        return false;
+    }
+    struct status_board_header *header = (struct status_board_header *)map;
+    for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+        uint32_t seq;
+        if (!read_begin(&header->seq, &seq)) {
+            continue;
+        }
+        out->magic = LOAD(header->magic);
+        out->version = LOAD(header->version);
+        out->capacity = LOAD(header->capacity);
+        out->slot_size = LOAD(header->slot_size);
+        out->count = LOAD(header->count);
+        out->generation = LOAD(header->generation);
+        out->updated_millis = LOAD(header->updated_millis);
+        if (!read_retry(&header->seq, seq)) {
+            return out->magic == STATUS_BOARD_MAGIC && out->slot_size == sizeof(struct status_board_slot);
+        }
+    }
+    return false;
+}
+
+bool status_board_read_slot(const void *map, size_t size, uint32_t index, struct status_board_slot *out) {
+    if (size < status_board_size(index + 1)) {
+        return false;
+    }
+    struct status_board_slot *slot = slot_at(map, index);
+    for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+        uint32_t seq;
+        if (!read_begin(&slot->seq, &seq)) {
+            continue;
+        }
+        out->state = LOAD(slot->state);
+        out->name_hash = LOAD(slot->name_hash);
+        out->init_pid = LOAD(slot->init_pid);
+        out->flags = LOAD(slot->flags);
+        out->generation = LOAD(slot->generation);
+        out->cpu_usage_usec = LOAD(slot->cpu_usage_usec);
+        out->memory_current = LOAD(slot->memory_current);
+        out->pids_current = LOAD(slot->pids_current);
+        out->updated_millis = LOAD(slot->updated_millis);
+        if (!read_retry(&slot->seq, seq)) {
+            return true;
+        }
+    }
+    return false;
+}
@@ -0,0 +1,80 @@
+#ifndef LXC_STATUS_BOARD_H
+#define LXC_STATUS_BOARD_H
+
+#include <stdbool.h>
+#include <stddef.h>
+#include <stdint.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+#define STATUS_BOARD_MAGIC 0x4253584cu  // "LXSB"
+#define STATUS_BOARD_VERSION 1
+
+// Slot flags
+#define STATUS_BOARD_RUNNING (1u << 0)
+#define STATUS_BOARD_FROZEN (1u << 1)
+
+/*
+ * Layout of the board, one header followed by capacity slots, all 64 bytes so
+ * each sits in its own cache line. Every header and slot is written under its
+ * own seqlock: seq is odd while a write is in progress. Must match
+ * StatusBoard.java.
+ */
+struct status_board_header {
+    uint32_t seq;
+    uint32_t magic;
+    uint32_t version;
+    uint32_t capacity;
+    uint32_t slot_size;
+    // Slots in use are below count, free slots have name_hash 0
+    uint32_t count;
+    // Bumped by every publish that changed any slot
+    uint64_t generation;
+    int64_t updated_millis;
+    uint8_t reserved[24];
+};
+
+struct status_board_slot {
+    uint32_t seq;
+    // Index in the LXC state list: STOPPED, STARTING, RUNNING, STOPPING, ABORTING, FREEZING, FROZEN, THAWED
+    uint32_t state;
+    uint64_t name_hash;
+    int32_t init_pid;
+    uint32_t flags;
+    // Bumped whenever the slot's content changes
+    uint64_t generation;
+    int64_t cpu_usage_usec;
+    int64_t memory_current;
+    int64_t pids_current;
+    int64_t updated_millis;
+};
+
+// Size of a board with capacity slots
+size_t status_board_size(uint32_t capacity);
+
+/*
+ * Create a sealed memfd holding an empty board, so readers can never see it
+ * shrink under their mapping. Returns the fd and the writable mapping, or -1.
+ */
+int status_board_create(uint32_t capacity, void **map);
+
+// Open a read-only descriptor of a board for a reader, or -1
+int status_board_open_readonly(int fd);
+
+void status_board_write_header(void *map, uint32_t count, uint64_t generation, int64_t updated_millis);
+void status_board_write_slot(void *map, uint32_t index, const struct status_board_slot *slot);
+
+/*
+ * Seqlock reads of a consistent copy. Return false if the mapping is too
+ * small or not a board, or if the writer kept it busy for too long.
+ */
+bool status_board_read_header(const void *map, size_t size, struct status_board_header *out);
+bool status_board_read_slot(const void *map, size_t size, uint32_t index, struct status_board_slot *out);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // LXC_STATUS_BOARD_H
@@ -0,0 +1,596 @@
+#include <ctype.h>
+#include <errno.h>
+#include <pthread.h>
+#include <stdbool.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/wait.h>
+#include <time.h>
+#include <unistd.h>
+
+#include <lxc/lxccontainer.h>
+#include <lxc/attach_options.h>
+#include <lxc/version.h>
+
+/*
+ * Deterministic stand-in for liblxc, used by the host build of lxc-binding
+ * to benchmark the JNI and Java layers without containers.
+ *
+ * An lxcpath whose last component is a number N holds N containers named
+ * ct-0000 .. ct-(N-1), any other lxcpath holds LXC_STUB_DEFAULT_COUNT.
+ * Even-numbered containers are RUNNING, odd ones STOPPED. Attach really
+ * forks and execs on the host, without entering any namespace, so attach
+ * and exec session benchmarks measure real process costs.
+ *
+ * Only the container operations used by the bindings' hot paths are
+ * implemented, the others are left NULL.
+ */
+
+#define LXC_STUB_DEFAULT_COUNT 10
+#define LXC_STUB_MAX_OVERRIDES 32
+
+struct stub_state {
+    int index;
+    int count;
+    bool running;
+    bool frozen;
+    int noverrides;
+    char *keys[LXC_STUB_MAX_OVERRIDES];
+    char *values[LXC_STUB_MAX_OVERRIDES];
+};
+
+static const char *stub_keys[] = {
+    "lxc.uts.name",
+    "lxc.rootfs.path",
+    "lxc.start.auto",
+    "lxc.start.order",
+    "lxc.start.delay",
+    "lxc.net.0.type",
+    "lxc.net.0.link",
+};
+#define STUB_KEY_COUNT (int)(sizeof(stub_keys) / sizeof(stub_keys[0]))
+
+static int path_count(const char *lxcpath) {
+    const char *last = strrchr(lxcpath, '/');
+    last = last ? last + 1 : lxcpath;
+    if (*last == '\0') {
+        return LXC_STUB_DEFAULT_COUNT;
+    }
+    for (const char *p = last; *p; p++) {
+        if (!isdigit((unsigned char)*p)) {
+            return LXC_STUB_DEFAULT_COUNT;
+        }
+    }
+    return atoi(last);
+}
+
+static int name_index(const char *name) {
+    if (strncmp(name, "ct-", 3) != 0 || !isdigit((unsigned char)name[3])) {
+        return -1;
+    }
+    return atoi(name + 3);
+}
+
+static struct stub_state *state_of(struct lxc_container *c) {
+    return (struct stub_state *)c->lxc_conf;
+}
+
+// Same contract as liblxc: return the full length, copy up to inlen - 1 bytes
+static int copy_out(const char *value, char *retv, int inlen) {
+    int len = (int)strlen(value);
+    if (retv && inlen > 0) {
+        snprintf(retv, inlen, "%s", value);
+    }
+    return len;
+}
+
+static bool stub_is_defined(struct lxc_container *c) {
+    struct stub_state *s = state_of(c);
+    return s->index >= 0 && s->index < s->count;
+}
+
+static bool stub_is_running(struct lxc_container *c) {
+    return stub_is_defined(c) && state_of(c)->running;
+}
+
+static const char *stub_state(struct lxc_container *c) {
+    if (!stub_is_defined(c)) {
+        return "STOPPED";
+    }
+    if (state_of(c)->frozen) {
+        return "FROZEN";
+    }
+    return state_of(c)->running ? "RUNNING" : "STOPPED";
+}
+
+static pid_t stub_init_pid(struct lxc_container *c) {
+    return stub_is_running(c) ? 1000 + state_of(c)->index : -1;
+}
+
+static int stub_init_pidfd(struct lxc_container *c) {
+    return -1;
+}
+
+static bool stub_freeze(struct lxc_container *c) {
+    if (!stub_is_running(c)) {
+        return false;
+    }
+    state_of(c)->frozen = true;
+    return true;
+}
+
+static bool stub_unfreeze(struct lxc_container *c) {
+    if (!stub_is_running(c)) {
+        return false;
+    }
+    state_of(c)->frozen = false;
+    return true;
+}
+
+static bool stub_start(struct lxc_container *c, int useinit, char *const argv[]) {
+    if (!stub_is_defined(c) || state_of(c)->running) {
+        return false;
+    }
+    state_of(c)->running = true;
+    return true;
+}
+
+static bool stub_stop(struct lxc_container *c) {
+    if (!stub_is_running(c)) {
+        return false;
+    }
+    state_of(c)->running = false;
+    state_of(c)->frozen = false;
+    return true;
+}
+
+static bool stub_shutdown(struct lxc_container *c, int timeout) {
+    return stub_stop(c);
+}
+
+static bool stub_want_flag(struct lxc_container *c, bool state) {
+    return true;
+}
+
+static bool stub_wait(struct lxc_container *c, const char *state, int timeout) {
+    return strcmp(stub_state(c), state) == 0;
+}
+
+static char *stub_config_file_name(struct lxc_container *c) {
+    char *path = NULL;
+    if (asprintf(&path, "%s/%s/config", c->config_path, c->name) < 0) {
+        return NULL;
+    }
+    return path;
+}
+
+static const char *default_value(struct lxc_container *c, const char *key, char *buf, size_t size) {
+    struct stub_state *s = state_of(c);
+
+    if (strcmp(key, "lxc.uts.name") == 0) {
+        return c->name;
+    } else if (strcmp(key, "lxc.rootfs.path") == 0) {
+        snprintf(buf, size, "dir:%s/%s/rootfs", c->config_path, c->name);
+        return buf;
+    } else if (strcmp(key, "lxc.start.auto") == 0) {
+        return "1";
+    } else if (strcmp(key, "lxc.start.order") == 0) {
+        snprintf(buf, size, "%d", s->index % 4);
+        return buf;
+    } else if (strcmp(key, "lxc.start.delay") == 0) {
+        return "0";
+    } else if (strcmp(key, "lxc.net.0.type") == 0) {
+        return "veth";
+    } else if (strcmp(key, "lxc.net.0.link") == 0) {
+        return "lxcbr0";
+    }
+    return NULL;
+}
+
+static int stub_get_config_item(struct lxc_container *c, const char *key, char *retv, int inlen) {
+    struct stub_state *s = state_of(c);
+    char buf[256];
+
+    for (int i = 0; i < s->noverrides; i++) {
+        if (strcmp(s->keys[i], key) == 0) {
+            return s->values[i] ? copy_out(s->values[i], retv, inlen) : -1;
+        }
+    }
+    const char *value = default_value(c, key, buf, sizeof(buf));
+    return value ? copy_out(value, retv, inlen) : -1;
+}
+
+static bool set_override(struct lxc_container *c, const char *key, const char *value) {
+    struct stub_state *s = state_of(c);
+
+    for (int i = 0; i < s->noverrides; i++) {
+        if (strcmp(s->keys[i], key) == 0) {
+            free(s->values[i]);
+            s->values[i] = value ? strdup(value) : NULL;
+            return true;
+        }
+    }
+    if (s->noverrides == LXC_STUB_MAX_OVERRIDES) {
+        return false;
+    }
+    s->keys[s->noverrides] = strdup(key);
+    s->values[s->noverrides] = value ? strdup(value) : NULL;
+    s->noverrides++;
+    return true;
+}
+
+static bool stub_set_config_item(struct lxc_container *c, const char *key, const char *value) {
+    return set_override(c, key, value);
+}
+
+static bool stub_clear_config_item(struct lxc_container *c, const char *key) {
+    return set_override(c, key, NULL);
+}
+
+static int stub_get_keys(struct lxc_container *c, const char *key, char *retv, int inlen) {
+    char keys[1024] = "";
+    for (int i = 0; i < STUB_KEY_COUNT; i++) {
+        strcat(keys, stub_keys[i]);
+        strcat(keys, "\n");
+    }
+    return copy_out(keys, retv, inlen);
+}
+
+static bool stub_config_flag(struct lxc_container *c, const char *alt_file) {
+    return stub_is_defined(c);
+}
+
+static const char *stub_get_config_path(struct lxc_container *c) {
+    return c->config_path;
+}
+
+static bool stub_set_config_path(struct lxc_container *c, const char *path) {
+    char *copy = strdup(path);
+    if (copy == NULL) {
+        return false;
+    }
+    free(c->config_path);
+    c->config_path = copy;
+    return true;
+}
+
+static char **stub_get_interfaces(struct lxc_container *c) {
+    char **interfaces = calloc(3, sizeof(char *));
+    if (interfaces) {
+        interfaces[0] = strdup("lo");
+        interfaces[1] = strdup("eth0");
+    }
+    return interfaces;
+}
+
+static char **stub_get_ips(struct lxc_container *c, const char *interface, const char *family, int scope) {
+    char **ips = calloc(2, sizeof(char *));
+    if (ips) {
+        char ip[32];
+        snprintf(ip, sizeof(ip), "10.0.%d.%d", state_of(c)->index / 250, state_of(c)->index % 250 + 2);
+        ips[0] = strdup(ip);
+    }
+    return ips;
+}
+
+static int stub_get_cgroup_item(struct lxc_container *c, const char *subsys, char *retv, int inlen) {
+    char buf[256];
+    int index = state_of(c)->index;
+
+    if (!stub_is_running(c)) {
+        return -1;
+    }
+    if (strcmp(subsys, "cpu.stat") == 0) {
+        snprintf(buf, sizeof(buf), "usage_usec %d\nuser_usec %d\nsystem_usec %d\n",
+                 index * 3000, index * 2000, index * 1000);
+    } else if (strcmp(subsys, "memory.current") == 0) {
+        snprintf(buf, sizeof(buf), "%d\n", (index + 1) * 1048576);
+    } else if (strcmp(subsys, "pids.current") == 0) {
+        snprintf(buf, sizeof(buf), "%d\n", index % 16 + 1);
+    } else if (strcmp(subsys, "cpu.weight") == 0) {
+        snprintf(buf, sizeof(buf), "100\n");
+    } else if (strcmp(subsys, "memory.high") == 0) {
+        snprintf(buf, sizeof(buf), "max\n");
+    } else if (strcmp(subsys, "cpu.pressure") == 0 || strcmp(subsys, "memory.pressure") == 0) {
+        // Stalled for a fixed share of wall time: 0-30% by index for CPU, 0-20% for memory
+        struct timespec now;
+        clock_gettime(CLOCK_MONOTONIC, &now);
+        long long usec = (long long)now.tv_sec * 1000000 + now.tv_nsec / 1000;
+        long long some = subsys[0] == 'c' ? usec * (index % 4) / 10 : usec * (index % 3) / 10;
+        snprintf(buf, sizeof(buf), "some avg10=0.00 avg60=0.00 avg300=0.00 total=%lld\n"
+                 "full avg10=0.00 avg60=0.00 avg300=0.00 total=%lld\n", some, some / 2);
+    } else {
+        return -1;
+    }
+    return copy_out(buf, retv, inlen);
+}
+
+static bool stub_set_cgroup_item(struct lxc_container *c, const char *subsys, const char *value) {
+    return stub_is_running(c);
+}
+
+static void redirect_stdio(lxc_attach_options_t *options) {
+    if (options == NULL) {
+        return;
+    }
+    if (options->stdin_fd >= 0 && options->stdin_fd != 0) {
+        dup2(options->stdin_fd, 0);
+    }
+    if (options->stdout_fd >= 0 && options->stdout_fd != 1) {
+        dup2(options->stdout_fd, 1);
+    }
+    if (options->stderr_fd >= 0 && options->stderr_fd != 2) {
+        dup2(options->stderr_fd, 2);
+    }
+}
+
+static int stub_attach(struct lxc_container *c, lxc_attach_exec_t exec_function, void *exec_payload,
+                       lxc_attach_options_t *options, pid_t *attached_process) {
+    if (!stub_is_running(c)) {
+        return -1;
+    }
+
+    pid_t pid = fork();
+    if (pid < 0) {
+        return -1;
+    }
+    if (pid == 0) {
+        redirect_stdio(options);
+        _exit(exec_function(exec_payload));
+    }
+    *attached_process = pid;
+    return 0;
+}
+
+static int stub_attach_run_wait(struct lxc_container *c, lxc_attach_options_t *options,
+                                const char *program, const char *const argv[]) {
+    lxc_attach_command_t command = {.program = (char *)program, .argv = (char **)argv};
+    pid_t pid;
+    int status;
+
+    if (stub_attach(c, lxc_attach_run_command, &command, options, &pid) < 0) {
+        return -1;
+    }
+    while (waitpid(pid, &status, 0) < 0) {
+        if (errno != EINTR) {
+            return -1;
+        }
+    }
+    return status;
+}
+
+static bool stub_destroy(struct lxc_container *c) {
+    return stub_is_defined(c) && !stub_is_running(c);
+}
+
+static int stub_console_log(struct lxc_container *c, struct lxc_console_log *log) {
+    if (!stub_is_running(c)) {
+        return -1;
+    }
+    // The ring buffer is always empty
+    *log->read_max = 0;
+    log->data = NULL;
+    return 0;
+}
+
+static bool stub_may_control(struct lxc_container *c) {
+    return true;
+}
+
+static char *stub_get_running_config_item(struct lxc_container *c, const char *key) {
+    char buf[256];
+    const char *value = default_value(c, key, buf, sizeof(buf));
+    return value ? strdup(value) : NULL;
+}
+
+static int stub_snapshot(struct lxc_container *c, const char *commentfile) {
+    return -1;
+}
+
+static int stub_snapshot_list(struct lxc_container *c, struct lxc_snapshot **snapshots) {
+    *snapshots = NULL;
+    return 0;
+}
+
+static bool stub_snapshot_restore(struct lxc_container *c, const char *snapname, const char *newname) {
+    return false;
+}
+
+static bool stub_snapshot_destroy(struct lxc_container *c, const char *snapname) {
+    return false;
+}
+
+static bool stub_snapshot_destroy_all(struct lxc_container *c) {
+    return true;
+}
+
+// The stub's containers are fixed by the lxcpath, nothing can be added
+static bool stub_create(struct lxc_container *c, const char *t, const char *bdevtype,
+                        struct bdev_specs *specs, int flags, char *const argv[]) {
+    return false;
+}
+
+static struct lxc_container *stub_clone(struct lxc_container *c, const char *newname, const char *lxcpath,
+                                        int flags, const char *bdevtype, const char *bdevdata,
+                                        uint64_t newsize, char **hookargs) {
+    return NULL;
+}
+
+// No CRIU behind the stub
+static bool stub_checkpoint(struct lxc_container *c, char *directory, bool stop, bool verbose) {
+    return false;
+}
+
+static bool stub_restore(struct lxc_container *c, char *directory, bool verbose) {
+    return false;
+}
+
+static int stub_migrate(struct lxc_container *c, unsigned int cmd, struct migrate_opts *opts, unsigned int size) {
+    return -ENOSYS;
+}
+
+struct lxc_container *lxc_container_new(const char *name, const char *configpath) {
+    if (name == NULL || configpath == NULL) {
+        return NULL;
+    }
+
+    struct lxc_container *c = calloc(1, sizeof(*c));
+    struct stub_state *s = calloc(1, sizeof(*s));
+    if (c == NULL || s == NULL) {
+        free(c);
+        free(s);
+        return NULL;
+    }
+
+    c->name = strdup(name);
+    c->config_path = strdup(configpath);
+    c->numthreads = 1;
+    s->index = name_index(name);
+    s->count = path_count(configpath);
+    s->running = s->index >= 0 && s->index % 2 == 0;
+    c->lxc_conf = (struct lxc_conf *)s;
+
+    c->is_defined = stub_is_defined;
+    c->is_running = stub_is_running;
+    c->state = stub_state;
+    c->init_pid = stub_init_pid;
+    c->init_pidfd = stub_init_pidfd;
+    c->freeze = stub_freeze;
+    c->unfreeze = stub_unfreeze;
+    c->start = stub_start;
+    c->stop = stub_stop;
+    c->shutdown = stub_shutdown;
+    c->want_daemonize = stub_want_flag;
+    c->want_close_all_fds = stub_want_flag;
+    c->wait = stub_wait;
+    c->config_file_name = stub_config_file_name;
+    c->get_config_item = stub_get_config_item;
+    c->set_config_item = stub_set_config_item;
+    c->clear_config_item = stub_clear_config_item;
+    c->get_keys = stub_get_keys;
+    c->save_config = stub_config_flag;
+    c->load_config = stub_config_flag;
+    c->get_config_path = stub_get_config_path;
+    c->set_config_path = stub_set_config_path;
+    c->get_interfaces = stub_get_interfaces;
+    c->get_ips = stub_get_ips;
+    c->get_cgroup_item = stub_get_cgroup_item;
+    c->set_cgroup_item = stub_set_cgroup_item;
+    c->attach = stub_attach;
+    c->attach_run_wait = stub_attach_run_wait;
+    c->destroy = stub_destroy;
+    c->console_log = stub_console_log;
+    c->may_control = stub_may_control;
+    c->get_running_config_item = stub_get_running_config_item;
+    c->snapshot = stub_snapshot;
+    c->snapshot_list = stub_snapshot_list;
+    c->snapshot_restore = stub_snapshot_restore;
+    c->snapshot_destroy = stub_snapshot_destroy;
+    c->snapshot_destroy_all = stub_snapshot_destroy_all;
+    c->create = stub_create;
+    c->clone = stub_clone;
+    c->checkpoint = stub_checkpoint;
+    c->restore = stub_restore;
+    c->migrate = stub_migrate;
+    return c;
+}
+
+static pthread_mutex_t ref_lock = PTHREAD_MUTEX_INITIALIZER;
+
+int lxc_container_get(struct lxc_container *c) {
+    int ok = 0;
+
+    pthread_mutex_lock(&ref_lock);
+    if (c && c->numthreads > 0) {
+        c->numthreads++;
+        ok = 1;
+    }
+    pthread_mutex_unlock(&ref_lock);
+    return ok;
+}
+
+int lxc_container_put(struct lxc_container *c) {
+    if (c == NULL) {
+        return -1;
+    }
+
+    pthread_mutex_lock(&ref_lock);
+    int left = --c->numthreads;
+    pthread_mutex_unlock(&ref_lock);
+    if (left > 0) {
+        return 0;
+    }
+
+    struct stub_state *s = state_of(c);
+    for (int i = 0; i < s->noverrides; i++) {
+        free(s->keys[i]);
+        free(s->values[i]);
+    }
+    free(s);
+    free(c->name);
+    free(c->config_path);
+    free(c);
+    return 1;
+}
+
+int list_defined_containers(const char *lxcpath, char ***names, struct lxc_container ***cret) {
+    int count = path_count(lxcpath);
+    char **list = calloc(count > 0 ? count : 1, sizeof(char *));
+    struct lxc_container **containers = cret ? calloc(count > 0 ? count : 1, sizeof(*containers)) : NULL;
+
+    if (list == NULL || (cret && containers == NULL)) {
+        free(list);
+        free(containers);
+        return -1;
+    }
+    for (int i = 0; i < count; i++) {
+        char name[32];
+        snprintf(name, sizeof(name), "ct-%04d", i);
+        list[i] = strdup(name);
+        if (containers) {
+            containers[i] = lxc_container_new(name, lxcpath);
+        }
+    }
+
+    if (names) {
+        *names = list;
+    } else {
+        for (int i = 0; i < count; i++) {
+            free(list[i]);
+        }
+        free(list);
+    }
+    if (cret) {
+        *cret = containers;
+    }
+    return count;
+}
+
+int lxc_attach_run_command(void *payload) {
+    lxc_attach_command_t *command = payload;
+    execvp(command->program, command->argv);
+    return 127;
+}
+
+int lxc_attach_run_shell(void *payload) {
+    execl("/bin/sh", "sh", (char *)NULL);
+    return 127;
+}
+
+const char *lxc_get_version(void) {
+    return LXC_VERSION "-stub";
+}
+
+bool lxc_config_item_is_supported(const char *key) {
+    for (int i = 0; i < STUB_KEY_COUNT; i++) {
+        if (strcmp(stub_keys[i], key) == 0) {
+            return true;
+        }
+    }
+    return false;
+}
+
+bool lxc_has_api_extension(const char *extension) {
+    return false;
+}
@@ -0,0 +1,143 @@
+// Host Linux benchmarks for the lxc package and lxc-binding
+//
+// The service and client classes are compiled from the app sources against small Android
+// stand-ins in src/stubs, and lxc-binding is built for the host by CMake, linked against the
+// stub liblxc by default or the system one with -PlxcSystem=true.
+//
+//   ./gradlew :benchmark:jmh
+//   ./gradlew :benchmark:jmh -PjmhIncludes=ListBenchmark
+
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+val appMain = rootProject.file("app/src/main")
+val nativeBuildDir = layout.buildDirectory.dir("native")
+
+/**
+ * Generates plain Java interfaces with an in-process Stub from the app's AIDL files
+ * Parcelable declarations are skipped, their Java classes come from the app sources.
+ */
+abstract class GenerateAidlStubs : DefaultTask() {
+    @get:InputDirectory
+    abstract val aidlDir: DirectoryProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val out = outputDir.get().asFile
+        out.deleteRecursively()
+        aidlDir.get().asFile.walk().filter { it.extension == "aidl" }.forEach { file ->
+            val text = file.readText()
+                .replace(Regex("/\\*.*?\\*/", RegexOption.DOT_MATCHES_ALL), "")
+                .replace(Regex("//[^\n]*"), "")
+            val pkg = Regex("package\\s+([\\w.]+)\\s*;").find(text)!!.groupValues[1]
+            val imports = Regex("import\\s+([\\w.]+)\\s*;").findAll(text).map { it.groupValues[1] }
+            val iface = Regex("(oneway\\s+)?interface\\s+(\\w+)\\s*\\{(.*)}", RegexOption.DOT_MATCHES_ALL)
+                .find(text) ?: return@forEach
+            val name = iface.groupValues[2]
+
+            val members = iface.groupValues[3].split(';')
+                .map { it.trim().replace(Regex("\\s+"), " ") }
+                .filter { it.isNotEmpty() }
+                .map { decl ->
+                    if (Regex("^(const\\s+)?(int|long|String)\\s+\\w+\\s*=").containsMatchIn(decl)) {
+                        "    ${decl.removePrefix("const ")};"
+                    } else {
+                        val method = decl
+                            .replace(Regex("\\boneway\\s+"), "")
+                            .replace(Regex("\\b(in|out|inout)\\s+"), "")
+                            .replace(Regex("\\bList<"), "java.util.List<")
+                            .replace(Regex("\\bMap\\b"), "java.util.Map")
+                        "    $method throws android.os.RemoteException;"
+                    }
+                }
+
+            val target = File(out, pkg.replace('.', '/') + "/$name.java")
+            target.parentFile.mkdirs()
+            target.writeText(buildString {
+                appendLine("package $pkg;")
+                appendLine()
+                imports.forEach { appendLine("import $it;") }
+                appendLine()
+                appendLine("public interface $name extends android.os.IInterface {")
+                members.forEach { appendLine(it) }
+                appendLine()
+                appendLine("    abstract class Stub extends android.os.Binder implements $name {")
+                appendLine("        private static final String DESCRIPTOR = \"$pkg.$name\";")
+                appendLine()
+                appendLine("        public Stub() {")
+                appendLine("            attachInterface(this, DESCRIPTOR);")
+                appendLine("        }")
+                appendLine()
+                appendLine("        public static $name asInterface(android.os.IBinder binder) {")
+                appendLine("            return binder == null ? null : ($name) binder.queryLocalInterface(DESCRIPTOR);")
+                appendLine("        }")
+                appendLine()
+                appendLine("        @Override")
+                appendLine("        public android.os.IBinder asBinder() {")
+                appendLine("            return this;")
+                appendLine("        }")
+                appendLine("    }")
+                appendLine("}")
+            })
+        }
+    }
+}
+
+val generateAidl = tasks.register<GenerateAidlStubs>("generateAidl") {
+    aidlDir.set(File(appMain, "aidl"))
+    outputDir.set(layout.buildDirectory.dir("generated/aidl"))
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("src/stubs/java")
+            srcDir(File(appMain, "java"))
+            srcDir(generateAidl)
+            // Needs the Android UI classes
+            exclude("io/github/coap/MainActivity.java")
+        }
+    }
+}
+
+val nativeConfigure = tasks.register<Exec>("nativeConfigure") {
+    val useSystem = providers.gradleProperty("lxcSystem").map { it.toBoolean() }.getOrElse(false)
+    inputs.file(File(appMain, "jni/CMakeLists.txt"))
+    outputs.dir(nativeBuildDir)
+    commandLine(
+        "cmake",
+        "-S", File(appMain, "jni").absolutePath,
+        "-B", nativeBuildDir.get().asFile.absolutePath,
+        "-DCMAKE_BUILD_TYPE=Release",
+        "-DLXC_USE_SYSTEM=" + if (useSystem) "ON" else "OFF",
+    )
+}
+
+val nativeBuild = tasks.register<Exec>("nativeBuild") {
+    dependsOn(nativeConfigure)
+    inputs.dir(File(appMain, "jni/src"))
+    inputs.dir(File(appMain, "jni/stub"))
+    inputs.dir(File(appMain, "jni/baseline"))
+    outputs.file(nativeBuildDir.map { it.file("liblxc-binding.so") })
+    commandLine("cmake", "--build", nativeBuildDir.get().asFile.absolutePath, "--parallel")
+}
+
+jmh {
+    jvmArgs.add("-Djava.library.path=" + nativeBuildDir.get().asFile.absolutePath)
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+tasks.named("jmh") {
+    dependsOn(nativeBuild)
+}
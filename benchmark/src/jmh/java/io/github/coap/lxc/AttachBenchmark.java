@@ -0,0 +1,67 @@
+package io.github.coap.lxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attach argv marshalling
+ * Attaching to a stopped stub container fails right after argv and the container have been
+ * resolved, so this measures marshalling alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttachBenchmark {
+    private static final String LXC_PATH = "/stub/10";
+    private static final String STOPPED = "ct-0001";
+
+    @Param({"1", "16", "256"})
+    public int argc;
+
+    @Param({"8", "128"})
+    public int argLength;
+
+    private LxcNative.LxcIPC ipc;
+    private String[] argv;
+
+    @Setup
+    public void setup() {
+        ipc = new LxcNative.LxcIPC();
+
+        char[] arg = new char[argLength];
+        Arrays.fill(arg, 'a');
+        argv = new String[argc];
+        argv[0] = "/bin/true";
+        for (int i = 1; i < argc; i++) {
+            argv[i] = new String(arg);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ipc.shutdown();
+    }
+
+    @Benchmark
+    public int marshalArgv() {
+        return ipc.attachRunWait(STOPPED, LXC_PATH, false, LxcProcess.NAMESPACES_ALL,
+                LxcProcess.PERSONALITY_DEFAULT, LxcProcess.ID_DEFAULT, LxcProcess.ID_DEFAULT,
+                argv, LxcProcess.ATTACH_DEFAULT);
+    }
+}
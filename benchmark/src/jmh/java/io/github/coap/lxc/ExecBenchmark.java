@@ -0,0 +1,56 @@
+package io.github.coap.lxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fresh attach per command against a pooled exec session
+ * The stub liblxc forks and execs on the host without entering namespaces, so this compares
+ * the per-command overhead of both paths rather than real container attach costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecBenchmark {
+    private static final String LXC_PATH = "/stub/10";
+    private static final String RUNNING = "ct-0000";
+    private static final String[] COMMAND = {"/bin/true"};
+
+    private LxcNative.LxcIPC ipc;
+
+    @Setup
+    public void setup() {
+        ipc = new LxcNative.LxcIPC();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ipc.shutdown();
+    }
+
+    @Benchmark
+    public int attachRunWait() {
+        return ipc.attachRunWait(RUNNING, LXC_PATH, false, LxcProcess.NAMESPACES_ALL,
+                LxcProcess.PERSONALITY_DEFAULT, LxcProcess.ID_DEFAULT, LxcProcess.ID_DEFAULT,
+                COMMAND, LxcProcess.ATTACH_DEFAULT);
+    }
+
+    @Benchmark
+    public int execInSession() {
+        return ipc.execInSession(RUNNING, LXC_PATH, COMMAND, null, null, null);
+    }
+}
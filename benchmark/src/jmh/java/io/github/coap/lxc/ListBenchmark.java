@@ -0,0 +1,66 @@
+package io.github.coap.lxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LxcManager list operations over 10, 100 and 1000 stub containers
+ * The stub liblxc derives the container count from the last component of the LXC path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+    @Param({"10", "100", "1000"})
+    public int containers;
+
+    private LxcNative.LxcIPC ipc;
+    private LxcManager manager;
+
+    @Setup
+    public void setup() {
+        ipc = new LxcNative.LxcIPC();
+        manager = new LxcManager(ipc, "/stub/" + containers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ipc.shutdown();
+    }
+
+    @Benchmark
+    public List<LxcContainer> listContainers() {
+        return manager.listContainers();
+    }
+
+    @Benchmark
+    public List<ContainerStatus> getContainerStatuses() {
+        return manager.getContainerStatuses();
+    }
+
+    @Benchmark
+    public List<LxcContainer> listRunningContainers() {
+        return manager.listRunningContainers();
+    }
+
+    @Benchmark
+    public List<LxcContainer> listStoppedContainers() {
+        return manager.listStoppedContainers();
+    }
+}
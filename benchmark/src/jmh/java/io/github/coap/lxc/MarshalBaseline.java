@@ -0,0 +1,29 @@
+package io.github.coap.lxc;
+
+/**
+ * JNI entries converting strings and arrays the way lxc-binding did before jni-marshal.c
+ * Implemented in app/src/main/jni/baseline, which only the host build of lxc-binding compiles.
+ */
+final class MarshalBaseline {
+    static {
+        System.loadLibrary("lxc-binding");
+    }
+
+    private MarshalBaseline() {
+    }
+
+    // GetStringUTFChars for both strings, otherwise as LxcNative.nativeGetState
+    static native String legacyGetState(String name, String lxcpath);
+
+    // Same as LxcNative.nativeGetState, which stays private to the service
+    static native String getState(String name, String lxcpath);
+
+    // FindClass on every call, otherwise as LxcNative.nativeListContainers
+    static native String[] legacyListContainers(String lxcpath);
+
+    // Copies argv with a calloc and one strdup per argument, returns argc
+    static native int legacyCopyArgv(String[] argv);
+
+    // Copies argv with jargv_get as the attach calls do, returns argc
+    static native int copyArgv(String[] argv);
+}
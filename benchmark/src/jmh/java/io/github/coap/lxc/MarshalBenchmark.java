@@ -0,0 +1,79 @@
+package io.github.coap.lxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JNI marshalling before and after jni-marshal.c
+ * Each legacy* benchmark calls a baseline entry that does the same native work as its
+ * counterpart with the old conversions, see MarshalBaseline. Natives are called directly,
+ * without LxcIPC, so the difference is not hidden behind call statistics and coalescing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshalBenchmark {
+    private static final String RUNNING = "ct-0000";
+
+    // Containers listed, and arguments of the copied argv
+    @Param({"10", "100"})
+    public int count;
+
+    private String lxcPath;
+    private String[] argv;
+
+    @Setup
+    public void setup() {
+        lxcPath = "/stub/" + count;
+        argv = new String[count];
+        for (int i = 0; i < count; i++) {
+            argv[i] = "--argument-" + i;
+        }
+        // Loads lxc-binding and fills the handle cache
+        MarshalBaseline.getState(RUNNING, lxcPath);
+    }
+
+    @Benchmark
+    public String getState() {
+        return MarshalBaseline.getState(RUNNING, lxcPath);
+    }
+
+    @Benchmark
+    public String legacyGetState() {
+        return MarshalBaseline.legacyGetState(RUNNING, lxcPath);
+    }
+
+    @Benchmark
+    public String[] listContainers() {
+        return LxcNative.nativeListContainers(lxcPath);
+    }
+
+    @Benchmark
+    public String[] legacyListContainers() {
+        return MarshalBaseline.legacyListContainers(lxcPath);
+    }
+
+    @Benchmark
+    public int copyArgv() {
+        return MarshalBaseline.copyArgv(argv);
+    }
+
+    @Benchmark
+    public int legacyCopyArgv() {
+        return MarshalBaseline.legacyCopyArgv(argv);
+    }
+}
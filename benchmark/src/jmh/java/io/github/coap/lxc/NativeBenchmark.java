@@ -0,0 +1,84 @@
+package io.github.coap.lxc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single container calls through LxcIPC into lxc-binding
+ * Against the stub liblxc this is the cost of the binder method, string marshalling, the handle
+ * cache and the lxc-binding wrapper, without any work done by LXC itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBenchmark {
+    private static final String LXC_PATH = "/stub/100";
+    private static final String RUNNING = "ct-0000";
+
+    private LxcNative.LxcIPC ipc;
+
+    @Setup
+    public void setup() {
+        ipc = new LxcNative.LxcIPC();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ipc.shutdown();
+    }
+
+    @Benchmark
+    public String getVersion() {
+        return LxcNative.getVersion();
+    }
+
+    @Benchmark
+    public boolean isRunning() {
+        return ipc.isRunning(RUNNING, LXC_PATH);
+    }
+
+    @Benchmark
+    public String getState() {
+        return ipc.getState(RUNNING, LXC_PATH);
+    }
+
+    @Benchmark
+    public String getConfigItem() {
+        return ipc.getConfigItem(RUNNING, LXC_PATH, "lxc.rootfs.path");
+    }
+
+    @Benchmark
+    public String[] getConfigItems() {
+        return ipc.getConfigItems(RUNNING, LXC_PATH,
+                new String[]{"lxc.uts.name", "lxc.start.auto", "lxc.start.order", "lxc.start.delay"});
+    }
+
+    @Benchmark
+    public String[] getConfigKeys() {
+        return ipc.getConfigKeys(RUNNING, LXC_PATH);
+    }
+
+    @Benchmark
+    public String getCgroupItem() {
+        return ipc.getCgroupItem(RUNNING, LXC_PATH, "memory.current");
+    }
+
+    @Benchmark
+    public String[] getInterfaces() {
+        return ipc.getInterfaces(RUNNING, LXC_PATH);
+    }
+}
@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Host stand-in for the Android class of the same name
+ */
+public class Intent {
+}
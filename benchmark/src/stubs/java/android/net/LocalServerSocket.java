@@ -0,0 +1,22 @@
+package android.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * The JDK cannot bind abstract unix sockets, so listening always fails on the host.
+ */
+public class LocalServerSocket implements Closeable {
+    public LocalServerSocket(String name) throws IOException {
+        throw new IOException("Local sockets are not available on the host");
+    }
+
+    public LocalSocket accept() throws IOException {
+        throw new IOException("Local sockets are not available on the host");
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,35 @@
+package android.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * The JDK cannot reach abstract unix sockets, so connecting always fails on the host.
+ */
+public class LocalSocket implements Closeable {
+    public void connect(LocalSocketAddress endpoint) throws IOException {
+        throw new IOException("Local sockets are not available on the host");
+    }
+
+    public Credentials getPeerCredentials() throws IOException {
+        throw new IOException("Not connected");
+    }
+
+    public void setSoTimeout(int timeout) throws IOException {
+    }
+
+    public InputStream getInputStream() throws IOException {
+        throw new IOException("Not connected");
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("Not connected");
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
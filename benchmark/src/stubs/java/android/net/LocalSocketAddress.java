@@ -0,0 +1,16 @@
+package android.net;
+
+/**
+ * Host stand-in for the Android class of the same name, only abstract namespace names
+ */
+public class LocalSocketAddress {
+    private final String name;
+
+    public LocalSocketAddress(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,35 @@
+package android.os;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * Binder calls are never marshalled on the host, stubs are always called in process.
+ */
+public class Binder implements IBinder {
+    private IInterface owner;
+    private String descriptor;
+
+    // Calls never come from another process, the caller is the root service itself
+    public static final int getCallingUid() {
+        return 0;
+    }
+
+    public void attachInterface(IInterface owner, String descriptor) {
+        this.owner = owner;
+        this.descriptor = descriptor;
+    }
+
+    @Override
+    public IInterface queryLocalInterface(String descriptor) {
+        return descriptor.equals(this.descriptor) ? owner : null;
+    }
+
+    // A binder in the same process never dies
+    @Override
+    public void linkToDeath(DeathRecipient recipient, int flags) {
+    }
+
+    @Override
+    public boolean unlinkToDeath(DeathRecipient recipient, int flags) {
+        return true;
+    }
+}
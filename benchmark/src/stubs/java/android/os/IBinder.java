@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Host stand-in for the Android class of the same name, just enough for the lxc package
+ */
+public interface IBinder {
+    interface DeathRecipient {
+        void binderDied();
+    }
+
+    IInterface queryLocalInterface(String descriptor);
+
+    void linkToDeath(DeathRecipient recipient, int flags) throws RemoteException;
+
+    boolean unlinkToDeath(DeathRecipient recipient, int flags);
+}
@@ -0,0 +1,8 @@
+package android.os;
+
+/**
+ * Host stand-in for the Android class of the same name, just enough for the lxc package
+ */
+public interface IInterface {
+    IBinder asBinder();
+}
@@ -0,0 +1,62 @@
+package android.os;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * Binder calls are never marshalled on the host, so nothing here is expected to run.
+ */
+public final class Parcel {
+    private Parcel() {
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Parcel is not available on the host");
+    }
+
+    public void writeInt(int value) {
+        throw unsupported();
+    }
+
+    public int readInt() {
+        throw unsupported();
+    }
+
+    public void writeLong(long value) {
+        throw unsupported();
+    }
+
+    public long readLong() {
+        throw unsupported();
+    }
+
+    public void writeString(String value) {
+        throw unsupported();
+    }
+
+    public String readString() {
+        throw unsupported();
+    }
+
+    public void writeStringArray(String[] value) {
+        throw unsupported();
+    }
+
+    public String[] createStringArray() {
+        throw unsupported();
+    }
+
+    public void writeLongArray(long[] value) {
+        throw unsupported();
+    }
+
+    public long[] createLongArray() {
+        throw unsupported();
+    }
+
+    public void writeByteArray(byte[] value) {
+        throw unsupported();
+    }
+
+    public byte[] createByteArray() {
+        throw unsupported();
+    }
+}
@@ -0,0 +1,75 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * Raw fds cannot be wrapped without native help on the host, so only the parts that work on a
+ * FileDescriptor are implemented and benchmarks pass null descriptors instead.
+ */
+public class ParcelFileDescriptor implements Parcelable, Closeable {
+    public static final Parcelable.Creator<ParcelFileDescriptor> CREATOR = new Parcelable.Creator<>() {
+        @Override
+        public ParcelFileDescriptor createFromParcel(Parcel source) {
+            throw new UnsupportedOperationException("Parcel is not available on the host");
+        }
+
+        @Override
+        public ParcelFileDescriptor[] newArray(int size) {
+            return new ParcelFileDescriptor[size];
+        }
+    };
+
+    private final FileDescriptor fd;
+
+    public ParcelFileDescriptor(FileDescriptor fd) {
+        this.fd = fd;
+    }
+
+    public static ParcelFileDescriptor[] createPipe() throws IOException {
+        throw new IOException("Pipes are not available on the host");
+    }
+
+    public static ParcelFileDescriptor adoptFd(int fd) {
+        throw new UnsupportedOperationException("Raw fds are not available on the host");
+    }
+
+    public FileDescriptor getFileDescriptor() {
+        return fd;
+    }
+
+    public int getFd() {
+        throw new UnsupportedOperationException("Raw fds are not available on the host");
+    }
+
+    @Override
+    public void close() throws IOException {
+        new FileInputStream(fd).close();
+    }
+
+    @Override
+    public int describeContents() {
+        return CONTENTS_FILE_DESCRIPTOR;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        throw new UnsupportedOperationException("Parcel is not available on the host");
+    }
+
+    public static class AutoCloseInputStream extends FileInputStream {
+        public AutoCloseInputStream(ParcelFileDescriptor pfd) {
+            super(pfd.getFileDescriptor());
+        }
+    }
+
+    public static class AutoCloseOutputStream extends FileOutputStream {
+        public AutoCloseOutputStream(ParcelFileDescriptor pfd) {
+            super(pfd.getFileDescriptor());
+        }
+    }
+}
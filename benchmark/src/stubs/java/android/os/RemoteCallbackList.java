@@ -0,0 +1,49 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Host stand-in for the Android class of the same name
+ * Callbacks live in the same process, so none of them ever dies.
+ */
+public class RemoteCallbackList<E extends IInterface> {
+    private final List<E> callbacks = new ArrayList<>();
+    private Object[] broadcast;
+
+    public synchronized boolean register(E callback) {
+        if (callbacks.contains(callback)) {
+            return false;
+        }
+        return callbacks.add(callback);
+    }
+
+    public synchronized boolean unregister(E callback) {
+        return callbacks.remove(callback);
+    }
+
+    public synchronized int getRegisteredCallbackCount() {
+        return callbacks.size();
+    }
+
+    public synchronized int beginBroadcast() {
+        if (broadcast != null) {
+            throw new IllegalStateException("beginBroadcast() called while already in a broadcast");
+        }
+        broadcast = callbacks.toArray();
+        return broadcast.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E getBroadcastItem(int index) {
+        return (E) broadcast[index];
+    }
+
+    public synchronized void finishBroadcast() {
+        broadcast = null;
+    }
+
+    public synchronized void kill() {
+        callbacks.clear();
+    }
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * Host stand-in for the Android class of the same name
+ */
+public class RemoteException extends Exception {
+    public RemoteException() {
+    }
+
+    public RemoteException(String message) {
+        super(message);
+    }
+}
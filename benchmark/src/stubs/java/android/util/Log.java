@@ -0,0 +1,42 @@
+package android.util;
+
+/**
+ * Host stand-in for the Android class of the same name, writes warnings and errors to stderr
+ */
+public final class Log {
+    private Log() {
+    }
+
+    private static int print(String level, String tag, String msg) {
+        System.err.println(level + "/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int v(String tag, String msg) {
+        return 0;
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return print("W", tag, msg);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return print("W", tag, msg + ": " + tr);
+    }
+
+    public static int e(String tag, String msg) {
+        return print("E", tag, msg);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return print("E", tag, msg + ": " + tr);
+    }
+}
@@ -0,0 +1,7 @@
+package androidx.annotation;
+
+/**
+ * Host stand-in for the AndroidX annotation of the same name
+ */
+public @interface NonNull {
+}
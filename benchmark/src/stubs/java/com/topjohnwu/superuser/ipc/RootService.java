@@ -0,0 +1,24 @@
+package com.topjohnwu.superuser.ipc;
+
+import android.content.Intent;
+import android.os.IBinder;
+
+/**
+ * Host stand-in for libsu's RootService, the benchmarks use the service binder directly
+ */
+public abstract class RootService {
+    public void onCreate() {
+    }
+
+    public void onRebind(Intent intent) {
+    }
+
+    public abstract IBinder onBind(Intent intent);
+
+    public boolean onUnbind(Intent intent) {
+        return false;
+    }
+
+    public void onDestroy() {
+    }
+}
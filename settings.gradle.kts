@@ -17,4 +17,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "lxc jni example"
 
-include(":app")
\ No newline at end of file
+include(":app")
+include(":benchmark")
\ No newline at end of file